@@ -0,0 +1,53 @@
+package com.xu.news.controller;
+
+import com.xu.news.common.Result;
+import com.xu.news.service.VectorIndexBootstrapService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 健康检查控制器
+ *
+ * 存活检查只表示进程可响应；就绪检查在向量索引加载完成前返回 503（附加载进度），供负载均衡或探针判断。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+@RestController
+@RequestMapping("/health")
+public class HealthController {
+
+    @Autowired
+    private VectorIndexBootstrapService vectorIndexBootstrapService;
+
+    /**
+     * 存活检查
+     */
+    @GetMapping("/liveness")
+    public Result<String> liveness() {
+        return Result.success("UP");
+    }
+
+    /**
+     * 就绪检查：向量索引加载完成返回 200，加载中或加载失败返回 503
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Result<Map<String, Object>>> readiness() {
+        Map<String, Object> progress = vectorIndexBootstrapService.getProgress();
+        if (vectorIndexBootstrapService.isReady()) {
+            return ResponseEntity.ok(Result.success(progress));
+        }
+        log.debug("向量索引未就绪: {}", progress);
+        Result<Map<String, Object>> result = new Result<>(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "向量索引加载中，问答检索暂为关键词模式", progress);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(result);
+    }
+}
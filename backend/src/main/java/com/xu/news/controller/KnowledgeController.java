@@ -14,7 +14,11 @@ import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 知识库控制器
@@ -140,6 +144,24 @@ public class KnowledgeController {
         }
     }
 
+    /**
+     * 获取相关条目（相似度不低于阈值的其他条目，用于重复检查与同一事件的相关报道）
+     */
+    @GetMapping("/{id}/related")
+    public Result<List<KnowledgeEntry>> related(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0.8") Double threshold,
+            @RequestParam(defaultValue = "50") Integer limit) {
+        try {
+            List<KnowledgeEntry> related = knowledgeEntryService.findRelated(id, threshold, limit);
+            log.info("🔗 查询相关条目 - ID:{}, 阈值:{}, 结果数:{}", id, threshold, related.size());
+            return Result.success(related);
+        } catch (Exception e) {
+            log.error("查询相关条目失败: {}", e.getMessage(), e);
+            return Result.error("查询失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 删除知识条目
      */
@@ -321,70 +343,120 @@ public class KnowledgeController {
         try {
             log.info("N8N导入原始数据: {}", rawData);
             
-            // 手动构建 KnowledgeEntry
-            KnowledgeEntry entry = new KnowledgeEntry();
-            entry.setTitle((String) rawData.get("title"));
-            entry.setContent((String) rawData.get("content"));
-            entry.setSummary((String) rawData.get("summary"));
-            entry.setSourceUrl((String) rawData.get("sourceUrl"));
-            entry.setAuthor((String) rawData.get("author"));
-            entry.setContentType((String) rawData.get("contentType"));
-            
-            // 设置来源名称，如果为空则使用默认值
-            String sourceName = (String) rawData.get("sourceName");
-            if (sourceName == null || sourceName.isEmpty()) {
-                sourceName = "n8n自动读取";
+            KnowledgeEntry entry = toImportEntry(rawData);
+            String error = validateImportEntry(entry);
+            if (error != null) {
+                return Result.error(error);
             }
-            entry.setSourceName(sourceName);
             
-            // 处理 tags（可能是数组或字符串）
-            // 只有当tags有实际内容时才设置，否则留空让AI自动生成
-            Object tagsObj = rawData.get("tags");
-            if (tagsObj != null) {
-                String tagsStr = null;
-                if (tagsObj instanceof String) {
-                    tagsStr = (String) tagsObj;
-                } else {
-                    tagsStr = JSON.toJSONString(tagsObj);
-                }
-                
-                // 只有当tags不为空且不是空数组时才设置
-                if (tagsStr != null && !tagsStr.trim().isEmpty() && 
-                    !tagsStr.equals("[]") && !tagsStr.equals("{}")) {
-                    entry.setTags(tagsStr);
-                    log.info("使用n8n提供的标签: {}", tagsStr);
+            KnowledgeEntry created = knowledgeEntryService.createWithVector(entry);
+            return Result.success("导入成功", created);
+        } catch (Exception e) {
+            log.error("N8N导入知识条目失败: {}", e.getMessage(), e);
+            return Result.error("导入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * N8N 批量导入知识条目（无需认证），整批生成向量；缺少标题或内容的条目跳过
+     */
+    @PostMapping("/import/batch")
+    public Result<Map<String, Object>> batchImportFromN8N(@RequestBody List<Map<String, Object>> rawDataList) {
+        try {
+            log.info("N8N批量导入: 条目数={}", rawDataList.size());
+            
+            List<KnowledgeEntry> entries = new ArrayList<>();
+            List<String> skipped = new ArrayList<>();
+            for (int i = 0; i < rawDataList.size(); i++) {
+                KnowledgeEntry entry = toImportEntry(rawDataList.get(i));
+                String error = validateImportEntry(entry);
+                if (error != null) {
+                    skipped.add("第" + (i + 1) + "条: " + error);
                 } else {
-                    log.info("n8n未提供有效标签，将由AI自动生成");
+                    entries.add(entry);
                 }
-            } else {
-                log.info("n8n未提供标签，将由AI自动生成");
             }
             
-            // 处理时间字段
-            Object publishedAtObj = rawData.get("publishedAt");
-            if (publishedAtObj instanceof String) {
-                try {
-                    entry.setPublishedAt(LocalDateTime.parse((String) publishedAtObj));
-                } catch (Exception e) {
-                    log.warn("时间格式解析失败: {}", publishedAtObj);
-                }
+            List<KnowledgeEntry> created = knowledgeEntryService.createWithVectors(entries);
+            Map<String, Object> result = new HashMap<>();
+            result.put("imported", created.size());
+            result.put("ids", created.stream().map(KnowledgeEntry::getId).collect(Collectors.toList()));
+            result.put("skipped", skipped);
+            return Result.success("导入成功", result);
+        } catch (Exception e) {
+            log.error("N8N批量导入知识条目失败: {}", e.getMessage(), e);
+            return Result.error("导入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 由 n8n 提交的原始数据构建知识条目
+     */
+    private KnowledgeEntry toImportEntry(Map<String, Object> rawData) {
+        // 手动构建 KnowledgeEntry
+        KnowledgeEntry entry = new KnowledgeEntry();
+        entry.setTitle((String) rawData.get("title"));
+        entry.setContent((String) rawData.get("content"));
+        entry.setSummary((String) rawData.get("summary"));
+        entry.setSourceUrl((String) rawData.get("sourceUrl"));
+        entry.setAuthor((String) rawData.get("author"));
+        entry.setContentType((String) rawData.get("contentType"));
+        
+        // 设置来源名称，如果为空则使用默认值
+        String sourceName = (String) rawData.get("sourceName");
+        if (sourceName == null || sourceName.isEmpty()) {
+            sourceName = "n8n自动读取";
+        }
+        entry.setSourceName(sourceName);
+        
+        // 处理 tags（可能是数组或字符串）
+        // 只有当tags有实际内容时才设置，否则留空让AI自动生成
+        Object tagsObj = rawData.get("tags");
+        if (tagsObj != null) {
+            String tagsStr = null;
+            if (tagsObj instanceof String) {
+                tagsStr = (String) tagsObj;
+            } else {
+                tagsStr = JSON.toJSONString(tagsObj);
             }
             
-            // 验证必填字段
-            if (entry.getTitle() == null || entry.getTitle().isEmpty()) {
-                return Result.error("标题不能为空");
+            // 只有当tags不为空且不是空数组时才设置
+            if (tagsStr != null && !tagsStr.trim().isEmpty() && 
+                !tagsStr.equals("[]") && !tagsStr.equals("{}")) {
+                entry.setTags(tagsStr);
+                log.info("使用n8n提供的标签: {}", tagsStr);
+            } else {
+                log.info("n8n未提供有效标签，将由AI自动生成");
             }
-            if (entry.getContent() == null || entry.getContent().isEmpty()) {
-                return Result.error("内容不能为空");
+        } else {
+            log.info("n8n未提供标签，将由AI自动生成");
+        }
+        
+        // 处理时间字段
+        Object publishedAtObj = rawData.get("publishedAt");
+        if (publishedAtObj instanceof String) {
+            try {
+                entry.setPublishedAt(LocalDateTime.parse((String) publishedAtObj));
+            } catch (Exception e) {
+                log.warn("时间格式解析失败: {}", publishedAtObj);
             }
-            
-            entry.setCreatedBy(1L);
-            KnowledgeEntry created = knowledgeEntryService.createWithVector(entry);
-            return Result.success("导入成功", created);
-        } catch (Exception e) {
-            log.error("N8N导入知识条目失败: {}", e.getMessage(), e);
-            return Result.error("导入失败: " + e.getMessage());
         }
+        
+        entry.setCreatedBy(1L);
+        return entry;
+    }
+
+    /**
+     * 验证必填字段，返回错误信息（通过时返回 null）
+     */
+    private String validateImportEntry(KnowledgeEntry entry) {
+        if (entry.getTitle() == null || entry.getTitle().isEmpty()) {
+            return "标题不能为空";
+        }
+        if (entry.getContent() == null || entry.getContent().isEmpty()) {
+            return "内容不能为空";
+        }
+        return null;
     }
 }
 
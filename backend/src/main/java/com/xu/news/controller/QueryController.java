@@ -4,11 +4,27 @@ import com.xu.news.common.Result;
 import com.xu.news.dto.QueryRequest;
 import com.xu.news.dto.QueryResponse;
 import com.xu.news.service.QueryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 智能问答控制器
@@ -24,6 +40,37 @@ public class QueryController {
     @Autowired
     private QueryService queryService;
 
+    @Value("${query.stream.timeout-ms:300000}")
+    private long streamTimeoutMs = 300000;
+
+    @Value("${query.stream.threads:32}")
+    private int streamThreads = 32;
+
+    @Value("${query.stream.queue-capacity:64}")
+    private int streamQueueCapacity = 64;
+
+    // 流式问答执行线程池，生成期间不占用 Tomcat 请求线程；排队数有上限，队列已满时拒绝
+    private ExecutorService streamExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadSequence = new AtomicInteger();
+        int threads = Math.max(1, streamThreads);
+        streamExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, streamQueueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "query-stream-" + threadSequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (streamExecutor != null) {
+            streamExecutor.shutdownNow();
+        }
+    }
+
     /**
      * 智能问答（RAG）
      */
@@ -44,6 +91,94 @@ public class QueryController {
         }
     }
 
+    /**
+     * 流式智能问答（Server-Sent Events）
+     * 
+     * 事件依次为：retrieved（检索结果）、token（回答片段，多次）、done（查询ID、耗时与首字耗时）；
+     * 出错或排队已满时发送 error 事件后结束。
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter askStream(@Valid @RequestBody QueryRequest request, Authentication authentication,
+                                HttpServletResponse servletResponse) {
+        // 耗时从收到请求起算，包含排队等待执行线程的时间
+        long receivedAt = System.currentTimeMillis();
+        // 获取用户ID，如果未认证则使用默认值1L
+        Long userId = 1L;
+        if (authentication != null && authentication.getPrincipal() != null) {
+            userId = (Long) authentication.getPrincipal();
+        }
+        // 关闭反向代理缓冲，片段到达即转发
+        servletResponse.setHeader("X-Accel-Buffering", "no");
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Long currentUserId = userId;
+        try {
+            streamExecutor.execute(() -> stream(request, currentUserId, receivedAt, emitter));
+        } catch (RejectedExecutionException e) {
+            log.warn("流式问答排队已满，拒绝请求: {}", request.getQuery());
+            try {
+                emitter.send(SseEmitter.event().name("error").data("服务繁忙，请稍后重试"));
+                emitter.complete();
+            } catch (Exception sendFailure) {
+                emitter.completeWithError(sendFailure);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * 在流式问答线程中执行查询并逐个发送事件
+     */
+    private void stream(QueryRequest request, Long userId, long receivedAt, SseEmitter emitter) {
+        try {
+            queryService.streamQuery(request, userId, receivedAt, new QueryService.StreamListener() {
+                @Override
+                public void onRetrieved(QueryResponse response) {
+                    send(emitter, "retrieved", response);
+                }
+
+                @Override
+                public void onToken(String token) {
+                    send(emitter, "token", token);
+                }
+
+                @Override
+                public void onComplete(QueryResponse response) {
+                    Map<String, Object> done = new HashMap<>();
+                    done.put("queryId", response.getQueryId());
+                    done.put("sessionId", response.getSessionId());
+                    done.put("responseTimeMs", response.getResponseTimeMs());
+                    done.put("timeToFirstTokenMs", response.getTimeToFirstTokenMs());
+                    done.put("degraded", response.getDegraded());
+                    send(emitter, "done", done);
+                }
+            });
+            emitter.complete();
+        } catch (ClientAbortException e) {
+            log.info("客户端已断开，停止生成: {}", e.getMessage());
+            emitter.complete();
+        } catch (Exception e) {
+            log.error("流式查询失败: {}", e.getMessage(), e);
+            try {
+                emitter.send(SseEmitter.event().name("error").data("查询失败: " + e.getMessage()));
+                emitter.complete();
+            } catch (Exception sendFailure) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * 发送 SSE 事件；发送失败说明客户端已断开，抛出异常以中止生成
+     */
+    private void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            throw new ClientAbortException(e);
+        }
+    }
+
     /**
      * 语义搜索
      */
@@ -63,5 +198,13 @@ public class QueryController {
             return Result.error("搜索失败: " + e.getMessage());
         }
     }
-}
 
+    /**
+     * 客户端断开
+     */
+    private static class ClientAbortException extends RuntimeException {
+        ClientAbortException(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
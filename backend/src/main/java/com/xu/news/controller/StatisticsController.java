@@ -7,6 +7,10 @@ import com.xu.news.entity.User;
 import com.xu.news.service.KnowledgeEntryService;
 import com.xu.news.service.UserService;
 import com.xu.news.mapper.UserQueryHistoryMapper;
+import com.xu.news.util.EmbeddingCache;
+import com.xu.news.util.QueryEmbeddingCache;
+import com.xu.news.util.SemanticAnswerCache;
+import com.xu.news.util.VectorStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -34,6 +38,72 @@ public class StatisticsController {
     @Autowired
     private UserQueryHistoryMapper queryHistoryMapper;
 
+    @Autowired
+    private VectorStore vectorStore;
+
+    @Autowired
+    private EmbeddingCache embeddingCache;
+
+    @Autowired
+    private QueryEmbeddingCache queryEmbeddingCache;
+
+    @Autowired
+    private SemanticAnswerCache answerCache;
+
+    /**
+     * 获取向量存储状态（向量数、存储模式、堆外内存占用）
+     */
+    @GetMapping("/vector-store")
+    public Result<Map<String, Object>> getVectorStoreStats() {
+        try {
+            Map<String, Object> stats = vectorStore.getStorageStats();
+            log.debug("向量存储状态: {}", stats);
+            return Result.success(stats);
+        } catch (Exception e) {
+            log.error("获取向量存储状态失败: {}", e.getMessage(), e);
+            return Result.error("获取向量存储状态失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取向量缓存统计（命中率、节省的模型调用耗时）
+     */
+    @GetMapping("/embedding-cache")
+    public Result<Map<String, Object>> getEmbeddingCacheStats() {
+        try {
+            return Result.success(embeddingCache.getStats());
+        } catch (Exception e) {
+            log.error("获取向量缓存统计失败: {}", e.getMessage(), e);
+            return Result.error("获取向量缓存统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取查询向量缓存统计（条目数、命中率、过期数）
+     */
+    @GetMapping("/query-embedding-cache")
+    public Result<Map<String, Object>> getQueryEmbeddingCacheStats() {
+        try {
+            return Result.success(queryEmbeddingCache.getStats());
+        } catch (Exception e) {
+            log.error("获取查询向量缓存统计失败: {}", e.getMessage(), e);
+            return Result.error("获取查询向量缓存统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取语义回答缓存统计（缓存回答数、命中率、因知识条目变更移除的回答数）
+     */
+    @GetMapping("/answer-cache")
+    public Result<Map<String, Object>> getAnswerCacheStats() {
+        try {
+            return Result.success(answerCache.getStats());
+        } catch (Exception e) {
+            log.error("获取语义回答缓存统计失败: {}", e.getMessage(), e);
+            return Result.error("获取语义回答缓存统计失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取系统统计信息
      */
@@ -1,9 +1,12 @@
 package com.xu.news.dto;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * 智能问答请求DTO
@@ -28,8 +31,10 @@ public class QueryRequest implements Serializable {
     private String queryType = "semantic";
 
     /**
-     * 返回结果数量
+     * 返回结果数量（1-100）
      */
+    @Min(value = 1, message = "返回结果数量不能小于1")
+    @Max(value = 100, message = "返回结果数量不能超过100")
     private Integer topK = 5;
 
     /**
@@ -37,6 +42,41 @@ public class QueryRequest implements Serializable {
      */
     private Double similarityThreshold = 0.5;
 
+    /**
+     * IVF 检索探测的倒排列表数（为空时使用服务端默认值 faiss.ivf.nprobe，越大召回越高、耗时越长）
+     */
+    private Integer nprobe;
+
+    /**
+     * 来源筛选（数据源ID）
+     */
+    private List<Long> sourceIds;
+
+    /**
+     * 内容类型筛选：news/article/document/other
+     */
+    private List<String> contentTypes;
+
+    /**
+     * 标签筛选（命中任意一个即可）
+     */
+    private List<String> tags;
+
+    /**
+     * 发布时间开始日期（yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss）
+     */
+    private String startDate;
+
+    /**
+     * 发布时间结束日期（yyyy-MM-dd 表示包含当天）
+     */
+    private String endDate;
+
+    /**
+     * 状态筛选：0-草稿 1-已发布 2-已归档
+     */
+    private List<Integer> statuses;
+
     /**
      * 是否需要AI生成回答
      */
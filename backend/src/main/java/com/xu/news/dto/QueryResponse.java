@@ -31,6 +31,11 @@ public class QueryResponse implements Serializable {
      */
     private Long responseTimeMs;
 
+    /**
+     * 首个回答片段的生成耗时（毫秒，自收到请求起算，仅流式问答）
+     */
+    private Long timeToFirstTokenMs;
+
     /**
      * 查询ID（用于反馈）
      */
@@ -41,6 +46,21 @@ public class QueryResponse implements Serializable {
      */
     private String sessionId;
 
+    /**
+     * 是否为降级检索（向量索引加载中，使用关键词检索）
+     */
+    private Boolean degraded = false;
+
+    /**
+     * 召回方式：vector（向量检索）、hybrid（向量与全文召回融合）、keyword（降级关键词检索）
+     */
+    private String retrievalMode;
+
+    /**
+     * 回答是否来自语义回答缓存（未调用大模型生成）
+     */
+    private Boolean cached = false;
+
     /**
      * 检索到的知识条目
      */
@@ -75,10 +95,15 @@ public class QueryResponse implements Serializable {
         private String sourceUrl;
 
         /**
-         * 相似度得分
+         * 相似度得分：向量余弦相似度（启用重排时为重排得分；混合检索中只由全文召回命中的条目为空）
          */
         private Double similarityScore;
 
+        /**
+         * 混合检索的倒数排名融合得分（只在 retrievalMode 为 hybrid 时有值，与相似度不是同一尺度）
+         */
+        private Double fusedScore;
+
         /**
          * 发布时间
          */
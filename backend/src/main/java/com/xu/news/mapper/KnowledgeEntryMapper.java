@@ -4,8 +4,10 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.xu.news.entity.KnowledgeEntry;
+import com.xu.news.util.vector.VectorFilter;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 
@@ -30,11 +32,46 @@ public interface KnowledgeEntryMapper extends BaseMapper<KnowledgeEntry> {
         @Param("endDate") String endDate
     );
 
+    /**
+     * 全文索引检索（MATCH ... AGAINST，ngram 分词），按相关度降序返回向量ID
+     * 
+     * @param filter 与向量检索相同的筛选条件，可为 null
+     */
+    List<Long> matchFullText(
+        @Param("keyword") String keyword,
+        @Param("filter") VectorFilter filter,
+        @Param("limit") int limit
+    );
+
     /**
      * 根据向量ID列表查询
      */
     List<KnowledgeEntry> findByVectorIds(@Param("vectorIds") List<Long> vectorIds);
 
+    /**
+     * 根据向量ID列表查询向量嵌入（只返回 vector_id 与 vector_embedding 两列）
+     */
+    List<KnowledgeEntry> findEmbeddingsByVectorIds(@Param("vectorIds") List<Long> vectorIds);
+
+    /**
+     * 流式读取全部向量的过滤属性与展示载荷（不含 content 与 vector_embedding），用于启动时核对索引并登记属性
+     * 
+     * 结果集按 fetchSize 分批从数据库拉取，整表不会一次性加载到内存；需在打开的 SqlSession 中遍历。
+     */
+    Cursor<KnowledgeEntry> streamVectorAttributes();
+
+    /**
+     * 流式读取全部向量嵌入及过滤属性与展示载荷（不含 content），用于启动时重建向量索引
+     * 
+     * 结果集按 fetchSize 分批从数据库拉取，整表不会一次性加载到内存；需在打开的 SqlSession 中遍历。
+     */
+    Cursor<KnowledgeEntry> streamVectorEmbeddings();
+
+    /**
+     * 统计保存了向量嵌入的条目数
+     */
+    long countVectorEmbeddings();
+
     /**
      * 增加浏览次数
      */
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.xu.news.dto.SearchRequest;
 import com.xu.news.entity.KnowledgeEntry;
+import com.xu.news.util.vector.VectorFilter;
 
 import java.io.File;
 import java.io.IOException;
@@ -22,6 +23,11 @@ public interface KnowledgeEntryService extends IService<KnowledgeEntry> {
      */
     KnowledgeEntry createWithVector(KnowledgeEntry entry) throws IOException;
 
+    /**
+     * 批量创建知识条目并生成向量（整批调用批量嵌入接口）
+     */
+    List<KnowledgeEntry> createWithVectors(List<KnowledgeEntry> entries) throws IOException;
+
     /**
      * 从文件创建知识条目
      */
@@ -38,10 +44,25 @@ public interface KnowledgeEntryService extends IService<KnowledgeEntry> {
     Page<KnowledgeEntry> search(SearchRequest request);
 
     /**
-     * 根据向量ID列表查询知识条目
+     * 全文索引检索，按相关度降序返回最多 limit 个向量ID（混合检索的关键词召回）
+     */
+    List<Long> matchFullText(String keyword, VectorFilter filter, int limit);
+
+    /**
+     * 根据向量ID列表查询知识条目（按传入的向量ID顺序返回）
      */
     List<KnowledgeEntry> findByVectorIds(List<Long> vectorIds);
 
+    /**
+     * 查询与指定条目相似度不低于阈值的其他条目（按相似度降序，用于去重与相关报道）
+     */
+    List<KnowledgeEntry> findRelated(Long id, double threshold, int limit);
+
+    /**
+     * 登记向量的过滤属性（数据源、内容类型、状态、发布时间、标签）与展示载荷（标题、摘要、来源、发布时间、标签）
+     */
+    void registerAttributes(KnowledgeEntry entry);
+
     /**
      * 删除知识条目（同时删除向量）
      */
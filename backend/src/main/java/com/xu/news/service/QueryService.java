@@ -26,5 +26,34 @@ public interface QueryService {
      * 语义搜索（只返回相关文档，不生成回答）
      */
     QueryResponse semanticSearch(QueryRequest request, Long userId) throws IOException;
+
+    /**
+     * 流式处理用户查询：检索完成后先回调检索结果，再逐段回调生成的回答，最后回调完整响应
+     *
+     * @param receivedAt 收到请求的时间（毫秒），响应耗时与首字耗时由此起算，包含排队等待执行的时间
+     */
+    QueryResponse streamQuery(QueryRequest request, Long userId, long receivedAt, StreamListener listener)
+            throws IOException;
+
+    /**
+     * 流式查询回调
+     */
+    interface StreamListener {
+
+        /**
+         * 检索完成（响应中只有检索结果，回答尚未生成）
+         */
+        void onRetrieved(QueryResponse response);
+
+        /**
+         * 收到一段回答文本
+         */
+        void onToken(String token);
+
+        /**
+         * 查询完成（含完整回答、查询ID与耗时）
+         */
+        void onComplete(QueryResponse response);
+    }
 }
 
@@ -0,0 +1,29 @@
+package com.xu.news.service;
+
+import java.util.Map;
+
+/**
+ * 向量索引启动重建服务接口
+ * 
+ * @author XU
+ * @since 2026-10-18
+ */
+public interface VectorIndexBootstrapService {
+
+    /**
+     * 从数据库保存的向量嵌入重建向量索引（索引向量数与数据库一致时跳过）
+     * 
+     * @return 加载的向量数
+     */
+    long bootstrap();
+
+    /**
+     * 向量索引是否已加载完成（未完成时检索降级为关键词检索）
+     */
+    boolean isReady();
+
+    /**
+     * 加载进度：state、ready、loaded、total、percent、elapsedMs、etaSeconds（失败时含 error）
+     */
+    Map<String, Object> getProgress();
+}
@@ -9,7 +9,12 @@ import com.xu.news.mapper.KnowledgeEntryMapper;
 import com.xu.news.service.KnowledgeEntryService;
 import com.xu.news.util.FileProcessor;
 import com.xu.news.util.OllamaClient;
+import com.xu.news.util.SemanticAnswerCache;
 import com.xu.news.util.VectorStore;
+import com.xu.news.util.vector.VectorAttributes;
+import com.xu.news.util.vector.VectorFilter;
+import com.xu.news.util.vector.VectorPayload;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -17,7 +22,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 知识条目服务实现类
@@ -42,30 +51,27 @@ public class KnowledgeEntryServiceImpl extends ServiceImpl<KnowledgeEntryMapper,
     @Autowired
     private FileProcessor fileProcessor;
 
+    @Autowired
+    private SemanticAnswerCache answerCache;
+
+    /**
+     * 向量库使用压缩索引时，重排阶段从数据库加载原始向量
+     */
+    @PostConstruct
+    public void registerFullVectorLoader() {
+        vectorStore.setFullVectorLoader(this::loadFullVectors);
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public KnowledgeEntry createWithVector(KnowledgeEntry entry) throws IOException {
         try {
-            // 生成摘要（如果没有提供）
-            if (entry.getSummary() == null || entry.getSummary().isEmpty()) {
-                log.info("🤖 生成AI摘要...");
-                String summary = ollamaClient.generateSummary(entry.getContent());
-                entry.setSummary(summary);
-                log.debug("摘要生成成功: {} 字符", summary.length());
-            }
-
-            // 生成标签（如果没有提供）
-            if (entry.getTags() == null || entry.getTags().isEmpty()) {
-                log.info("🏷️  生成AI标签...");
-                String tags = ollamaClient.generateTags(entry.getTitle(), entry.getContent());
-                entry.setTags(tags);
-                log.debug("标签生成成功: {}", tags);
-            }
+            // 生成摘要与标签（如果没有提供）
+            fillMissingMetadata(entry);
 
             // 生成向量
             log.info("🧠 生成向量嵌入...");
-            String textForEmbedding = entry.getTitle() + "\n" + entry.getContent();
-            List<Double> vector = ollamaClient.generateEmbedding(textForEmbedding);
+            List<Double> vector = ollamaClient.generateEmbedding(embeddingText(entry));
             log.debug("向量生成成功: 维度={}", vector.size());
             
             // 存储向量
@@ -78,6 +84,7 @@ public class KnowledgeEntryServiceImpl extends ServiceImpl<KnowledgeEntryMapper,
             // 保存到数据库
             log.info("💾 保存知识条目到数据库...");
             knowledgeEntryMapper.insert(entry);
+            registerAttributes(entry);
             
             log.info("✅ 创建知识条目成功: ID={}, VectorID={}, 标题={}, 标签={}", 
                 entry.getId(), vectorId, entry.getTitle(), entry.getTags());
@@ -92,6 +99,75 @@ public class KnowledgeEntryServiceImpl extends ServiceImpl<KnowledgeEntryMapper,
         }
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<KnowledgeEntry> createWithVectors(List<KnowledgeEntry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return entries;
+        }
+        try {
+            for (KnowledgeEntry entry : entries) {
+                fillMissingMetadata(entry);
+            }
+
+            // 整批生成向量（按批调用 /api/embed），整批写入向量库
+            log.info("🧠 批量生成向量嵌入: 条目数={}", entries.size());
+            List<String> texts = new ArrayList<>(entries.size());
+            for (KnowledgeEntry entry : entries) {
+                texts.add(embeddingText(entry));
+            }
+            List<List<Double>> vectors = ollamaClient.generateEmbeddings(texts);
+            List<Long> vectorIds = vectorStore.addVectors(vectors);
+
+            log.info("💾 批量保存知识条目到数据库...");
+            for (int i = 0; i < entries.size(); i++) {
+                KnowledgeEntry entry = entries.get(i);
+                entry.setVectorId(vectorIds.get(i));
+                entry.setVectorEmbedding(JSON.toJSONString(vectors.get(i)));
+                knowledgeEntryMapper.insert(entry);
+                registerAttributes(entry);
+            }
+
+            log.info("✅ 批量创建知识条目成功: 条目数={}", entries.size());
+            return entries;
+
+        } catch (IOException e) {
+            log.error("❌ 批量创建知识条目失败 - IO错误: {}", e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            log.error("❌ 批量创建知识条目失败 - 未知错误: {}", e.getMessage(), e);
+            throw new IOException("批量创建知识条目失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 补全摘要与标签（未提供时由AI生成）
+     */
+    private void fillMissingMetadata(KnowledgeEntry entry) throws IOException {
+        // 生成摘要（如果没有提供）
+        if (entry.getSummary() == null || entry.getSummary().isEmpty()) {
+            log.info("🤖 生成AI摘要...");
+            String summary = ollamaClient.generateSummary(entry.getContent());
+            entry.setSummary(summary);
+            log.debug("摘要生成成功: {} 字符", summary.length());
+        }
+
+        // 生成标签（如果没有提供）
+        if (entry.getTags() == null || entry.getTags().isEmpty()) {
+            log.info("🏷️  生成AI标签...");
+            String tags = ollamaClient.generateTags(entry.getTitle(), entry.getContent());
+            entry.setTags(tags);
+            log.debug("标签生成成功: {}", tags);
+        }
+    }
+
+    /**
+     * 用于生成向量的文本（标题 + 正文）
+     */
+    private String embeddingText(KnowledgeEntry entry) {
+        return entry.getTitle() + "\n" + entry.getContent();
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public KnowledgeEntry createFromFile(File file, Long createdBy) throws IOException {
@@ -155,6 +231,52 @@ public class KnowledgeEntryServiceImpl extends ServiceImpl<KnowledgeEntryMapper,
         return createWithVector(entry);
     }
 
+    /**
+     * 更新条目后同步向量的过滤属性，并移除引用该条目的缓存回答
+     */
+    @Override
+    public boolean updateById(KnowledgeEntry entry) {
+        boolean updated = super.updateById(entry);
+        if (updated) {
+            answerCache.invalidateEntries(List.of(entry.getId()));
+            // 重新读取完整记录，避免只含部分字段的实体覆盖其余属性
+            KnowledgeEntry stored = knowledgeEntryMapper.selectById(entry.getId());
+            if (stored != null) {
+                registerAttributes(stored);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public void registerAttributes(KnowledgeEntry entry) {
+        if (entry.getVectorId() == null) {
+            return;
+        }
+        List<String> tags = null;
+        if (entry.getTags() != null && !entry.getTags().isEmpty()) {
+            try {
+                tags = JSON.parseArray(entry.getTags(), String.class);
+            } catch (Exception e) {
+                log.warn("标签格式错误，忽略标签过滤属性: VectorID={}, tags={}", entry.getVectorId(), entry.getTags());
+            }
+        }
+        vectorStore.putAttributes(entry.getVectorId(), new VectorAttributes.Row()
+                .setSourceId(entry.getSourceId())
+                .setContentType(entry.getContentType())
+                .setStatus(entry.getStatus())
+                .setPublishedAt(entry.getPublishedAt())
+                .setTags(tags));
+        vectorStore.putPayload(entry.getVectorId(), new VectorPayload()
+                .setEntryId(entry.getId())
+                .setTitle(entry.getTitle())
+                .setSummary(entry.getSummary())
+                .setSourceName(entry.getSourceName())
+                .setSourceUrl(entry.getSourceUrl())
+                .setPublishedAt(entry.getPublishedAt())
+                .setTags(tags != null ? List.copyOf(tags) : null));
+    }
+
     @Override
     public Page<KnowledgeEntry> search(SearchRequest request) {
         Page<KnowledgeEntry> page = new Page<>(request.getCurrent(), request.getSize());
@@ -172,9 +294,84 @@ public class KnowledgeEntryServiceImpl extends ServiceImpl<KnowledgeEntryMapper,
         return (Page<KnowledgeEntry>) result;
     }
 
+    @Override
+    public List<Long> matchFullText(String keyword, VectorFilter filter, int limit) {
+        if (keyword == null || keyword.isBlank() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return knowledgeEntryMapper.matchFullText(keyword.trim(), filter, limit);
+    }
+
     @Override
     public List<KnowledgeEntry> findByVectorIds(List<Long> vectorIds) {
-        return knowledgeEntryMapper.findByVectorIds(vectorIds);
+        if (vectorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 数据库按主键顺序返回，调整为传入的向量ID顺序（与检索得分一一对应）
+        Map<Long, Integer> positions = new HashMap<>(vectorIds.size() * 2);
+        for (int i = 0; i < vectorIds.size(); i++) {
+            positions.putIfAbsent(vectorIds.get(i), i);
+        }
+        List<KnowledgeEntry> entries = new ArrayList<>(knowledgeEntryMapper.findByVectorIds(vectorIds));
+        entries.sort(Comparator.comparingInt(e -> positions.getOrDefault(e.getVectorId(), Integer.MAX_VALUE)));
+        return entries;
+    }
+
+    @Override
+    public List<KnowledgeEntry> findRelated(Long id, double threshold, int limit) {
+        KnowledgeEntry entry = knowledgeEntryMapper.selectById(id);
+        if (entry == null || entry.getVectorId() == null) {
+            return new ArrayList<>();
+        }
+        float[] vector = loadFullVectors(List.of(entry.getVectorId())).get(entry.getVectorId());
+        if (vector == null) {
+            return new ArrayList<>();
+        }
+        List<Double> query = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            query.add((double) value);
+        }
+
+        // 多取一个，排除条目自身
+        List<VectorStore.SearchResult> results = vectorStore.rangeSearch(query, threshold,
+                limit > 0 ? limit + 1 : 0);
+        List<Long> vectorIds = new ArrayList<>(results.size());
+        for (VectorStore.SearchResult result : results) {
+            if (!result.getVectorId().equals(entry.getVectorId())) {
+                vectorIds.add(result.getVectorId());
+            }
+        }
+        if (limit > 0 && vectorIds.size() > limit) {
+            vectorIds = vectorIds.subList(0, limit);
+        }
+        if (vectorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 按相似度顺序输出
+        return findByVectorIds(vectorIds);
+    }
+
+    /**
+     * 按向量ID加载数据库中保存的原始向量
+     */
+    private Map<Long, float[]> loadFullVectors(List<Long> vectorIds) {
+        Map<Long, float[]> vectors = new HashMap<>();
+        if (vectorIds.isEmpty()) {
+            return vectors;
+        }
+        for (KnowledgeEntry entry : knowledgeEntryMapper.findEmbeddingsByVectorIds(vectorIds)) {
+            if (entry.getVectorId() == null || entry.getVectorEmbedding() == null) {
+                continue;
+            }
+            List<Float> embedding = JSON.parseArray(entry.getVectorEmbedding(), Float.class);
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = embedding.get(i);
+            }
+            vectors.put(entry.getVectorId(), vector);
+        }
+        return vectors;
     }
 
     @Override
@@ -190,8 +387,10 @@ public class KnowledgeEntryServiceImpl extends ServiceImpl<KnowledgeEntryMapper,
             vectorStore.deleteVector(entry.getVectorId());
         }
 
-        // 删除条目（逻辑删除）
-        return knowledgeEntryMapper.deleteById(id) > 0;
+        // 删除条目（逻辑删除），并移除引用该条目的缓存回答
+        boolean deleted = knowledgeEntryMapper.deleteById(id) > 0;
+        answerCache.invalidateEntries(List.of(id));
+        return deleted;
     }
 
     @Override
@@ -1,24 +1,49 @@
 package com.xu.news.service.impl;
 
 import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.xu.news.dto.QueryRequest;
 import com.xu.news.dto.QueryResponse;
+import com.xu.news.dto.SearchRequest;
 import com.xu.news.entity.KnowledgeEntry;
 import com.xu.news.entity.UserQueryHistory;
 import com.xu.news.mapper.UserQueryHistoryMapper;
 import com.xu.news.service.KnowledgeEntryService;
 import com.xu.news.service.QueryService;
+import com.xu.news.service.VectorIndexBootstrapService;
 import com.xu.news.util.OllamaClient;
+import com.xu.news.util.RankFusion;
 import com.xu.news.util.RerankerClient;
+import com.xu.news.util.SemanticAnswerCache;
 import com.xu.news.util.VectorStore;
+import com.xu.news.util.vector.SearchParams;
+import com.xu.news.util.vector.VectorFilter;
+import com.xu.news.util.vector.VectorPayload;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -46,52 +71,207 @@ public class QueryServiceImpl implements QueryService {
     @Autowired
     private RerankerClient rerankerClient;
 
+    @Autowired
+    private VectorIndexBootstrapService vectorIndexBootstrapService;
+
+    @Autowired
+    private SemanticAnswerCache answerCache;
+
     @Value("${reranker.enabled:false}")
     private Boolean rerankerEnabled;
 
     @Value("${reranker.candidate-multiplier:4}")
     private Integer candidateMultiplier;
 
+    @Value("${retrieval.hybrid.enabled:true}")
+    private boolean hybridEnabled = true;
+
+    @Value("${retrieval.hybrid.rrf-k:60}")
+    private int rrfK = 60;
+
+    @Value("${retrieval.hybrid.vector-weight:1.0}")
+    private double vectorWeight = 1.0;
+
+    @Value("${retrieval.hybrid.keyword-weight:1.0}")
+    private double keywordWeight = 1.0;
+
+    @Value("${retrieval.hybrid.keyword-threads:8}")
+    private int keywordThreads = 8;
+
+    @Value("${query.embedding-cache.warmup-top:200}")
+    private int warmupTop = 200;
+
+    @Value("${query.embedding-cache.warmup-days:30}")
+    private int warmupDays = 30;
+
+    // 混合检索的全文召回线程池（与向量化、向量检索并行执行）
+    private ExecutorService keywordExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadSequence = new AtomicInteger();
+        keywordExecutor = Executors.newFixedThreadPool(Math.max(1, keywordThreads), runnable -> {
+            Thread thread = new Thread(runnable, "hybrid-keyword-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (keywordExecutor != null) {
+            keywordExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 启动完成后在后台用近期查询历史中的高频问题预热查询向量缓存（失败不影响服务）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmQueryEmbeddingCache() {
+        if (warmupTop <= 0) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                List<String> queries = findFrequentQueries();
+                int generated = ollamaClient.warmQueryEmbeddings(queries);
+                log.info("查询向量缓存预热完成: 高频问题数={}, 新生成={}, 耗时={}ms", queries.size(), generated,
+                        System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.warn("查询向量缓存预热失败: {}", e.getMessage());
+            }
+        }, "query-embedding-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 近 warmup-days 天内提问次数最多的问题
+     */
+    private List<String> findFrequentQueries() {
+        QueryWrapper<UserQueryHistory> wrapper = new QueryWrapper<>();
+        wrapper.select("query_text", "COUNT(*) AS query_count")
+                .ge("created_at", LocalDateTime.now().minusDays(warmupDays))
+                .groupBy("query_text")
+                .orderByDesc("query_count")
+                .last("LIMIT " + warmupTop);
+        return queryHistoryMapper.selectMaps(wrapper).stream()
+                .map(row -> row.get("query_text"))
+                .filter(text -> text != null && !text.toString().isBlank())
+                .map(Object::toString)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public QueryResponse query(QueryRequest request, Long userId) throws IOException {
-        long startTime = System.currentTimeMillis();
+        return doQuery(request, userId, System.currentTimeMillis(), null);
+    }
 
-        // Step 1: 将问题向量化
-        log.debug("生成查询向量: {}", request.getQuery());
-        List<Double> queryVector = ollamaClient.generateEmbedding(request.getQuery());
+    @Override
+    public QueryResponse streamQuery(QueryRequest request, Long userId, long receivedAt, StreamListener listener)
+            throws IOException {
+        return doQuery(request, userId, receivedAt, listener);
+    }
+
+    /**
+     * RAG 流程；listener 不为空时流式生成回答并回调各阶段结果
+     */
+    private QueryResponse doQuery(QueryRequest request, Long userId, long startTime, StreamListener listener)
+            throws IOException {
 
-        // Step 2: 在向量库中检索相关文档（召回阶段）
         // 如果启用重排，则检索更多候选文档
         int candidateCount = rerankerEnabled ? 
             request.getTopK() * candidateMultiplier : request.getTopK();
-        
-        log.debug("检索相关文档，CandidateCount={}, Threshold={}", 
-            candidateCount, request.getSimilarityThreshold());
-        
-        List<VectorStore.SearchResult> searchResults = vectorStore.searchWithThreshold(
-            queryVector,
-            candidateCount,
-            request.getSimilarityThreshold()
-        );
 
-        // Step 3: 获取候选文档详情
-        List<Long> vectorIds = searchResults.stream()
-                .map(VectorStore.SearchResult::getVectorId)
-                .collect(Collectors.toList());
-        
+        // 向量索引加载中：降级为关键词检索，不生成查询向量
+        boolean degraded = !vectorIndexBootstrapService.isReady();
         final List<KnowledgeEntry> candidateEntries;
-        if (!vectorIds.isEmpty()) {
-            candidateEntries = knowledgeEntryService.findByVectorIds(vectorIds);
+        List<Double> finalScores;
+        List<QueryResponse.RetrievedEntry> retrievedEntries = new ArrayList<>();
+        List<Long> finalVectorIds = new ArrayList<>();
+        // 混合检索的融合得分（向量ID -> 得分），未融合时为 null
+        Map<Long, Double> fusedScores = null;
+        List<Double> queryVector = null;
+        if (degraded) {
+            log.info("向量索引加载中，使用关键词检索: {}", request.getQuery());
+            candidateEntries = keywordSearch(request, candidateCount);
+            // 关键词检索没有相似度得分
+            finalScores = new ArrayList<>();
         } else {
-            candidateEntries = new ArrayList<>();
+            // 混合检索：全文召回与向量化、向量检索并行，耗时取两路中较长的一路
+            VectorFilter filter = buildFilter(request);
+            CompletableFuture<List<Long>> keywordLeg = hybrid(request)
+                    ? CompletableFuture.supplyAsync(() -> knowledgeEntryService.matchFullText(
+                            request.getQuery(), filter, candidateCount), keywordExecutor)
+                    : null;
+
+            // Step 1: 将问题向量化
+            log.debug("生成查询向量: {}", request.getQuery());
+            queryVector = ollamaClient.generateQueryEmbedding(request.getQuery());
+
+            // Step 2: 在向量库中检索相关文档（召回阶段）
+            log.debug("检索相关文档，CandidateCount={}, Threshold={}", 
+                candidateCount, request.getSimilarityThreshold());
+
+            SearchParams searchParams = SearchParams.defaults()
+                    .setNprobe(request.getNprobe())
+                    .setFilter(filter);
+            List<VectorStore.SearchResult> searchResults = vectorStore.searchWithThreshold(
+                queryVector,
+                candidateCount,
+                request.getSimilarityThreshold(),
+                searchParams
+            );
+            // 融合只决定排序；相似度仍为向量余弦相似度（只由全文召回命中的条目另行计算），融合得分单独返回
+            List<VectorStore.SearchResult> fused = keywordLeg != null
+                    ? fuse(searchResults, keywordLeg, candidateCount) : null;
+            Map<Long, Double> cosineScores = fused != null ? toScoreMap(searchResults) : null;
+            if (fused != null) {
+                fusedScores = toScoreMap(fused);
+                List<Long> keywordOnlyIds = new ArrayList<>();
+                for (VectorStore.SearchResult result : fused) {
+                    if (!cosineScores.containsKey(result.getVectorId())) {
+                        keywordOnlyIds.add(result.getVectorId());
+                    }
+                }
+                if (!keywordOnlyIds.isEmpty()) {
+                    cosineScores.putAll(vectorStore.scoreVectors(queryVector, keywordOnlyIds));
+                }
+                searchResults = fused;
+            }
+
+            // Step 3: 获取候选文档详情
+            List<Long> vectorIds = searchResults.stream()
+                    .map(VectorStore.SearchResult::getVectorId)
+                    .collect(Collectors.toList());
+
+            finalScores = cosineScores == null
+                    ? searchResults.stream().map(VectorStore.SearchResult::getScore).collect(Collectors.toList())
+                    : vectorIds.stream().map(id -> cosineScores.getOrDefault(id, 0.0)).collect(Collectors.toList());
+
+            // 不生成回答、不重排时用不到正文，直接由向量载荷构建结果（有载荷缺失时仍回表查询）
+            Map<Long, VectorPayload> payloads = needsContent(request) || vectorIds.isEmpty()
+                    ? null : vectorStore.getPayloads(vectorIds);
+            if (payloads != null && payloads.size() == vectorIds.size()) {
+                int count = Math.min(request.getTopK(), vectorIds.size());
+                for (int i = 0; i < count; i++) {
+                    retrievedEntries.add(toRetrievedEntry(payloads.get(vectorIds.get(i)), finalScores.get(i),
+                            fusedScores != null ? fusedScores.get(vectorIds.get(i)) : null));
+                    finalVectorIds.add(vectorIds.get(i));
+                }
+                candidateEntries = new ArrayList<>();
+                log.debug("由向量载荷构建检索结果: {}", count);
+            } else if (!vectorIds.isEmpty()) {
+                candidateEntries = knowledgeEntryService.findByVectorIds(vectorIds);
+            } else {
+                candidateEntries = new ArrayList<>();
+            }
         }
 
         // Step 4: 重排序（精排阶段）
         List<KnowledgeEntry> entries;
-        List<Double> finalScores = searchResults.stream()
-                .map(VectorStore.SearchResult::getScore)
-                .collect(Collectors.toList());
-        
         if (rerankerEnabled && !candidateEntries.isEmpty()) {
             try {
                 log.debug("执行重排序: 候选文档数={}, 目标TopK={}", 
@@ -136,7 +316,6 @@ public class QueryServiceImpl implements QueryService {
         }
 
         // Step 5: 构建响应的检索结果
-        List<QueryResponse.RetrievedEntry> retrievedEntries = new ArrayList<>();
         for (int i = 0; i < entries.size(); i++) {
             KnowledgeEntry entry = entries.get(i);
             Double score = i < finalScores.size() ? finalScores.get(i) : 0.0;
@@ -148,17 +327,49 @@ public class QueryServiceImpl implements QueryService {
             retrievedEntry.setSourceName(entry.getSourceName());
             retrievedEntry.setSourceUrl(entry.getSourceUrl());
             retrievedEntry.setSimilarityScore(score);
+            retrievedEntry.setFusedScore(fusedScores != null ? fusedScores.get(entry.getVectorId()) : null);
             retrievedEntry.setPublishedAt(entry.getPublishedAt() != null ? 
                     entry.getPublishedAt().toString() : null);
             retrievedEntry.setTags(entry.getTags() != null ? 
                     JSON.parseArray(entry.getTags(), String.class) : null);
             
             retrievedEntries.add(retrievedEntry);
+            finalVectorIds.add(entry.getVectorId());
+        }
+
+        String retrievalMode = degraded ? "keyword" : fusedScores != null ? "hybrid" : "vector";
+
+        // 流式问答：检索结果先行返回
+        if (listener != null) {
+            QueryResponse retrieved = new QueryResponse();
+            retrieved.setRetrievedEntries(retrievedEntries);
+            retrieved.setSessionId(request.getSessionId());
+            retrieved.setDegraded(degraded);
+            retrieved.setRetrievalMode(retrievalMode);
+            listener.onRetrieved(retrieved);
         }
 
-        // Step 6: 使用LLM生成回答（如果需要）
+        // Step 6: 使用LLM生成回答（如果需要）；问题语义相近且检索结果一致的已缓存回答直接复用
         String answer = null;
-        if (request.getNeedAnswer()) {
+        boolean answerCacheable = request.getNeedAnswer() && queryVector != null && answerCache.isEnabled();
+        List<Long> retrievedEntryIds = retrievedEntries.stream()
+                .map(QueryResponse.RetrievedEntry::getId)
+                .collect(Collectors.toList());
+        String cachedAnswer = answerCacheable ? answerCache.get(queryVector, retrievedEntryIds) : null;
+        long[] firstTokenAt = {0};
+        Consumer<String> onToken = listener == null ? null : token -> {
+            if (firstTokenAt[0] == 0) {
+                firstTokenAt[0] = System.currentTimeMillis();
+            }
+            listener.onToken(token);
+        };
+        if (cachedAnswer != null) {
+            log.info("语义回答缓存命中，跳过回答生成: {}", request.getQuery());
+            answer = cachedAnswer;
+            if (onToken != null) {
+                onToken.accept(answer);
+            }
+        } else if (request.getNeedAnswer()) {
             if (entries.isEmpty()) {
                 // 知识库中没有相关内容，直接用LLM回答
                 log.info("知识库中未找到相关内容，使用LLM直接回答用户问题");
@@ -171,11 +382,16 @@ public class QueryServiceImpl implements QueryService {
                     request.getQuery()
                 );
                 
-                answer = ollamaClient.generateAnswer(prompt);
+                answer = onToken == null ? ollamaClient.generateAnswer(prompt)
+                        : ollamaClient.streamAnswer(prompt, null, onToken);
                 
                 // 在答案末尾添加提示
-                answer = answer + "\n\n---\n💡 提示：以上回答基于大模型的通用知识生成。" +
+                String hint = "\n\n---\n💡 提示：以上回答基于大模型的通用知识生成。" +
                          "如需更准确的信息，建议导入相关文档到知识库。";
+                answer = answer + hint;
+                if (onToken != null) {
+                    onToken.accept(hint);
+                }
             } else {
                 // 知识库中有相关内容，基于检索结果生成回答
                 List<String> context = entries.stream()
@@ -183,18 +399,17 @@ public class QueryServiceImpl implements QueryService {
                         .collect(Collectors.toList());
                 
                 log.debug("调用LLM生成回答，上下文文档数: {}", context.size());
-                answer = ollamaClient.generateAnswer(request.getQuery(), context);
+                answer = onToken == null ? ollamaClient.generateAnswer(request.getQuery(), context)
+                        : ollamaClient.streamAnswer(request.getQuery(), context, onToken);
+            }
+            if (answerCacheable && answer != null && !answer.isBlank()) {
+                answerCache.put(queryVector, retrievedEntryIds, answer);
             }
         }
 
         // Step 7: 保存查询历史
         long responseTime = System.currentTimeMillis() - startTime;
         
-        // 保存最终使用的文档ID
-        List<Long> finalVectorIds = entries.stream()
-                .map(KnowledgeEntry::getVectorId)
-                .collect(Collectors.toList());
-        
         UserQueryHistory history = saveQueryHistory(
             userId,
             request,
@@ -211,9 +426,19 @@ public class QueryServiceImpl implements QueryService {
         response.setResponseTimeMs(responseTime);
         response.setQueryId(history.getId());
         response.setSessionId(request.getSessionId());
+        response.setDegraded(degraded);
+        response.setRetrievalMode(retrievalMode);
+        response.setCached(cachedAnswer != null);
+        if (firstTokenAt[0] > 0) {
+            response.setTimeToFirstTokenMs(firstTokenAt[0] - startTime);
+        }
 
         log.info("查询完成: QueryID={}, ResponseTime={}ms, RetrievedDocs={}", 
-                history.getId(), responseTime, entries.size());
+                history.getId(), responseTime, retrievedEntries.size());
+        if (listener != null) {
+            log.info("流式问答首字耗时: QueryID={}, TTFT={}ms", history.getId(), response.getTimeToFirstTokenMs());
+            listener.onComplete(response);
+        }
 
         return response;
     }
@@ -224,6 +449,115 @@ public class QueryServiceImpl implements QueryService {
         return query(request, userId);
     }
 
+    /**
+     * 是否使用混合检索（请求类型为 hybrid 且已开启）
+     */
+    private boolean hybrid(QueryRequest request) {
+        return hybridEnabled && "hybrid".equalsIgnoreCase(request.getQueryType())
+                && request.getQuery() != null && !request.getQuery().isBlank();
+    }
+
+    /**
+     * 以倒数排名融合合并向量召回与全文召回，得分为融合得分；全文召回失败时返回 null（只使用向量召回）
+     */
+    private List<VectorStore.SearchResult> fuse(List<VectorStore.SearchResult> vectorResults,
+                                                CompletableFuture<List<Long>> keywordLeg, int limit) {
+        List<Long> keywordIds;
+        try {
+            keywordIds = keywordLeg.join();
+        } catch (CompletionException | CancellationException e) {
+            log.warn("全文召回失败，仅使用向量召回: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return null;
+        }
+        List<Long> vectorIds = vectorResults.stream()
+                .map(VectorStore.SearchResult::getVectorId)
+                .collect(Collectors.toList());
+        List<VectorStore.SearchResult> fused = RankFusion.fuse(List.of(vectorIds, keywordIds),
+                new double[]{vectorWeight, keywordWeight}, rrfK, limit);
+        log.debug("混合检索融合: 向量召回={}, 全文召回={}, 融合结果={}", vectorIds.size(), keywordIds.size(), fused.size());
+        return fused;
+    }
+
+    private static Map<Long, Double> toScoreMap(List<VectorStore.SearchResult> results) {
+        Map<Long, Double> scores = new HashMap<>(results.size() * 2);
+        for (VectorStore.SearchResult result : results) {
+            scores.putIfAbsent(result.getVectorId(), result.getScore());
+        }
+        return scores;
+    }
+
+    /**
+     * 是否需要知识条目正文（生成回答或重排时需要）
+     */
+    private boolean needsContent(QueryRequest request) {
+        return Boolean.TRUE.equals(request.getNeedAnswer()) || rerankerEnabled;
+    }
+
+    /**
+     * 由向量载荷构建检索结果
+     */
+    private QueryResponse.RetrievedEntry toRetrievedEntry(VectorPayload payload, Double score, Double fusedScore) {
+        QueryResponse.RetrievedEntry retrievedEntry = new QueryResponse.RetrievedEntry();
+        retrievedEntry.setId(payload.getEntryId());
+        retrievedEntry.setTitle(payload.getTitle());
+        retrievedEntry.setSummary(payload.getSummary());
+        retrievedEntry.setSourceName(payload.getSourceName());
+        retrievedEntry.setSourceUrl(payload.getSourceUrl());
+        retrievedEntry.setSimilarityScore(score);
+        retrievedEntry.setFusedScore(fusedScore);
+        retrievedEntry.setPublishedAt(payload.getPublishedAt() != null ? payload.getPublishedAt().toString() : null);
+        retrievedEntry.setTags(payload.getTags());
+        return retrievedEntry;
+    }
+
+    /**
+     * 关键词检索（向量索引未就绪时的降级方案），沿用知识库搜索的来源、标签与日期筛选
+     */
+    private List<KnowledgeEntry> keywordSearch(QueryRequest request, int limit) {
+        SearchRequest searchRequest = new SearchRequest();
+        searchRequest.setKeyword(request.getQuery());
+        searchRequest.setSourceIds(request.getSourceIds());
+        searchRequest.setTags(request.getTags());
+        searchRequest.setStartDate(request.getStartDate());
+        searchRequest.setEndDate(request.getEndDate());
+        searchRequest.setCurrent(1L);
+        searchRequest.setSize((long) limit);
+        return new ArrayList<>(knowledgeEntryService.search(searchRequest).getRecords());
+    }
+
+    /**
+     * 由请求中的筛选字段构建向量检索过滤条件（没有任何筛选时返回 null）
+     */
+    private VectorFilter buildFilter(QueryRequest request) {
+        VectorFilter filter = new VectorFilter()
+                .setSourceIds(request.getSourceIds())
+                .setContentTypes(request.getContentTypes())
+                .setTags(request.getTags())
+                .setStatuses(request.getStatuses())
+                .setPublishedFrom(parseDate(request.getStartDate(), false))
+                .setPublishedTo(parseDate(request.getEndDate(), true));
+        return filter.hasNoConditions() ? null : filter;
+    }
+
+    /**
+     * 解析日期：只有日期部分时，开始日期取当天零点，结束日期取当天最后时刻
+     */
+    private LocalDateTime parseDate(String value, boolean endOfDay) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.trim();
+        try {
+            if (text.length() == 10) {
+                LocalDate date = LocalDate.parse(text);
+                return endOfDay ? date.atTime(LocalTime.MAX) : date.atStartOfDay();
+            }
+            return LocalDateTime.parse(text.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误: " + value);
+        }
+    }
+
     /**
      * 保存查询历史
      */
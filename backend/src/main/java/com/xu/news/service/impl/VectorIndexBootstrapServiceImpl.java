@@ -0,0 +1,416 @@
+package com.xu.news.service.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.xu.news.entity.KnowledgeEntry;
+import com.xu.news.mapper.KnowledgeEntryMapper;
+import com.xu.news.service.KnowledgeEntryService;
+import com.xu.news.service.VectorIndexBootstrapService;
+import com.xu.news.util.VectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 向量索引启动重建服务实现类
+ * 
+ * 知识条目入库时向量嵌入同时保存在 knowledge_entry.vector_embedding 中。启动时以数据库为准核对索引（快照 + 写前日志），
+ * 同时登记全部向量的过滤属性与展示载荷（与向量共用同一个流式游标读取，不在内存中物化整表）：
+ * - 流式读取数据库中的向量ID与属性，与索引中的ID集合比对；一致则直接就绪；
+ * - 只有少量差异时就地补齐：删除数据库中已不存在的向量，按ID批量读取并加载缺失的向量；
+ *   向量嵌入格式错误的行加载时跳过，下次启动只会再次读取这些行，不会触发整体重建；
+ * - 索引为空或差异过大时整体重建：通过 MyBatis {@link Cursor} 流式读取（fetchSize 分批拉取），不在内存中物化整表；
+ *   读取线程按批分发给解析线程池并行解析 JSON，在途批次数有上限，读取速度不会超过解析与加载速度；
+ * - 全部批次加载成功后写入索引快照，下次启动直接加载快照；任一批次失败则放弃本次重建，不写快照也不清空写前日志；
+ * - 启动时加载的快照只检查了文件结构，其 CRC32C 在核对前校验，校验失败同样整体重建。
+ * 
+ * 重建在 ApplicationRunner 启动的后台线程中执行，应用启动不等待重建完成：向量与属性全部加载前 {@link #isReady()} 为 false，
+ * 问答检索降级为关键词检索；加载进度（已加载/总数、预计剩余时间）通过 {@link #getProgress()} 提供给就绪检查接口。
+ * 重建耗时（及距 JVM 启动的总耗时）输出到日志。
+ * 
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+@Service
+public class VectorIndexBootstrapServiceImpl implements VectorIndexBootstrapService, ApplicationRunner {
+
+    // 每读取该行数输出一次进度
+    private static final long PROGRESS_INTERVAL = 100_000;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private KnowledgeEntryMapper knowledgeEntryMapper;
+
+    @Autowired
+    private VectorStore vectorStore;
+
+    @Autowired
+    private KnowledgeEntryService knowledgeEntryService;
+
+    @Value("${faiss.bootstrap.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${faiss.bootstrap.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${faiss.bootstrap.parse-threads:0}")
+    private int parseThreads = 0;
+
+    private volatile State state = State.PENDING;
+    private volatile String failure;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile long total;
+    // 已读取并处理的行数（含格式错误被跳过的行）
+    private final AtomicLong processed = new AtomicLong();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        state = State.LOADING;
+        Thread loader = new Thread(this::loadInBackground, "vector-bootstrap");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void loadInBackground() {
+        try {
+            bootstrap();
+        } catch (Exception e) {
+            failure = e.getMessage();
+            state = State.FAILED;
+            finishedAt = System.currentTimeMillis();
+            log.error("向量索引重建失败，问答检索保持关键词降级模式: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    @Override
+    public Map<String, Object> getProgress() {
+        long done = processed.get();
+        long expected = total;
+        long now = state == State.LOADING ? System.currentTimeMillis() : finishedAt;
+        long elapsed = startedAt > 0 ? Math.max(0, now - startedAt) : 0;
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("state", state.name());
+        progress.put("ready", isReady());
+        progress.put("loaded", done);
+        progress.put("total", expected);
+        double percent = expected > 0 ? Math.min(100.0, done * 1000 / expected / 10.0) : (isReady() ? 100.0 : 0.0);
+        progress.put("percent", percent);
+        progress.put("elapsedMs", elapsed);
+        // 按已处理速度估算剩余时间，尚未开始读取时无法估算
+        Long etaSeconds = null;
+        if (isReady()) {
+            etaSeconds = 0L;
+        } else if (state == State.LOADING && done > 0 && elapsed > 0) {
+            etaSeconds = Math.max(0, expected - done) * elapsed / done / 1000;
+        }
+        progress.put("etaSeconds", etaSeconds);
+        if (failure != null) {
+            progress.put("error", failure);
+        }
+        return progress;
+    }
+
+    @Override
+    public long bootstrap() {
+        startedAt = System.currentTimeMillis();
+        processed.set(0);
+        long expected = knowledgeEntryMapper.countVectorEmbeddings();
+        total = expected;
+        int indexed = vectorStore.getVectorCount();
+        // 快照的 CRC32C 在此（后台线程）校验，校验失败时内存中的向量不可信，以数据库为准整体重建
+        if (!vectorStore.verifySnapshot() && enabled) {
+            log.warn("向量索引快照校验失败，从数据库整体重建");
+            return rebuild(expected, indexed, true);
+        }
+        if (indexed == 0 && enabled) {
+            if (expected == 0) {
+                markReady();
+                return 0;
+            }
+            return rebuild(expected, indexed, true);
+        }
+
+        // 核对开始后分配的ID可能尚未写入数据库，不作为多余向量删除
+        long idLimit = vectorStore.getNextVectorId();
+        long[] stored = loadAttributes();
+        if (!enabled) {
+            log.info("向量属性加载完成（未启用启动重建）: 条目数={}, 索引向量数={}", stored.length, indexed);
+            markReady();
+            return 0;
+        }
+        long[] present = vectorStore.getVectorIds();
+        long[] missing = difference(stored, present, Long.MAX_VALUE);
+        long[] orphans = difference(present, stored, idLimit);
+        if (missing.length == 0 && orphans.length == 0) {
+            log.info("向量索引与数据库一致，跳过重建: 向量数={}", indexed);
+            processed.set(expected);
+            markReady();
+            return 0;
+        }
+        if (missing.length > stored.length / 2) {
+            return rebuild(expected, indexed, false);
+        }
+        return reconcile(expected, missing, orphans);
+    }
+
+    /**
+     * 就地补齐：删除多余向量，按ID分批读取并加载缺失的向量
+     */
+    private long reconcile(long expected, long[] missing, long[] orphans) {
+        log.info("向量索引与数据库存在差异，开始补齐: 缺失向量数={}, 多余向量数={}", missing.length, orphans.length);
+        long start = System.currentTimeMillis();
+        if (orphans.length > 0) {
+            List<Long> orphanIds = new ArrayList<>(orphans.length);
+            for (long id : orphans) {
+                orphanIds.add(id);
+            }
+            vectorStore.deleteVectors(orphanIds);
+        }
+        total = expected + missing.length;
+
+        long loaded = 0;
+        boolean completed = false;
+        vectorStore.beginReconcile();
+        try {
+            for (int from = 0; from < missing.length; from += batchSize) {
+                List<Long> batch = new ArrayList<>(batchSize);
+                for (int i = from; i < Math.min(missing.length, from + batchSize); i++) {
+                    batch.add(missing[i]);
+                }
+                List<KnowledgeEntry> rows = knowledgeEntryMapper.findEmbeddingsByVectorIds(batch);
+                long[] ids = new long[rows.size()];
+                String[] embeddings = new String[rows.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = rows.get(i).getVectorId();
+                    embeddings[i] = rows.get(i).getVectorEmbedding();
+                }
+                loaded += loadBatch(ids, embeddings, ids.length);
+                processed.addAndGet(batch.size());
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                vectorStore.abortRebuild();
+            }
+        }
+        vectorStore.finishRebuild();
+
+        log.info("向量索引补齐完成: 加载向量数={}, 无效向量数={}, 删除向量数={}, 耗时={}ms",
+                loaded, missing.length - loaded, orphans.length, System.currentTimeMillis() - start);
+        markReady();
+        return loaded;
+    }
+
+    /**
+     * 整体重建：流式读取全部向量嵌入，并行解析后加载到新索引
+     *
+     * @param registerAttributes 读取时同时登记过滤属性与展示载荷（核对阶段已登记时为 false）
+     */
+    private long rebuild(long expected, int indexed, boolean registerAttributes) {
+        processed.set(0);
+        total = expected;
+        log.info("开始从数据库重建向量索引: 索引向量数={}, 数据库条目数={}", indexed, expected);
+        long start = System.currentTimeMillis();
+        int threads = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadSequence = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "vector-bootstrap-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 在途批次上限：解析与加载跟不上时读取线程等待
+        int maxInFlight = threads * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicLong loaded = new AtomicLong();
+        AtomicInteger failedBatches = new AtomicInteger();
+
+        vectorStore.beginRebuild();
+        long rows = 0;
+        boolean completed = false;
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<KnowledgeEntry> cursor = session.getMapper(KnowledgeEntryMapper.class).streamVectorEmbeddings()) {
+            long[] ids = new long[batchSize];
+            String[] embeddings = new String[batchSize];
+            int count = 0;
+            for (KnowledgeEntry entry : cursor) {
+                if (registerAttributes) {
+                    knowledgeEntryService.registerAttributes(entry);
+                }
+                ids[count] = entry.getVectorId();
+                embeddings[count++] = entry.getVectorEmbedding();
+                if (count == batchSize) {
+                    submit(parsers, inFlight, loaded, failedBatches, ids, embeddings, count);
+                    ids = new long[batchSize];
+                    embeddings = new String[batchSize];
+                    count = 0;
+                }
+                processed.incrementAndGet();
+                if (++rows % PROGRESS_INTERVAL == 0) {
+                    log.info("向量索引重建进度: 已读取={}/{}, 已加载={}, 耗时={}ms",
+                            rows, expected, loaded.get(), System.currentTimeMillis() - start);
+                }
+            }
+            if (count > 0) {
+                submit(parsers, inFlight, loaded, failedBatches, ids, embeddings, count);
+            }
+            // 取回全部许可即所有批次已处理完
+            inFlight.acquire(maxInFlight);
+            if (failedBatches.get() > 0) {
+                throw new IllegalStateException("向量索引重建失败: 加载失败的批次数=" + failedBatches.get());
+            }
+            completed = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("读取向量嵌入失败: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("向量索引重建被中断", e);
+        } finally {
+            parsers.shutdownNow();
+            if (!completed) {
+                vectorStore.abortRebuild();
+            }
+        }
+        vectorStore.finishRebuild();
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("向量索引重建完成: 读取行数={}, 加载向量数={}, 无效向量数={}, 耗时={}ms, 速度={}行/秒, 距JVM启动={}ms",
+                rows, loaded.get(), rows - loaded.get(), elapsed, elapsed == 0 ? rows : rows * 1000 / elapsed,
+                ManagementFactory.getRuntimeMXBean().getUptime());
+        markReady();
+        return loaded.get();
+    }
+
+    /**
+     * 流式读取数据库中全部向量的属性并登记，返回向量ID（升序）
+     */
+    private long[] loadAttributes() {
+        long[] ids = new long[1024];
+        int count = 0;
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<KnowledgeEntry> cursor = session.getMapper(KnowledgeEntryMapper.class).streamVectorAttributes()) {
+            for (KnowledgeEntry entry : cursor) {
+                knowledgeEntryService.registerAttributes(entry);
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = entry.getVectorId();
+                processed.incrementAndGet();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("读取向量属性失败: " + e.getMessage(), e);
+        }
+        long[] sorted = Arrays.copyOf(ids, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * 升序数组 a 中不在升序数组 b 里、且小于 limit 的ID
+     */
+    private static long[] difference(long[] a, long[] b, long limit) {
+        long[] result = new long[16];
+        int count = 0;
+        int j = 0;
+        for (long id : a) {
+            if (id >= limit) {
+                break;
+            }
+            while (j < b.length && b[j] < id) {
+                j++;
+            }
+            if (j < b.length && b[j] == id) {
+                continue;
+            }
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = id;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void markReady() {
+        finishedAt = System.currentTimeMillis();
+        failure = null;
+        state = State.READY;
+    }
+
+    /**
+     * 提交一批向量在解析线程池中解析并加载（失败计入 failedBatches）
+     */
+    private void submit(ExecutorService parsers, Semaphore inFlight, AtomicLong loaded, AtomicInteger failedBatches,
+                        long[] ids, String[] embeddings, int count) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            parsers.execute(() -> {
+                try {
+                    loaded.addAndGet(loadBatch(ids, embeddings, count));
+                } catch (RuntimeException e) {
+                    failedBatches.incrementAndGet();
+                    log.error("加载向量批次失败: {}", e.getMessage(), e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 解析并加载一批向量，返回实际加载数（格式错误的向量跳过）
+     */
+    private int loadBatch(long[] ids, String[] embeddings, int count) {
+        long[] batchIds = count == ids.length ? ids : Arrays.copyOf(ids, count);
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = parse(batchIds[i], embeddings[i]);
+        }
+        return vectorStore.loadVectors(batchIds, vectors);
+    }
+
+    private float[] parse(long vectorId, String embedding) {
+        try {
+            return JSON.parseObject(embedding, float[].class);
+        } catch (RuntimeException e) {
+            log.warn("向量嵌入格式错误，跳过: vectorId={}, {}", vectorId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 加载状态
+     */
+    private enum State {
+        PENDING, LOADING, READY, FAILED
+    }
+}
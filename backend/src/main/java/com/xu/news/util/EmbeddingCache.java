@@ -0,0 +1,364 @@
+package com.xu.news.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * 文本向量缓存
+ *
+ * 以（嵌入模型名，规范化文本的 SHA-256）为键缓存 Ollama 生成的向量，相同文本（重复的 RSS 条目、
+ * 重复上传的文档、重复导入）不再调用模型。规范化只做 Unicode NFC、去除首尾空白与合并连续空白。
+ *
+ * 两级存储：
+ * - 内存 LRU（ollama.embedding.cache.memory-entries 条）；
+ * - 本地文件（追加写入 float32 向量，内存中只保存键到文件偏移的索引），重启后仍可命中。
+ *   文件布局（小端序）：8 字节文件头（魔数、版本），之后为记录
+ *   [32 字节键][int 维度][int 向量 CRC32C][float[维度]]；启动时扫描建立索引，遇到不完整或校验失败的记录截断尾部。
+ *   文件达到 max-file-mb 后不再追加。
+ *
+ * 统计命中率与节省的模型调用耗时（未命中时的平均生成耗时 × 命中次数）。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+@Component
+public class EmbeddingCache {
+
+    private static final int MAGIC = 0x584D4543;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int KEY_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = KEY_SIZE + 8;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Value("${ollama.embedding.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${ollama.embedding.cache.memory-entries:10000}")
+    private int memoryEntries = 10000;
+
+    @Value("${ollama.embedding.cache.path:./data/embedding_cache}")
+    private String path = "./data/embedding_cache";
+
+    @Value("${ollama.embedding.cache.max-file-mb:1024}")
+    private long maxFileMb = 1024;
+
+    // 内存 LRU（访问顺序），由自身加锁
+    private LinkedHashMap<Key, float[]> memory;
+    // 文件中的记录：键 -> 记录起始偏移
+    private final Map<Key, Long> fileOffsets = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long fileEnd;
+    private final CRC32C crc = new CRC32C();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong fileHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong computedCount = new AtomicLong();
+    private final AtomicLong computeNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        int capacity = Math.max(1, memoryEntries);
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, float[]> eldest) {
+                return size() > capacity;
+            }
+        };
+        if (path == null || path.isBlank()) {
+            return;
+        }
+        try {
+            open(Paths.get(path));
+            log.info("向量缓存文件加载完成: 路径={}, 条目数={}, 大小={}KB", path, fileOffsets.size(), fileEnd / 1024);
+        } catch (IOException e) {
+            log.error("打开向量缓存文件失败，仅使用内存缓存: {}", e.getMessage(), e);
+            closeChannel();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closeChannel();
+    }
+
+    /**
+     * 是否开启缓存
+     */
+    public boolean isEnabled() {
+        return enabled && memory != null;
+    }
+
+    /**
+     * 查找缓存的向量，未命中返回 null
+     */
+    public List<Double> get(String model, String text) {
+        Key key = key(model, text);
+        float[] vector;
+        synchronized (memory) {
+            vector = memory.get(key);
+        }
+        if (vector != null) {
+            memoryHits.incrementAndGet();
+            return toList(vector);
+        }
+
+        Long offset = fileOffsets.get(key);
+        if (offset != null) {
+            vector = readVector(offset);
+            if (vector != null) {
+                synchronized (memory) {
+                    memory.put(key, vector);
+                }
+                fileHits.incrementAndGet();
+                return toList(vector);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入向量
+     *
+     * @param computeNanos 生成该向量的耗时（用于估算命中节省的时间）
+     */
+    public void put(String model, String text, List<Double> embedding, long computeNanos) {
+        Key key = key(model, text);
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = embedding.get(i).floatValue();
+        }
+        synchronized (memory) {
+            memory.put(key, vector);
+        }
+        computedCount.incrementAndGet();
+        this.computeNanos.addAndGet(computeNanos);
+        if (channel != null && !fileOffsets.containsKey(key)) {
+            append(key, vector);
+        }
+    }
+
+    /**
+     * 缓存统计（条目数、文件大小、命中率、节省的生成耗时）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        long hits = memoryHits.get() + fileHits.get();
+        long lookups = hits + misses.get();
+        long computed = computedCount.get();
+        double avgComputeMs = computed == 0 ? 0 : computeNanos.get() / 1_000_000.0 / computed;
+        if (memory != null) {
+            synchronized (memory) {
+                stats.put("memoryEntries", memory.size());
+            }
+        }
+        stats.put("fileEntries", fileOffsets.size());
+        stats.put("fileBytes", channel != null ? fileEnd : 0);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("fileHits", fileHits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("avgComputeMs", avgComputeMs);
+        stats.put("savedMs", Math.round(hits * avgComputeMs));
+        return stats;
+    }
+
+    /**
+     * 规范化文本：Unicode NFC、去除首尾空白、连续空白合并为一个空格
+     */
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFC).strip();
+        return WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+
+    private static Key key(String model, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return Key.of(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private void open(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.size() >= HEADER_SIZE) {
+            channel.read(header, 0);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION) {
+                fileEnd = scan();
+                if (fileEnd < channel.size()) {
+                    channel.truncate(fileEnd);
+                }
+                return;
+            }
+            log.warn("向量缓存文件格式不匹配，重新创建: {}", file);
+        }
+        header.clear();
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.truncate(0);
+        channel.write(header, 0);
+        fileEnd = HEADER_SIZE;
+    }
+
+    /**
+     * 扫描记录建立索引，返回最后一条完整记录的结束位置
+     */
+    private long scan() throws IOException {
+        long position = HEADER_SIZE;
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(HEADER_SIZE)), 1 << 20);
+        byte[] recordHeader = new byte[RECORD_HEADER_SIZE];
+        while (in.readNBytes(recordHeader, 0, RECORD_HEADER_SIZE) == RECORD_HEADER_SIZE) {
+            ByteBuffer view = ByteBuffer.wrap(recordHeader).order(ByteOrder.LITTLE_ENDIAN);
+            int dimension = view.getInt(KEY_SIZE);
+            int expectedCrc = view.getInt(KEY_SIZE + 4);
+            if (dimension <= 0 || dimension > (1 << 16)) {
+                break;
+            }
+            byte[] payload = new byte[dimension * Float.BYTES];
+            if (in.readNBytes(payload, 0, payload.length) != payload.length || checksum(payload) != expectedCrc) {
+                break;
+            }
+            byte[] hash = new byte[KEY_SIZE];
+            System.arraycopy(recordHeader, 0, hash, 0, KEY_SIZE);
+            fileOffsets.put(Key.of(hash), position);
+            position += RECORD_HEADER_SIZE + payload.length;
+        }
+        return position;
+    }
+
+    private synchronized void append(Key key, float[] vector) {
+        long recordSize = RECORD_HEADER_SIZE + (long) vector.length * Float.BYTES;
+        if (channel == null || fileOffsets.containsKey(key) || fileEnd + recordSize > maxFileMb * 1024 * 1024) {
+            return;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        payload.asFloatBuffer().put(vector);
+        ByteBuffer record = ByteBuffer.allocate((int) recordSize).order(ByteOrder.LITTLE_ENDIAN);
+        key.writeTo(record);
+        record.putInt(vector.length).putInt(checksum(payload.array())).put(payload.array()).flip();
+        try {
+            long position = fileEnd;
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+            fileEnd += recordSize;
+            fileOffsets.put(key, position);
+        } catch (IOException e) {
+            log.warn("写入向量缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    private float[] readVector(long offset) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, offset);
+            int dimension = header.getInt(KEY_SIZE);
+            ByteBuffer payload = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(payload, offset + RECORD_HEADER_SIZE);
+            float[] vector = new float[dimension];
+            payload.flip();
+            payload.asFloatBuffer().get(vector);
+            return vector;
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取向量缓存文件失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void readFully(ByteBuffer target, long position) throws IOException {
+        FileChannel current = channel;
+        if (current == null) {
+            throw new IOException("向量缓存文件已关闭");
+        }
+        while (target.hasRemaining()) {
+            if (current.read(target, position + target.position()) < 0) {
+                throw new IOException("向量缓存文件记录不完整");
+            }
+        }
+    }
+
+    private int checksum(byte[] bytes) {
+        synchronized (crc) {
+            crc.reset();
+            crc.update(bytes, 0, bytes.length);
+            return (int) crc.getValue();
+        }
+    }
+
+    private synchronized void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭向量缓存文件失败: {}", e.getMessage());
+        }
+        channel = null;
+    }
+
+    private static List<Double> toList(float[] vector) {
+        List<Double> values = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            values.add((double) value);
+        }
+        return values;
+    }
+
+    /**
+     * SHA-256 摘要键（4 个 long，比字节数组或十六进制字符串更省内存）
+     */
+    private record Key(long a, long b, long c, long d) {
+
+        static Key of(byte[] hash) {
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new Key(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        void writeTo(ByteBuffer target) {
+            ByteOrder order = target.order();
+            target.order(ByteOrder.BIG_ENDIAN).putLong(a).putLong(b).putLong(c).putLong(d).order(order);
+        }
+    }
+}
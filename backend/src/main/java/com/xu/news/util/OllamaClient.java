@@ -1,17 +1,25 @@
 package com.xu.news.util;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Ollama客户端工具类
@@ -35,6 +43,18 @@ public class OllamaClient {
     @Value("${ollama.timeout}")
     private Long timeout;
 
+    @Value("${ollama.embedding.batch-size:32}")
+    private int embeddingBatchSize = 32;
+
+    @Value("${ollama.embedding.max-retries:2}")
+    private int embeddingMaxRetries = 2;
+
+    @Autowired(required = false)
+    private EmbeddingCache embeddingCache;
+
+    @Autowired(required = false)
+    private QueryEmbeddingCache queryEmbeddingCache;
+
     private final OkHttpClient client;
     private static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
 
@@ -78,27 +98,212 @@ public class OllamaClient {
         }
     }
 
+    /**
+     * 流式生成文本回答（"stream": true）：逐行读取 Ollama 返回的 NDJSON，每收到一段文本回调一次
+     * 
+     * @param context 参考资料，为空时直接以 prompt 提问
+     * @param onToken 文本片段回调；回调抛出异常时中止读取并关闭连接（如客户端已断开）
+     * @return 完整回答
+     */
+    public String streamAnswer(String prompt, List<String> context, Consumer<String> onToken) throws IOException {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", llmModel);
+        requestBody.put("prompt", buildPrompt(prompt, context));
+        requestBody.put("stream", true);
+
+        String jsonBody = JSON.toJSONString(requestBody);
+        Request request = new Request.Builder()
+                .url(baseUrl + "/api/generate")
+                .post(RequestBody.create(jsonBody, JSON_TYPE))
+                .build();
+
+        StringBuilder answer = new StringBuilder();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Ollama API调用失败: " + response.code());
+            }
+            BufferedSource source = response.body().source();
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JSONObject chunk = JSON.parseObject(line);
+                if (chunk.containsKey("error")) {
+                    throw new IOException("Ollama 生成失败: " + chunk.getString("error"));
+                }
+                String token = chunk.getString("response");
+                if (token != null && !token.isEmpty()) {
+                    answer.append(token);
+                    onToken.accept(token);
+                }
+                if (chunk.getBooleanValue("done")) {
+                    break;
+                }
+            }
+        }
+        return answer.toString();
+    }
+
     /**
      * 生成文本嵌入向量
      */
     public List<Double> generateEmbedding(String text) throws IOException {
+        return generateEmbeddings(List.of(text)).get(0);
+    }
+
+    /**
+     * 生成查询向量：先查查询向量缓存（按规范化后的问题），未命中再生成并写入缓存
+     */
+    public List<Double> generateQueryEmbedding(String query) throws IOException {
+        if (queryEmbeddingCache == null || !queryEmbeddingCache.isEnabled()) {
+            return generateEmbedding(query);
+        }
+        List<Double> cached = queryEmbeddingCache.get(embeddingModel, query);
+        if (cached != null) {
+            return cached;
+        }
+        List<Double> embedding = generateEmbedding(query);
+        queryEmbeddingCache.put(embeddingModel, query, embedding);
+        return embedding;
+    }
+
+    /**
+     * 预热查询向量缓存：为尚未缓存的问题批量生成向量
+     *
+     * @return 新生成的向量数
+     */
+    public int warmQueryEmbeddings(List<String> queries) throws IOException {
+        if (queryEmbeddingCache == null || !queryEmbeddingCache.isEnabled()) {
+            return 0;
+        }
+        List<String> missing = queries.stream()
+                .filter(query -> !queryEmbeddingCache.contains(embeddingModel, query))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        List<List<Double>> embeddings = generateEmbeddings(missing);
+        for (int i = 0; i < missing.size(); i++) {
+            queryEmbeddingCache.put(embeddingModel, missing.get(i), embeddings.get(i));
+        }
+        return missing.size();
+    }
+
+    /**
+     * 批量生成文本嵌入向量（/api/embed，input 为数组），结果顺序与输入一致
+     * 
+     * 按 ollama.embedding.batch-size 分批请求；某批失败（网络错误、服务端错误、返回数量不一致）时重试，
+     * 重试后仍失败或请求体过大（413，或 400 且提示输入超长）则拆成两半分别请求，直到单条文本仍失败才抛出异常；
+     * 其他 4xx（如模型不存在、参数错误）与批大小无关，直接抛出异常。
+     * 开启向量缓存时先按（模型，文本哈希）查缓存，只为未命中的文本请求模型，生成结果写回缓存。
+     */
+    public List<List<Double>> generateEmbeddings(List<String> texts) throws IOException {
+        if (embeddingCache == null || !embeddingCache.isEnabled()) {
+            return requestEmbeddingsInBatches(texts);
+        }
+
+        List<List<Double>> embeddings = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        List<Integer> missIndexes = new ArrayList<>();
+        List<String> missTexts = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            List<Double> cached = embeddingCache.get(embeddingModel, texts.get(i));
+            if (cached != null) {
+                embeddings.set(i, cached);
+            } else {
+                missIndexes.add(i);
+                missTexts.add(texts.get(i));
+            }
+        }
+        if (missTexts.isEmpty()) {
+            return embeddings;
+        }
+
+        long start = System.nanoTime();
+        List<List<Double>> generated = requestEmbeddingsInBatches(missTexts);
+        long nanosPerText = (System.nanoTime() - start) / missTexts.size();
+        for (int i = 0; i < generated.size(); i++) {
+            embeddings.set(missIndexes.get(i), generated.get(i));
+            embeddingCache.put(embeddingModel, missTexts.get(i), generated.get(i), nanosPerText);
+        }
+        return embeddings;
+    }
+
+    private List<List<Double>> requestEmbeddingsInBatches(List<String> texts) throws IOException {
+        List<List<Double>> embeddings = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        int batchSize = Math.max(1, embeddingBatchSize);
+        for (int start = 0; start < texts.size(); start += batchSize) {
+            embedRange(texts, start, Math.min(texts.size(), start + batchSize), embeddings);
+        }
+        return embeddings;
+    }
+
+    /**
+     * 为 [from, to) 区间的文本生成向量，写入 embeddings 的对应位置
+     */
+    private void embedRange(List<String> texts, int from, int to, List<List<Double>> embeddings) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt <= embeddingMaxRetries; attempt++) {
+            try {
+                List<List<Double>> batch = requestEmbeddings(texts.subList(from, to));
+                if (batch.size() == to - from) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        embeddings.set(from + i, batch.get(i));
+                    }
+                    return;
+                }
+                failure = new IOException("Ollama Embedding API返回向量数不一致，期望: " + (to - from) + ", 实际: " + batch.size());
+            } catch (RejectedRequestException e) {
+                // 请求本身被拒绝，重试无意义：请求体过大时拆分，其他原因拆分也无济于事
+                if (!e.isPayloadTooLarge()) {
+                    throw e;
+                }
+                failure = e;
+                break;
+            } catch (IOException e) {
+                failure = e;
+            }
+            log.warn("批量生成向量失败（第{}次）: 文本数={}, {}", attempt + 1, to - from, failure.getMessage());
+        }
+        if (to - from == 1) {
+            throw failure;
+        }
+        int mid = (from + to) >>> 1;
+        log.info("拆分向量批次重试: {} -> {} + {}", to - from, mid - from, to - mid);
+        embedRange(texts, from, mid, embeddings);
+        embedRange(texts, mid, to, embeddings);
+    }
+
+    private List<List<Double>> requestEmbeddings(List<String> texts) throws IOException {
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", embeddingModel);
-        requestBody.put("prompt", text);
+        requestBody.put("input", texts);
 
         String jsonBody = JSON.toJSONString(requestBody);
         Request request = new Request.Builder()
-                .url(baseUrl + "/api/embeddings")
+                .url(baseUrl + "/api/embed")
                 .post(RequestBody.create(jsonBody, JSON_TYPE))
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
+            if (response.code() >= 400 && response.code() < 500) {
+                String error = response.body() != null ? response.body().string() : "";
+                throw new RejectedRequestException("Ollama Embedding API拒绝请求: " + response.code() + " " + error,
+                        isPayloadTooLarge(response.code(), error));
+            }
             if (!response.isSuccessful()) {
                 throw new IOException("Ollama Embedding API调用失败: " + response.code());
             }
             String responseBody = response.body().string();
             JSONObject jsonResponse = JSON.parseObject(responseBody);
-            return jsonResponse.getList("embedding", Double.class);
+            JSONArray embeddings = jsonResponse.getJSONArray("embeddings");
+            List<List<Double>> result = new ArrayList<>(embeddings == null ? 0 : embeddings.size());
+            if (embeddings != null) {
+                for (int i = 0; i < embeddings.size(); i++) {
+                    result.add(embeddings.getJSONArray(i).toJavaList(Double.class));
+                }
+            }
+            return result;
         }
     }
 
@@ -184,5 +389,32 @@ public class OllamaClient {
         
         return prompt.toString();
     }
-}
 
+    /**
+     * 是否因请求体过大或输入超长被拒绝（拆小批次可能成功）
+     */
+    private static boolean isPayloadTooLarge(int code, String error) {
+        if (code == 413) {
+            return true;
+        }
+        String message = error.toLowerCase(Locale.ROOT);
+        return code == 400 && (message.contains("too large") || message.contains("exceeds")
+                || message.contains("context length"));
+    }
+
+    /**
+     * 请求被 Ollama 拒绝（4xx）
+     */
+    private static class RejectedRequestException extends IOException {
+        private final boolean payloadTooLarge;
+
+        RejectedRequestException(String message, boolean payloadTooLarge) {
+            super(message);
+            this.payloadTooLarge = payloadTooLarge;
+        }
+
+        boolean isPayloadTooLarge() {
+            return payloadTooLarge;
+        }
+    }
+}
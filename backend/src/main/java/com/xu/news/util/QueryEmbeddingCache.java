@@ -0,0 +1,134 @@
+package com.xu.news.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 查询向量缓存
+ *
+ * 热门问题会被反复提问，每次问答都要先等一次向量化调用。本缓存以（嵌入模型，规范化问题）为键缓存查询向量，
+ * 只有大小写、空白、全角/半角标点或句末标点不同的问题共用同一个向量，不再调用模型。
+ * 与 {@link EmbeddingCache}（按内容哈希持久化文档与查询向量）不同，本缓存只在内存中保存，
+ * 条目数与存活时间都有上限，键在规范化时更宽松，并可在启动时用查询历史中的高频问题预热。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+@Component
+public class QueryEmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?.!~]+$");
+
+    @Value("${query.embedding-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${query.embedding-cache.max-entries:5000}")
+    private int maxEntries = 5000;
+
+    @Value("${query.embedding-cache.ttl-minutes:1440}")
+    private long ttlMinutes = 1440;
+
+    // 访问顺序的 LRU，由自身加锁
+    private final LinkedHashMap<String, CachedVector> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedVector> eldest) {
+            return size() > Math.max(1, maxEntries);
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查找缓存的查询向量，未命中或已过期返回 null
+     */
+    public List<Double> get(String model, String query) {
+        String key = key(model, query);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CachedVector cached = entries.get(key);
+            if (cached != null && cached.expiresAt() > now) {
+                hits.incrementAndGet();
+                return cached.vector();
+            }
+            if (cached != null) {
+                entries.remove(key);
+                expired.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String model, String query, List<Double> vector) {
+        long expiresAt = System.currentTimeMillis() + ttlMinutes * 60_000;
+        synchronized (entries) {
+            entries.put(key(model, query), new CachedVector(List.copyOf(vector), expiresAt));
+        }
+    }
+
+    /**
+     * 是否已缓存且未过期（不计入命中统计，用于预热时跳过已有条目）
+     */
+    public boolean contains(String model, String query) {
+        String key = key(model, query);
+        synchronized (entries) {
+            CachedVector cached = entries.get(key);
+            return cached != null && cached.expiresAt() > System.currentTimeMillis();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits.get() + misses.get();
+        stats.put("enabled", enabled);
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("expired", expired.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits.get() / lookups);
+        return stats;
+    }
+
+    /**
+     * 规范化问题：全角字符转半角（NFKC），中文句读转为对应半角标点，
+     * 转小写，合并连续空白，去除首尾空白与句末的问号、句号、感叹号
+     */
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query == null ? "" : query, Normalizer.Form.NFKC)
+                .replace('。', '.')
+                .replace('、', ',')
+                .replace('“', '"')
+                .replace('”', '"')
+                .replace('‘', '\'')
+                .replace('’', '\'')
+                .toLowerCase(Locale.ROOT);
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(normalized).replaceAll("").strip();
+    }
+
+    private static String key(String model, String query) {
+        return model + '\n' + normalize(query);
+    }
+
+    private record CachedVector(List<Double> vector, long expiresAt) {
+    }
+}
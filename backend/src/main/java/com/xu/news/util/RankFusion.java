@@ -0,0 +1,50 @@
+package com.xu.news.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒数排名融合（Reciprocal Rank Fusion）
+ *
+ * 多路召回的得分尺度不同（向量相似度、全文检索相关度），只按名次融合：
+ * 文档得分 = Σ weight_i / (k + rank_i)，rank 从 1 开始，未出现在某一路结果中的文档该路不计分。
+ * k 越大，各路头部名次之间的差距越小。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    /**
+     * 融合多路排名
+     *
+     * @param rankings 各路结果（按相关度降序的ID列表）
+     * @param weights  各路权重，与 rankings 一一对应
+     * @param k        平滑常数
+     * @param limit    返回数量上限，不大于 0 表示不限
+     * @return 按融合得分降序的结果（得分相同时先出现的在前）
+     */
+    public static List<VectorStore.SearchResult> fuse(List<List<Long>> rankings, double[] weights, int k, int limit) {
+        if (rankings.size() != weights.length) {
+            throw new IllegalArgumentException("排名与权重数量不一致");
+        }
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (int i = 0; i < rankings.size(); i++) {
+            List<Long> ranking = rankings.get(i);
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank), weights[i] / (k + rank + 1), Double::sum);
+            }
+        }
+
+        List<VectorStore.SearchResult> fused = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> fused.add(new VectorStore.SearchResult(id, score)));
+        // 稳定排序，同分时保持先出现的顺序
+        fused.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return limit > 0 && fused.size() > limit ? new ArrayList<>(fused.subList(0, limit)) : fused;
+    }
+}
@@ -0,0 +1,186 @@
+package com.xu.news.util;
+
+import com.xu.news.util.vector.VectorMath;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 语义回答缓存
+ *
+ * 生成回答是问答耗时的主要部分。查询向量化并检索后，在已回答过的问题中查找：
+ * - 查询向量的余弦距离（1 - 余弦相似度）不超过 query.answer-cache.max-distance；
+ * - 检索到的知识条目ID集合的重合度（交集 / 并集）不低于 query.answer-cache.min-overlap（1.0 表示完全一致）。
+ * 命中时直接返回缓存的回答，不再调用大模型。
+ *
+ * 缓存条目记录其来源知识条目，条目更新或删除时（{@link #invalidateEntries}）移除所有引用它的回答；
+ * 新增条目会改变检索结果，自然不再命中旧回答。条目数与存活时间都有上限，查找为线性扫描（条目数通常在千级以内）。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+@Component
+public class SemanticAnswerCache {
+
+    @Value("${query.answer-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${query.answer-cache.max-distance:0.05}")
+    private double maxDistance = 0.05;
+
+    @Value("${query.answer-cache.min-overlap:1.0}")
+    private double minOverlap = 1.0;
+
+    @Value("${query.answer-cache.max-entries:1000}")
+    private int maxEntries = 1000;
+
+    @Value("${query.answer-cache.ttl-minutes:720}")
+    private long ttlMinutes = 720;
+
+    private long nextId;
+    // 缓存条目（插入顺序，超出上限时淘汰最早的）与知识条目ID到缓存条目ID的反向索引，均由 this 加锁
+    private final LinkedHashMap<Long, CachedAnswer> answers = new LinkedHashMap<>();
+    private final Map<Long, Set<Long>> answersByEntry = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查找语义相近且检索结果一致的已缓存回答，未命中返回 null
+     *
+     * @param queryVector 查询向量
+     * @param entryIds    本次检索到的知识条目ID
+     */
+    public synchronized String get(List<Double> queryVector, Collection<Long> entryIds) {
+        float[] query = VectorMath.normalize(queryVector);
+        Set<Long> retrieved = new HashSet<>(entryIds);
+        long now = System.currentTimeMillis();
+        CachedAnswer best = null;
+        double bestDistance = Double.MAX_VALUE;
+        Iterator<CachedAnswer> iterator = answers.values().iterator();
+        while (iterator.hasNext()) {
+            CachedAnswer cached = iterator.next();
+            if (cached.expiresAt <= now) {
+                iterator.remove();
+                unindex(cached);
+                continue;
+            }
+            if (cached.vector.length != query.length || overlap(cached.entryIds, retrieved) < minOverlap) {
+                continue;
+            }
+            double distance = 1.0 - VectorMath.dot(query, 0, cached.vector, 0, query.length);
+            if (distance <= maxDistance && distance < bestDistance) {
+                best = cached;
+                bestDistance = distance;
+            }
+        }
+        if (best == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        log.debug("语义回答缓存命中: 余弦距离={}", bestDistance);
+        return best.answer;
+    }
+
+    /**
+     * 缓存回答
+     */
+    public synchronized void put(List<Double> queryVector, Collection<Long> entryIds, String answer) {
+        CachedAnswer cached = new CachedAnswer(++nextId, VectorMath.normalize(queryVector), Set.copyOf(entryIds),
+                answer, System.currentTimeMillis() + ttlMinutes * 60_000);
+        answers.put(cached.id, cached);
+        for (Long entryId : cached.entryIds) {
+            answersByEntry.computeIfAbsent(entryId, k -> new HashSet<>()).add(cached.id);
+        }
+        while (answers.size() > Math.max(1, maxEntries)) {
+            Iterator<CachedAnswer> eldest = answers.values().iterator();
+            CachedAnswer evicted = eldest.next();
+            eldest.remove();
+            unindex(evicted);
+        }
+    }
+
+    /**
+     * 知识条目更新或删除后移除引用它们的缓存回答
+     */
+    public synchronized void invalidateEntries(Collection<Long> entryIds) {
+        int removed = 0;
+        for (Long entryId : entryIds) {
+            Set<Long> answerIds = answersByEntry.remove(entryId);
+            if (answerIds == null) {
+                continue;
+            }
+            for (Long answerId : answerIds) {
+                CachedAnswer cached = answers.remove(answerId);
+                if (cached != null) {
+                    unindex(cached);
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            invalidated.addAndGet(removed);
+            log.debug("知识条目变更，移除缓存回答: 条目={}, 回答数={}", entryIds, removed);
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits.get() + misses.get();
+        stats.put("enabled", enabled);
+        stats.put("entries", answers.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("invalidated", invalidated.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits.get() / lookups);
+        return stats;
+    }
+
+    /**
+     * ID集合重合度（交集 / 并集），两个空集合视为完全一致
+     */
+    private static double overlap(Set<Long> a, Set<Long> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        int intersection = 0;
+        for (Long id : a) {
+            if (b.contains(id)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private void unindex(CachedAnswer cached) {
+        for (Long entryId : cached.entryIds) {
+            Set<Long> answerIds = answersByEntry.get(entryId);
+            if (answerIds != null) {
+                answerIds.remove(cached.id);
+                if (answerIds.isEmpty()) {
+                    answersByEntry.remove(entryId);
+                }
+            }
+        }
+    }
+
+    private record CachedAnswer(long id, float[] vector, Set<Long> entryIds, String answer, long expiresAt) {
+    }
+}
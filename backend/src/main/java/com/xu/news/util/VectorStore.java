@@ -1,15 +1,51 @@
 package com.xu.news.util;
 
 import com.alibaba.fastjson2.JSON;
+import com.xu.news.util.vector.BinaryQuantizedVectorIndex;
+import com.xu.news.util.vector.FlatVectorIndex;
+import com.xu.news.util.vector.FullVectorLoader;
+import com.xu.news.util.vector.HnswVectorIndex;
+import com.xu.news.util.vector.IdFilter;
+import com.xu.news.util.vector.IvfVectorIndex;
+import com.xu.news.util.vector.KMeans;
+import com.xu.news.util.vector.PartitionedScan;
+import com.xu.news.util.vector.PqVectorIndex;
+import com.xu.news.util.vector.RangeResult;
+import com.xu.news.util.vector.ScalarQuantizedVectorIndex;
+import com.xu.news.util.vector.SearchBatcher;
+import com.xu.news.util.vector.SearchParams;
+import com.xu.news.util.vector.SegmentedVectorIndex;
+import com.xu.news.util.vector.TopKHeap;
+import com.xu.news.util.vector.VectorAttributes;
+import com.xu.news.util.vector.VectorPayload;
+import com.xu.news.util.vector.VectorIndex;
+import com.xu.news.util.vector.VectorIndexFile;
+import com.xu.news.util.vector.VectorMath;
+import com.xu.news.util.vector.VectorStorage;
+import com.xu.news.util.vector.VectorWal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * 向量存储工具类（FAISS封装）
@@ -19,6 +55,10 @@ import java.util.*;
  * 2. 或通过Python服务（FastAPI）封装FAISS
  * 3. 或使用向量数据库如Milvus、Weaviate
  * 
+ * 向量入库时即做 L2 归一化，余弦相似度只需一次点积。索引类型由 faiss.index-type 选择（见 {@link #createBaseIndex}），
+ * 检索支持元数据过滤与范围检索；索引以带校验的二进制快照持久化，可选写前日志保证崩溃不丢数据。
+ * 检索不加锁，修改走单一写入路径（见 {@link #mutateIndex}）。
+ * 
  * @author XU
  * @since 2025-10-15
  */
@@ -32,9 +72,146 @@ public class VectorStore {
     @Value("${faiss.dimension}")
     private Integer dimension;
 
-    // 简化实现：内存中存储向量（生产环境应使用FAISS）
-    private final Map<Long, List<Double>> vectors = new HashMap<>();
-    private Long nextVectorId = 1L;
+    @Value("${faiss.index-type:flat}")
+    private String indexType = FlatVectorIndex.TYPE;
+
+    @Value("${faiss.hnsw.m:16}")
+    private int hnswM = 16;
+
+    @Value("${faiss.hnsw.ef-construction:200}")
+    private int hnswEfConstruction = 200;
+
+    @Value("${faiss.hnsw.ef-search:64}")
+    private int hnswEfSearch = 64;
+
+    @Value("${faiss.ivf.nlist:256}")
+    private int ivfNlist = 256;
+
+    @Value("${faiss.ivf.nprobe:16}")
+    private int ivfNprobe = 16;
+
+    @Value("${faiss.ivf.min-train-size:10000}")
+    private int ivfMinTrainSize = 10000;
+
+    @Value("${faiss.ivf.train-sample-size:65536}")
+    private int ivfTrainSampleSize = 65536;
+
+    @Value("${faiss.ivf.train-iterations:10}")
+    private int ivfTrainIterations = 10;
+
+    @Value("${faiss.pq.m:48}")
+    private int pqM = 48;
+
+    @Value("${faiss.pq.min-train-size:10000}")
+    private int pqMinTrainSize = 10000;
+
+    @Value("${faiss.pq.train-sample-size:65536}")
+    private int pqTrainSampleSize = 65536;
+
+    @Value("${faiss.pq.train-iterations:15}")
+    private int pqTrainIterations = 15;
+
+    @Value("${faiss.rescore-multiplier:4}")
+    private int rescoreMultiplier = 4;
+
+    @Value("${faiss.range-search.approximate-slack:0.05}")
+    private double rangeApproximateSlack = 0.05;
+
+    @Value("${faiss.batch.enabled:true}")
+    private boolean batchEnabled = true;
+
+    @Value("${faiss.batch.window-micros:1000}")
+    private long batchWindowMicros = 1000;
+
+    @Value("${faiss.batch.max-size:32}")
+    private int batchMaxSize = 32;
+
+    @Value("${faiss.binary.shortlist-multiplier:10}")
+    private int binaryShortlistMultiplier = 10;
+
+    @Value("${faiss.parallel.min-vectors:50000}")
+    private int parallelMinVectors = 50000;
+
+    @Value("${faiss.parallel.threads:0}")
+    private int parallelThreads = 0;
+
+    @Value("${faiss.parallel.partition-bytes:2097152}")
+    private int parallelPartitionBytes = 2097152;
+
+    @Value("${faiss.wal.enabled:false}")
+    private boolean walEnabled = false;
+
+    @Value("${faiss.segment.enabled:true}")
+    private boolean segmentEnabled = true;
+
+    @Value("${faiss.segment.size:10000}")
+    private int segmentSize = 10000;
+
+    @Value("${faiss.segment.max-size:200000}")
+    private int segmentMaxSize = 200000;
+
+    @Value("${faiss.segment.max-deleted-ratio:0.2}")
+    private double segmentMaxDeletedRatio = 0.2;
+
+    // flat 索引向量数据的存放位置：heap / direct（堆外）/ mapped（文件映射）
+    @Value("${faiss.storage:direct}")
+    private String storageMode = "direct";
+
+    // IVF 每个质心至少需要的训练样本数
+    private static final int MIN_SAMPLES_PER_CENTROID = 39;
+
+    private volatile VectorIndex index;
+    private final AtomicLong nextVectorId = new AtomicLong(1L);
+
+    // flat 索引并行扫描线程池（与 Tomcat 线程池独立）
+    private ForkJoinPool scanPool;
+    // flat 索引数据块分配器（首次创建 flat 索引时初始化）
+    private VectorStorage vectorStorage;
+
+    // 写前日志（未开启时为 null）
+    private VectorWal wal;
+    // 串行化索引修改、日志追加与检查点
+    private final Object writeLock = new Object();
+    // 串行化快照写出（检查点、重建完成、手动保存）
+    private final Object snapshotLock = new Object();
+    // 启动时加载、尚未校验 CRC32C 的快照文件
+    private VectorIndexFile unverifiedSnapshot;
+    // 不支持并发读的索引：检索持读锁，修改持写锁
+    private final ReadWriteLock searchLock = new ReentrantReadWriteLock();
+
+    // 向量属性列（元数据过滤），由知识条目服务维护
+    private final VectorAttributes attributes = new VectorAttributes();
+
+    // 向量展示载荷（检索结果直接展示，免回表），由知识条目服务维护
+    private final Map<Long, VectorPayload> payloads = new ConcurrentHashMap<>();
+
+    // 压缩索引重排时加载原始向量（由知识条目服务注册）
+    private FullVectorLoader fullVectorLoader;
+
+    // 并发检索微批合并（未开启时为 null）
+    private SearchBatcher searchBatcher;
+
+    // 重建期间被删除的向量ID（未在重建时为 null），批量加载时跳过，避免把已删除的向量加回索引
+    private volatile Set<Long> rebuildDeletes;
+
+    /**
+     * 按配置创建索引；开启写前日志时加载快照并回放日志
+     */
+    @PostConstruct
+    public void init() {
+        index = createIndex();
+        searchBatcher = batchEnabled ? new SearchBatcher(batchWindowMicros * 1000, batchMaxSize) : null;
+        if (walEnabled) {
+            try {
+                recover();
+            } catch (IOException e) {
+                throw new IllegalStateException("向量索引恢复失败: " + e.getMessage(), e);
+            }
+        }
+        log.info("向量索引初始化完成: 类型={}, 维度={}, 向量数={}, 打分内核={}, 存储={}",
+                index.type(), dimension, index.size(), VectorMath.kernelName(),
+                vectorStorage == null ? "heap" : vectorStorage.mode());
+    }
 
     /**
      * 添加向量
@@ -43,21 +220,48 @@ public class VectorStore {
         if (vector.size() != dimension) {
             throw new IllegalArgumentException("向量维度不匹配，期望: " + dimension + ", 实际: " + vector.size());
         }
-        
-        Long vectorId = nextVectorId++;
-        vectors.put(vectorId, vector);
+
+        float[] normalized = VectorMath.normalize(vector);
+        long vectorId;
+        long seq;
+        synchronized (writeLock) {
+            long allocated = nextVectorId.getAndIncrement();
+            seq = logInsert(allocated, normalized);
+            mutateIndex(current -> current.add(allocated, normalized));
+            vectorId = allocated;
+        }
+        syncWal(seq);
         log.debug("添加向量ID: {}", vectorId);
         return vectorId;
     }
 
     /**
-     * 批量添加向量
+     * 批量添加向量（整批只等待一次日志落盘）
      */
     public List<Long> addVectors(List<List<Double>> vectorList) {
-        List<Long> ids = new ArrayList<>();
+        List<float[]> normalized = new ArrayList<>(vectorList.size());
         for (List<Double> vector : vectorList) {
-            ids.add(addVector(vector));
+            if (vector.size() != dimension) {
+                throw new IllegalArgumentException("向量维度不匹配，期望: " + dimension + ", 实际: " + vector.size());
+            }
+            normalized.add(VectorMath.normalize(vector));
+        }
+
+        List<Long> ids = new ArrayList<>(normalized.size());
+        long seq = 0;
+        synchronized (writeLock) {
+            for (float[] vector : normalized) {
+                Long vectorId = nextVectorId.getAndIncrement();
+                seq = logInsert(vectorId, vector);
+                ids.add(vectorId);
+            }
+            mutateIndex(current -> {
+                for (int i = 0; i < ids.size(); i++) {
+                    current.add(ids.get(i), normalized.get(i));
+                }
+            });
         }
+        syncWal(seq);
         return ids;
     }
 
@@ -65,94 +269,626 @@ public class VectorStore {
      * 搜索最相似的向量（余弦相似度）
      */
     public List<SearchResult> search(List<Double> queryVector, int topK) {
+        return search(queryVector, topK, SearchParams.defaults());
+    }
+
+    /**
+     * 搜索最相似的向量（指定检索参数）
+     */
+    public List<SearchResult> search(List<Double> queryVector, int topK, SearchParams params) {
         if (queryVector.size() != dimension) {
             throw new IllegalArgumentException("查询向量维度不匹配");
         }
 
-        List<SearchResult> results = new ArrayList<>();
-        
-        for (Map.Entry<Long, List<Double>> entry : vectors.entrySet()) {
-            double similarity = cosineSimilarity(queryVector, entry.getValue());
-            results.add(new SearchResult(entry.getKey(), similarity));
+        float[] query = VectorMath.normalize(queryVector);
+        params = resolveFilter(params);
+        if (params == null) {
+            return new ArrayList<>();
+        }
+        VectorIndex current = index;
+        // 结果数不超过索引中的向量数，避免按过大的 topK 分配结果堆
+        int k = Math.min(topK, current.size());
+        SearchParams resolved = params;
+        TopKHeap heap;
+        if (current.approximateScores() && fullVectorLoader != null) {
+            // 压缩编码得分是近似值：多召回一些候选，再用原始向量精确重排
+            heap = rescore(query, searchIndex(current, query, candidateCount(current, k), params), k);
+            heap.sortDescending();
+        } else if (batches(current) && k > 0) {
+            // 与并发到达的检索合并为一次扫描
+            heap = searchBatcher.search(current, query, Float.NEGATIVE_INFINITY, k, params,
+                    () -> RangeResult.of(searchIndex(current, query, k, resolved))).toSortedHeap();
+        } else {
+            heap = searchIndex(current, query, k, params);
+            heap.sortDescending();
         }
 
-        // 按相似度降序排序
-        results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
-
-        // 返回Top K
-        return results.subList(0, Math.min(topK, results.size()));
+        // 按相似度降序输出
+        List<SearchResult> results = new ArrayList<>(heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            results.add(new SearchResult(heap.idAt(i), (double) heap.scoreAt(i)));
+        }
+        return results;
     }
 
     /**
      * 搜索最相似的向量（带阈值过滤）
      */
     public List<SearchResult> searchWithThreshold(List<Double> queryVector, int topK, double threshold) {
-        List<SearchResult> results = search(queryVector, topK);
-        results.removeIf(result -> result.getScore() < threshold);
+        return searchWithThreshold(queryVector, topK, threshold, SearchParams.defaults());
+    }
+
+    /**
+     * 搜索最相似的向量（带阈值过滤，指定检索参数）
+     */
+    public List<SearchResult> searchWithThreshold(List<Double> queryVector, int topK, double threshold,
+                                                  SearchParams params) {
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+        return rangeSearch(queryVector, threshold, topK, params);
+    }
+
+    /**
+     * 范围检索：返回相似度不低于 threshold 的全部向量（用于去重检查、同一事件的相关报道等）
+     */
+    public List<SearchResult> rangeSearch(List<Double> queryVector, double threshold, int limit) {
+        return rangeSearch(queryVector, threshold, limit, SearchParams.defaults());
+    }
+
+    /**
+     * 范围检索（指定检索参数）
+     *
+     * 索引扫描时低于阈值的候选直接丢弃，不参与排序；HNSW 在待扩展节点全部低于阈值后结束遍历。
+     * 压缩索引的得分是近似值，以 threshold - approximate-slack 召回候选，再用原始向量复核。
+     *
+     * @param limit 结果数量上限，不大于 0 表示不限
+     */
+    public List<SearchResult> rangeSearch(List<Double> queryVector, double threshold, int limit,
+                                          SearchParams params) {
+        if (queryVector.size() != dimension) {
+            throw new IllegalArgumentException("查询向量维度不匹配");
+        }
+
+        float[] query = VectorMath.normalize(queryVector);
+        params = resolveFilter(params);
+        if (params == null) {
+            return new ArrayList<>();
+        }
+        VectorIndex current = index;
+        // 上限不超过索引中的向量数，避免按过大的 limit 分配结果堆
+        int cap = limit > 0 ? Math.max(1, Math.min(limit, current.size())) : 0;
+        RangeResult range;
+        if (current.approximateScores() && fullVectorLoader != null) {
+            RangeResult candidates = rangeSearchIndex(current, query, (float) (threshold - rangeApproximateSlack),
+                    cap > 0 ? candidateCount(current, cap) : 0, params);
+            range = rescoreRange(query, candidates, (float) threshold, cap);
+        } else if (batches(current)) {
+            SearchParams resolved = params;
+            range = searchBatcher.search(current, query, (float) threshold, cap, params,
+                    () -> rangeSearchIndex(current, query, (float) threshold, cap, resolved));
+        } else {
+            range = rangeSearchIndex(current, query, (float) threshold, cap, params);
+        }
+
+        TopKHeap heap = range.toSortedHeap();
+        List<SearchResult> results = new ArrayList<>(heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            results.add(new SearchResult(heap.idAt(i), (double) heap.scoreAt(i)));
+        }
         return results;
     }
 
+    /**
+     * 计算查询向量与指定向量的余弦相似度（不在索引中的ID不出现在结果中）
+     *
+     * 以这些ID作为过滤集合检索并探测全部倒排列表，压缩索引照常用原始向量重排，得分与向量检索一致。
+     */
+    public Map<Long, Double> scoreVectors(List<Double> queryVector, Collection<Long> vectorIds) {
+        BitSet ids = new BitSet();
+        for (Long vectorId : vectorIds) {
+            if (vectorId != null && vectorId > 0 && vectorId <= Integer.MAX_VALUE) {
+                ids.set(vectorId.intValue());
+            }
+        }
+        Map<Long, Double> scores = new HashMap<>(ids.cardinality() * 2);
+        if (ids.isEmpty()) {
+            return scores;
+        }
+        SearchParams params = new SearchParams().setNprobe(Integer.MAX_VALUE).setIdFilter(new IdFilter(ids));
+        for (SearchResult result : search(queryVector, ids.cardinality(), params)) {
+            scores.put(result.getVectorId(), result.getScore());
+        }
+        return scores;
+    }
+
+    /**
+     * 把过滤条件解析为ID位图，没有向量满足条件时返回 null
+     *
+     * 条件按向量属性列（{@link VectorAttributes}）解析后下推到索引扫描中逐行判断，
+     * 过滤后的结果仍是满足条件的 Top-K，而不是先取全局 Top-K 再过滤。
+     */
+    private SearchParams resolveFilter(SearchParams params) {
+        if (params.getFilter() == null || params.getFilter().hasNoConditions()) {
+            return params;
+        }
+        // 过滤条件先解析为ID位图，在索引扫描中直接跳过不满足条件的向量
+        IdFilter idFilter = attributes.evaluate(params.getFilter());
+        if (idFilter.cardinality() == 0) {
+            return null;
+        }
+        return new SearchParams().setNprobe(params.getNprobe()).setFilter(params.getFilter())
+                .setIdFilter(idFilter);
+    }
+
     /**
      * 删除向量
      */
     public void deleteVector(Long vectorId) {
-        vectors.remove(vectorId);
+        long seq;
+        synchronized (writeLock) {
+            seq = logDelete(vectorId);
+            mutateIndex(current -> current.remove(vectorId));
+            recordRebuildDelete(vectorId);
+        }
+        attributes.remove(vectorId);
+        payloads.remove(vectorId);
+        syncWal(seq);
         log.debug("删除向量ID: {}", vectorId);
     }
 
     /**
-     * 批量删除向量
+     * 批量删除向量（整批只等待一次日志落盘）
      */
     public void deleteVectors(List<Long> vectorIds) {
-        for (Long id : vectorIds) {
-            deleteVector(id);
+        long seq = 0;
+        synchronized (writeLock) {
+            for (Long id : vectorIds) {
+                seq = logDelete(id);
+            }
+            mutateIndex(current -> vectorIds.forEach(current::remove));
+            vectorIds.forEach(this::recordRebuildDelete);
         }
+        vectorIds.forEach(attributes::remove);
+        vectorIds.forEach(payloads::remove);
+        syncWal(seq);
     }
 
     /**
-     * 计算余弦相似度
+     * 开始从外部数据源重建索引：替换为空索引，之后通过 {@link #loadVectors} 分批加载
+     * 
+     * 重建期间的新增与删除照常写入新索引（及写前日志），重建过程中被删除的向量不会被加载回来。
      */
-    private double cosineSimilarity(List<Double> vec1, List<Double> vec2) {
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
+    public void beginRebuild() {
+        VectorIndex previous;
+        synchronized (writeLock) {
+            rebuildDeletes = ConcurrentHashMap.newKeySet();
+            // 只替换索引，不改写向量ID计数：加载时按已加载的最大ID单调推进
+            previous = index;
+            index = createIndex();
+        }
+        if (previous != null) {
+            previous.close();
+        }
+    }
 
-        for (int i = 0; i < vec1.size(); i++) {
-            dotProduct += vec1.get(i) * vec2.get(i);
-            norm1 += vec1.get(i) * vec1.get(i);
-            norm2 += vec2.get(i) * vec2.get(i);
+    /**
+     * 开始在现有索引上补齐缺失的向量：不替换索引，只记录此后被删除的向量，避免补齐时加载回来
+     */
+    public void beginReconcile() {
+        synchronized (writeLock) {
+            rebuildDeletes = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    /**
+     * 批量加载已有ID的向量（重建索引用，不写日志）；加载已存在的ID时覆盖原向量
+     *
+     * @param vectors 未归一化的原始向量，与 ids 一一对应
+     * @return 实际加载的向量数（跳过维度不匹配与重建期间已删除的向量）
+     */
+    public int loadVectors(long[] ids, float[][] vectors) {
+        float[][] normalized = new float[vectors.length][];
+        long maxId = 0;
+        for (int i = 0; i < vectors.length; i++) {
+            if (vectors[i] != null && vectors[i].length == dimension) {
+                normalized[i] = VectorMath.normalizeInPlace(vectors[i]);
+                maxId = Math.max(maxId, ids[i]);
+            }
+        }
+        int[] loaded = {0};
+        synchronized (writeLock) {
+            Set<Long> deleted = rebuildDeletes;
+            mutateIndex(current -> {
+                for (int i = 0; i < ids.length; i++) {
+                    if (normalized[i] == null || (deleted != null && deleted.contains(ids[i]))) {
+                        continue;
+                    }
+                    current.remove(ids[i]);
+                    current.add(ids[i], normalized[i]);
+                    loaded[0]++;
+                }
+            });
+            nextVectorId.accumulateAndGet(maxId + 1, Math::max);
+        }
+        return loaded[0];
+    }
+
+    /**
+     * 完成重建：写入索引快照并删除此前的写前日志段，下次启动直接加载快照
+     */
+    public void finishRebuild() {
+        synchronized (snapshotLock) {
+            try {
+                List<Path> sealed;
+                VectorIndex current;
+                long nextId;
+                synchronized (writeLock) {
+                    rebuildDeletes = null;
+                    sealed = wal != null ? wal.rotate() : List.of();
+                    current = index;
+                    nextId = nextVectorId.get();
+                }
+                writeSnapshot(current, nextId);
+                if (wal != null) {
+                    wal.discard(sealed);
+                }
+            } catch (IOException e) {
+                log.error("重建后写入向量索引快照失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 放弃重建：不写快照也不清空写前日志，磁盘上仍是重建前的快照与日志，下次启动从中恢复后再次核对
+     */
+    public void abortRebuild() {
+        synchronized (writeLock) {
+            rebuildDeletes = null;
+        }
+    }
+
+    /**
+     * 调用方持有写锁
+     */
+    private void recordRebuildDelete(Long vectorId) {
+        Set<Long> deleted = rebuildDeletes;
+        if (deleted != null) {
+            deleted.add(vectorId);
+        }
+    }
+
+    /**
+     * 登记（覆盖）向量的过滤属性
+     */
+    public void putAttributes(Long vectorId, VectorAttributes.Row row) {
+        attributes.put(vectorId, row);
+    }
+
+    /**
+     * 已登记过滤属性的向量数
+     */
+    public int getAttributeCount() {
+        return attributes.size();
+    }
+
+    /**
+     * 登记（覆盖）向量的展示载荷
+     */
+    public void putPayload(Long vectorId, VectorPayload payload) {
+        payloads.put(vectorId, payload);
+    }
+
+    /**
+     * 批量读取展示载荷（未登记载荷的向量不在结果中）
+     */
+    public Map<Long, VectorPayload> getPayloads(List<Long> vectorIds) {
+        Map<Long, VectorPayload> result = new HashMap<>(vectorIds.size() * 2);
+        for (Long vectorId : vectorIds) {
+            VectorPayload payload = payloads.get(vectorId);
+            if (payload != null) {
+                result.put(vectorId, payload);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 已登记展示载荷的向量数
+     */
+    public int getPayloadCount() {
+        return payloads.size();
+    }
+
+    /**
+     * 注册原始向量加载器（用于压缩索引的重排）
+     */
+    public void setFullVectorLoader(FullVectorLoader fullVectorLoader) {
+        this.fullVectorLoader = fullVectorLoader;
+    }
+
+    /**
+     * 近似索引重排的候选倍数（符号草图的估计误差比 int8/PQ 大，多取候选）
+     */
+    private int candidateMultiplier() {
+        return BinaryQuantizedVectorIndex.TYPE.equalsIgnoreCase(indexType)
+                ? binaryShortlistMultiplier
+                : rescoreMultiplier;
+    }
+
+    /**
+     * 近似索引召回的候选数：limit * 候选倍数，不超过索引中的向量数（按 long 计算，避免溢出）
+     */
+    private int candidateCount(VectorIndex current, int limit) {
+        return (int) Math.max(1, Math.min((long) limit * candidateMultiplier(), current.size()));
+    }
+
+    /**
+     * 用原始向量重新计算候选得分，加载失败的候选保留近似得分
+     *
+     * 压缩索引（pq/sq8/binary）的得分是近似值，检索时多召回 topK * rescore-multiplier 个候选
+     * （binary 误差更大，使用 faiss.binary.shortlist-multiplier），再用数据库中的原始向量精确重排。
+     */
+    private TopKHeap rescore(float[] query, TopKHeap candidates, int topK) {
+        List<Long> ids = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            ids.add(candidates.idAt(i));
+        }
+        Map<Long, float[]> fullVectors = loadFullVectors(ids);
+
+        TopKHeap heap = new TopKHeap(Math.min(topK, candidates.size()));
+        for (int i = 0; i < candidates.size(); i++) {
+            heap.offer(candidates.idAt(i), exactScore(query, fullVectors.get(candidates.idAt(i)),
+                    candidates.scoreAt(i)));
+        }
+        return heap;
+    }
+
+    /**
+     * 范围检索候选用原始向量复核，只保留精确得分不低于阈值的向量
+     */
+    private RangeResult rescoreRange(float[] query, RangeResult candidates, float threshold, int limit) {
+        List<Long> ids = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            ids.add(candidates.idAt(i));
         }
+        Map<Long, float[]> fullVectors = loadFullVectors(ids);
+
+        RangeResult range = new RangeResult(threshold, limit);
+        for (int i = 0; i < candidates.size(); i++) {
+            range.offer(candidates.idAt(i), exactScore(query, fullVectors.get(candidates.idAt(i)),
+                    candidates.scoreAt(i)));
+        }
+        return range;
+    }
 
-        if (norm1 == 0 || norm2 == 0) {
-            return 0.0;
+    private Map<Long, float[]> loadFullVectors(List<Long> ids) {
+        try {
+            return fullVectorLoader.load(ids);
+        } catch (Exception e) {
+            log.warn("加载原始向量失败，使用近似得分: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private float exactScore(float[] query, float[] vector, float approximateScore) {
+        return vector != null && vector.length == dimension
+                ? VectorMath.dot(query, VectorMath.normalizeInPlace(vector), 0)
+                : approximateScore;
+    }
+
+    /**
+     * 训练量化器：IVF 训练质心并切换倒排列表，PQ 训练码本并编码暂存向量（其他索引时忽略）
+     * 
+     * 聚类计算不修改索引，只有最后的重新分配/编码步骤会短暂占用索引。
+     */
+    public void trainIndex() {
+        if (index instanceof PqVectorIndex pq) {
+            trainProductQuantizer(pq);
+            return;
+        }
+        if (!(index instanceof IvfVectorIndex ivf)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        float[] samples = ivf.sample(ivfTrainSampleSize);
+        int sampleCount = samples.length / dimension;
+        if (sampleCount == 0) {
+            return;
+        }
+        int nlist = Math.max(1, Math.min(ivfNlist, sampleCount / MIN_SAMPLES_PER_CENTROID));
+        float[] centroids = KMeans.train(samples, sampleCount, dimension, nlist, ivfTrainIterations, true,
+                System.nanoTime());
+        synchronized (writeLock) {
+            mutateIndex(current -> ivf.applyCentroids(centroids));
+        }
+        log.info("IVF质心训练完成: 样本数={}, nlist={}, 向量数={}, 耗时={}ms",
+                sampleCount, nlist, ivf.size(), System.currentTimeMillis() - start);
+    }
+
+    private void trainProductQuantizer(PqVectorIndex pq) {
+        long start = System.currentTimeMillis();
+        float[] samples = pq.sample(pqTrainSampleSize);
+        int sampleCount = samples.length / dimension;
+        if (pq.isTrained() || sampleCount == 0) {
+            return;
+        }
+        float[][] codebooks = PqVectorIndex.trainCodebooks(samples, sampleCount, dimension, pq.subQuantizers(),
+                pqTrainIterations);
+        synchronized (writeLock) {
+            mutateIndex(current -> pq.applyCodebooks(codebooks));
+        }
+        log.info("PQ码本训练完成: 样本数={}, 子空间数={}, 向量数={}, 每向量{}字节, 耗时={}ms",
+                sampleCount, pq.subQuantizers(), pq.size(), pq.subQuantizers(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 后台定时检查量化器是否需要训练：
+     * IVF 在向量数达到最小训练规模且尚未训练，或自上次训练以来数量翻倍时重新聚类；
+     * PQ 在向量数达到最小训练规模时训练一次码本
+     */
+    @Scheduled(fixedDelayString = "${faiss.ivf.retrain-interval-ms:600000}",
+            initialDelayString = "${faiss.ivf.retrain-interval-ms:600000}")
+    public void retrainIfNeeded() {
+        if (index instanceof PqVectorIndex pq) {
+            if (!pq.isTrained() && pq.size() >= pqMinTrainSize) {
+                try {
+                    trainIndex();
+                } catch (Exception e) {
+                    log.error("PQ码本训练失败: {}", e.getMessage(), e);
+                }
+            }
+            return;
+        }
+        if (!(index instanceof IvfVectorIndex ivf) || ivf.size() < ivfMinTrainSize) {
+            return;
         }
+        if (!ivf.isTrained() || ivf.size() >= ivf.trainedSize() * 2) {
+            try {
+                trainIndex();
+            } catch (Exception e) {
+                log.error("IVF质心训练失败: {}", e.getMessage(), e);
+            }
+        }
+    }
 
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    /**
+     * 后台压缩分段索引：冻结段重建为配置的索引类型，合并小段并清除已删除的向量
+     */
+    @Scheduled(fixedDelayString = "${faiss.segment.compaction-interval-ms:60000}",
+            initialDelayString = "${faiss.segment.compaction-interval-ms:60000}")
+    public void compactSegments() {
+        if (!(index instanceof SegmentedVectorIndex segmented)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            int rewritten = segmented.compact();
+            if (rewritten > 0) {
+                log.info("向量段压缩完成: 重写段数={}, 当前段数={}, 向量数={}, 耗时={}ms",
+                        rewritten, segmented.segmentCount(), segmented.size(), System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.error("向量段压缩失败: {}", e.getMessage(), e);
+        }
     }
 
     /**
-     * 持久化向量索引
+     * 持久化向量索引（二进制格式，见 {@link VectorIndexFile}）
+     *
+     * 加载时通过内存映射批量读取；flat（及分段的 flat 段）直接以映射的向量块作为数据块，启动时不复制向量，
+     * 整个文件的 CRC32C 由 {@link #verifySnapshot} 在后台校验。
      */
     public void saveIndex() throws IOException {
-        Path indexFilePath = Paths.get(indexPath);
-        Files.createDirectories(indexFilePath.getParent());
-        
-        Map<String, Object> indexData = new HashMap<>();
-        indexData.put("vectors", vectors);
-        indexData.put("nextVectorId", nextVectorId);
-        indexData.put("dimension", dimension);
+        synchronized (snapshotLock) {
+            VectorIndex current;
+            long nextId;
+            synchronized (writeLock) {
+                current = index;
+                nextId = nextVectorId.get();
+            }
+            writeSnapshot(current, nextId);
+        }
+    }
 
-        try (FileWriter writer = new FileWriter(indexFilePath.toFile())) {
-            writer.write(JSON.toJSONString(indexData));
+    /**
+     * 检查点：切换写前日志段后写入索引快照，快照完成后删除旧日志段
+     *
+     * 开启 faiss.wal.enabled 后，每次新增/删除先写入写前日志（{@link VectorWal}，组提交 fsync），
+     * 启动时加载快照并回放检查点之后的日志。
+     * 写锁内只切换日志段并取得当前索引，快照在锁外写出，期间的新增与删除照常写入新日志段。
+     * 快照可能已包含部分新日志段中的修改，回放是幂等的（新增先删后加，删除可重复），重启后结果一致。
+     * 重建期间索引尚不完整，不做检查点。
+     */
+    @Scheduled(fixedDelayString = "${faiss.wal.checkpoint-interval-ms:300000}",
+            initialDelayString = "${faiss.wal.checkpoint-interval-ms:300000}")
+    public void checkpoint() {
+        if (wal == null || wal.pendingRecords() == 0 || rebuildDeletes != null) {
+            return;
         }
-        
+        long start = System.currentTimeMillis();
+        synchronized (snapshotLock) {
+            try {
+                long records;
+                List<Path> sealed;
+                VectorIndex current;
+                long nextId;
+                synchronized (writeLock) {
+                    records = wal.pendingRecords();
+                    sealed = wal.rotate();
+                    current = index;
+                    nextId = nextVectorId.get();
+                }
+                writeSnapshot(current, nextId);
+                wal.discard(sealed);
+                log.info("向量索引检查点完成: 日志记录数={}, 向量数={}, 耗时={}ms",
+                        records, current.size(), System.currentTimeMillis() - start);
+            } catch (IOException e) {
+                log.error("向量索引检查点失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 在写锁外写出索引快照（调用方持有快照锁）
+     * 
+     * 支持并发读的索引直接遍历已发布的数据；其余索引（hnsw/pq）持有检索读锁，检索照常进行，修改等待快照完成。
+     */
+    private void writeSnapshot(VectorIndex current, long nextId) throws IOException {
+        Path indexFilePath = Paths.get(indexPath);
+        Files.createDirectories(indexFilePath.toAbsolutePath().getParent());
+        if (current.concurrentReads()) {
+            VectorIndexFile.write(indexFilePath, dimension, nextId, current);
+        } else {
+            searchLock.readLock().lock();
+            try {
+                VectorIndexFile.write(indexFilePath, dimension, nextId, current);
+            } finally {
+                searchLock.readLock().unlock();
+            }
+        }
+        // 图结构已写入索引文件，旧版的独立图文件不再需要
+        Files.deleteIfExists(graphFilePath());
+
         log.info("向量索引已保存到: {}", indexPath);
     }
 
+    /**
+     * 关闭时写入最终检查点
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (wal != null) {
+            checkpoint();
+            try {
+                wal.close();
+            } catch (IOException e) {
+                log.warn("关闭向量日志失败: {}", e.getMessage());
+            }
+            wal = null;
+        }
+        if (scanPool != null) {
+            scanPool.shutdown();
+        }
+        VectorIndexFile file;
+        synchronized (snapshotLock) {
+            file = unverifiedSnapshot;
+            unverifiedSnapshot = null;
+        }
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn("关闭向量索引文件失败: {}", e.getMessage());
+            }
+        }
+        index.close();
+    }
+
     /**
      * 加载向量索引
      */
-    @SuppressWarnings("unchecked")
     public void loadIndex() throws IOException {
         Path indexFilePath = Paths.get(indexPath);
         
@@ -160,36 +896,532 @@ public class VectorStore {
             log.info("向量索引文件不存在，将创建新索引");
             return;
         }
+        if (!VectorIndexFile.isBinaryFormat(indexFilePath)) {
+            loadLegacyIndex(indexFilePath);
+            return;
+        }
 
-        try (FileReader reader = new FileReader(indexFilePath.toFile())) {
-            StringBuilder content = new StringBuilder();
-            int ch;
-            while ((ch = reader.read()) != -1) {
-                content.append((char) ch);
+        long start = System.currentTimeMillis();
+        VectorIndex loaded;
+        long loadedNextId;
+        boolean mapped = false;
+        VectorIndexFile file = VectorIndexFile.open(indexFilePath);
+        try {
+            if (file.dimension() != dimension) {
+                throw new IOException("向量索引维度不匹配，期望: " + dimension + ", 实际: " + file.dimension());
             }
-            
-            Map<String, Object> indexData = JSON.parseObject(content.toString(), Map.class);
-            
-            // 这里需要处理类型转换
-            Map<String, Object> rawVectors = (Map<String, Object>) indexData.get("vectors");
-            vectors.clear();
-            for (Map.Entry<String, Object> entry : rawVectors.entrySet()) {
-                Long id = Long.parseLong(entry.getKey());
-                List<Double> vector = JSON.parseArray(JSON.toJSONString(entry.getValue()), Double.class);
-                vectors.put(id, vector);
+            loadedNextId = file.nextVectorId();
+
+            if (!segmented() && HnswVectorIndex.TYPE.equalsIgnoreCase(indexType)
+                    && file.hasSection(VectorIndexFile.SECTION_HNSW_GRAPH)) {
+                try (DataInputStream in = new DataInputStream(
+                        file.sectionStream(VectorIndexFile.SECTION_HNSW_GRAPH))) {
+                    loaded = HnswVectorIndex.readFrom(in, dimension, hnswEfConstruction, hnswEfSearch);
+                }
+            } else {
+                // 其他情况按当前配置的索引类型重建（文件中的向量已归一化）
+                loaded = createIndex();
+                // binary 快照保存的是草图还原的符号向量，只能由 binary 索引使用
+                boolean signVectors = BinaryQuantizedVectorIndex.TYPE.equalsIgnoreCase(file.indexType())
+                        && !BinaryQuantizedVectorIndex.TYPE.equalsIgnoreCase(indexType);
+                mapped = !signVectors && mapsIndexFile(loaded);
+                if (mapped) {
+                    loaded = loadMapped(file, loaded);
+                }
+                if (loaded instanceof IvfVectorIndex ivf) {
+                    float[] centroids = file.floatSection(VectorIndexFile.SECTION_IVF_CENTROIDS);
+                    if (centroids != null && centroids.length % dimension == 0) {
+                        ivf.applyCentroids(centroids);
+                    }
+                }
+                if (loaded instanceof PqVectorIndex pq) {
+                    float[] flat = file.floatSection(VectorIndexFile.SECTION_PQ_CODEBOOKS);
+                    int codebookLength = PqVectorIndex.CODEBOOK_SIZE * (dimension / pq.subQuantizers());
+                    if (flat != null && flat.length == pq.subQuantizers() * codebookLength) {
+                        float[][] codebooks = new float[pq.subQuantizers()][];
+                        for (int j = 0; j < codebooks.length; j++) {
+                            codebooks[j] = Arrays.copyOfRange(flat, j * codebookLength, (j + 1) * codebookLength);
+                        }
+                        pq.applyCodebooks(codebooks);
+                        if (!file.forEachPqCode(pq.subQuantizers(), pq::addEncoded)
+                                && file.hasSection(VectorIndexFile.SECTION_PQ_CODES)) {
+                            log.warn("PQ快照的子空间数量与当前配置不一致，编码无法使用，由启动核对从数据库补齐");
+                        }
+                    }
+                }
+                if (!(loaded instanceof PqVectorIndex) && file.hasSection(VectorIndexFile.SECTION_PQ_CODES)) {
+                    log.warn("快照只保存了PQ编码，当前索引类型为 {}，由启动核对从数据库重建", loaded.type());
+                }
+                if (signVectors) {
+                    log.warn("快照只保存了符号草图，当前索引类型为 {}，由启动核对从数据库重建", loaded.type());
+                } else if (!mapped) {
+                    file.forEach(loaded::add);
+                }
             }
-            
-            nextVectorId = Long.parseLong(indexData.get("nextVectorId").toString());
-            
-            log.info("向量索引已加载，共 {} 个向量", vectors.size());
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+        // 文件保持打开，由 verifySnapshot 在后台校验 CRC32C
+        VectorIndexFile previousFile;
+        synchronized (snapshotLock) {
+            previousFile = unverifiedSnapshot;
+            unverifiedSnapshot = file;
+        }
+        if (previousFile != null) {
+            previousFile.close();
         }
+        // 快照在写锁外写出，可能包含取得向量ID计数之后新增的向量
+        long[] maxId = {loadedNextId - 1};
+        loaded.forEachId(id -> maxId[0] = Math.max(maxId[0], id));
+        publishLoaded(loaded, maxId[0] + 1);
+        log.info("向量索引已加载: 类型={}, 向量数={}, 映射索引文件={}, 耗时={}ms",
+                loaded.type(), loaded.size(), mapped, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * flat 数据块能否直接使用索引文件向量块的映射（文件为小端序，打分内核按本机字节序读取）
+     */
+    private boolean mapsIndexFile(VectorIndex empty) {
+        return ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN
+                && (empty instanceof FlatVectorIndex || empty instanceof SegmentedVectorIndex);
+    }
+
+    /**
+     * 以索引文件向量块的只读映射作为 flat 数据块，不复制向量；分段索引按 segment.max-size 切分为多个封存段
+     */
+    private VectorIndex loadMapped(VectorIndexFile file, VectorIndex empty) throws IOException {
+        ByteBuffer[] chunks = file.mapVectorChunks(FlatVectorIndex.CHUNK_ROWS);
+        long[] ids = file.ids();
+        if (!(empty instanceof SegmentedVectorIndex segmented)) {
+            empty.close();
+            return FlatVectorIndex.ofChunks(dimension, createParallelScan(), createStorage(), chunks, ids);
+        }
+        int chunksPerSegment = Math.max(1, segmentMaxSize / FlatVectorIndex.CHUNK_ROWS);
+        for (int first = 0; first < chunks.length; first += chunksPerSegment) {
+            int last = Math.min(chunks.length, first + chunksPerSegment);
+            segmented.appendSealed(FlatVectorIndex.ofChunks(dimension, createParallelScan(), createStorage(),
+                    Arrays.copyOfRange(chunks, first, last),
+                    Arrays.copyOfRange(ids, first * FlatVectorIndex.CHUNK_ROWS,
+                            Math.min(ids.length, last * FlatVectorIndex.CHUNK_ROWS))));
+        }
+        return segmented;
+    }
+
+    /**
+     * 校验启动时加载的索引快照（整个文件的 CRC32C，顺序读取整个文件；由启动重建服务在后台调用）
+     *
+     * @return 快照完整或没有待校验的快照时返回 true；返回 false 时内存中的索引不可信，应从数据库重建
+     */
+    public boolean verifySnapshot() {
+        VectorIndexFile file;
+        synchronized (snapshotLock) {
+            file = unverifiedSnapshot;
+            unverifiedSnapshot = null;
+        }
+        if (file == null) {
+            return true;
+        }
+        long start = System.currentTimeMillis();
+        try (file) {
+            boolean valid = file.verify();
+            if (valid) {
+                log.info("向量索引快照校验通过: 耗时={}ms", System.currentTimeMillis() - start);
+            } else {
+                log.error("向量索引快照校验失败: {}", indexPath);
+            }
+            return valid;
+        } catch (IOException e) {
+            log.error("向量索引快照校验失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 加载旧版 JSON 索引文件（下次保存时自动转换为二进制格式）
+     */
+    @SuppressWarnings("unchecked")
+    private void loadLegacyIndex(Path indexFilePath) throws IOException {
+        Map<String, Object> indexData = JSON.parseObject(Files.readString(indexFilePath), Map.class);
+        long loadedNextId = Long.parseLong(indexData.get("nextVectorId").toString());
+
+        if (!segmented() && HnswVectorIndex.TYPE.equals(indexType) && Files.exists(graphFilePath())) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(graphFilePath())))) {
+                VectorIndex graph = HnswVectorIndex.readFrom(in, dimension, hnswEfConstruction, hnswEfSearch);
+                publishLoaded(graph, loadedNextId);
+                log.info("HNSW图索引已加载（旧版格式），共 {} 个向量", graph.size());
+                return;
+            }
+        }
+
+        Map<String, Object> rawVectors = (Map<String, Object>) indexData.get("vectors");
+        VectorIndex loaded = createIndex();
+        if (loaded instanceof IvfVectorIndex ivf && indexData.get("ivfCentroids") != null) {
+            float[] centroids = toFloatArray(indexData.get("ivfCentroids"));
+            if (centroids.length % dimension == 0) {
+                ivf.applyCentroids(centroids);
+            }
+        }
+        if (loaded instanceof PqVectorIndex pq && indexData.get("pqCodebooks") != null) {
+            List<Object> rawCodebooks = JSON.parseArray(JSON.toJSONString(indexData.get("pqCodebooks")));
+            if (rawCodebooks.size() == pq.subQuantizers()) {
+                float[][] codebooks = new float[rawCodebooks.size()][];
+                for (int j = 0; j < codebooks.length; j++) {
+                    codebooks[j] = toFloatArray(rawCodebooks.get(j));
+                }
+                pq.applyCodebooks(codebooks);
+                loadPqCodes(pq, (Map<Object, Object>) indexData.get("pqCodes"));
+            }
+        }
+        // binary 快照保存的是草图还原的符号向量，只能由 binary 索引使用
+        if (BinaryQuantizedVectorIndex.TYPE.equals(indexData.get("indexType"))
+                && !(index instanceof BinaryQuantizedVectorIndex)) {
+            log.warn("快照只保存了符号草图，当前索引类型为 {}，不加载其中的向量", index.type());
+            rawVectors = Collections.emptyMap();
+        }
+        for (Map.Entry<String, Object> entry : rawVectors.entrySet()) {
+            Long id = Long.parseLong(entry.getKey());
+            List<Double> vector = JSON.parseArray(JSON.toJSONString(entry.getValue()), Double.class);
+            loaded.add(id, VectorMath.normalize(vector));
+        }
+
+        publishLoaded(loaded, loadedNextId);
+        log.info("向量索引已加载（旧版格式），共 {} 个向量", loaded.size());
+    }
+
+    /**
+     * 加载快照并回放写前日志
+     */
+    private void recover() throws IOException {
+        loadIndex();
+        Path walPath = walFilePath();
+        Files.createDirectories(walPath.toAbsolutePath().getParent());
+        wal = VectorWal.open(walPath, dimension);
+        long start = System.currentTimeMillis();
+        long records = wal.replay(new VectorWal.RecordHandler() {
+            @Override
+            public void onInsert(long id, float[] vector) {
+                // 快照可能已包含该记录，先删除保证回放幂等
+                index.remove(id);
+                index.add(id, vector);
+                nextVectorId.accumulateAndGet(id + 1, Math::max);
+            }
+
+            @Override
+            public void onDelete(long id) {
+                index.remove(id);
+            }
+        });
+        if (records > 0) {
+            log.info("向量日志回放完成: 记录数={}, 向量数={}, 耗时={}ms",
+                    records, index.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 加载完成后整体替换索引
+     */
+    private void publishLoaded(VectorIndex loaded, long loadedNextId) {
+        VectorIndex previous;
+        synchronized (writeLock) {
+            previous = index;
+            index = loaded;
+            nextVectorId.set(loadedNextId);
+        }
+        if (previous != null && previous != loaded) {
+            previous.close();
+        }
+    }
+
+    /**
+     * 修改索引（调用方持有写锁）；不支持并发读的索引同时持有检索写锁
+     *
+     * 并发模型：支持并发读的索引（{@link VectorIndex#concurrentReads()}）通过 volatile 发布已写入的数据，
+     * 检索只读取已发布的快照，不加锁；其余索引（hnsw/pq）的检索持读写锁的读锁，多个检索可并行。
+     * 修改走单一写入路径：向量归一化在锁外完成，ID 分配、写日志、修改索引在写锁内完成，日志 fsync 在锁外组提交。
+     */
+    private void mutateIndex(Consumer<VectorIndex> mutation) {
+        VectorIndex current = index;
+        if (current.concurrentReads()) {
+            mutation.accept(current);
+            return;
+        }
+        searchLock.writeLock().lock();
+        try {
+            mutation.accept(current);
+        } finally {
+            searchLock.writeLock().unlock();
+        }
+    }
+
+    private TopKHeap searchIndex(VectorIndex current, float[] query, int topK, SearchParams params) {
+        if (current.concurrentReads()) {
+            return current.search(query, topK, params);
+        }
+        searchLock.readLock().lock();
+        try {
+            return current.search(query, topK, params);
+        } finally {
+            searchLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 只合并支持无锁读的索引的检索（其余索引的检索需持读锁，合并没有收益）
+     *
+     * 开启 faiss.batch.enabled 时，有其他检索正在执行时在 window-micros 内到达的检索合并为一次扫描
+     * （{@link SearchBatcher}），每个向量在一批中只读取一次，结果按各自的 topK 与阈值返回。
+     */
+    private boolean batches(VectorIndex current) {
+        return searchBatcher != null && current.concurrentReads();
+    }
+
+    private RangeResult rangeSearchIndex(VectorIndex current, float[] query, float threshold, int limit,
+                                         SearchParams params) {
+        if (current.concurrentReads()) {
+            return current.rangeSearch(query, threshold, limit, params);
+        }
+        searchLock.readLock().lock();
+        try {
+            return current.rangeSearch(query, threshold, limit, params);
+        } finally {
+            searchLock.readLock().unlock();
+        }
+    }
+
+    private long logInsert(long vectorId, float[] vector) {
+        if (wal == null) {
+            return 0;
+        }
+        try {
+            return wal.appendInsert(vectorId, vector);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入向量日志失败", e);
+        }
+    }
+
+    private long logDelete(long vectorId) {
+        if (wal == null) {
+            return 0;
+        }
+        try {
+            return wal.appendDelete(vectorId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入向量日志失败", e);
+        }
+    }
+
+    /**
+     * 在写锁外等待日志落盘，并发写入共享同一次 fsync
+     */
+    private void syncWal(long seq) {
+        VectorWal current = wal;
+        if (current == null || seq == 0) {
+            return;
+        }
+        try {
+            current.sync(seq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("向量日志落盘失败", e);
+        }
+    }
+
+    /**
+     * 索引中全部向量的ID（升序，用于与数据库核对）
+     */
+    public long[] getVectorIds() {
+        VectorIndex current = index;
+        long[][] ids = {new long[current.size()]};
+        int[] count = {0};
+        LongConsumer collector = id -> {
+            if (count[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], Math.max(16, count[0] * 2));
+            }
+            ids[0][count[0]++] = id;
+        };
+        if (current.concurrentReads()) {
+            current.forEachId(collector);
+        } else {
+            searchLock.readLock().lock();
+            try {
+                current.forEachId(collector);
+            } finally {
+                searchLock.readLock().unlock();
+            }
+        }
+        long[] sorted = Arrays.copyOf(ids[0], count[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * 下一个可分配的向量ID（此前分配的ID均小于该值）
+     */
+    public long getNextVectorId() {
+        return nextVectorId.get();
     }
 
     /**
      * 获取向量数量
      */
     public int getVectorCount() {
-        return vectors.size();
+        return index.size();
+    }
+
+    /**
+     * 恢复 PQ 编码（与当前子空间数量不一致的编码跳过）
+     */
+    private void loadPqCodes(PqVectorIndex pq, Map<Object, Object> rawCodes) {
+        if (rawCodes == null) {
+            return;
+        }
+        for (Map.Entry<Object, Object> entry : rawCodes.entrySet()) {
+            byte[] code = Base64.getDecoder().decode(entry.getValue().toString());
+            if (code.length == pq.subQuantizers()) {
+                pq.addEncoded(Long.parseLong(entry.getKey().toString()), code, 0);
+            }
+        }
+    }
+
+    /**
+     * 向量数据占用的堆外字节数（heap 模式或非 flat 索引为 0）
+     */
+    public long getOffHeapBytes() {
+        VectorStorage storage = vectorStorage;
+        return storage == null ? 0L : storage.offHeapBytes();
+    }
+
+    /**
+     * 向量存储运行状态（索引类型、向量数、打分内核、存储模式与堆外占用）
+     */
+    public Map<String, Object> getStorageStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        VectorStorage storage = vectorStorage;
+        stats.put("indexType", index.type());
+        stats.put("vectorCount", index.size());
+        stats.put("segmentCount", index instanceof SegmentedVectorIndex segmented ? segmented.segmentCount() : 1);
+        stats.put("dimension", dimension);
+        stats.put("kernel", VectorMath.kernelName());
+        stats.put("storage", storage == null ? VectorStorage.Mode.HEAP.name() : storage.mode().name());
+        stats.put("offHeapBytes", getOffHeapBytes());
+        stats.put("attributeCount", attributes.size());
+        stats.put("payloadCount", payloads.size());
+        stats.put("batchCount", searchBatcher == null ? 0 : searchBatcher.batchCount());
+        stats.put("batchedQueryCount", searchBatcher == null ? 0 : searchBatcher.batchedQueryCount());
+        // JVM 层面的直接内存与映射内存（包含已释放但尚未被 GC 回收的缓冲区）
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            stats.put(pool.getName() + "BufferBytes", pool.getMemoryUsed());
+        }
+        return stats;
+    }
+
+    private float[] toFloatArray(Object raw) {
+        List<Float> list = JSON.parseArray(JSON.toJSONString(raw), Float.class);
+        float[] values = new float[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = list.get(i);
+        }
+        return values;
+    }
+
+    private VectorIndex createIndex() {
+        if (!segmented()) {
+            return createBaseIndex();
+        }
+        return new SegmentedVectorIndex(this::createBaseIndex,
+                () -> new FlatVectorIndex(dimension, createParallelScan(), createStorage()),
+                segmentSize, segmentMaxSize, segmentMaxDeletedRatio);
+    }
+
+    /**
+     * 是否使用分段索引（IVF/PQ 的量化器在整个索引上训练，不分段）
+     *
+     * 分段索引（{@link SegmentedVectorIndex}）新增写入活跃段，活跃段满后冻结为只读的封存段，删除在封存段上只写墓碑，
+     * 检索在各段上执行后归并；后台定时压缩把冻结段重建为配置的索引类型、合并小段并清除已删除的向量。
+     */
+    private boolean segmented() {
+        return segmentEnabled && !IvfVectorIndex.TYPE.equalsIgnoreCase(indexType)
+                && !PqVectorIndex.TYPE.equalsIgnoreCase(indexType);
+    }
+
+    /**
+     * 按 faiss.index-type 创建索引：
+     * - flat：精确检索，线性扫描连续的向量数据块；向量数达到 faiss.parallel.min-vectors 后
+     *   按缓存大小分区，在独立的 ForkJoinPool 中并行扫描
+     * - hnsw：HNSW 图索引，近似检索，检索耗时随数据量对数增长
+     * - ivf：IVF-Flat 倒排索引，按 K-Means 质心分桶，只扫描最近的 nprobe 个桶；质心由后台定时任务训练
+     * - pq：乘积量化索引，每个向量只保存 m 字节编码；码本在向量数达到训练规模后由后台任务训练
+     * - sq8：int8 标量量化索引，内存约为 float32 的 1/4，无需训练
+     * - binary：符号位草图索引，每个向量只保存 1 bit/维，用汉明距离估计相似度
+     */
+    private VectorIndex createBaseIndex() {
+        if (HnswVectorIndex.TYPE.equalsIgnoreCase(indexType)) {
+            return new HnswVectorIndex(dimension, hnswM, hnswEfConstruction, hnswEfSearch);
+        }
+        if (IvfVectorIndex.TYPE.equalsIgnoreCase(indexType)) {
+            return new IvfVectorIndex(dimension, ivfNprobe);
+        }
+        if (PqVectorIndex.TYPE.equalsIgnoreCase(indexType)) {
+            return new PqVectorIndex(dimension, pqM);
+        }
+        if (ScalarQuantizedVectorIndex.TYPE.equalsIgnoreCase(indexType)) {
+            return new ScalarQuantizedVectorIndex(dimension);
+        }
+        if (BinaryQuantizedVectorIndex.TYPE.equalsIgnoreCase(indexType)) {
+            return new BinaryQuantizedVectorIndex(dimension);
+        }
+        if (!FlatVectorIndex.TYPE.equalsIgnoreCase(indexType)) {
+            log.warn("未知的向量索引类型: {}，使用 flat", indexType);
+        }
+        return new FlatVectorIndex(dimension, createParallelScan(), createStorage());
+    }
+
+    /**
+     * 创建 flat 索引的数据块分配器（首次创建时初始化，重新加载索引时复用）
+     */
+    private VectorStorage createStorage() {
+        if (vectorStorage != null) {
+            return vectorStorage;
+        }
+        if ("mapped".equalsIgnoreCase(storageMode)) {
+            try {
+                vectorStorage = VectorStorage.mapped(Paths.get(indexPath + ".vectors"));
+            } catch (IOException e) {
+                throw new UncheckedIOException("创建向量数据目录失败", e);
+            }
+        } else if ("heap".equalsIgnoreCase(storageMode)) {
+            vectorStorage = VectorStorage.heap();
+        } else {
+            if (!"direct".equalsIgnoreCase(storageMode)) {
+                log.warn("未知的向量存储模式: {}，使用 direct", storageMode);
+            }
+            vectorStorage = VectorStorage.direct();
+        }
+        return vectorStorage;
+    }
+
+    private Path walFilePath() {
+        return Paths.get(indexPath + ".wal");
+    }
+
+    /**
+     * 创建 flat 索引的并行扫描（线程池在首次创建时初始化，重新加载索引时复用）
+     */
+    private PartitionedScan createParallelScan() {
+        if (scanPool == null) {
+            int threads = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+            scanPool = new ForkJoinPool(threads);
+        }
+        return new PartitionedScan(scanPool, parallelMinVectors,
+                PartitionedScan.partitionRows(parallelPartitionBytes, dimension));
+    }
+
+    /**
+     * 旧版 HNSW 图结构文件
+     */
+    private Path graphFilePath() {
+        return Paths.get(indexPath + ".hnsw");
     }
 
     /**
@@ -213,4 +1445,3 @@ public class VectorStore {
         }
     }
 }
-
@@ -0,0 +1,226 @@
+package com.xu.news.util.vector;
+
+import java.util.Arrays;
+
+/**
+ * 二值（符号位）量化索引
+ *
+ * 每个向量只保存 1 bit/维的符号草图（768 维 = 12 个 long = 96 字节，全精度为 3KB），不保留全精度向量。
+ * 检索对全部草图做 XOR + Long.bitCount 的汉明距离扫描，按 SimHash 关系 cos(π * 汉明距离 / 维度)
+ * 估计余弦相似度。得分是近似值，由调用方（{@link FullVectorLoader}）加载原始向量对头部候选重排。
+ *
+ * 并发模型与 {@link FlatVectorIndex} 相同：检索无锁，删除使用墓碑。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class BinaryQuantizedVectorIndex implements VectorIndex {
+
+    public static final String TYPE = "binary";
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_COMPACT_TOMBSTONES = 64;
+
+    private final int dimension;
+    private final int words;
+    // 汉明距离 h 对应的估计余弦相似度，随 h 单调递减
+    private final float[] scoreTable;
+    // 范围检索放宽的汉明距离：约为估计误差标准差（sqrt(d) / 2 位）的两倍
+    private final int rangeMargin;
+
+    private volatile State state = new State(new long[0], new long[0], 0, 0);
+    private final LongIntHashMap rowIndex = new LongIntHashMap();
+
+    public BinaryQuantizedVectorIndex(int dimension) {
+        this.dimension = dimension;
+        this.words = (dimension + Long.SIZE - 1) / Long.SIZE;
+        this.scoreTable = new float[dimension + 1];
+        for (int h = 0; h <= dimension; h++) {
+            scoreTable[h] = (float) Math.cos(Math.PI * h / dimension);
+        }
+        this.rangeMargin = (int) Math.ceil(Math.sqrt(dimension));
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public synchronized void add(long id, float[] vector) {
+        State current = state;
+        long[] sketches = current.sketches;
+        long[] rowIds = current.rowIds;
+        int row = current.rowCount;
+        if (row == rowIds.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, rowIds.length * 2);
+            rowIds = Arrays.copyOf(rowIds, capacity);
+            sketches = Arrays.copyOf(sketches, capacity * words);
+        }
+        sketch(vector, sketches, row * words);
+        rowIds[row] = id;
+        rowIndex.put(id, row);
+        state = new State(sketches, rowIds, row + 1, current.liveCount + 1);
+    }
+
+    @Override
+    public synchronized boolean remove(long id) {
+        int row = rowIndex.remove(id);
+        if (row < 0) {
+            return false;
+        }
+        State current = state;
+        current.rowIds[row] = FlatVectorIndex.TOMBSTONE;
+        int tombstones = current.rowCount - (current.liveCount - 1);
+        if (tombstones >= MIN_COMPACT_TOMBSTONES && tombstones * 4 > current.rowCount) {
+            compact(current);
+        } else {
+            state = new State(current.sketches, current.rowIds, current.rowCount, current.liveCount - 1);
+        }
+        return true;
+    }
+
+    @Override
+    public TopKHeap search(float[] query, int topK, SearchParams params) {
+        State current = state;
+        long[] querySketch = new long[words];
+        sketch(query, querySketch, 0);
+        TopKHeap heap = new TopKHeap(Math.min(topK, current.liveCount));
+        long[] sketches = current.sketches;
+        IdFilter filter = params.getIdFilter();
+        for (int row = 0, offset = 0; row < current.rowCount; row++, offset += words) {
+            long id = current.rowIds[row];
+            if (id == FlatVectorIndex.TOMBSTONE || (filter != null && !filter.accepts(id))) {
+                continue;
+            }
+            float score = scoreTable[VectorMath.hamming(querySketch, sketches, offset, words)];
+            if (score > heap.minScore()) {
+                heap.offer(id, score);
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * 范围检索：阈值换算为最大汉明距离，距离更大的行直接丢弃
+     *
+     * 符号草图的估计误差比 int8/PQ 大，换算后的距离再放宽 rangeMargin 位，返回结果的阈值相应降低，
+     * 调用方负责用全精度向量按原阈值复核。
+     */
+    @Override
+    public RangeResult rangeSearch(float[] query, float threshold, int limit, SearchParams params) {
+        State current = state;
+        int maxDistance = Math.min(dimension, maxDistance(threshold) + rangeMargin);
+        RangeResult result = new RangeResult(Math.min(threshold, scoreTable[maxDistance]), limit);
+        long[] querySketch = new long[words];
+        sketch(query, querySketch, 0);
+        long[] sketches = current.sketches;
+        IdFilter filter = params.getIdFilter();
+        for (int row = 0, offset = 0; row < current.rowCount; row++, offset += words) {
+            long id = current.rowIds[row];
+            if (id == FlatVectorIndex.TOMBSTONE || (filter != null && !filter.accepts(id))) {
+                continue;
+            }
+            int distance = VectorMath.hamming(querySketch, sketches, offset, words);
+            if (distance <= maxDistance) {
+                result.offer(id, scoreTable[distance]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean approximateScores() {
+        return true;
+    }
+
+    @Override
+    public boolean concurrentReads() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return state.liveCount;
+    }
+
+    /**
+     * 输出草图对应的符号向量（各维 ±1/sqrt(d)，已归一化，再次量化得到相同的草图）
+     */
+    @Override
+    public void forEach(VectorConsumer consumer) {
+        State current = state;
+        float magnitude = (float) (1.0 / Math.sqrt(dimension));
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id == FlatVectorIndex.TOMBSTONE) {
+                continue;
+            }
+            float[] vector = new float[dimension];
+            int offset = row * words;
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = (current.sketches[offset + (i >>> 6)] & (1L << (i & 63))) != 0 ? magnitude : -magnitude;
+            }
+            consumer.accept(id, vector);
+        }
+    }
+
+    /**
+     * 估计得分不低于 threshold 的最大汉明距离（没有满足的距离时返回 -1）
+     */
+    private int maxDistance(float threshold) {
+        int distance = -1;
+        while (distance < dimension && scoreTable[distance + 1] >= threshold) {
+            distance++;
+        }
+        return distance;
+    }
+
+    private void compact(State current) {
+        int live = current.liveCount - 1;
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, live)) * 2);
+        long[] sketches = new long[capacity * words];
+        long[] rowIds = new long[capacity];
+        rowIndex.clear();
+        int target = 0;
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id != FlatVectorIndex.TOMBSTONE) {
+                System.arraycopy(current.sketches, row * words, sketches, target * words, words);
+                rowIds[target] = id;
+                rowIndex.put(id, target);
+                target++;
+            }
+        }
+        state = new State(sketches, rowIds, target, target);
+    }
+
+    /**
+     * 生成符号草图：第 i 维大于 0 时第 i 位为 1
+     */
+    private void sketch(float[] vector, long[] target, int offset) {
+        Arrays.fill(target, offset, offset + words, 0L);
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0f) {
+                target[offset + (i >>> 6)] |= 1L << (i & 63);
+            }
+        }
+    }
+
+    /**
+     * 已发布的行数据
+     */
+    private static final class State {
+        private final long[] sketches;
+        private final long[] rowIds;
+        private final int rowCount;
+        private final int liveCount;
+
+        private State(long[] sketches, long[] rowIds, int rowCount, int liveCount) {
+            this.sketches = sketches;
+            this.rowIds = rowIds;
+            this.rowCount = rowCount;
+            this.liveCount = liveCount;
+        }
+    }
+}
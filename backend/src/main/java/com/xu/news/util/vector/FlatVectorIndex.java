@@ -0,0 +1,397 @@
+package com.xu.news.util.vector;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * 精确检索索引（Flat）
+ *
+ * 向量按行存放在固定行数的数据块中（{@link VectorStorage} 分配，可位于堆外），检索时线性扫描全部向量。
+ * 行数增长时只追加新数据块，已写入的数据不会复制；堆上只保留行ID数组与ID -> 行号映射。
+ * 加载快照时数据块可以直接是索引文件的只读映射（{@link #ofChunks}），只读数据块不写入也不归还给 {@link VectorStorage}。
+ *
+ * 并发模型：检索无锁，修改串行（方法级同步）。
+ * - 新增只写入已发布行数之后的位置，写完后发布新的 {@link State}（volatile），检索只读取已发布的行；
+ * - 删除把对应行的ID标记为墓碑，检索跳过墓碑行；
+ * - 墓碑超过一定比例时整理到新数据块再发布，正在执行的检索继续使用旧数据块。
+ *
+ * 配置了 {@link PartitionedScan} 且行数达到阈值时，检索按分区在独立线程池中并行扫描。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class FlatVectorIndex implements VectorIndex {
+
+    public static final String TYPE = "flat";
+
+    static final long TOMBSTONE = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // 每个数据块的行数（768 维约 3MB）
+    public static final int CHUNK_ROWS = 1024;
+    // 批量检索时每块的行数（768 维约 96KB，与 L2 缓存相当；须整除 CHUNK_ROWS）
+    private static final int BATCH_BLOCK_ROWS = 32;
+    // 墓碑行至少达到该数量且超过总行数的 1/4 时整理
+    private static final int MIN_COMPACT_TOMBSTONES = 64;
+
+    private final int dimension;
+    // 并行扫描（为 null 时始终在调用线程顺序扫描）
+    private final PartitionedScan parallelScan;
+    private final VectorStorage storage;
+    private final int rowBytes;
+
+    private volatile State state = new State(new ByteBuffer[0], new long[0], 0, 0);
+    // 向量ID -> 行号（仅写线程访问）
+    private final LongIntHashMap rowIndex = new LongIntHashMap();
+    // 数据块已通过 releaseStorage 归还
+    private boolean released;
+
+    public FlatVectorIndex(int dimension) {
+        this(dimension, null);
+    }
+
+    public FlatVectorIndex(int dimension, PartitionedScan parallelScan) {
+        this(dimension, parallelScan, VectorStorage.heap());
+    }
+
+    public FlatVectorIndex(int dimension, PartitionedScan parallelScan, VectorStorage storage) {
+        this.dimension = dimension;
+        this.parallelScan = parallelScan;
+        this.storage = storage;
+        this.rowBytes = dimension * Float.BYTES;
+    }
+
+    /**
+     * 以已有数据块创建索引（数据块不复制，如索引文件向量块的只读映射）
+     *
+     * 最后一个数据块不满时复制到新分配的数据块，之后新增的行只写入新分配的数据块。
+     *
+     * @param chunks 按 {@link #CHUNK_ROWS} 行切分的数据块，覆盖 ids.length 行
+     * @param ids    第 i 项为第 i 行的向量ID
+     */
+    public static FlatVectorIndex ofChunks(int dimension, PartitionedScan parallelScan, VectorStorage storage,
+                                           ByteBuffer[] chunks, long[] ids) {
+        FlatVectorIndex index = new FlatVectorIndex(dimension, parallelScan, storage);
+        ByteBuffer[] owned = chunks.clone();
+        int rows = ids.length;
+        if (rows % CHUNK_ROWS != 0) {
+            ByteBuffer tail = owned[owned.length - 1];
+            ByteBuffer copy = storage.allocate(CHUNK_ROWS * index.rowBytes);
+            copy.duplicate().put(tail.duplicate().clear());
+            owned[owned.length - 1] = copy;
+        }
+        long[] rowIds = ids.clone();
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            int previous = index.rowIndex.get(rowIds[row]);
+            if (previous >= 0) {
+                rowIds[previous] = TOMBSTONE;
+            } else {
+                live++;
+            }
+            index.rowIndex.put(rowIds[row], row);
+        }
+        index.state = new State(owned, rowIds, rows, live);
+        return index;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public synchronized void add(long id, float[] vector) {
+        State current = state;
+        ByteBuffer[] chunks = current.chunks;
+        long[] rowIds = current.rowIds;
+        int row = current.rowCount;
+        if (row == rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, Math.max(INITIAL_CAPACITY, rowIds.length * 2));
+        }
+        if (row == chunks.length * CHUNK_ROWS) {
+            // 只复制数据块引用数组，已发布的数据块继续共享
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = storage.allocate(CHUNK_ROWS * rowBytes);
+        }
+        writeRow(chunks, row, vector);
+        rowIds[row] = id;
+        rowIndex.put(id, row);
+        state = new State(chunks, rowIds, row + 1, current.liveCount + 1);
+    }
+
+    @Override
+    public synchronized boolean remove(long id) {
+        int row = rowIndex.remove(id);
+        if (row < 0) {
+            return false;
+        }
+        State current = state;
+        current.rowIds[row] = TOMBSTONE;
+        int tombstones = current.rowCount - (current.liveCount - 1);
+        if (tombstones >= MIN_COMPACT_TOMBSTONES && tombstones * 4 > current.rowCount) {
+            compact(current);
+        } else {
+            state = new State(current.chunks, current.rowIds, current.rowCount, current.liveCount - 1);
+        }
+        return true;
+    }
+
+    @Override
+    public TopKHeap search(float[] query, int topK, SearchParams params) {
+        State current = state;
+        if (parallelScan != null && parallelScan.applies(current.rowCount)) {
+            return parallelScan.scan(query, current.chunks, current.rowIds, current.rowCount,
+                    params.getIdFilter(), Math.min(topK, current.liveCount));
+        }
+        TopKHeap heap = new TopKHeap(Math.min(topK, current.liveCount));
+        scanRows(query, current.chunks, current.rowIds, 0, current.rowCount, params.getIdFilter(), heap);
+        return heap;
+    }
+
+    /**
+     * 范围检索：顺序扫描，低于阈值的行只做一次比较，不进入任何堆
+     */
+    @Override
+    public RangeResult rangeSearch(float[] query, float threshold, int limit, SearchParams params) {
+        State current = state;
+        RangeResult result = new RangeResult(threshold, limit);
+        IdFilter filter = params.getIdFilter();
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id != TOMBSTONE && (filter == null || filter.accepts(id))) {
+                result.offer(id, VectorMath.dot(query, current.chunks[row / CHUNK_ROWS],
+                        (row % CHUNK_ROWS) * rowBytes));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量范围检索：按 BATCH_BLOCK_ROWS 行分块，每块行数据留在缓存中依次与全部查询打分，
+     * 每个向量在一个批次中只从内存读取一次
+     */
+    @Override
+    public RangeResult[] rangeSearchBatch(float[][] queries, float[] thresholds, int[] limits,
+                                          SearchParams[] params) {
+        State current = state;
+        int n = queries.length;
+        RangeResult[] results = new RangeResult[n];
+        IdFilter[] filters = new IdFilter[n];
+        for (int q = 0; q < n; q++) {
+            results[q] = new RangeResult(thresholds[q], limits[q]);
+            filters[q] = params[q].getIdFilter();
+        }
+        for (int blockStart = 0; blockStart < current.rowCount; blockStart += BATCH_BLOCK_ROWS) {
+            // 分块不跨数据块，块内按字节偏移寻址
+            ByteBuffer chunk = current.chunks[blockStart / CHUNK_ROWS];
+            int blockEnd = Math.min(current.rowCount, blockStart + BATCH_BLOCK_ROWS);
+            for (int q = 0; q < n; q++) {
+                float[] query = queries[q];
+                IdFilter filter = filters[q];
+                RangeResult result = results[q];
+                for (int row = blockStart, offset = (blockStart % CHUNK_ROWS) * rowBytes; row < blockEnd;
+                     row++, offset += rowBytes) {
+                    long id = current.rowIds[row];
+                    if (id != TOMBSTONE && (filter == null || filter.accepts(id))) {
+                        result.offer(id, VectorMath.dot(query, chunk, offset));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 对 [from, to) 行打分并放入堆中，跳过墓碑行与不满足过滤条件的行（filter 为空时不过滤）
+     */
+    static void scanRows(float[] query, ByteBuffer[] chunks, long[] rowIds, int from, int to, IdFilter filter,
+                         TopKHeap heap) {
+        int stride = query.length * Float.BYTES;
+        int row = from;
+        while (row < to) {
+            // 逐个数据块扫描，块内按字节偏移递增
+            ByteBuffer chunk = chunks[row / CHUNK_ROWS];
+            int chunkEnd = Math.min(to, (row / CHUNK_ROWS + 1) * CHUNK_ROWS);
+            for (int offset = (row % CHUNK_ROWS) * stride; row < chunkEnd; row++, offset += stride) {
+                long id = rowIds[row];
+                if (id != TOMBSTONE && (filter == null || filter.accepts(id))) {
+                    heap.offer(id, VectorMath.dot(query, chunk, offset));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean concurrentReads() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return state.liveCount;
+    }
+
+    /**
+     * 释放全部数据块（索引被替换时调用）
+     */
+    @Override
+    public synchronized void close() {
+        State current = state;
+        state = new State(new ByteBuffer[0], new long[0], 0, 0);
+        rowIndex.clear();
+        if (!released) {
+            release(current.chunks);
+        }
+    }
+
+    /**
+     * 归还数据块但保留已发布的快照（用于被替换的只读段：仍在检索旧段的线程继续读取，
+     * 内存在 ByteBuffer 被 GC 回收时归还），此后不应再修改索引
+     */
+    synchronized void releaseStorage() {
+        if (released) {
+            return;
+        }
+        released = true;
+        release(state.chunks);
+    }
+
+    /**
+     * 有效向量的ID（按行顺序）
+     */
+    public long[] ids() {
+        State current = state;
+        long[] ids = new long[current.liveCount];
+        int count = 0;
+        for (int row = 0; row < current.rowCount && count < ids.length; row++) {
+            if (current.rowIds[row] != TOMBSTONE) {
+                ids[count++] = current.rowIds[row];
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * 等间隔抽取样本（用于训练量化器）
+     */
+    public float[] sample(int maxSamples) {
+        State current = state;
+        int count = Math.min(current.liveCount, maxSamples);
+        float[] samples = new float[count * dimension];
+        double step = count == 0 ? 0 : (double) current.liveCount / count;
+        double next = 0;
+        int taken = 0;
+        for (int row = 0, seen = 0; row < current.rowCount && taken < count; row++) {
+            if (current.rowIds[row] == TOMBSTONE) {
+                continue;
+            }
+            if (seen++ >= next) {
+                readRow(current.chunks, row, samples, taken * dimension);
+                taken++;
+                next += step;
+            }
+        }
+        return Arrays.copyOf(samples, taken * dimension);
+    }
+
+    @Override
+    public void forEach(VectorConsumer consumer) {
+        State current = state;
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id != TOMBSTONE) {
+                float[] vector = new float[dimension];
+                readRow(current.chunks, row, vector, 0);
+                consumer.accept(id, vector);
+            }
+        }
+    }
+
+    @Override
+    public void forEachId(LongConsumer consumer) {
+        State current = state;
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id != TOMBSTONE) {
+                consumer.accept(id);
+            }
+        }
+    }
+
+    /**
+     * 把有效行复制到新数据块并重建行号，旧数据块在发布后释放
+     */
+    private void compact(State current) {
+        int live = current.liveCount - 1;
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, live)) * 2);
+        ByteBuffer[] chunks = new ByteBuffer[(live + CHUNK_ROWS - 1) / CHUNK_ROWS];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = storage.allocate(CHUNK_ROWS * rowBytes);
+        }
+        long[] rowIds = new long[capacity];
+        float[] vector = new float[dimension];
+        rowIndex.clear();
+        int target = 0;
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id != TOMBSTONE) {
+                readRow(current.chunks, row, vector, 0);
+                writeRow(chunks, target, vector);
+                rowIds[target] = id;
+                rowIndex.put(id, target);
+                target++;
+            }
+        }
+        state = new State(chunks, rowIds, target, target);
+        release(current.chunks);
+    }
+
+    /**
+     * 归还数据块（只读数据块不是由存储分配的，跳过）
+     */
+    private void release(ByteBuffer[] chunks) {
+        for (ByteBuffer chunk : chunks) {
+            if (!chunk.isReadOnly()) {
+                storage.release(chunk);
+            }
+        }
+    }
+
+    /**
+     * 写入一行（使用绝对位置，不修改共享 ByteBuffer 的 position）
+     */
+    private void writeRow(ByteBuffer[] chunks, int row, float[] vector) {
+        ByteBuffer chunk = chunks[row / CHUNK_ROWS];
+        int offset = (row % CHUNK_ROWS) * rowBytes;
+        for (int i = 0; i < dimension; i++) {
+            chunk.putFloat(offset + i * Float.BYTES, vector[i]);
+        }
+    }
+
+    private void readRow(ByteBuffer[] chunks, int row, float[] target, int targetOffset) {
+        ByteBuffer chunk = chunks[row / CHUNK_ROWS];
+        int offset = (row % CHUNK_ROWS) * rowBytes;
+        for (int i = 0; i < dimension; i++) {
+            target[targetOffset + i] = chunk.getFloat(offset + i * Float.BYTES);
+        }
+    }
+
+    /**
+     * 已发布的行数据（数据块中 [0, rowCount) 的行对检索可见）
+     */
+    private static final class State {
+        private final ByteBuffer[] chunks;
+        private final long[] rowIds;
+        private final int rowCount;
+        private final int liveCount;
+
+        private State(ByteBuffer[] chunks, long[] rowIds, int rowCount, int liveCount) {
+            this.chunks = chunks;
+            this.rowIds = rowIds;
+            this.rowCount = rowCount;
+            this.liveCount = liveCount;
+        }
+    }
+}
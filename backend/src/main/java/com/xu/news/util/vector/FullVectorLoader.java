@@ -0,0 +1,22 @@
+package com.xu.news.util.vector;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 全精度向量加载器
+ *
+ * 压缩索引（PQ 等）只在内存中保存向量编码，重排阶段通过该接口从持久化存储
+ * （knowledge_entry.vector_embedding）按需加载原始向量。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@FunctionalInterface
+public interface FullVectorLoader {
+
+    /**
+     * 按向量ID加载原始向量（无需归一化），缺失的ID不出现在结果中
+     */
+    Map<Long, float[]> load(List<Long> vectorIds);
+}
@@ -0,0 +1,649 @@
+package com.xu.news.util.vector;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * HNSW 近似最近邻索引（Hierarchical Navigable Small World）
+ *
+ * 多层邻接图：上层稀疏用于快速定位，第 0 层包含全部节点。
+ * 删除采用墓碑标记，被删除节点仍参与图遍历，但不会出现在结果中；墓碑超过一定比例时用有效节点重新建图。
+ *
+ * 参数说明：
+ * - m：每个节点在上层的最大邻居数（第 0 层为 2m）
+ * - efConstruction：建图时的候选集大小，越大图质量越高、插入越慢
+ * - efSearch：检索时的候选集大小，越大召回越高、检索越慢
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    public static final String TYPE = "hnsw";
+
+    private static final int FORMAT_MAGIC = 0x484E5357;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_LEVEL = 16;
+    private static final int[] NO_LINKS = new int[0];
+    // 带过滤检索：命中的向量不超过该数量或比例时改为精确打分
+    private static final int EXACT_FILTER_LIMIT = 2048;
+    private static final double MIN_FILTER_SELECTIVITY = 0.05;
+    // 墓碑超过该数量且超过该比例时重新建图
+    private static final int MIN_REBUILD_TOMBSTONES = 64;
+    private static final double MAX_TOMBSTONE_RATIO = 0.3;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    // 节点数据：第 node 个节点的向量占用 [node * dimension, (node + 1) * dimension)
+    private float[] vectors = new float[0];
+    private long[] nodeIds = new long[0];
+    private int[] nodeLevels = new int[0];
+    // node -> level -> 邻居节点
+    private int[][][] links = new int[0][][];
+    private final BitSet deleted = new BitSet();
+    // 向量ID -> 节点号（仅包含未删除节点）
+    private final Map<Long, Integer> nodeIndex = new HashMap<>();
+    private int nodeCount = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+
+    public HnswVectorIndex(int dimension, int m, int efConstruction, int efSearch) {
+        this.dimension = dimension;
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(efConstruction, this.m);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        int node = allocateNode(id, vector, randomLevel());
+        insertNode(node);
+    }
+
+    @Override
+    public boolean remove(long id) {
+        Integer node = nodeIndex.remove(id);
+        if (node == null) {
+            return false;
+        }
+        deleted.set(node);
+        if (needsRebuild()) {
+            rebuild();
+        }
+        return true;
+    }
+
+    @Override
+    public TopKHeap search(float[] query, int topK, SearchParams params) {
+        int live = size();
+        if (entryPoint < 0 || live == 0) {
+            return new TopKHeap(0);
+        }
+
+        IdFilter filter = params.getIdFilter();
+        int matching = live;
+        if (filter != null) {
+            // 过滤集合的大小作为命中数的上界（可能包含已删除或不在本索引中的ID），不逐个节点统计
+            matching = Math.min(live, filter.cardinality());
+            if (matching <= EXACT_FILTER_LIMIT || matching < live * MIN_FILTER_SELECTIVITY) {
+                // 命中的向量很少时图上游走很难找到它们，直接对命中的向量精确打分
+                return exactSearch(query, topK, filter);
+            }
+        }
+        int ef = scaleEf(Math.max(efSearch, topK), matching);
+
+        int current = entryPoint;
+        float currentScore = score(query, current);
+        for (int level = maxLevel; level > 0; level--) {
+            current = greedyClosest(query, current, currentScore, level);
+            currentScore = score(query, current);
+        }
+
+        TopKHeap candidates = searchLayer(query, new int[]{current}, new float[]{currentScore}, ef, 0);
+        TopKHeap heap = new TopKHeap(Math.min(topK, live));
+        for (int i = 0; i < candidates.size(); i++) {
+            int node = (int) candidates.idAt(i);
+            if (!deleted.get(node) && (filter == null || filter.accepts(nodeIds[node]))) {
+                heap.offer(nodeIds[node], candidates.scoreAt(i));
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * 范围检索：在第 0 层从入口向外扩展，阈值以上的区域全部展开，
+     * 另保留 ef 个最接近的节点作为越过低分区域的缓冲；
+     * 待扩展节点的最高得分同时低于当前下限与缓冲区第 ef 名时结束遍历。
+     */
+    @Override
+    public RangeResult rangeSearch(float[] query, float threshold, int limit, SearchParams params) {
+        RangeResult result = new RangeResult(threshold, limit);
+        int live = size();
+        if (entryPoint < 0 || live == 0) {
+            return result;
+        }
+        IdFilter filter = params.getIdFilter();
+        int matching = live;
+        if (filter != null) {
+            matching = Math.min(live, filter.cardinality());
+            if (matching <= EXACT_FILTER_LIMIT || matching < live * MIN_FILTER_SELECTIVITY) {
+                filter.forEach(id -> {
+                    Integer node = nodeIndex.get(id);
+                    if (node != null) {
+                        result.offer(id, score(query, node));
+                    }
+                });
+                return result;
+            }
+        }
+        int ef = scaleEf(efSearch, matching);
+
+        int current = entryPoint;
+        float currentScore = score(query, current);
+        for (int level = maxLevel; level > 0; level--) {
+            current = greedyClosest(query, current, currentScore, level);
+            currentScore = score(query, current);
+        }
+
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(nodeCount);
+        CandidateQueue candidates = new CandidateQueue(ef * 2);
+        TopKHeap beam = new TopKHeap(ef);
+        visited.visit(current);
+        candidates.push(current, currentScore);
+        beam.offer(current, currentScore);
+        collect(result, current, currentScore, filter);
+
+        while (!candidates.isEmpty()) {
+            float bestScore = candidates.peekScore();
+            if (bestScore < result.minScore() && beam.isFull() && bestScore < beam.minScore()) {
+                break;
+            }
+            int node = candidates.pop();
+            for (int neighbor : links[node][0]) {
+                if (!visited.visit(neighbor)) {
+                    continue;
+                }
+                float s = score(query, neighbor);
+                if (s >= result.minScore() || !beam.isFull() || s > beam.minScore()) {
+                    candidates.push(neighbor, s);
+                    beam.offer(neighbor, s);
+                    collect(result, neighbor, s, filter);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 墓碑与被过滤的节点同样占用候选名额，候选集按 全部节点 / 可返回节点 的比例放大，
+     * 保证排除这些节点后仍有足够的结果
+     */
+    private int scaleEf(int ef, int returnable) {
+        return (int) Math.min(nodeCount, (long) Math.ceil((double) ef * nodeCount / returnable));
+    }
+
+    private void collect(RangeResult result, int node, float score, IdFilter filter) {
+        if (!deleted.get(node) && (filter == null || filter.accepts(nodeIds[node]))) {
+            result.offer(nodeIds[node], score);
+        }
+    }
+
+    /**
+     * 按过滤集合逐个查找节点精确打分（只访问命中的ID，不扫描全部节点）
+     */
+    private TopKHeap exactSearch(float[] query, int topK, IdFilter filter) {
+        TopKHeap heap = new TopKHeap(topK);
+        filter.forEach(id -> {
+            Integer node = nodeIndex.get(id);
+            if (node != null) {
+                heap.offer(id, score(query, node));
+            }
+        });
+        return heap;
+    }
+
+    @Override
+    public int size() {
+        return nodeIndex.size();
+    }
+
+    @Override
+    public void forEach(VectorConsumer consumer) {
+        for (int node = 0; node < nodeCount; node++) {
+            if (!deleted.get(node)) {
+                consumer.accept(nodeIds[node],
+                        Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension));
+            }
+        }
+    }
+
+    /**
+     * 墓碑（已删除但仍在图中的）节点数量
+     */
+    public int deletedCount() {
+        return deleted.cardinality();
+    }
+
+    /**
+     * 写出完整的图结构（含墓碑节点）
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_MAGIC);
+        out.writeInt(dimension);
+        out.writeInt(m);
+        out.writeInt(nodeCount);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int node = 0; node < nodeCount; node++) {
+            out.writeLong(nodeIds[node]);
+            out.writeBoolean(deleted.get(node));
+            int offset = node * dimension;
+            for (int i = 0; i < dimension; i++) {
+                out.writeFloat(vectors[offset + i]);
+            }
+            out.writeInt(nodeLevels[node]);
+            for (int level = 0; level <= nodeLevels[node]; level++) {
+                int[] neighbors = links[node][level];
+                out.writeInt(neighbors.length);
+                for (int neighbor : neighbors) {
+                    out.writeInt(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取 {@link #writeTo} 写出的图结构
+     */
+    public static HnswVectorIndex readFrom(DataInputStream in, int dimension, int efConstruction, int efSearch)
+            throws IOException {
+        if (in.readInt() != FORMAT_MAGIC) {
+            throw new IOException("HNSW索引文件格式错误");
+        }
+        int storedDimension = in.readInt();
+        if (storedDimension != dimension) {
+            throw new IOException("HNSW索引维度不匹配，期望: " + dimension + ", 实际: " + storedDimension);
+        }
+        HnswVectorIndex index = new HnswVectorIndex(dimension, in.readInt(), efConstruction, efSearch);
+        int count = in.readInt();
+        int storedEntryPoint = in.readInt();
+        int storedMaxLevel = in.readInt();
+
+        float[] vector = new float[dimension];
+        for (int n = 0; n < count; n++) {
+            long id = in.readLong();
+            boolean isDeleted = in.readBoolean();
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = in.readFloat();
+            }
+            int level = in.readInt();
+            int node = index.allocateNode(id, vector, level);
+            for (int l = 0; l <= level; l++) {
+                int[] neighbors = new int[in.readInt()];
+                for (int i = 0; i < neighbors.length; i++) {
+                    neighbors[i] = in.readInt();
+                }
+                index.links[node][l] = neighbors;
+            }
+            if (isDeleted) {
+                // 邻接表尚未读完，只标记墓碑，读完后再判断是否重新建图
+                index.nodeIndex.remove(id);
+                index.deleted.set(node);
+            }
+        }
+        index.entryPoint = storedEntryPoint;
+        index.maxLevel = storedMaxLevel;
+        if (index.needsRebuild()) {
+            index.rebuild();
+        }
+        return index;
+    }
+
+    private boolean needsRebuild() {
+        int tombstones = nodeCount - nodeIndex.size();
+        return tombstones >= MIN_REBUILD_TOMBSTONES && tombstones > nodeCount * MAX_TOMBSTONE_RATIO;
+    }
+
+    /**
+     * 只用有效节点重新建图（保留各节点的层级）
+     */
+    private void rebuild() {
+        float[] oldVectors = vectors;
+        long[] oldIds = nodeIds;
+        int[] oldLevels = nodeLevels;
+        BitSet oldDeleted = (BitSet) deleted.clone();
+        int oldCount = nodeCount;
+
+        vectors = new float[0];
+        nodeIds = new long[0];
+        nodeLevels = new int[0];
+        links = new int[0][][];
+        deleted.clear();
+        nodeIndex.clear();
+        nodeCount = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+
+        float[] vector = new float[dimension];
+        for (int node = 0; node < oldCount; node++) {
+            if (!oldDeleted.get(node)) {
+                System.arraycopy(oldVectors, node * dimension, vector, 0, dimension);
+                insertNode(allocateNode(oldIds[node], vector, oldLevels[node]));
+            }
+        }
+    }
+
+    private int allocateNode(long id, float[] vector, int level) {
+        if (nodeCount == nodeIds.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, nodeIds.length * 2);
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            nodeLevels = Arrays.copyOf(nodeLevels, capacity);
+            links = Arrays.copyOf(links, capacity);
+            vectors = Arrays.copyOf(vectors, capacity * dimension);
+        }
+        int node = nodeCount++;
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        nodeIds[node] = id;
+        nodeLevels[node] = level;
+        links[node] = new int[level + 1][];
+        Arrays.fill(links[node], NO_LINKS);
+        nodeIndex.put(id, node);
+        return node;
+    }
+
+    private void insertNode(int node) {
+        int level = nodeLevels[node];
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] query = Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        int current = entryPoint;
+        float currentScore = score(query, current);
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(query, current, currentScore, l);
+            currentScore = score(query, current);
+        }
+
+        int[] entries = {current};
+        float[] entryScores = {currentScore};
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            TopKHeap candidates = searchLayer(query, entries, entryScores, efConstruction, l);
+            int[] candidateNodes = new int[candidates.size()];
+            float[] candidateScores = new float[candidates.size()];
+            for (int i = 0; i < candidates.size(); i++) {
+                candidateNodes[i] = (int) candidates.idAt(i);
+                candidateScores[i] = candidates.scoreAt(i);
+            }
+
+            int[] neighbors = selectNeighbors(candidateNodes, candidateScores, maxConnections(l));
+            links[node][l] = neighbors;
+            for (int neighbor : neighbors) {
+                connect(neighbor, node, l);
+            }
+            entries = candidateNodes;
+            entryScores = candidateScores;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 在指定层做贪心搜索，返回该层最接近查询的节点
+     */
+    private int greedyClosest(float[] query, int current, float currentScore, int level) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : links[current][level]) {
+                float s = score(query, neighbor);
+                if (s > currentScore) {
+                    current = neighbor;
+                    currentScore = s;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层做 best-first 搜索，返回按相似度降序排列的最多 ef 个节点
+     */
+    private TopKHeap searchLayer(float[] query, int[] entries, float[] entryScores, int ef, int level) {
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(nodeCount);
+
+        CandidateQueue candidates = new CandidateQueue(ef * 2);
+        TopKHeap results = new TopKHeap(ef);
+        for (int i = 0; i < entries.length; i++) {
+            visited.visit(entries[i]);
+            candidates.push(entries[i], entryScores[i]);
+            results.offer(entries[i], entryScores[i]);
+        }
+
+        while (!candidates.isEmpty()) {
+            float bestScore = candidates.peekScore();
+            if (results.isFull() && bestScore < results.minScore()) {
+                break;
+            }
+            int node = candidates.pop();
+            for (int neighbor : links[node][level]) {
+                if (!visited.visit(neighbor)) {
+                    continue;
+                }
+                float s = score(query, neighbor);
+                if (!results.isFull() || s > results.minScore()) {
+                    candidates.push(neighbor, s);
+                    results.offer(neighbor, s);
+                }
+            }
+        }
+        results.sortDescending();
+        return results;
+    }
+
+    /**
+     * 启发式邻居选择：候选按相似度降序，只保留比已选邻居更接近基准点的候选，
+     * 使邻居分布在不同方向上，提高图的连通性
+     */
+    private int[] selectNeighbors(int[] candidates, float[] scores, int maxConnections) {
+        int[] selected = new int[Math.min(maxConnections, candidates.length)];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < selected.length; i++) {
+            int candidate = candidates[i];
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (nodeSimilarity(candidate, selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate;
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * 为已有节点添加反向连接，超出上限时重新做邻居选择
+     */
+    private void connect(int node, int newNeighbor, int level) {
+        int[] current = links[node][level];
+        int maxConnections = maxConnections(level);
+        if (current.length < maxConnections) {
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = newNeighbor;
+            links[node][level] = updated;
+            return;
+        }
+
+        int[] candidates = Arrays.copyOf(current, current.length + 1);
+        candidates[current.length] = newNeighbor;
+        float[] scores = new float[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            scores[i] = nodeSimilarity(node, candidates[i]);
+        }
+        sortBySimilarity(candidates, scores);
+        links[node][level] = selectNeighbors(candidates, scores, maxConnections);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return Math.min((int) (-Math.log(r) * levelMultiplier), MAX_LEVEL);
+    }
+
+    private float score(float[] query, int node) {
+        return VectorMath.dot(query, vectors, node * dimension);
+    }
+
+    private float nodeSimilarity(int a, int b) {
+        return VectorMath.dot(vectors, a * dimension, vectors, b * dimension, dimension);
+    }
+
+    /**
+     * 按相似度降序排列（邻居数量很小，插入排序即可）
+     */
+    private static void sortBySimilarity(int[] nodes, float[] scores) {
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            float s = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < s) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = s;
+        }
+    }
+
+    /**
+     * 按相似度取出的候选队列（最大堆）
+     */
+    private static final class CandidateQueue {
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        CandidateQueue(int capacity) {
+            nodes = new int[Math.max(capacity, 16)];
+            scores = new float[nodes.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] >= score) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] > scores[child]) {
+                    child++;
+                }
+                if (scores[child] <= lastScore) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+    }
+
+    /**
+     * 访问标记（按轮次复用，避免每次检索分配 visited 集合）
+     */
+    private static final class VisitedMarks {
+        private int[] marks = new int[0];
+        private int epoch = 0;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * 标记为已访问，返回是否为首次访问
+         */
+        boolean visit(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
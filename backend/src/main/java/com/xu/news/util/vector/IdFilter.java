@@ -0,0 +1,44 @@
+package com.xu.news.util.vector;
+
+import java.util.BitSet;
+import java.util.function.LongConsumer;
+
+/**
+ * 满足过滤条件的向量ID集合
+ *
+ * 向量ID从 1 开始连续分配，直接用 {@link BitSet} 按ID置位：每个向量 1 bit，判断一次为一次数组访问，
+ * 可以放在索引扫描的内层循环中。创建后不再修改，可在多个检索线程间共享。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public final class IdFilter {
+
+    private final BitSet ids;
+    private final int cardinality;
+
+    public IdFilter(BitSet ids) {
+        this.ids = ids;
+        this.cardinality = ids.cardinality();
+    }
+
+    public boolean accepts(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE && ids.get((int) id);
+    }
+
+    /**
+     * 满足条件的向量数
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * 按ID升序遍历
+     */
+    public void forEach(LongConsumer consumer) {
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            consumer.accept(id);
+        }
+    }
+}
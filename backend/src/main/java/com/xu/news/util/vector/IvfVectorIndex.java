@@ -0,0 +1,298 @@
+package com.xu.news.util.vector;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IVF-Flat 倒排索引
+ *
+ * 通过 K-Means 质心把向量划分到多个倒排列表，检索时只扫描与查询最接近的 nprobe 个列表，
+ * nprobe 越大召回越高、耗时越长。未训练前所有向量位于同一个列表，退化为精确检索。
+ *
+ * 训练（{@link KMeans}）可以在后台线程完成，训练结果通过 {@link #applyCentroids} 一次性切换。
+ * 检索无锁：质心与倒排列表整体发布，倒排列表内部与 {@link FlatVectorIndex} 相同，追加后发布行数、删除使用墓碑。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class IvfVectorIndex implements VectorIndex {
+
+    public static final String TYPE = "ivf";
+
+    private final int dimension;
+    private final int defaultNprobe;
+
+    private volatile State state;
+    // 向量ID -> 所在倒排列表（仅写线程访问）
+    private final Map<Long, Integer> listIndex = new HashMap<>();
+    private volatile int liveCount = 0;
+    // 最近一次训练时的向量数量
+    private int trainedSize = 0;
+
+    public IvfVectorIndex(int dimension, int defaultNprobe) {
+        this.dimension = dimension;
+        this.defaultNprobe = Math.max(1, defaultNprobe);
+        this.state = new State(null, 0, new PostingList[]{new PostingList(dimension)});
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public synchronized void add(long id, float[] vector) {
+        State current = state;
+        int list = current.assign(vector, 0);
+        current.lists[list].add(id, vector, 0);
+        listIndex.put(id, list);
+        liveCount = listIndex.size();
+    }
+
+    @Override
+    public synchronized boolean remove(long id) {
+        Integer list = listIndex.remove(id);
+        if (list == null) {
+            return false;
+        }
+        state.lists[list].remove(id);
+        liveCount = listIndex.size();
+        return true;
+    }
+
+    @Override
+    public TopKHeap search(float[] query, int topK, SearchParams params) {
+        State current = state;
+        TopKHeap heap = new TopKHeap(Math.min(topK, size()));
+        IdFilter filter = params.getIdFilter();
+        if (current.centroids == null) {
+            current.lists[0].scan(query, filter, heap);
+            return heap;
+        }
+
+        int nprobe = params.getNprobe() != null ? Math.max(1, params.getNprobe()) : defaultNprobe;
+        if (filter != null && filter.cardinality() < size()) {
+            // 过滤后每个列表中命中的向量按比例减少，相应多探测一些列表
+            double selectivity = Math.max((double) filter.cardinality() / Math.max(1, size()), 1e-3);
+            nprobe = (int) Math.min(current.nlist, Math.ceil(nprobe / selectivity));
+        }
+        TopKHeap probes = new TopKHeap(Math.min(nprobe, current.nlist));
+        for (int c = 0; c < current.nlist; c++) {
+            probes.offer(c, VectorMath.dot(query, current.centroids, c * dimension));
+        }
+        for (int i = 0; i < probes.size(); i++) {
+            current.lists[(int) probes.idAt(i)].scan(query, filter, heap);
+        }
+        return heap;
+    }
+
+    @Override
+    public boolean concurrentReads() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return liveCount;
+    }
+
+    @Override
+    public void forEach(VectorConsumer consumer) {
+        for (PostingList list : state.lists) {
+            Rows rows = list.rows;
+            for (int row = 0; row < rows.size; row++) {
+                long id = rows.ids[row];
+                if (id != FlatVectorIndex.TOMBSTONE) {
+                    consumer.accept(id, Arrays.copyOfRange(rows.data, row * dimension, (row + 1) * dimension));
+                }
+            }
+        }
+    }
+
+    public boolean isTrained() {
+        return state.centroids != null;
+    }
+
+    public synchronized int trainedSize() {
+        return trainedSize;
+    }
+
+    /**
+     * 当前质心（未训练时为 null）
+     */
+    public float[] centroids() {
+        return state.centroids;
+    }
+
+    /**
+     * 等间隔抽取训练样本
+     */
+    public synchronized float[] sample(int maxSamples) {
+        int total = size();
+        int count = Math.min(total, maxSamples);
+        float[] samples = new float[count * dimension];
+        if (count == 0) {
+            return samples;
+        }
+        double step = (double) total / count;
+        int taken = 0;
+        int seen = 0;
+        double next = 0;
+        for (PostingList list : state.lists) {
+            Rows rows = list.rows;
+            for (int row = 0; row < rows.size && taken < count; row++) {
+                if (rows.ids[row] == FlatVectorIndex.TOMBSTONE) {
+                    continue;
+                }
+                if (seen++ >= next) {
+                    System.arraycopy(rows.data, row * dimension, samples, taken * dimension, dimension);
+                    taken++;
+                    next += step;
+                }
+            }
+        }
+        return Arrays.copyOf(samples, taken * dimension);
+    }
+
+    /**
+     * 切换到新的质心：重新分配全部向量后整体替换倒排列表
+     */
+    public synchronized void applyCentroids(float[] centroids) {
+        int nlist = centroids.length / dimension;
+        PostingList[] lists = new PostingList[nlist];
+        for (int c = 0; c < nlist; c++) {
+            lists[c] = new PostingList(dimension);
+        }
+        State next = new State(centroids, nlist, lists);
+        for (PostingList old : state.lists) {
+            Rows rows = old.rows;
+            for (int row = 0; row < rows.size; row++) {
+                long id = rows.ids[row];
+                if (id == FlatVectorIndex.TOMBSTONE) {
+                    continue;
+                }
+                int offset = row * dimension;
+                int list = next.assign(rows.data, offset);
+                lists[list].add(id, rows.data, offset);
+                listIndex.put(id, list);
+            }
+        }
+        state = next;
+        trainedSize = size();
+    }
+
+    /**
+     * 质心与倒排列表（一起发布，保证检索看到一致的划分）
+     */
+    private final class State {
+        private final float[] centroids;
+        private final int nlist;
+        private final PostingList[] lists;
+
+        private State(float[] centroids, int nlist, PostingList[] lists) {
+            this.centroids = centroids;
+            this.nlist = nlist;
+            this.lists = lists;
+        }
+
+        private int assign(float[] vector, int offset) {
+            if (centroids == null) {
+                return 0;
+            }
+            int best = 0;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int c = 0; c < nlist; c++) {
+                float s = VectorMath.dot(vector, offset, centroids, c * dimension, dimension);
+                if (s > bestScore) {
+                    bestScore = s;
+                    best = c;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * 倒排列表：连续存放的向量行，修改后整体发布 {@link Rows}
+     */
+    private static final class PostingList {
+        private final int dimension;
+        private volatile Rows rows = new Rows(new float[0], new long[0], 0, 0);
+
+        private PostingList(int dimension) {
+            this.dimension = dimension;
+        }
+
+        private void add(long id, float[] source, int offset) {
+            Rows current = rows;
+            float[] data = current.data;
+            long[] ids = current.ids;
+            if (current.size == ids.length) {
+                int capacity = Math.max(16, ids.length * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                data = Arrays.copyOf(data, capacity * dimension);
+            }
+            System.arraycopy(source, offset, data, current.size * dimension, dimension);
+            ids[current.size] = id;
+            rows = new Rows(data, ids, current.size + 1, current.tombstones);
+        }
+
+        private void remove(long id) {
+            Rows current = rows;
+            for (int row = 0; row < current.size; row++) {
+                if (current.ids[row] == id) {
+                    current.ids[row] = FlatVectorIndex.TOMBSTONE;
+                    int tombstones = current.tombstones + 1;
+                    rows = tombstones * 4 > current.size
+                            ? compact(current)
+                            : new Rows(current.data, current.ids, current.size, tombstones);
+                    return;
+                }
+            }
+        }
+
+        private Rows compact(Rows current) {
+            int capacity = Math.max(16, current.size - current.tombstones);
+            float[] data = new float[capacity * dimension];
+            long[] ids = new long[capacity];
+            int target = 0;
+            for (int row = 0; row < current.size; row++) {
+                if (current.ids[row] != FlatVectorIndex.TOMBSTONE) {
+                    System.arraycopy(current.data, row * dimension, data, target * dimension, dimension);
+                    ids[target++] = current.ids[row];
+                }
+            }
+            return new Rows(data, ids, target, 0);
+        }
+
+        private void scan(float[] query, IdFilter filter, TopKHeap heap) {
+            Rows current = rows;
+            float[] data = current.data;
+            long[] ids = current.ids;
+            for (int row = 0, offset = 0; row < current.size; row++, offset += dimension) {
+                long id = ids[row];
+                if (id != FlatVectorIndex.TOMBSTONE && (filter == null || filter.accepts(id))) {
+                    heap.offer(id, VectorMath.dot(query, data, offset));
+                }
+            }
+        }
+    }
+
+    /**
+     * 已发布的倒排列表数据（[0, size) 的行对检索可见）
+     */
+    private static final class Rows {
+        private final float[] data;
+        private final long[] ids;
+        private final int size;
+        private final int tombstones;
+
+        private Rows(float[] data, long[] ids, int size, int tombstones) {
+            this.data = data;
+            this.ids = ids;
+            this.size = size;
+            this.tombstones = tombstones;
+        }
+    }
+}
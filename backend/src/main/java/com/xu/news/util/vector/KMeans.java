@@ -0,0 +1,130 @@
+package com.xu.news.util.vector;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * K-Means 聚类（Lloyd 迭代）
+ *
+ * 数据按行连续存放在 float[] 中。spherical 模式下每轮迭代后对质心做归一化，
+ * 适用于已归一化的向量（IVF 粗量化）；否则为普通欧氏距离聚类（PQ 子空间码本）。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public final class KMeans {
+
+    private KMeans() {
+    }
+
+    /**
+     * 训练质心
+     *
+     * @param data       训练数据，count * dimension
+     * @param count      样本数量
+     * @param dimension  维度
+     * @param k          质心数量（不超过样本数量）
+     * @param iterations 迭代次数
+     * @param spherical  是否归一化质心
+     * @param seed       随机种子
+     * @return 质心，k * dimension
+     */
+    public static float[] train(float[] data, int count, int dimension, int k, int iterations,
+                                boolean spherical, long seed) {
+        if (count == 0 || k <= 0) {
+            throw new IllegalArgumentException("训练样本或质心数量不能为空");
+        }
+        k = Math.min(k, count);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // 随机选取不重复的样本作为初始质心
+        float[] centroids = new float[k * dimension];
+        int[] order = IntStream.range(0, count).toArray();
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(count - i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+            System.arraycopy(data, order[i] * dimension, centroids, i * dimension, dimension);
+        }
+
+        int[] assignments = new int[count];
+        for (int iter = 0; iter < iterations; iter++) {
+            final float[] current = centroids;
+            final int clusters = k;
+            float[] norms = squaredNorms(current, clusters, dimension);
+            IntStream.range(0, count).parallel().forEach(i ->
+                    assignments[i] = nearest(data, i * dimension, current, norms, clusters, dimension));
+
+            float[] sums = new float[k * dimension];
+            int[] sizes = new int[k];
+            for (int i = 0; i < count; i++) {
+                int c = assignments[i];
+                sizes[c]++;
+                int src = i * dimension;
+                int dst = c * dimension;
+                for (int d = 0; d < dimension; d++) {
+                    sums[dst + d] += data[src + d];
+                }
+            }
+
+            for (int c = 0; c < k; c++) {
+                int offset = c * dimension;
+                if (sizes[c] == 0) {
+                    // 空簇：用随机样本重新初始化
+                    System.arraycopy(data, random.nextInt(count) * dimension, sums, offset, dimension);
+                } else {
+                    float inv = 1f / sizes[c];
+                    for (int d = 0; d < dimension; d++) {
+                        sums[offset + d] *= inv;
+                    }
+                }
+            }
+            centroids = sums;
+            if (spherical) {
+                for (int c = 0; c < k; c++) {
+                    normalizeRow(centroids, c * dimension, dimension);
+                }
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * 找到距离最近的质心（欧氏距离）
+     *
+     * @param norms 各质心的平方范数
+     */
+    public static int nearest(float[] data, int offset, float[] centroids, float[] norms, int k, int dimension) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            // |x - c|^2 = |x|^2 - 2 x·c + |c|^2，|x|^2 对所有质心相同可忽略
+            float distance = norms[c] - 2 * VectorMath.dot(data, offset, centroids, c * dimension, dimension);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 计算每个质心的平方范数
+     */
+    public static float[] squaredNorms(float[] centroids, int k, int dimension) {
+        float[] norms = new float[k];
+        for (int c = 0; c < k; c++) {
+            int offset = c * dimension;
+            norms[c] = VectorMath.dot(centroids, offset, centroids, offset, dimension);
+        }
+        return norms;
+    }
+
+    private static void normalizeRow(float[] data, int offset, int dimension) {
+        float[] row = Arrays.copyOfRange(data, offset, offset + dimension);
+        VectorMath.normalizeInPlace(row);
+        System.arraycopy(row, 0, data, offset, dimension);
+    }
+}
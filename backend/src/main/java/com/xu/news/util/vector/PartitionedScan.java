@@ -0,0 +1,130 @@
+package com.xu.news.util.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 多核分区扫描
+ *
+ * 把 {@link FlatVectorIndex} 数据块中的向量行切分为大小接近 CPU 缓存的分区，在独立的 {@link ForkJoinPool} 中并行打分，
+ * 每个分区维护自己的 Top-K 堆，最后逐级合并。行数低于阈值时由调用方在当前线程顺序扫描。
+ *
+ * 每次并行扫描在 DEBUG 级别输出分区耗时（最小/平均/最大），用于调整分区大小与线程数。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+public class PartitionedScan {
+
+    private final ForkJoinPool pool;
+    private final int minRows;
+    private final int partitionRows;
+
+    /**
+     * @param pool          扫描专用线程池（与 Web 容器线程池分开）
+     * @param minRows       行数达到该值时才并行扫描
+     * @param partitionRows 每个分区的行数
+     */
+    public PartitionedScan(ForkJoinPool pool, int minRows, int partitionRows) {
+        this.pool = pool;
+        this.minRows = Math.max(1, minRows);
+        this.partitionRows = Math.max(1, partitionRows);
+    }
+
+    /**
+     * 按分区字节数计算每个分区的行数
+     */
+    public static int partitionRows(int partitionBytes, int dimension) {
+        return Math.max(1, partitionBytes / (dimension * Float.BYTES));
+    }
+
+    public boolean applies(int rowCount) {
+        return rowCount >= minRows && pool.getParallelism() > 1;
+    }
+
+    /**
+     * 并行扫描 [0, rowCount) 行，跳过ID为墓碑或不满足过滤条件的行
+     */
+    public TopKHeap scan(float[] query, ByteBuffer[] chunks, long[] rowIds, int rowCount, IdFilter filter,
+                         int topK) {
+        long start = System.nanoTime();
+        int partitions = (rowCount + partitionRows - 1) / partitionRows;
+        long[] partitionNanos = new long[partitions];
+        TopKHeap heap = pool.invoke(new ScanTask(query, chunks, rowIds, filter, topK, partitionNanos,
+                0, partitions, rowCount));
+
+        if (log.isDebugEnabled()) {
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            long total = 0;
+            for (long nanos : partitionNanos) {
+                min = Math.min(min, nanos);
+                max = Math.max(max, nanos);
+                total += nanos;
+            }
+            log.debug("并行扫描完成: 行数={}, 分区数={}, 分区耗时(μs) 最小={}, 平均={}, 最大={}, 总耗时={}μs",
+                    rowCount, partitions, min / 1000, total / partitions / 1000, max / 1000,
+                    (System.nanoTime() - start) / 1000);
+        }
+        return heap;
+    }
+
+    /**
+     * 分区区间 [fromPartition, toPartition) 的扫描任务，超过一个分区时二分递归
+     */
+    private final class ScanTask extends RecursiveTask<TopKHeap> {
+        private final float[] query;
+        private final ByteBuffer[] chunks;
+        private final long[] rowIds;
+        private final IdFilter filter;
+        private final int topK;
+        private final long[] partitionNanos;
+        private final int fromPartition;
+        private final int toPartition;
+        private final int rowCount;
+
+        private ScanTask(float[] query, ByteBuffer[] chunks, long[] rowIds, IdFilter filter, int topK,
+                         long[] partitionNanos, int fromPartition, int toPartition, int rowCount) {
+            this.query = query;
+            this.chunks = chunks;
+            this.rowIds = rowIds;
+            this.filter = filter;
+            this.topK = topK;
+            this.partitionNanos = partitionNanos;
+            this.fromPartition = fromPartition;
+            this.toPartition = toPartition;
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        protected TopKHeap compute() {
+            if (toPartition - fromPartition == 1) {
+                return scanPartition(fromPartition);
+            }
+            int middle = (fromPartition + toPartition) >>> 1;
+            ScanTask left = new ScanTask(query, chunks, rowIds, filter, topK, partitionNanos,
+                    fromPartition, middle, rowCount);
+            ScanTask right = new ScanTask(query, chunks, rowIds, filter, topK, partitionNanos,
+                    middle, toPartition, rowCount);
+            left.fork();
+            TopKHeap merged = right.compute();
+            merged.offerAll(left.join());
+            return merged;
+        }
+
+        private TopKHeap scanPartition(int partition) {
+            long start = System.nanoTime();
+            int from = partition * partitionRows;
+            int to = Math.min(rowCount, from + partitionRows);
+            // 容量固定为 topK，合并时不会因分区行数少而截断候选
+            TopKHeap heap = new TopKHeap(topK);
+            FlatVectorIndex.scanRows(query, chunks, rowIds, from, to, filter, heap);
+            partitionNanos[partition] = System.nanoTime() - start;
+            return heap;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.xu.news.util.vector;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * 乘积量化索引（Product Quantization）
+ *
+ * 向量切分为 m 个子空间，每个子空间用 256 个质心的码本量化为 1 字节，
+ * 768 维 float32 向量（3KB）压缩为 m 字节。检索时先为查询计算每个子空间与全部质心的
+ * 点积表（非对称距离），每个候选只需 m 次查表累加。
+ *
+ * 码本训练前向量以全精度暂存于内部 Flat 索引，训练后统一编码并释放原始向量。
+ * 编码后的得分是近似值，由调用方（{@link FullVectorLoader}）加载原始向量对头部候选重排。
+ * 快照直接保存码本与编码（{@link #forEachCode}），加载时原样恢复，不会因重建向量再编码而累积误差。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class PqVectorIndex implements VectorIndex {
+
+    public static final String TYPE = "pq";
+
+    public static final int CODEBOOK_SIZE = 256;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int dimension;
+    private final int m;
+    private final int subDimension;
+
+    // codebooks[j]：第 j 个子空间的质心，CODEBOOK_SIZE * subDimension
+    private float[][] codebooks;
+    // 各码本质心的平方范数（编码时使用）
+    private float[][] codebookNorms;
+    // 训练前的全精度暂存
+    private FlatVectorIndex pending;
+
+    // 编码数据：第 row 行占用 [row * m, (row + 1) * m)
+    private byte[] codes = new byte[0];
+    private long[] rowIds = new long[0];
+    private int rowCount = 0;
+    private final LongIntHashMap rowIndex = new LongIntHashMap();
+
+    public PqVectorIndex(int dimension, int m) {
+        if (m <= 0 || dimension % m != 0) {
+            throw new IllegalArgumentException("PQ子空间数量必须能整除向量维度，维度: " + dimension + ", m: " + m);
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.subDimension = dimension / m;
+        this.pending = new FlatVectorIndex(dimension);
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        if (codebooks == null) {
+            pending.add(id, vector);
+            return;
+        }
+        ensureCapacity();
+        encode(vector, codes, rowCount * m);
+        rowIds[rowCount] = id;
+        rowIndex.put(id, rowCount);
+        rowCount++;
+    }
+
+    @Override
+    public boolean remove(long id) {
+        if (codebooks == null) {
+            return pending.remove(id);
+        }
+        int row = rowIndex.remove(id);
+        if (row < 0) {
+            return false;
+        }
+        int last = rowCount - 1;
+        if (row != last) {
+            System.arraycopy(codes, last * m, codes, row * m, m);
+            rowIds[row] = rowIds[last];
+            rowIndex.put(rowIds[row], row);
+        }
+        rowCount--;
+        return true;
+    }
+
+    @Override
+    public TopKHeap search(float[] query, int topK, SearchParams params) {
+        if (codebooks == null) {
+            return pending.search(query, topK, params);
+        }
+        float[] table = distanceTable(query);
+        TopKHeap heap = new TopKHeap(Math.min(topK, rowCount));
+        IdFilter filter = params.getIdFilter();
+        for (int row = 0, offset = 0; row < rowCount; row++, offset += m) {
+            if (filter != null && !filter.accepts(rowIds[row])) {
+                continue;
+            }
+            float score = 0f;
+            for (int j = 0, base = 0; j < m; j++, base += CODEBOOK_SIZE) {
+                score += table[base + (codes[offset + j] & 0xFF)];
+            }
+            heap.offer(rowIds[row], score);
+        }
+        return heap;
+    }
+
+    @Override
+    public int size() {
+        return codebooks == null ? pending.size() : rowCount;
+    }
+
+    /**
+     * 训练后输出的是码本重建的近似向量（快照不使用该输出，见 {@link #forEachCode}）
+     */
+    @Override
+    public void forEach(VectorConsumer consumer) {
+        if (codebooks == null) {
+            pending.forEach(consumer);
+            return;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            consumer.accept(rowIds[row], reconstruct(row));
+        }
+    }
+
+    @Override
+    public void forEachId(LongConsumer consumer) {
+        if (codebooks == null) {
+            pending.forEachId(consumer);
+            return;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            consumer.accept(rowIds[row]);
+        }
+    }
+
+    @Override
+    public boolean approximateScores() {
+        return codebooks != null;
+    }
+
+    public boolean isTrained() {
+        return codebooks != null;
+    }
+
+    public int subQuantizers() {
+        return m;
+    }
+
+    public float[][] codebooks() {
+        return codebooks;
+    }
+
+    /**
+     * 遍历训练后的编码：每行 m 字节，位于 codes 的 [offset, offset + m)
+     */
+    public void forEachCode(CodeConsumer consumer) {
+        if (codebooks == null) {
+            throw new IllegalStateException("PQ码本尚未训练");
+        }
+        for (int row = 0; row < rowCount; row++) {
+            consumer.accept(rowIds[row], codes, row * m);
+        }
+    }
+
+    /**
+     * 直接写入已编码的向量（从快照恢复），code 的 [offset, offset + m) 为该向量的编码
+     */
+    public void addEncoded(long id, byte[] code, int offset) {
+        if (codebooks == null) {
+            throw new IllegalStateException("PQ码本尚未训练");
+        }
+        ensureCapacity();
+        System.arraycopy(code, offset, codes, rowCount * m, m);
+        rowIds[rowCount] = id;
+        rowIndex.put(id, rowCount);
+        rowCount++;
+    }
+
+    /**
+     * 从暂存的全精度向量中抽取训练样本
+     */
+    public float[] sample(int maxSamples) {
+        return pending.sample(maxSamples);
+    }
+
+    /**
+     * 训练各子空间的码本
+     *
+     * @param samples 训练样本，count * dimension
+     */
+    public static float[][] trainCodebooks(float[] samples, int count, int dimension, int m, int iterations) {
+        int subDimension = dimension / m;
+        float[][] result = new float[m][];
+        float[] subSamples = new float[count * subDimension];
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(samples, i * dimension + j * subDimension, subSamples, i * subDimension, subDimension);
+            }
+            float[] centroids = KMeans.train(subSamples, count, subDimension, CODEBOOK_SIZE, iterations, false, j);
+            // 样本不足 256 个时补齐码本，多出的质心不会被选中
+            result[j] = Arrays.copyOf(centroids, CODEBOOK_SIZE * subDimension);
+            int trained = centroids.length / subDimension;
+            for (int c = trained; c < CODEBOOK_SIZE; c++) {
+                Arrays.fill(result[j], c * subDimension, (c + 1) * subDimension, Float.MAX_VALUE / 4);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 应用码本：编码全部暂存向量并释放全精度数据
+     */
+    public void applyCodebooks(float[][] trainedCodebooks) {
+        if (trainedCodebooks.length != m) {
+            throw new IllegalArgumentException("码本数量与子空间数量不一致");
+        }
+        float[][] norms = new float[m][];
+        for (int j = 0; j < m; j++) {
+            norms[j] = KMeans.squaredNorms(trainedCodebooks[j], CODEBOOK_SIZE, subDimension);
+        }
+        this.codebookNorms = norms;
+        this.codebooks = trainedCodebooks;
+        FlatVectorIndex staged = pending;
+        pending = new FlatVectorIndex(dimension);
+        staged.forEach(this::add);
+    }
+
+    /**
+     * 查询在每个子空间与每个质心的点积表，m * CODEBOOK_SIZE
+     */
+    private float[] distanceTable(float[] query) {
+        float[] table = new float[m * CODEBOOK_SIZE];
+        for (int j = 0; j < m; j++) {
+            float[] codebook = codebooks[j];
+            int queryOffset = j * subDimension;
+            for (int c = 0; c < CODEBOOK_SIZE; c++) {
+                table[j * CODEBOOK_SIZE + c] =
+                        VectorMath.dot(query, queryOffset, codebook, c * subDimension, subDimension);
+            }
+        }
+        return table;
+    }
+
+    private void ensureCapacity() {
+        if (rowCount == rowIds.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, rowIds.length * 2);
+            rowIds = Arrays.copyOf(rowIds, capacity);
+            codes = Arrays.copyOf(codes, capacity * m);
+        }
+    }
+
+    private void encode(float[] vector, byte[] target, int offset) {
+        for (int j = 0; j < m; j++) {
+            int code = KMeans.nearest(vector, j * subDimension, codebooks[j], codebookNorms[j],
+                    CODEBOOK_SIZE, subDimension);
+            target[offset + j] = (byte) code;
+        }
+    }
+
+    private float[] reconstruct(int row) {
+        float[] vector = new float[dimension];
+        for (int j = 0; j < m; j++) {
+            int code = codes[row * m + j] & 0xFF;
+            System.arraycopy(codebooks[j], code * subDimension, vector, j * subDimension, subDimension);
+        }
+        return vector;
+    }
+
+    @FunctionalInterface
+    public interface CodeConsumer {
+        void accept(long id, byte[] codes, int offset);
+    }
+}
@@ -0,0 +1,102 @@
+package com.xu.news.util.vector;
+
+import java.util.Arrays;
+
+/**
+ * 范围检索结果：收集得分不低于阈值的全部向量
+ *
+ * 低于阈值的候选在 {@link #offer} 中一次比较即丢弃，不参与排序。
+ * 设置了上限 limit 时内部改用 {@link TopKHeap} 只保留得分最高的 limit 个，
+ * 堆满后 {@link #minScore()} 随之提高，索引可据此提前结束扫描或图遍历。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class RangeResult {
+
+    private final float threshold;
+    // limit > 0 时使用
+    private final TopKHeap heap;
+    private long[] ids;
+    private float[] scores;
+    private int size;
+
+    /**
+     * @param threshold 最低得分（含）
+     * @param limit     结果数量上限，不大于 0 表示不限
+     */
+    public RangeResult(float threshold, int limit) {
+        this.threshold = threshold;
+        this.heap = limit > 0 ? new TopKHeap(limit) : null;
+        if (heap == null) {
+            ids = new long[16];
+            scores = new float[16];
+        }
+    }
+
+    private RangeResult(float threshold, TopKHeap heap) {
+        this.threshold = threshold;
+        this.heap = heap;
+    }
+
+    /**
+     * 把 Top-K 检索结果包装为不设阈值的范围结果
+     */
+    public static RangeResult of(TopKHeap heap) {
+        return new RangeResult(Float.NEGATIVE_INFINITY, heap);
+    }
+
+    public float threshold() {
+        return threshold;
+    }
+
+    /**
+     * 当前可进入结果的最低得分（阈值，或结果已达上限时的第 limit 名得分）
+     */
+    public float minScore() {
+        return heap != null && heap.isFull() ? Math.max(threshold, heap.minScore()) : threshold;
+    }
+
+    public void offer(long id, float score) {
+        if (score < threshold) {
+            return;
+        }
+        if (heap != null) {
+            heap.offer(id, score);
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        ids[size] = id;
+        scores[size++] = score;
+    }
+
+    public int size() {
+        return heap != null ? heap.size() : size;
+    }
+
+    /**
+     * 转为按得分降序排列的堆（调用后本对象不再使用）
+     */
+    public TopKHeap toSortedHeap() {
+        TopKHeap sorted = heap;
+        if (sorted == null) {
+            sorted = new TopKHeap(size);
+            for (int i = 0; i < size; i++) {
+                sorted.offer(ids[i], scores[i]);
+            }
+        }
+        sorted.sortDescending();
+        return sorted;
+    }
+
+    public long idAt(int i) {
+        return heap != null ? heap.idAt(i) : ids[i];
+    }
+
+    public float scoreAt(int i) {
+        return heap != null ? heap.scoreAt(i) : scores[i];
+    }
+}
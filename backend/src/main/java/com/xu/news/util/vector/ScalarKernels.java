@@ -0,0 +1,54 @@
+package com.xu.news.util.vector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 标量打分内核（未启用 jdk.incubator.vector 模块时使用）
+ *
+ * HotSpot 会对简单的计数循环做自动向量化，但浮点累加顺序固定，无法重排为多路并行，
+ * 吞吐明显低于 {@link SimdKernels}。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+class ScalarKernels {
+
+    String name() {
+        return "scalar";
+    }
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    float dot(float[] a, ByteBuffer b, int byteOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b.getFloat(byteOffset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    int dotInt8(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * 汉明距离：Long.bitCount 由 JIT 编译为 POPCNT 指令
+     */
+    int hamming(long[] a, int aOffset, long[] b, int bOffset, int words) {
+        int distance = 0;
+        for (int w = 0; w < words; w++) {
+            distance += Long.bitCount(a[aOffset + w] ^ b[bOffset + w]);
+        }
+        return distance;
+    }
+}
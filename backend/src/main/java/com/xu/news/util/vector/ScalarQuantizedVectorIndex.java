@@ -0,0 +1,210 @@
+package com.xu.news.util.vector;
+
+import java.util.Arrays;
+
+/**
+ * int8 标量量化索引
+ *
+ * 每个维度量化为一个有符号字节，每个向量保存一个缩放系数（最大绝对值 / 127），
+ * 内存约为 float32 的 1/4。检索时查询向量同样量化为 int8，逐行计算整数点积，
+ * 得分为近似值，由调用方加载原始向量对头部候选重排。
+ *
+ * 无需训练，新增向量直接量化。并发模型与 {@link FlatVectorIndex} 相同：检索无锁，删除使用墓碑。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class ScalarQuantizedVectorIndex implements VectorIndex {
+
+    public static final String TYPE = "sq8";
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_COMPACT_TOMBSTONES = 64;
+    private static final float MAX_CODE = 127f;
+
+    private final int dimension;
+
+    private volatile State state = new State(new byte[0], new float[0], new long[0], 0, 0);
+    private final LongIntHashMap rowIndex = new LongIntHashMap();
+
+    public ScalarQuantizedVectorIndex(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public synchronized void add(long id, float[] vector) {
+        State current = state;
+        byte[] codes = current.codes;
+        float[] scales = current.scales;
+        long[] rowIds = current.rowIds;
+        int row = current.rowCount;
+        if (row == rowIds.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, rowIds.length * 2);
+            rowIds = Arrays.copyOf(rowIds, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+            codes = Arrays.copyOf(codes, capacity * dimension);
+        }
+        scales[row] = quantize(vector, codes, row * dimension);
+        rowIds[row] = id;
+        rowIndex.put(id, row);
+        state = new State(codes, scales, rowIds, row + 1, current.liveCount + 1);
+    }
+
+    @Override
+    public synchronized boolean remove(long id) {
+        int row = rowIndex.remove(id);
+        if (row < 0) {
+            return false;
+        }
+        State current = state;
+        current.rowIds[row] = FlatVectorIndex.TOMBSTONE;
+        int tombstones = current.rowCount - (current.liveCount - 1);
+        if (tombstones >= MIN_COMPACT_TOMBSTONES && tombstones * 4 > current.rowCount) {
+            compact(current);
+        } else {
+            state = new State(current.codes, current.scales, current.rowIds, current.rowCount,
+                    current.liveCount - 1);
+        }
+        return true;
+    }
+
+    @Override
+    public TopKHeap search(float[] query, int topK, SearchParams params) {
+        State current = state;
+        byte[] quantizedQuery = new byte[dimension];
+        float queryScale = quantize(query, quantizedQuery, 0);
+        TopKHeap heap = new TopKHeap(Math.min(topK, current.liveCount));
+        byte[] codes = current.codes;
+        IdFilter filter = params.getIdFilter();
+        for (int row = 0, offset = 0; row < current.rowCount; row++, offset += dimension) {
+            long id = current.rowIds[row];
+            if (id == FlatVectorIndex.TOMBSTONE || (filter != null && !filter.accepts(id))) {
+                continue;
+            }
+            int dot = VectorMath.dotInt8(quantizedQuery, codes, offset);
+            heap.offer(id, dot * queryScale * current.scales[row]);
+        }
+        return heap;
+    }
+
+    /**
+     * 范围检索：按 int8 近似得分与阈值比较（调用方负责用全精度向量复核）
+     */
+    @Override
+    public RangeResult rangeSearch(float[] query, float threshold, int limit, SearchParams params) {
+        State current = state;
+        byte[] quantizedQuery = new byte[dimension];
+        float queryScale = quantize(query, quantizedQuery, 0);
+        RangeResult result = new RangeResult(threshold, limit);
+        IdFilter filter = params.getIdFilter();
+        for (int row = 0, offset = 0; row < current.rowCount; row++, offset += dimension) {
+            long id = current.rowIds[row];
+            if (id == FlatVectorIndex.TOMBSTONE || (filter != null && !filter.accepts(id))) {
+                continue;
+            }
+            int dot = VectorMath.dotInt8(quantizedQuery, current.codes, offset);
+            result.offer(id, dot * queryScale * current.scales[row]);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean approximateScores() {
+        return true;
+    }
+
+    @Override
+    public boolean concurrentReads() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return state.liveCount;
+    }
+
+    /**
+     * 输出反量化后的向量（再次量化得到相同的编码）
+     */
+    @Override
+    public void forEach(VectorConsumer consumer) {
+        State current = state;
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id == FlatVectorIndex.TOMBSTONE) {
+                continue;
+            }
+            float[] vector = new float[dimension];
+            int offset = row * dimension;
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = current.codes[offset + i] * current.scales[row];
+            }
+            consumer.accept(id, vector);
+        }
+    }
+
+    private void compact(State current) {
+        int live = current.liveCount - 1;
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, live)) * 2);
+        byte[] codes = new byte[capacity * dimension];
+        float[] scales = new float[capacity];
+        long[] rowIds = new long[capacity];
+        rowIndex.clear();
+        int target = 0;
+        for (int row = 0; row < current.rowCount; row++) {
+            long id = current.rowIds[row];
+            if (id != FlatVectorIndex.TOMBSTONE) {
+                System.arraycopy(current.codes, row * dimension, codes, target * dimension, dimension);
+                scales[target] = current.scales[row];
+                rowIds[target] = id;
+                rowIndex.put(id, target);
+                target++;
+            }
+        }
+        state = new State(codes, scales, rowIds, target, target);
+    }
+
+    /**
+     * 量化到 target[offset, offset + dimension)，返回缩放系数
+     */
+    private float quantize(float[] vector, byte[] target, int offset) {
+        float maxAbs = 0f;
+        for (int i = 0; i < dimension; i++) {
+            maxAbs = Math.max(maxAbs, Math.abs(vector[i]));
+        }
+        if (maxAbs == 0f) {
+            Arrays.fill(target, offset, offset + dimension, (byte) 0);
+            return 0f;
+        }
+        float scale = maxAbs / MAX_CODE;
+        float inv = 1f / scale;
+        for (int i = 0; i < dimension; i++) {
+            target[offset + i] = (byte) Math.round(vector[i] * inv);
+        }
+        return scale;
+    }
+
+    /**
+     * 已发布的行数据
+     */
+    private static final class State {
+        private final byte[] codes;
+        private final float[] scales;
+        private final long[] rowIds;
+        private final int rowCount;
+        private final int liveCount;
+
+        private State(byte[] codes, float[] scales, long[] rowIds, int rowCount, int liveCount) {
+            this.codes = codes;
+            this.scales = scales;
+            this.rowIds = rowIds;
+            this.rowCount = rowCount;
+            this.liveCount = liveCount;
+        }
+    }
+}
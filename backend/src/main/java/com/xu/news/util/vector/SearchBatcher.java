@@ -0,0 +1,212 @@
+package com.xu.news.util.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 并发检索微批合并
+ *
+ * 多个请求同时检索同一个索引时，各自扫描一遍全部向量会重复占用内存带宽。
+ * 检索进入时若已有其他检索在执行，则进入队列：第一个入队的线程成为收集者，等待 window 时长后
+ * 取出队列中的请求（不超过 maxBatchSize 个），通过 {@link VectorIndex#rangeSearchBatch} 一次扫描
+ * 为所有请求打分，再把各自的结果（各自的 topK 与阈值）交还给等待的线程。
+ *
+ * 没有其他检索在执行时直接检索，不增加等待；批内只有一个请求时同样走直接检索。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+public class SearchBatcher {
+
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean collecting = new AtomicBoolean();
+    // 正在执行（含排队）的检索数
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedQueryCount = new AtomicLong();
+
+    /**
+     * @param windowNanos  收集者等待其他请求加入的时长
+     * @param maxBatchSize 单批最多合并的请求数
+     */
+    public SearchBatcher(long windowNanos, int maxBatchSize) {
+        this.windowNanos = Math.max(0, windowNanos);
+        this.maxBatchSize = Math.max(2, maxBatchSize);
+    }
+
+    /**
+     * 检索（与并发到达的其他检索合并扫描）
+     *
+     * @param threshold 最低得分，Top-K 检索传负无穷
+     * @param limit     结果数量上限，不大于 0 表示不限
+     * @param direct    不合并时的直接检索
+     */
+    public RangeResult search(VectorIndex index, float[] query, float threshold, int limit, SearchParams params,
+                              Supplier<RangeResult> direct) {
+        if (inFlight.incrementAndGet() == 1) {
+            try {
+                return direct.get();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+        try {
+            Request request = new Request(index, query, threshold, limit, params, direct);
+            queue.add(request);
+            while (!request.result.isDone()) {
+                if (collecting.compareAndSet(false, true)) {
+                    try {
+                        if (!request.result.isDone() && windowNanos > 0) {
+                            LockSupport.parkNanos(windowNanos);
+                        }
+                        runBatch();
+                    } finally {
+                        collecting.set(false);
+                    }
+                } else {
+                    // 等待收集者执行；超时后重新尝试成为收集者，避免收集者退出后请求滞留在队列中
+                    await(request);
+                }
+            }
+            return join(request);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 已执行的合并批次数
+     */
+    public long batchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * 通过合并批次完成的检索数
+     */
+    public long batchedQueryCount() {
+        return batchedQueryCount.get();
+    }
+
+    /**
+     * 取出一批请求，按索引分组执行（索引在批次中途被替换时才会出现多组）
+     */
+    private void runBatch() {
+        Map<VectorIndex, List<Request>> groups = new IdentityHashMap<>();
+        for (int i = 0; i < maxBatchSize; i++) {
+            Request request = queue.poll();
+            if (request == null) {
+                break;
+            }
+            groups.computeIfAbsent(request.index, k -> new ArrayList<>()).add(request);
+        }
+        for (Map.Entry<VectorIndex, List<Request>> group : groups.entrySet()) {
+            execute(group.getKey(), group.getValue());
+        }
+    }
+
+    private void execute(VectorIndex index, List<Request> requests) {
+        if (requests.size() == 1) {
+            Request request = requests.get(0);
+            try {
+                request.result.complete(request.direct.get());
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        int n = requests.size();
+        float[][] queries = new float[n][];
+        float[] thresholds = new float[n];
+        int[] limits = new int[n];
+        SearchParams[] params = new SearchParams[n];
+        for (int i = 0; i < n; i++) {
+            Request request = requests.get(i);
+            queries[i] = request.query;
+            thresholds[i] = request.threshold;
+            limits[i] = request.limit;
+            params[i] = request.params;
+        }
+        try {
+            long start = System.nanoTime();
+            RangeResult[] results = index.rangeSearchBatch(queries, thresholds, limits, params);
+            for (int i = 0; i < n; i++) {
+                requests.get(i).result.complete(results[i]);
+            }
+            batchCount.incrementAndGet();
+            batchedQueryCount.addAndGet(n);
+            log.debug("合并检索完成: 请求数={}, 耗时={}μs", n, (System.nanoTime() - start) / 1000);
+        } catch (RuntimeException e) {
+            for (Request request : requests) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void await(Request request) {
+        try {
+            request.result.get(Math.max(windowNanos, TimeUnit.MILLISECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // 超时重试；异常在 join 中抛出
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并检索被中断", e);
+        }
+    }
+
+    private static RangeResult join(Request request) {
+        try {
+            return request.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("合并检索失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并检索被中断", e);
+        }
+    }
+
+    /**
+     * 排队中的检索请求
+     */
+    private static final class Request {
+        private final VectorIndex index;
+        private final float[] query;
+        private final float threshold;
+        private final int limit;
+        private final SearchParams params;
+        private final Supplier<RangeResult> direct;
+        private final CompletableFuture<RangeResult> result = new CompletableFuture<>();
+
+        private Request(VectorIndex index, float[] query, float threshold, int limit, SearchParams params,
+                        Supplier<RangeResult> direct) {
+            this.index = index;
+            this.query = query;
+            this.threshold = threshold;
+            this.limit = limit;
+            this.params = params;
+            this.direct = direct;
+        }
+    }
+}
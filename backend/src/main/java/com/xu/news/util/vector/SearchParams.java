@@ -0,0 +1,43 @@
+package com.xu.news.util.vector;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 单次检索参数
+ *
+ * 字段为空时使用索引的服务端默认配置。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Data
+@Accessors(chain = true)
+public class SearchParams {
+
+    /**
+     * IVF 检索时探测的倒排列表数量
+     */
+    private Integer nprobe;
+
+    /**
+     * 元数据过滤条件（由 VectorStore 解析为 idFilter）
+     */
+    private VectorFilter filter;
+
+    /**
+     * 满足过滤条件的向量ID，索引扫描时跳过不在集合中的向量（为空时不过滤）
+     */
+    private IdFilter idFilter;
+
+    /**
+     * 向量是否满足过滤条件
+     */
+    public boolean accepts(long id) {
+        return idFilter == null || idFilter.accepts(id);
+    }
+
+    public static SearchParams defaults() {
+        return new SearchParams();
+    }
+}
@@ -0,0 +1,448 @@
+package com.xu.news.util.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 分段索引（LSM 风格）
+ *
+ * 由一个可写的活跃段与若干只读的封存段组成：
+ * - 新增只写入活跃段（{@link FlatVectorIndex}），活跃段达到 segmentSize 后原样冻结为封存段，写入不等待建索引；
+ * - 删除活跃段中的向量直接移除；封存段中的向量只在该段的墓碑位图中置位，段内索引保持不变；
+ * - 检索在所有段上执行并归并 Top-K，封存段按已删除数量多取候选后过滤墓碑；
+ * - 后台压缩把冻结段重建为配置的索引类型（如 HNSW），合并小段并清除已删除的向量，
+ *   新段在锁外构建，完成后整体替换，检索不受阻塞。
+ *
+ * 封存段建成后不再修改，因此 HNSW 等不支持并发读写的索引作为封存段时也可无锁检索。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Slf4j
+public class SegmentedVectorIndex implements VectorIndex {
+
+    private final String type;
+    private final boolean approximateScores;
+    // 创建配置类型的空索引（压缩时构建封存段）
+    private final Supplier<VectorIndex> sealedFactory;
+    // 创建活跃段
+    private final Supplier<FlatVectorIndex> activeFactory;
+    private final int segmentSize;
+    private final int maxSegmentSize;
+    private final double maxDeletedRatio;
+
+    private volatile View view;
+    // 同一时间只允许一个压缩任务
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    /**
+     * @param sealedFactory   创建配置类型的空索引
+     * @param activeFactory   创建活跃段
+     * @param segmentSize     活跃段冻结阈值
+     * @param maxSegmentSize  合并后单个段的向量数上限
+     * @param maxDeletedRatio 封存段已删除比例超过该值时重写
+     */
+    public SegmentedVectorIndex(Supplier<VectorIndex> sealedFactory, Supplier<FlatVectorIndex> activeFactory,
+                                int segmentSize, int maxSegmentSize, double maxDeletedRatio) {
+        VectorIndex prototype = sealedFactory.get();
+        this.type = prototype.type();
+        this.approximateScores = prototype.approximateScores();
+        prototype.close();
+        this.sealedFactory = sealedFactory;
+        this.activeFactory = activeFactory;
+        this.segmentSize = Math.max(1, segmentSize);
+        this.maxSegmentSize = Math.max(this.segmentSize, maxSegmentSize);
+        this.maxDeletedRatio = maxDeletedRatio;
+        this.view = new View(new Segment[0], activeFactory.get());
+    }
+
+    @Override
+    public String type() {
+        return type;
+    }
+
+    @Override
+    public synchronized void add(long id, float[] vector) {
+        View current = view;
+        current.active.add(id, vector);
+        if (current.active.size() >= segmentSize) {
+            // 冻结活跃段：此后不再修改，删除改为写墓碑
+            Segment frozen = new Segment(current.active, sortedIds(current.active.ids()),
+                    !FlatVectorIndex.TYPE.equals(type));
+            view = new View(append(current.sealed, frozen), activeFactory.get());
+        } else {
+            view = current;
+        }
+    }
+
+    /**
+     * 追加一个已建好的封存段（加载快照时使用，如映射索引文件的 flat 段）；配置类型不是 flat 时按冻结段处理，由后台压缩重建
+     */
+    public synchronized void appendSealed(FlatVectorIndex segment) {
+        View current = view;
+        Segment sealed = new Segment(segment, sortedIds(segment.ids()), !FlatVectorIndex.TYPE.equals(type));
+        view = new View(append(current.sealed, sealed), current.active);
+    }
+
+    @Override
+    public synchronized boolean remove(long id) {
+        View current = view;
+        boolean removed = current.active.remove(id);
+        if (!removed) {
+            for (Segment segment : current.sealed) {
+                if (segment.delete(id)) {
+                    removed = true;
+                    break;
+                }
+            }
+        }
+        // 重新发布（同一对象）使墓碑对后续检索可见
+        view = current;
+        return removed;
+    }
+
+    @Override
+    public TopKHeap search(float[] query, int topK, SearchParams params) {
+        View current = view;
+        TopKHeap heap = new TopKHeap(Math.min(topK, size(current)));
+        heap.offerAll(current.active.search(query, topK, params));
+        for (Segment segment : current.sealed) {
+            int fetch = Math.min(segment.ids.length, topK + segment.deletedCount);
+            if (fetch <= 0 || segment.deletedCount >= segment.ids.length) {
+                continue;
+            }
+            TopKHeap candidates = segment.index.search(query, fetch, params);
+            for (int i = 0; i < candidates.size(); i++) {
+                long id = candidates.idAt(i);
+                if (!segment.isDeleted(id)) {
+                    heap.offer(id, candidates.scoreAt(i));
+                }
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * 各段分别做范围检索后归并；封存段带上限时按已删除数量多取
+     */
+    @Override
+    public RangeResult rangeSearch(float[] query, float threshold, int limit, SearchParams params) {
+        View current = view;
+        RangeResult result = current.active.rangeSearch(query, threshold, limit, params);
+        for (Segment segment : current.sealed) {
+            if (segment.deletedCount >= segment.ids.length) {
+                continue;
+            }
+            int fetch = limit > 0 ? limit + segment.deletedCount : 0;
+            RangeResult candidates = segment.index.rangeSearch(query, Math.max(threshold, result.minScore()),
+                    fetch, params);
+            for (int i = 0; i < candidates.size(); i++) {
+                long id = candidates.idAt(i);
+                if (!segment.isDeleted(id)) {
+                    result.offer(id, candidates.scoreAt(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 各段分别批量检索后按查询归并
+     */
+    @Override
+    public RangeResult[] rangeSearchBatch(float[][] queries, float[] thresholds, int[] limits,
+                                          SearchParams[] params) {
+        View current = view;
+        RangeResult[] results = current.active.rangeSearchBatch(queries, thresholds, limits, params);
+        float[] segmentThresholds = new float[queries.length];
+        int[] segmentLimits = new int[queries.length];
+        for (Segment segment : current.sealed) {
+            if (segment.deletedCount >= segment.ids.length) {
+                continue;
+            }
+            int deleted = segment.deletedCount;
+            for (int q = 0; q < queries.length; q++) {
+                segmentThresholds[q] = Math.max(thresholds[q], results[q].minScore());
+                segmentLimits[q] = limits[q] > 0 ? limits[q] + deleted : 0;
+            }
+            RangeResult[] candidates = segment.index.rangeSearchBatch(queries, segmentThresholds, segmentLimits,
+                    params);
+            for (int q = 0; q < queries.length; q++) {
+                for (int i = 0; i < candidates[q].size(); i++) {
+                    long id = candidates[q].idAt(i);
+                    if (!segment.isDeleted(id)) {
+                        results[q].offer(id, candidates[q].scoreAt(i));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public boolean approximateScores() {
+        return approximateScores;
+    }
+
+    /**
+     * 封存段只读，活跃段支持无锁读
+     */
+    @Override
+    public boolean concurrentReads() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size(view);
+    }
+
+    /**
+     * 段数量（含活跃段）
+     */
+    public int segmentCount() {
+        return view.sealed.length + 1;
+    }
+
+    @Override
+    public void forEach(VectorConsumer consumer) {
+        View current = view;
+        for (Segment segment : current.sealed) {
+            segment.index.forEach((id, vector) -> {
+                if (!segment.isDeleted(id)) {
+                    consumer.accept(id, vector);
+                }
+            });
+        }
+        current.active.forEach(consumer);
+    }
+
+    @Override
+    public void forEachId(LongConsumer consumer) {
+        View current = view;
+        for (Segment segment : current.sealed) {
+            for (int position = 0; position < segment.ids.length; position++) {
+                if ((segment.deleted[position >>> 6] & (1L << position)) == 0) {
+                    consumer.accept(segment.ids[position]);
+                }
+            }
+        }
+        current.active.forEachId(consumer);
+    }
+
+    @Override
+    public synchronized void close() {
+        View current = view;
+        view = new View(new Segment[0], activeFactory.get());
+        for (Segment segment : current.sealed) {
+            segment.index.close();
+        }
+        current.active.close();
+    }
+
+    /**
+     * 压缩封存段：冻结段重建为配置的索引类型，小段合并，清除墓碑比例过高的段中已删除的向量
+     *
+     * @return 被重写的段数量（已有压缩任务在执行时返回 0）
+     */
+    public int compact() {
+        if (!compactionLock.tryLock()) {
+            return 0;
+        }
+        try {
+            int rewritten = 0;
+            for (List<Segment> group : plan(view.sealed)) {
+                long start = System.currentTimeMillis();
+                Segment replacement = build(group);
+                replace(group, replacement);
+                rewritten += group.size();
+                log.debug("向量段压缩完成: 合并段数={}, 新段向量数={}, 耗时={}ms",
+                        group.size(), replacement == null ? 0 : replacement.ids.length,
+                        System.currentTimeMillis() - start);
+            }
+            return rewritten;
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * 选出需要重写的段并分组，每组合并后的向量数不超过 maxSegmentSize
+     */
+    private List<List<Segment>> plan(Segment[] sealed) {
+        List<List<Segment>> groups = new ArrayList<>();
+        List<Segment> group = new ArrayList<>();
+        int groupLive = 0;
+        boolean groupDirty = false;
+        for (Segment segment : sealed) {
+            int live = segment.liveCount();
+            boolean dirty = segment.frozen || live == 0
+                    || segment.deletedCount > segment.ids.length * maxDeletedRatio;
+            boolean small = live < maxSegmentSize / 4;
+            if (!dirty && !small) {
+                continue;
+            }
+            if (!group.isEmpty() && groupLive + live > maxSegmentSize) {
+                addGroup(groups, group, groupDirty);
+                group = new ArrayList<>();
+                groupLive = 0;
+                groupDirty = false;
+            }
+            group.add(segment);
+            groupLive += live;
+            groupDirty |= dirty;
+        }
+        addGroup(groups, group, groupDirty);
+        return groups;
+    }
+
+    /**
+     * 单个干净的小段无需重写
+     */
+    private void addGroup(List<List<Segment>> groups, List<Segment> group, boolean dirty) {
+        if (group.size() > 1 || (group.size() == 1 && dirty)) {
+            groups.add(group);
+        }
+    }
+
+    /**
+     * 在锁外把一组段的有效向量写入新索引（全部已删除时返回 null）
+     */
+    private Segment build(List<Segment> group) {
+        VectorIndex merged = sealedFactory.get();
+        long[][] ids = {new long[16]};
+        int[] count = {0};
+        for (Segment segment : group) {
+            segment.index.forEach((id, vector) -> {
+                if (!segment.isDeleted(id)) {
+                    merged.add(id, vector);
+                    if (count[0] == ids[0].length) {
+                        ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+                    }
+                    ids[0][count[0]++] = id;
+                }
+            });
+        }
+        if (count[0] == 0) {
+            merged.close();
+            return null;
+        }
+        return new Segment(merged, sortedIds(Arrays.copyOf(ids[0], count[0])), false);
+    }
+
+    /**
+     * 用新段替换一组旧段，并补上构建期间旧段中新增的墓碑
+     */
+    private synchronized void replace(List<Segment> group, Segment replacement) {
+        View current = view;
+        List<Segment> sealed = new ArrayList<>(current.sealed.length);
+        boolean inserted = false;
+        for (Segment segment : current.sealed) {
+            if (!group.contains(segment)) {
+                sealed.add(segment);
+            } else if (!inserted) {
+                inserted = true;
+                if (replacement != null) {
+                    sealed.add(replacement);
+                }
+            }
+        }
+        if (replacement != null) {
+            for (Segment old : group) {
+                for (int word = 0; word < old.deleted.length; word++) {
+                    long bits = old.deleted[word];
+                    while (bits != 0) {
+                        int position = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        replacement.delete(old.ids[position]);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+        }
+        view = new View(sealed.toArray(new Segment[0]), current.active);
+        // 正在检索旧段的线程持有旧快照，只归还存储，不清空旧段已发布的数据
+        for (Segment old : group) {
+            if (old.index instanceof FlatVectorIndex flat) {
+                flat.releaseStorage();
+            } else {
+                old.index.close();
+            }
+        }
+    }
+
+    private static int size(View current) {
+        int size = current.active.size();
+        for (Segment segment : current.sealed) {
+            size += segment.liveCount();
+        }
+        return size;
+    }
+
+    private static long[] sortedIds(long[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static Segment[] append(Segment[] sealed, Segment segment) {
+        Segment[] result = Arrays.copyOf(sealed, sealed.length + 1);
+        result[sealed.length] = segment;
+        return result;
+    }
+
+    /**
+     * 已发布的段集合
+     */
+    private static final class View {
+        private final Segment[] sealed;
+        private final FlatVectorIndex active;
+
+        private View(Segment[] sealed, FlatVectorIndex active) {
+            this.sealed = sealed;
+            this.active = active;
+        }
+    }
+
+    /**
+     * 封存段：只读索引 + 升序ID表 + 墓碑位图（位与ID表下标对应，仅写线程置位）
+     */
+    private static final class Segment {
+        private final VectorIndex index;
+        private final long[] ids;
+        private final long[] deleted;
+        // 冻结的活跃段，尚未重建为配置的索引类型
+        private final boolean frozen;
+        private volatile int deletedCount;
+
+        private Segment(VectorIndex index, long[] ids, boolean frozen) {
+            this.index = index;
+            this.ids = ids;
+            this.deleted = new long[(ids.length + Long.SIZE - 1) / Long.SIZE];
+            this.frozen = frozen;
+        }
+
+        private int liveCount() {
+            return ids.length - deletedCount;
+        }
+
+        private boolean isDeleted(long id) {
+            int position = Arrays.binarySearch(ids, id);
+            return position < 0 || (deleted[position >>> 6] & (1L << position)) != 0;
+        }
+
+        private boolean delete(long id) {
+            int position = Arrays.binarySearch(ids, id);
+            if (position < 0 || (deleted[position >>> 6] & (1L << position)) != 0) {
+                return false;
+            }
+            deleted[position >>> 6] |= 1L << position;
+            deletedCount++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.xu.news.util.vector;
+
+/**
+ * 有界最小堆（Top-K 选择）
+ *
+ * 只保留得分最高的 K 个候选，堆顶为当前第 K 名，
+ * 内存和比较次数只与 K 相关，与候选总数无关。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class TopKHeap {
+
+    private final int capacity;
+    private final long[] ids;
+    private final float[] scores;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.ids = new long[this.capacity];
+        this.scores = new float[this.capacity];
+    }
+
+    /**
+     * 尝试加入候选，得分不足第 K 名时直接丢弃
+     */
+    public void offer(long id, float score) {
+        if (size < capacity) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (capacity > 0 && score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 合并另一个堆中的全部候选（用于分区扫描结果归并）
+     */
+    public void offerAll(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * 当前第 K 名的得分（未满时返回负无穷，任何候选都可进入）
+     */
+    public float minScore() {
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 按得分降序整理堆内元素（调用后堆结构被破坏，只能通过 idAt/scoreAt 读取）
+     */
+    public void sortDescending() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    public long idAt(int i) {
+        return ids[i];
+    }
+
+    public float scoreAt(int i) {
+        return scores[i];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[i] >= scores[parent]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        siftDown(i, size);
+    }
+
+    private void siftDown(int i, int limit) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= limit) {
+                break;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < limit && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[i] <= scores[smallest]) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,233 @@
+package com.xu.news.util.vector;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 向量属性列存储（用于检索前过滤）
+ *
+ * 以向量ID为下标按列保存过滤字段，每个向量约 19 字节：
+ * - 数据源ID（long）、发布时间（epoch 秒，long）；
+ * - 内容类型（字典编码，short）、状态（byte）；
+ * - 每个标签一个 {@link BitSet}，按标签过滤时直接做位图并集。
+ *
+ * 检索时 {@link #evaluate(VectorFilter)} 先用标签位图缩小范围，再逐个检查列值，得到 {@link IdFilter}；
+ * 属性由知识条目服务在写入/更新/删除时维护，启动时从数据库加载。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class VectorAttributes {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final byte NO_STATUS = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final BitSet present = new BitSet();
+    private long[] sourceIds = new long[0];
+    private long[] publishedAt = new long[0];
+    private short[] contentTypes = new short[0];
+    private byte[] statuses = new byte[0];
+    // 内容类型字典（编码从 1 开始，0 表示为空）
+    private final Map<String, Short> contentTypeCodes = new HashMap<>();
+    private final Map<String, BitSet> tagBitsets = new HashMap<>();
+
+    /**
+     * 写入（覆盖）向量的属性
+     */
+    public void put(long vectorId, Row row) {
+        int id = checkId(vectorId);
+        lock.writeLock().lock();
+        try {
+            clearTags(id);
+            ensureCapacity(id + 1);
+            present.set(id);
+            sourceIds[id] = row.getSourceId() != null ? row.getSourceId() : 0L;
+            publishedAt[id] = row.getPublishedAt() != null ? toEpochSecond(row.getPublishedAt()) : NO_TIME;
+            contentTypes[id] = row.getContentType() != null ? encodeContentType(row.getContentType()) : 0;
+            statuses[id] = row.getStatus() != null ? row.getStatus().byteValue() : NO_STATUS;
+            if (row.getTags() != null) {
+                for (String tag : row.getTags()) {
+                    tagBitsets.computeIfAbsent(tag, t -> new BitSet()).set(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除向量的属性
+     */
+    public void remove(long vectorId) {
+        if (vectorId < 0 || vectorId > Integer.MAX_VALUE) {
+            return;
+        }
+        int id = (int) vectorId;
+        lock.writeLock().lock();
+        try {
+            clearTags(id);
+            present.clear(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已登记属性的向量数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return present.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 计算满足过滤条件的向量ID集合（未登记属性的向量不满足任何过滤条件）
+     */
+    public IdFilter evaluate(VectorFilter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) present.clone();
+            if (filter.getTags() != null && !filter.getTags().isEmpty()) {
+                BitSet tagged = new BitSet();
+                for (String tag : filter.getTags()) {
+                    BitSet bits = tagBitsets.get(tag);
+                    if (bits != null) {
+                        tagged.or(bits);
+                    }
+                }
+                result.and(tagged);
+            }
+
+            Set<Long> sources = filter.getSourceIds() != null && !filter.getSourceIds().isEmpty()
+                    ? new HashSet<>(filter.getSourceIds()) : null;
+            boolean[] types = contentTypeMask(filter.getContentTypes());
+            boolean[] states = statusMask(filter.getStatuses());
+            long from = filter.getPublishedFrom() != null ? toEpochSecond(filter.getPublishedFrom()) : NO_TIME;
+            long to = filter.getPublishedTo() != null ? toEpochSecond(filter.getPublishedTo()) : Long.MAX_VALUE;
+            boolean timeRange = filter.getPublishedFrom() != null || filter.getPublishedTo() != null;
+            if (sources == null && types == null && states == null && !timeRange) {
+                return new IdFilter(result);
+            }
+
+            for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                boolean matches = (sources == null || sources.contains(sourceIds[id]))
+                        && (types == null || types[contentTypes[id]])
+                        && (states == null || (statuses[id] >= 0 && statuses[id] < states.length
+                        && states[statuses[id]]))
+                        && (!timeRange || (publishedAt[id] != NO_TIME && publishedAt[id] >= from
+                        && publishedAt[id] <= to));
+                if (!matches) {
+                    result.clear(id);
+                }
+            }
+            return new IdFilter(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按字典编码标记允许的内容类型（未出现过的类型不会命中任何向量）
+     */
+    private boolean[] contentTypeMask(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        boolean[] mask = new boolean[contentTypeCodes.size() + 1];
+        for (String value : values) {
+            Short code = contentTypeCodes.get(value);
+            if (code != null) {
+                mask[code] = true;
+            }
+        }
+        return mask;
+    }
+
+    private boolean[] statusMask(List<Integer> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        boolean[] mask = new boolean[Byte.MAX_VALUE + 1];
+        for (Integer value : values) {
+            if (value != null && value >= 0 && value <= Byte.MAX_VALUE) {
+                mask[value] = true;
+            }
+        }
+        return mask;
+    }
+
+    private void clearTags(int id) {
+        if (!present.get(id)) {
+            return;
+        }
+        for (BitSet bits : tagBitsets.values()) {
+            bits.clear(id);
+        }
+    }
+
+    private short encodeContentType(String contentType) {
+        return contentTypeCodes.computeIfAbsent(contentType, t -> {
+            if (contentTypeCodes.size() >= Short.MAX_VALUE) {
+                throw new IllegalStateException("内容类型数量超过上限");
+            }
+            return (short) (contentTypeCodes.size() + 1);
+        });
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= sourceIds.length) {
+            return;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, Math.max(required, sourceIds.length * 2));
+        sourceIds = Arrays.copyOf(sourceIds, capacity);
+        contentTypes = Arrays.copyOf(contentTypes, capacity);
+        int previous = publishedAt.length;
+        publishedAt = Arrays.copyOf(publishedAt, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        Arrays.fill(publishedAt, previous, capacity, NO_TIME);
+        Arrays.fill(statuses, previous, capacity, NO_STATUS);
+    }
+
+    private static int checkId(long vectorId) {
+        if (vectorId < 0 || vectorId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("向量ID超出范围: " + vectorId);
+        }
+        return (int) vectorId;
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * 单个向量的属性
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class Row {
+        private Long sourceId;
+        private String contentType;
+        private Integer status;
+        private LocalDateTime publishedAt;
+        private List<String> tags;
+    }
+}
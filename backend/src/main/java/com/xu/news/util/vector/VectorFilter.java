@@ -0,0 +1,63 @@
+package com.xu.news.util.vector;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 向量检索的元数据过滤条件
+ *
+ * 各条件之间为“且”，同一条件的多个取值之间为“或”；字段为空表示不限制。
+ * 由 {@link VectorAttributes} 解析为 {@link IdFilter}，在索引扫描中逐行判断。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Data
+@Accessors(chain = true)
+public class VectorFilter {
+
+    /**
+     * 数据源ID
+     */
+    private List<Long> sourceIds;
+
+    /**
+     * 内容类型：news/article/document/other
+     */
+    private List<String> contentTypes;
+
+    /**
+     * 标签（命中任意一个即可）
+     */
+    private List<String> tags;
+
+    /**
+     * 发布时间下限（含）
+     */
+    private LocalDateTime publishedFrom;
+
+    /**
+     * 发布时间上限（含）
+     */
+    private LocalDateTime publishedTo;
+
+    /**
+     * 状态：0-草稿 1-已发布 2-已归档
+     */
+    private List<Integer> statuses;
+
+    /**
+     * 是否没有任何条件
+     */
+    public boolean hasNoConditions() {
+        return isEmpty(sourceIds) && isEmpty(contentTypes) && isEmpty(tags) && isEmpty(statuses)
+                && publishedFrom == null && publishedTo == null;
+    }
+
+    private static boolean isEmpty(List<?> values) {
+        return values == null || values.isEmpty();
+    }
+}
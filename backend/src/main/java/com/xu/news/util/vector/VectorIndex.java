@@ -0,0 +1,119 @@
+package com.xu.news.util.vector;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 向量索引接口
+ *
+ * 所有实现接收的向量均已 L2 归一化，相似度即点积（越大越相似）。
+ * 修改操作（add/remove 及训练）由调用方串行执行；检索是否可与修改并发见 {@link #concurrentReads()}。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public interface VectorIndex {
+
+    /**
+     * 索引类型（与配置项 faiss.index-type 对应）
+     */
+    String type();
+
+    /**
+     * 添加向量
+     */
+    void add(long id, float[] vector);
+
+    /**
+     * 删除向量，返回是否存在
+     */
+    boolean remove(long id);
+
+    /**
+     * 检索最相似的 topK 个向量，结果保存在返回的堆中
+     */
+    TopKHeap search(float[] query, int topK, SearchParams params);
+
+    /**
+     * 使用默认参数检索
+     */
+    default TopKHeap search(float[] query, int topK) {
+        return search(query, topK, SearchParams.defaults());
+    }
+
+    /**
+     * 范围检索：返回得分不低于 threshold 的全部向量（limit 大于 0 时只保留得分最高的 limit 个）
+     *
+     * 默认实现以全部向量数为 topK 检索后按阈值截断，各索引应覆盖为边扫描边丢弃低于阈值的候选。
+     */
+    default RangeResult rangeSearch(float[] query, float threshold, int limit, SearchParams params) {
+        RangeResult result = new RangeResult(threshold, limit);
+        int size = size();
+        if (size == 0) {
+            return result;
+        }
+        TopKHeap heap = search(query, size, params);
+        for (int i = 0; i < heap.size(); i++) {
+            result.offer(heap.idAt(i), heap.scoreAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * 批量范围检索：一次为多个查询打分，各查询使用自己的阈值、上限与过滤条件
+     *
+     * 默认逐个执行 {@link #rangeSearch}；线性扫描的索引可覆盖为每个向量只读取一次、依次与全部查询打分。
+     */
+    default RangeResult[] rangeSearchBatch(float[][] queries, float[] thresholds, int[] limits,
+                                           SearchParams[] params) {
+        RangeResult[] results = new RangeResult[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            results[i] = rangeSearch(queries[i], thresholds[i], limits[i], params[i]);
+        }
+        return results;
+    }
+
+    /**
+     * 检索得分是否为近似值（压缩编码），为 true 时调用方可用全精度向量重排
+     */
+    default boolean approximateScores() {
+        return false;
+    }
+
+    /**
+     * 检索是否可以与修改并发执行（无锁读），为 false 时调用方需用读写锁隔离检索与修改
+     */
+    default boolean concurrentReads() {
+        return false;
+    }
+
+    /**
+     * 有效向量数量
+     */
+    int size();
+
+    /**
+     * 遍历所有有效向量（用于持久化与重建索引）
+     */
+    void forEach(VectorConsumer consumer);
+
+    /**
+     * 遍历所有有效向量的ID（用于与数据库核对，默认基于 {@link #forEach}）
+     */
+    default void forEachId(LongConsumer consumer) {
+        forEach((id, vector) -> consumer.accept(id));
+    }
+
+    /**
+     * 释放索引持有的存储（索引被替换后调用，默认无需处理）
+     */
+    default void close() {
+    }
+
+    /**
+     * 向量遍历回调
+     */
+    @FunctionalInterface
+    interface VectorConsumer {
+        void accept(long id, float[] vector);
+    }
+}
@@ -0,0 +1,503 @@
+package com.xu.news.util.vector;
+
+import java.io.BufferedInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * 向量索引二进制文件（版本 1，小端序）
+ *
+ * 文件布局：
+ * <pre>
+ * [0, 64)          文件头：魔数、版本、维度、向量数、nextVectorId、索引类型、区段表位置、CRC32C
+ * [64, ...)        向量块：count * dimension 个 float，按行连续存放
+ * [...]            ID 表：count 个 long，第 i 项为第 i 行的向量ID
+ * [...]            附加区段：IVF 质心、PQ 码本与编码、HNSW 图结构等，按索引类型写入
+ * [sectionTable]   区段表：每项 (类型, 偏移, 长度)
+ * </pre>
+ * 训练后的 PQ 索引不再持有原始向量，向量块与 ID 表为空，向量以编码区段保存。
+ * 文件头之后的全部内容参与 CRC32C 校验。
+ *
+ * 写入先生成临时文件，刷盘后原子替换，避免进程中途退出留下半个文件。
+ * 读取通过 {@link FileChannel#map} 映射向量块与 ID 表，无需解析文本；flat 索引可直接以映射的向量块作为数据块
+ * （{@link #mapVectorChunks}），启动时不复制向量。打开时只检查文件头与各区段的位置，
+ * 整个文件的 CRC32C 由 {@link #verify} 计算。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public final class VectorIndexFile implements AutoCloseable {
+
+    public static final int MAGIC = 0x58554E56;
+    public static final int VERSION = 1;
+
+    /** IVF 质心（float 数组） */
+    public static final int SECTION_IVF_CENTROIDS = 1;
+    /** PQ 码本（m 个码本依次存放的 float 数组） */
+    public static final int SECTION_PQ_CODEBOOKS = 2;
+    /** HNSW 图结构（{@link HnswVectorIndex#writeTo} 的输出） */
+    public static final int SECTION_HNSW_GRAPH = 3;
+    /** PQ 编码（m、行数，之后每行为向量ID + m 字节编码） */
+    public static final int SECTION_PQ_CODES = 4;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int TYPE_FIELD_SIZE = 16;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int dimension;
+    private final int count;
+    private final long nextVectorId;
+    private final String indexType;
+    private final Map<Integer, long[]> sections;
+    private final long expectedCrc;
+
+    private VectorIndexFile(FileChannel channel, int dimension, int count, long nextVectorId, String indexType,
+                            Map<Integer, long[]> sections, long expectedCrc) {
+        this.channel = channel;
+        this.dimension = dimension;
+        this.count = count;
+        this.nextVectorId = nextVectorId;
+        this.indexType = indexType;
+        this.sections = sections;
+        this.expectedCrc = expectedCrc;
+    }
+
+    /**
+     * 判断文件是否为二进制索引格式（旧版 JSON 文件返回 false）
+     */
+    public static boolean isBinaryFormat(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && ch.read(magic) >= 0) {
+                // 读满 4 字节或到达文件末尾
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * 写出索引
+     *
+     * @param path         目标文件
+     * @param dimension    向量维度
+     * @param nextVectorId 下一个可分配的向量ID
+     * @param index        待保存的索引
+     */
+    public static void write(Path path, int dimension, long nextVectorId, VectorIndex index) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.position(HEADER_SIZE);
+            ChannelWriter writer = new ChannelWriter(ch);
+
+            // 向量块与 ID 表一次遍历写出：向量直接写入文件，ID 暂存后追加在向量块之后
+            // 训练后的 PQ 只有编码，写入编码区段，避免保存码本重建的近似向量
+            boolean pqCodes = index instanceof PqVectorIndex pq && pq.isTrained();
+            long[][] ids = {new long[pqCodes ? 0 : index.size()]};
+            int[] count = {0};
+            if (!pqCodes) {
+                index.forEach((id, vector) -> {
+                    if (count[0] == ids[0].length) {
+                        ids[0] = Arrays.copyOf(ids[0], Math.max(16, count[0] * 2));
+                    }
+                    ids[0][count[0]++] = id;
+                    writer.putFloats(vector, dimension);
+                });
+            }
+            for (int row = 0; row < count[0]; row++) {
+                writer.putLong(ids[0][row]);
+            }
+
+            Map<Integer, long[]> sections = new HashMap<>();
+            if (index instanceof IvfVectorIndex ivf && ivf.isTrained()) {
+                long start = writer.position();
+                writer.putFloats(ivf.centroids(), ivf.centroids().length);
+                sections.put(SECTION_IVF_CENTROIDS, new long[]{start, writer.position() - start});
+            }
+            if (index instanceof PqVectorIndex pq && pq.isTrained()) {
+                long start = writer.position();
+                for (float[] codebook : pq.codebooks()) {
+                    writer.putFloats(codebook, codebook.length);
+                }
+                sections.put(SECTION_PQ_CODEBOOKS, new long[]{start, writer.position() - start});
+
+                start = writer.position();
+                int m = pq.subQuantizers();
+                writer.putInt(m);
+                writer.putInt(pq.size());
+                pq.forEachCode((id, codes, offset) -> {
+                    writer.putLongUnchecked(id);
+                    writer.putBytes(codes, offset, m);
+                });
+                sections.put(SECTION_PQ_CODES, new long[]{start, writer.position() - start});
+            }
+            if (index instanceof HnswVectorIndex hnsw) {
+                long start = writer.position();
+                DataOutputStream out = new DataOutputStream(writer);
+                hnsw.writeTo(out);
+                out.flush();
+                sections.put(SECTION_HNSW_GRAPH, new long[]{start, writer.position() - start});
+            }
+
+            long sectionTable = writer.position();
+            writer.putInt(sections.size());
+            for (Map.Entry<Integer, long[]> entry : sections.entrySet()) {
+                writer.putInt(entry.getKey());
+                writer.putLong(entry.getValue()[0]);
+                writer.putLong(entry.getValue()[1]);
+            }
+            writer.flushBuffer();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(dimension);
+            header.putInt(count[0]);
+            header.putLong(nextVectorId);
+            byte[] type = index.type().getBytes(StandardCharsets.US_ASCII);
+            header.put(type, 0, Math.min(type.length, TYPE_FIELD_SIZE));
+            header.position(40);
+            header.putLong(sectionTable);
+            header.putLong(writer.crc.getValue());
+            header.flip();
+            ch.position(0);
+            while (header.hasRemaining()) {
+                ch.write(header);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 打开索引文件：校验文件头与区段位置后返回（内容的 CRC32C 由 {@link #verify} 校验）
+     */
+    public static VectorIndexFile open(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = ch.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("向量索引文件不完整: " + path);
+            }
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("向量索引文件格式错误: " + path);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("不支持的向量索引文件版本: " + version);
+            }
+            int dimension = header.getInt(8);
+            int count = header.getInt(12);
+            long nextVectorId = header.getLong(16);
+            byte[] type = new byte[TYPE_FIELD_SIZE];
+            header.get(24, type);
+            int typeLength = 0;
+            while (typeLength < TYPE_FIELD_SIZE && type[typeLength] != 0) {
+                typeLength++;
+            }
+            long sectionTable = header.getLong(40);
+            long expectedCrc = header.getLong(48);
+            long rowsEnd = HEADER_SIZE + (long) count * ((long) dimension * Float.BYTES + Long.BYTES);
+            if (dimension <= 0 || count < 0 || sectionTable < rowsEnd || sectionTable + 4 > fileSize) {
+                throw new IOException("向量索引文件不完整: " + path);
+            }
+
+            ByteBuffer table = ch.map(FileChannel.MapMode.READ_ONLY, sectionTable, fileSize - sectionTable)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            int sectionCount = table.getInt();
+            if (sectionCount < 0 || (long) sectionCount * (Integer.BYTES + 2 * Long.BYTES) > table.remaining()) {
+                throw new IOException("向量索引文件不完整: " + path);
+            }
+            Map<Integer, long[]> sections = new HashMap<>();
+            for (int i = 0; i < sectionCount; i++) {
+                int sectionType = table.getInt();
+                long[] section = {table.getLong(), table.getLong()};
+                if (section[0] < rowsEnd || section[1] < 0 || section[0] + section[1] > sectionTable) {
+                    throw new IOException("向量索引文件不完整: " + path);
+                }
+                sections.put(sectionType, section);
+            }
+            return new VectorIndexFile(ch, dimension, count, nextVectorId,
+                    new String(type, 0, typeLength, StandardCharsets.US_ASCII), sections, expectedCrc);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long nextVectorId() {
+        return nextVectorId;
+    }
+
+    public String indexType() {
+        return indexType;
+    }
+
+    public boolean hasSection(int sectionType) {
+        return sections.containsKey(sectionType);
+    }
+
+    /**
+     * 计算文件头之后全部内容的 CRC32C 并与文件头中的值比较（顺序读取整个文件，耗时与文件大小成正比）
+     */
+    public boolean verify() throws IOException {
+        return checksum(channel, HEADER_SIZE, channel.size() - HEADER_SIZE) == expectedCrc;
+    }
+
+    /**
+     * 映射向量块并按 rowsPerChunk 行切分为只读数据块（最后一块可能不满），不复制数据
+     * 
+     * 映射在文件关闭、甚至被新快照替换后仍然有效，直到数据块被 GC 回收。
+     */
+    public ByteBuffer[] mapVectorChunks(int rowsPerChunk) throws IOException {
+        long rowBytes = (long) dimension * Float.BYTES;
+        long chunkBytes = rowsPerChunk * rowBytes;
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((count + (long) rowsPerChunk - 1) / rowsPerChunk)];
+        // 单个映射区不超过 2GB，按整块对齐后再切分
+        int chunksPerRegion = (int) Math.max(1, Integer.MAX_VALUE / chunkBytes);
+        for (int first = 0; first < chunks.length; first += chunksPerRegion) {
+            int last = Math.min(chunks.length, first + chunksPerRegion);
+            long start = HEADER_SIZE + first * chunkBytes;
+            long end = HEADER_SIZE + Math.min((long) count * rowBytes, last * chunkBytes);
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            for (int chunk = first; chunk < last; chunk++) {
+                int offset = (int) ((chunk - first) * chunkBytes);
+                int length = (int) Math.min(chunkBytes, region.capacity() - offset);
+                chunks[chunk] = region.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 读取 ID 表（第 i 项为第 i 行的向量ID）
+     */
+    public long[] ids() throws IOException {
+        long[] ids = new long[count];
+        if (count > 0) {
+            channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) count * dimension * Float.BYTES,
+                    (long) count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(ids);
+        }
+        return ids;
+    }
+
+    /**
+     * 按行遍历向量块与 ID 表（映射区按块切分，单块不超过 2GB）
+     */
+    public void forEach(VectorIndex.VectorConsumer consumer) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        long rowBytes = (long) dimension * Float.BYTES;
+        LongBuffer ids = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + count * rowBytes,
+                (long) count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        int rowsPerChunk = (int) Math.max(1, Integer.MAX_VALUE / rowBytes);
+        for (int first = 0; first < count; first += rowsPerChunk) {
+            int rows = Math.min(rowsPerChunk, count - first);
+            FloatBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * rowBytes,
+                    rows * rowBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            for (int row = 0; row < rows; row++) {
+                float[] vector = new float[dimension];
+                chunk.get(vector);
+                consumer.accept(ids.get(first + row), vector);
+            }
+        }
+    }
+
+    /**
+     * 读取 float 数组区段，不存在时返回 null
+     */
+    public float[] floatSection(int sectionType) throws IOException {
+        long[] section = sections.get(sectionType);
+        if (section == null) {
+            return null;
+        }
+        FloatBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, section[0], section[1])
+                .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    /**
+     * 遍历 PQ 编码区段
+     *
+     * @param m 当前配置的子空间数量
+     * @return 区段不存在或子空间数量与当前配置不一致时返回 false（不回调）
+     */
+    public boolean forEachPqCode(int m, PqVectorIndex.CodeConsumer consumer) throws IOException {
+        long[] section = sections.get(SECTION_PQ_CODES);
+        if (section == null || section[1] < 2 * Integer.BYTES) {
+            return false;
+        }
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, section[0], section[1])
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int storedM = buffer.getInt();
+        int rows = buffer.getInt();
+        if (storedM != m) {
+            return false;
+        }
+        if (rows < 0 || (long) rows * (Long.BYTES + m) != buffer.remaining()) {
+            throw new IOException("PQ编码区段不完整");
+        }
+        byte[] code = new byte[m];
+        for (int row = 0; row < rows; row++) {
+            long id = buffer.getLong();
+            buffer.get(code);
+            consumer.accept(id, code, 0);
+        }
+        return true;
+    }
+
+    /**
+     * 以流方式读取区段（用于较大的图结构），不存在时返回 null
+     */
+    public InputStream sectionStream(int sectionType) throws IOException {
+        long[] section = sections.get(sectionType);
+        if (section == null) {
+            return null;
+        }
+        return new BufferedInputStream(Channels.newInputStream(channel.position(section[0])));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static long checksum(FileChannel ch, long position, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        long done = 0;
+        while (done < length) {
+            long chunk = Math.min(Integer.MAX_VALUE, length - done);
+            crc.update(ch.map(FileChannel.MapMode.READ_ONLY, position + done, chunk));
+            done += chunk;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 带缓冲的顺序写入器，同时累计 CRC32C
+     */
+    private static final class ChannelWriter extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private long position;
+
+        private ChannelWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.position = channel.position();
+        }
+
+        private long position() {
+            return position + buffer.position();
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        /**
+         * 写出 long（遍历回调中调用，IO 异常包装为 UncheckedIOException）
+         */
+        private void putLongUnchecked(long value) {
+            try {
+                putLong(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * 写出字节数组片段（遍历回调中调用，IO 异常包装为 UncheckedIOException）
+         */
+        private void putBytes(byte[] bytes, int offset, int length) {
+            try {
+                write(bytes, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * 写出 float 数组（forEach 回调中调用，IO 异常包装为 UncheckedIOException）
+         */
+        private void putFloats(float[] values, int length) {
+            try {
+                for (int i = 0; i < length; i++) {
+                    ensure(Float.BYTES);
+                    buffer.putFloat(values[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(1);
+                int n = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flushBuffer();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.xu.news.util.vector;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 向量计算工具
+ *
+ * 向量在入库时统一做 L2 归一化，余弦相似度即退化为点积。
+ *
+ * 打分内核在类加载时选择：JVM 启用了 jdk.incubator.vector 模块时使用 {@link SimdKernels}，
+ * 否则（或设置 -Dfaiss.simd.disabled=true 时）使用 {@link ScalarKernels}。所有检索路径都经由本类打分。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public final class VectorMath {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final ScalarKernels KERNELS = loadKernels();
+
+    private VectorMath() {
+    }
+
+    /**
+     * 当前使用的打分内核（scalar 或 simd-位宽）
+     */
+    public static String kernelName() {
+        return KERNELS.name();
+    }
+
+    /**
+     * 将向量转换为归一化的 float 数组（零向量保持为全零）
+     */
+    public static float[] normalize(List<Double> vector) {
+        float[] result = new float[vector.size()];
+        double norm = 0.0;
+        for (int i = 0; i < result.length; i++) {
+            double v = vector.get(i);
+            result[i] = (float) v;
+            norm += v * v;
+        }
+        scale(result, norm);
+        return result;
+    }
+
+    /**
+     * 原地归一化 float 数组
+     */
+    public static float[] normalizeInPlace(float[] vector) {
+        double norm = 0.0;
+        for (float v : vector) {
+            norm += (double) v * v;
+        }
+        scale(vector, norm);
+        return vector;
+    }
+
+    /**
+     * 点积：a 与 slab 中从 offset 开始的一行
+     */
+    public static float dot(float[] a, float[] slab, int offset) {
+        return KERNELS.dot(a, 0, slab, offset, a.length);
+    }
+
+    /**
+     * 点积：a 与数据块中从字节偏移 byteOffset 开始的一行（数据块为本机字节序）
+     */
+    public static float dot(float[] a, ByteBuffer chunk, int byteOffset) {
+        return KERNELS.dot(a, chunk, byteOffset, a.length);
+    }
+
+    /**
+     * 点积：两个数组中各自从指定偏移开始的一段
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return KERNELS.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * int8 点积：a 与 codes 中从 offset 开始的一行
+     */
+    public static int dotInt8(byte[] a, byte[] codes, int offset) {
+        return KERNELS.dotInt8(a, 0, codes, offset, a.length);
+    }
+
+    /**
+     * 汉明距离：a 与 sketches 中从 offset 开始的 words 个 long
+     */
+    public static int hamming(long[] a, long[] sketches, int offset, int words) {
+        return KERNELS.hamming(a, 0, sketches, offset, words);
+    }
+
+    private static ScalarKernels loadKernels() {
+        if (Boolean.getBoolean("faiss.simd.disabled")
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return new ScalarKernels();
+        }
+        try {
+            // 反射加载，避免模块未启用时解析 jdk.incubator.vector 的类
+            return (ScalarKernels) Class.forName(VectorMath.class.getPackageName() + ".SimdKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarKernels();
+        }
+    }
+
+    private static void scale(float[] vector, double squaredNorm) {
+        if (squaredNorm == 0) {
+            return;
+        }
+        float inv = (float) (1.0 / Math.sqrt(squaredNorm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inv;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.xu.news.util.vector;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 向量的展示载荷（检索结果展示所需的知识条目字段）
+ *
+ * 只保存标题、摘要、来源、发布时间与解析后的标签，不含正文与向量嵌入；
+ * 语义搜索直接用载荷构建结果，不再回表查询，只有生成回答或重排需要正文时才访问数据库。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@Data
+@Accessors(chain = true)
+public class VectorPayload {
+
+    /**
+     * 知识条目ID
+     */
+    private Long entryId;
+
+    private String title;
+
+    private String summary;
+
+    private String sourceName;
+
+    private String sourceUrl;
+
+    private LocalDateTime publishedAt;
+
+    /**
+     * 解析后的标签
+     */
+    private List<String> tags;
+}
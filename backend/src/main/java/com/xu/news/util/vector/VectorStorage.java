@@ -0,0 +1,136 @@
+package com.xu.news.util.vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 向量数据块分配器
+ *
+ * 向量按固定大小的数据块（{@link ByteBuffer}，本机字节序）存放，分配方式：
+ * - heap：堆内 ByteBuffer，与原先的 float[] 相同，受 GC 管理；
+ * - direct：堆外直接内存，向量数据不再参与 GC 标记与复制，上限由 -XX:MaxDirectMemorySize 控制；
+ * - mapped：映射到 directory 下的临时文件，数据由操作系统页缓存管理，内存紧张时可换出。
+ *   这些文件只是存储介质，持久化仍以索引快照与写前日志为准，启动时会清空。
+ *
+ * 释放的数据块由 GC 回收其 ByteBuffer 对象时归还内存（仍在检索中的旧快照不受影响）。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class VectorStorage {
+
+    public enum Mode {
+        HEAP, DIRECT, MAPPED
+    }
+
+    private static final VectorStorage HEAP = new VectorStorage(Mode.HEAP, null);
+
+    private final Mode mode;
+    private final Path directory;
+    private final AtomicLong offHeapBytes = new AtomicLong();
+    private final AtomicLong chunkSequence = new AtomicLong();
+    // mapped 模式：数据块 -> 文件（ByteBuffer 的 equals 按内容比较，必须按引用区分）
+    private final Map<ByteBuffer, Path> mappedFiles = new IdentityHashMap<>();
+
+    private VectorStorage(Mode mode, Path directory) {
+        this.mode = mode;
+        this.directory = directory;
+    }
+
+    public static VectorStorage heap() {
+        return HEAP;
+    }
+
+    public static VectorStorage direct() {
+        return new VectorStorage(Mode.DIRECT, null);
+    }
+
+    /**
+     * 文件映射存储：清空并使用 directory 存放数据块文件
+     */
+    public static VectorStorage mapped(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        return new VectorStorage(Mode.MAPPED, directory);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * 当前已分配的堆外字节数（direct/mapped 模式）
+     */
+    public long offHeapBytes() {
+        return offHeapBytes.get();
+    }
+
+    /**
+     * 分配数据块
+     */
+    public ByteBuffer allocate(int bytes) {
+        switch (mode) {
+            case DIRECT:
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+                offHeapBytes.addAndGet(bytes);
+                return buffer;
+            case MAPPED:
+                return allocateMapped(bytes);
+            default:
+                return ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * 释放数据块（最新快照不再引用时调用）
+     */
+    public void release(ByteBuffer chunk) {
+        if (mode == Mode.HEAP) {
+            return;
+        }
+        offHeapBytes.addAndGet(-chunk.capacity());
+        if (mode == Mode.MAPPED) {
+            Path file;
+            synchronized (mappedFiles) {
+                file = mappedFiles.remove(chunk);
+            }
+            if (file != null) {
+                try {
+                    // 已映射的内存在解除映射前仍然有效
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+        }
+    }
+
+    private ByteBuffer allocateMapped(int bytes) {
+        Path file = directory.resolve(String.format("chunk-%08d.bin", chunkSequence.incrementAndGet()));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.nativeOrder());
+            synchronized (mappedFiles) {
+                mappedFiles.put(buffer, file);
+            }
+            offHeapBytes.addAndGet(bytes);
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建向量数据文件失败: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.xu.news.util.vector;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * 向量写前日志（WAL）
+ *
+ * 日志由多个段文件组成：第 0 段为 path 本身，之后为 path.1、path.2 ……，新记录只追加到编号最大的当前段。
+ * 每个段的布局（小端序）：12 字节文件头（魔数、版本、维度），之后为追加写入的记录：
+ * <pre>
+ * [int 载荷长度][int 载荷 CRC32C][载荷: byte 操作类型, long 向量ID, float[dimension]（仅新增）]
+ * </pre>
+ *
+ * 检查点：{@link #rotate} 封存当前段并切换到新段（调用方在写锁内执行，耗时只有一次 fsync），
+ * 快照在锁外写出，完成后 {@link #discard} 删除已封存的段。快照写出期间的修改记录在新段中，不会丢失。
+ *
+ * 组提交：{@link #appendInsert}/{@link #appendDelete} 只写入内存缓冲并返回序号，
+ * {@link #sync} 等待该序号落盘。同一时刻只有一个线程执行 fsync，期间到达的记录由下一次 fsync 一并提交，
+ * 并发写入时多条记录共享一次 fsync。
+ *
+ * 回放遇到不完整或校验失败的记录（崩溃时写了一半）即停止，并截断当前段的尾部。
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+public class VectorWal implements AutoCloseable {
+
+    public static final int MAGIC = 0x58555741;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte OP_INSERT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path basePath;
+    private final int dimension;
+    // 已封存、等待检查点完成后删除的段（按编号升序）
+    private final List<Path> sealedSegments = new ArrayList<>();
+    private FileChannel channel;
+    private long generation;
+    private final ByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+
+    // 已追加 / 已落盘的记录序号
+    private long appendedSeq = 0;
+    private long durableSeq = 0;
+    private boolean syncing = false;
+    // 当前段 / 已封存段中的记录数
+    private long pendingRecords = 0;
+    private long sealedRecords = 0;
+
+    private VectorWal(Path basePath, int dimension, List<Path> sealed, FileChannel channel, long generation) {
+        this.basePath = basePath;
+        this.dimension = dimension;
+        this.sealedSegments.addAll(sealed);
+        this.channel = channel;
+        this.generation = generation;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, insertRecordSize(dimension)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 打开日志（包括之前未完成检查点而留下的全部段），不存在时创建
+     */
+    public static VectorWal open(Path path, int dimension) throws IOException {
+        TreeMap<Long, Path> segments = listSegments(path);
+        long generation = segments.isEmpty() ? 0 : segments.lastKey();
+        FileChannel channel = openSegment(segmentPath(path, generation), dimension);
+        List<Path> sealed = new ArrayList<>(segments.headMap(generation).values());
+        return new VectorWal(path, dimension, sealed, channel, generation);
+    }
+
+    /**
+     * 回放全部段的记录（在追加新记录之前调用），返回回放的记录数
+     */
+    public synchronized long replay(RecordHandler handler) throws IOException {
+        sealedRecords = 0;
+        for (Path segment : sealedSegments) {
+            try (FileChannel sealed = openSegment(segment, dimension)) {
+                sealedRecords += replaySegment(sealed, handler)[0];
+            }
+        }
+        long[] result = replaySegment(channel, handler);
+        long validEnd = result[1];
+
+        // 丢弃崩溃时写了一半的尾部记录
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        pendingRecords = result[0];
+        return sealedRecords + pendingRecords;
+    }
+
+    /**
+     * 回放一个段，遇到不完整或校验失败的记录即停止，返回 {记录数, 有效数据末尾位置}
+     */
+    private long[] replaySegment(FileChannel segment, RecordHandler handler) throws IOException {
+        long validEnd = HEADER_SIZE;
+        long records = 0;
+        InputStream in = new BufferedInputStream(Channels.newInputStream(segment.position(HEADER_SIZE)), BUFFER_SIZE);
+        byte[] recordHeader = new byte[RECORD_HEADER_SIZE];
+        byte[] payload = new byte[insertRecordSize(dimension) - RECORD_HEADER_SIZE];
+        float[] vector = new float[dimension];
+        while (true) {
+            if (!readRecordPart(in, recordHeader, RECORD_HEADER_SIZE)) {
+                break;
+            }
+            ByteBuffer headerView = ByteBuffer.wrap(recordHeader).order(ByteOrder.LITTLE_ENDIAN);
+            int length = headerView.getInt();
+            int expectedCrc = headerView.getInt();
+            if (length < 1 + Long.BYTES || length > payload.length || !readRecordPart(in, payload, length)) {
+                break;
+            }
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != expectedCrc) {
+                break;
+            }
+
+            ByteBuffer view = ByteBuffer.wrap(payload, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+            byte op = view.get();
+            long id = view.getLong();
+            if (op == OP_INSERT && length == payload.length) {
+                view.asFloatBuffer().get(vector);
+                handler.onInsert(id, vector.clone());
+            } else if (op == OP_DELETE) {
+                handler.onDelete(id);
+            } else {
+                break;
+            }
+            validEnd += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+        return new long[]{records, validEnd};
+    }
+
+    /**
+     * 追加新增记录，返回记录序号
+     */
+    public synchronized long appendInsert(long id, float[] vector) throws IOException {
+        ensureCapacity(insertRecordSize(dimension));
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_SIZE);
+        buffer.put(OP_INSERT).putLong(id);
+        for (int i = 0; i < dimension; i++) {
+            buffer.putFloat(vector[i]);
+        }
+        return finishRecord(start);
+    }
+
+    /**
+     * 追加删除记录，返回记录序号
+     */
+    public synchronized long appendDelete(long id) throws IOException {
+        ensureCapacity(RECORD_HEADER_SIZE + 1 + Long.BYTES);
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_SIZE);
+        buffer.put(OP_DELETE).putLong(id);
+        return finishRecord(start);
+    }
+
+    /**
+     * 等待序号 seq 及之前的记录落盘（组提交）
+     */
+    public void sync(long seq) throws IOException {
+        long batchSeq;
+        FileChannel current;
+        synchronized (this) {
+            while (durableSeq < seq && syncing) {
+                awaitSync();
+            }
+            if (durableSeq >= seq) {
+                return;
+            }
+            syncing = true;
+            batchSeq = appendedSeq;
+            // rotate 等待 syncing 结束后才切换段，fsync 期间该段不会被关闭
+            current = channel;
+            try {
+                flushBuffer();
+            } catch (IOException | RuntimeException e) {
+                syncing = false;
+                notifyAll();
+                throw e;
+            }
+        }
+
+        // fsync 期间不持有锁，其他线程可以继续追加记录
+        boolean success = false;
+        try {
+            current.force(false);
+            success = true;
+        } finally {
+            synchronized (this) {
+                syncing = false;
+                if (success) {
+                    durableSeq = Math.max(durableSeq, batchSeq);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 封存当前段并切换到新段，返回全部已封存的段（快照写出后交给 {@link #discard} 删除）
+     *
+     * 当前段的缓冲记录先落盘再封存，之后追加的记录写入新段。
+     */
+    public synchronized List<Path> rotate() throws IOException {
+        while (syncing) {
+            awaitSync();
+        }
+        FileChannel next = openSegment(segmentPath(basePath, generation + 1), dimension);
+        try {
+            flushBuffer();
+            channel.force(false);
+            channel.close();
+        } catch (IOException | RuntimeException e) {
+            next.close();
+            throw e;
+        }
+        sealedSegments.add(segmentPath(basePath, generation));
+        generation++;
+        channel = next;
+        durableSeq = appendedSeq;
+        sealedRecords += pendingRecords;
+        pendingRecords = 0;
+        return List.copyOf(sealedSegments);
+    }
+
+    /**
+     * 删除已被快照覆盖的封存段
+     */
+    public synchronized void discard(List<Path> segments) throws IOException {
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+            sealedSegments.remove(segment);
+        }
+        if (sealedSegments.isEmpty()) {
+            sealedRecords = 0;
+        }
+    }
+
+    /**
+     * 检查点完成后清空日志（快照已包含全部记录）
+     */
+    public synchronized void reset() throws IOException {
+        discard(rotate());
+    }
+
+    /**
+     * 自上次检查点以来的记录数（含尚未删除的封存段）
+     */
+    public synchronized long pendingRecords() {
+        return sealedRecords + pendingRecords;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        while (syncing) {
+            awaitSync();
+        }
+        try {
+            flushBuffer();
+            channel.force(false);
+            durableSeq = appendedSeq;
+        } finally {
+            channel.close();
+        }
+    }
+
+    private long finishRecord(int start) {
+        int length = buffer.position() - start - RECORD_HEADER_SIZE;
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + RECORD_HEADER_SIZE).limit(buffer.position());
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(start, length);
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+        pendingRecords++;
+        return ++appendedSeq;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * 把缓冲区写入文件（进入页缓存，尚未 fsync）
+     */
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void awaitSync() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待向量日志落盘时被中断");
+        }
+    }
+
+    /**
+     * 打开（不存在时创建）一个段文件并校验文件头，位置移到文件末尾
+     */
+    private static FileChannel openSegment(Path path, int dimension) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_SIZE) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(dimension).flip();
+                channel.truncate(0);
+                writeFully(channel, header, 0);
+                channel.force(true);
+            } else {
+                readFully(channel, header, 0);
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException("向量日志文件格式错误: " + path);
+                }
+                if (header.getInt(4) != VERSION) {
+                    throw new IOException("不支持的向量日志版本: " + header.getInt(4));
+                }
+                if (header.getInt(8) != dimension) {
+                    throw new IOException("向量日志维度不匹配，期望: " + dimension + ", 实际: " + header.getInt(8));
+                }
+            }
+            channel.position(channel.size());
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 列出已存在的段（编号 -> 路径）
+     */
+    private static TreeMap<Long, Path> listSegments(Path basePath) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        Path directory = basePath.toAbsolutePath().getParent();
+        String prefix = basePath.getFileName().toString() + ".";
+        if (Files.exists(basePath)) {
+            segments.put(0L, basePath);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(suffix), basePath.resolveSibling(file.getFileName()));
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static Path segmentPath(Path basePath, long generation) {
+        return generation == 0 ? basePath : basePath.resolveSibling(basePath.getFileName() + "." + generation);
+    }
+
+    private static int insertRecordSize(int dimension) {
+        return RECORD_HEADER_SIZE + 1 + Long.BYTES + dimension * Float.BYTES;
+    }
+
+    /**
+     * 读取记录的一部分，到达文件末尾（含不完整记录）时返回 false
+     */
+    private static boolean readRecordPart(InputStream in, byte[] target, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(target, read, length - read);
+            if (n < 0) {
+                return false;
+            }
+            read += n;
+        }
+        return true;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("向量日志文件不完整");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source, long position) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source, position + source.position());
+        }
+    }
+
+    /**
+     * 回放回调
+     */
+    public interface RecordHandler {
+        void onInsert(long id, float[] vector);
+
+        void onDelete(long id);
+    }
+}
@@ -11,9 +11,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -80,5 +84,34 @@ class QueryControllerTest {
         assertNotNull(result.getRetrievedEntries());
         verify(queryService, times(1)).semanticSearch(any(QueryRequest.class), anyLong());
     }
-}
 
+    @Test
+    @DisplayName("流式问答 - 排队已满时拒绝新请求，不执行查询")
+    void testAskStreamRejectsWhenQueueFull() throws Exception {
+        // Given - 1 个执行线程、1 个排队名额，第一个请求阻塞在查询中
+        ReflectionTestUtils.setField(queryController, "streamThreads", 1);
+        ReflectionTestUtils.setField(queryController, "streamQueueCapacity", 1);
+        queryController.init();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        when(queryService.streamQuery(any(QueryRequest.class), anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            finished.countDown();
+            return queryResponse;
+        });
+
+        // When
+        queryController.askStream(queryRequest, null, new MockHttpServletResponse());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queryController.askStream(queryRequest, null, new MockHttpServletResponse());
+        assertDoesNotThrow(() -> queryController.askStream(queryRequest, null, new MockHttpServletResponse()));
+        release.countDown();
+
+        // Then - 只有执行中与排队中的两个请求被执行
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        queryController.shutdown();
+        verify(queryService, times(2)).streamQuery(any(QueryRequest.class), anyLong(), anyLong(), any());
+    }
+}
@@ -6,6 +6,7 @@ import com.xu.news.entity.KnowledgeEntry;
 import com.xu.news.mapper.KnowledgeEntryMapper;
 import com.xu.news.service.impl.KnowledgeEntryServiceImpl;
 import com.xu.news.util.OllamaClient;
+import com.xu.news.util.SemanticAnswerCache;
 import com.xu.news.util.VectorStore;
 import com.xu.news.utils.TestDataBuilder;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,6 +45,9 @@ class KnowledgeEntryServiceTest {
     @Mock
     private VectorStore vectorStore;
 
+    @Mock
+    private SemanticAnswerCache answerCache;
+
     @InjectMocks
     private KnowledgeEntryServiceImpl knowledgeEntryService;
 
@@ -92,6 +96,32 @@ class KnowledgeEntryServiceTest {
         verify(knowledgeEntryMapper, never()).insert(any(KnowledgeEntry.class));
     }
 
+    @Test
+    @DisplayName("批量创建知识条目 - 一次批量生成向量并整批写入向量库")
+    void testCreateWithVectors_Success() throws IOException {
+        // Given
+        KnowledgeEntry second = TestDataBuilder.createKnowledgeEntry();
+        second.setTitle("第二条");
+        testEntry.setSummary("摘要");
+        testEntry.setTags("[\"AI\"]");
+        second.setSummary("摘要");
+        second.setTags("[\"AI\"]");
+        List<List<Double>> vectors = List.of(List.of(0.1, 0.2), List.of(0.3, 0.4));
+        when(ollamaClient.generateEmbeddings(anyList())).thenReturn(vectors);
+        when(vectorStore.addVectors(vectors)).thenReturn(List.of(10L, 11L));
+
+        // When
+        List<KnowledgeEntry> result = knowledgeEntryService.createWithVectors(Arrays.asList(testEntry, second));
+
+        // Then
+        assertEquals(10L, result.get(0).getVectorId());
+        assertEquals(11L, result.get(1).getVectorId());
+        verify(ollamaClient).generateEmbeddings(List.of(
+                testEntry.getTitle() + "\n" + testEntry.getContent(), "第二条\n" + second.getContent()));
+        verify(ollamaClient, never()).generateEmbedding(anyString());
+        verify(knowledgeEntryMapper, times(2)).insert(any(KnowledgeEntry.class));
+    }
+
     @Test
     @DisplayName("根据向量ID列表查询知识条目 - 成功")
     void testFindByVectorIds_Success() {
@@ -114,6 +144,26 @@ class KnowledgeEntryServiceTest {
         verify(knowledgeEntryMapper, times(1)).findByVectorIds(vectorIds);
     }
 
+    @Test
+    @DisplayName("根据向量ID列表查询知识条目 - 按传入的向量ID顺序返回")
+    void testFindByVectorIds_KeepsRequestedOrder() {
+        // Given
+        List<Long> vectorIds = Arrays.asList(3L, 1L, 2L);
+        List<KnowledgeEntry> mockEntries = new ArrayList<>();
+        for (long vectorId = 1; vectorId <= 3; vectorId++) {
+            KnowledgeEntry entry = TestDataBuilder.createKnowledgeEntry();
+            entry.setVectorId(vectorId);
+            mockEntries.add(entry);
+        }
+        when(knowledgeEntryMapper.findByVectorIds(vectorIds)).thenReturn(mockEntries);
+
+        // When
+        List<KnowledgeEntry> result = knowledgeEntryService.findByVectorIds(vectorIds);
+
+        // Then
+        assertEquals(vectorIds, result.stream().map(KnowledgeEntry::getVectorId).toList());
+    }
+
     @Test
     @DisplayName("根据向量ID列表查询知识条目 - 空列表")
     void testFindByVectorIds_EmptyList() {
@@ -147,6 +197,7 @@ class KnowledgeEntryServiceTest {
         assertTrue(result);
         verify(vectorStore, times(1)).deleteVector(vectorId);  // 验证用 vectorId
         verify(knowledgeEntryMapper, times(1)).deleteById(entryId);
+        verify(answerCache).invalidateEntries(List.of(entryId));
     }
 
     @Test
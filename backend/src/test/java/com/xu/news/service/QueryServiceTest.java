@@ -2,14 +2,19 @@ package com.xu.news.service;
 
 import com.xu.news.dto.QueryRequest;
 import com.xu.news.dto.QueryResponse;
+import com.xu.news.dto.SearchRequest;
 import com.xu.news.entity.KnowledgeEntry;
 import com.xu.news.entity.UserQueryHistory;
 import com.xu.news.mapper.UserQueryHistoryMapper;
 import com.xu.news.service.impl.QueryServiceImpl;
 import com.xu.news.util.OllamaClient;
 import com.xu.news.util.RerankerClient;
+import com.xu.news.util.SemanticAnswerCache;
 import com.xu.news.util.VectorStore;
+import com.xu.news.util.vector.SearchParams;
+import com.xu.news.util.vector.VectorPayload;
 import com.xu.news.utils.TestDataBuilder;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -23,6 +28,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -55,6 +62,12 @@ class QueryServiceTest {
     @Mock
     private UserQueryHistoryMapper userQueryHistoryMapper;
 
+    @Mock
+    private VectorIndexBootstrapService vectorIndexBootstrapService;
+
+    @Mock
+    private SemanticAnswerCache answerCache;
+
     @InjectMocks
     private QueryServiceImpl queryService;
 
@@ -74,6 +87,7 @@ class QueryServiceTest {
         // 设置 @Value 注解的字段值
         ReflectionTestUtils.setField(queryService, "rerankerEnabled", false);
         ReflectionTestUtils.setField(queryService, "candidateMultiplier", 4);
+        lenient().when(vectorIndexBootstrapService.isReady()).thenReturn(true);
     }
 
     @Test
@@ -90,8 +104,8 @@ class QueryServiceTest {
         
         String mockAnswer = "人工智能（AI）是计算机科学的一个分支。";
         
-        when(ollamaClient.generateEmbedding(anyString())).thenReturn(mockVector);
-        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble())).thenReturn(mockSearchResults);
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(mockVector);
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(mockSearchResults);
         when(knowledgeEntryService.findByVectorIds(anyList())).thenReturn(mockEntries);
         when(ollamaClient.generateAnswer(anyString(), anyList())).thenReturn(mockAnswer);
         when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
@@ -105,8 +119,8 @@ class QueryServiceTest {
         assertEquals(mockAnswer, response.getAnswer());
         assertNotNull(response.getRetrievedEntries());
         
-        verify(ollamaClient, times(1)).generateEmbedding(anyString());
-        verify(vectorStore, times(1)).searchWithThreshold(anyList(), anyInt(), anyDouble());
+        verify(ollamaClient, times(1)).generateQueryEmbedding(anyString());
+        verify(vectorStore, times(1)).searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class));
         verify(knowledgeEntryService, times(1)).findByVectorIds(anyList());
         verify(ollamaClient, times(1)).generateAnswer(anyString(), anyList());
     }
@@ -124,8 +138,8 @@ class QueryServiceTest {
         
         List<KnowledgeEntry> mockEntries = Arrays.asList(testEntry);
         
-        when(ollamaClient.generateEmbedding(anyString())).thenReturn(mockVector);
-        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble())).thenReturn(mockSearchResults);
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(mockVector);
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(mockSearchResults);
         when(knowledgeEntryService.findByVectorIds(anyList())).thenReturn(mockEntries);
         when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
 
@@ -136,8 +150,8 @@ class QueryServiceTest {
         assertNotNull(response);
         assertNotNull(response.getRetrievedEntries());
         
-        verify(ollamaClient, times(1)).generateEmbedding(anyString());
-        verify(vectorStore, times(1)).searchWithThreshold(anyList(), anyInt(), anyDouble());
+        verify(ollamaClient, times(1)).generateQueryEmbedding(anyString());
+        verify(vectorStore, times(1)).searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class));
         verify(knowledgeEntryService, times(1)).findByVectorIds(anyList());
         verify(ollamaClient, never()).generateAnswer(anyString(), anyList());
     }
@@ -150,8 +164,8 @@ class QueryServiceTest {
         
         List<VectorStore.SearchResult> mockSearchResults = new ArrayList<>();
         
-        when(ollamaClient.generateEmbedding(anyString())).thenReturn(mockVector);
-        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble())).thenReturn(mockSearchResults);
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(mockVector);
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(mockSearchResults);
         when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
 
         // When
@@ -168,7 +182,7 @@ class QueryServiceTest {
     @DisplayName("RAG查询 - 向量生成失败")
     void testQuery_EmbeddingFailed() throws IOException {
         // Given
-        when(ollamaClient.generateEmbedding(anyString()))
+        when(ollamaClient.generateQueryEmbedding(anyString()))
                 .thenThrow(new IOException("向量服务不可用"));
 
         // When & Then
@@ -176,7 +190,7 @@ class QueryServiceTest {
             queryService.query(queryRequest, testUserId);
         });
         
-        verify(vectorStore, never()).searchWithThreshold(anyList(), anyInt(), anyDouble());
+        verify(vectorStore, never()).searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class));
         verify(knowledgeEntryService, never()).findByVectorIds(anyList());
     }
 
@@ -191,8 +205,8 @@ class QueryServiceTest {
         
         List<KnowledgeEntry> mockEntries = Arrays.asList(testEntry);
         
-        when(ollamaClient.generateEmbedding(anyString())).thenReturn(mockVector);
-        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble())).thenReturn(mockSearchResults);
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(mockVector);
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(mockSearchResults);
         when(knowledgeEntryService.findByVectorIds(anyList())).thenReturn(mockEntries);
         when(ollamaClient.generateAnswer(anyString(), anyList()))
                 .thenThrow(new IOException("LLM服务不可用"));
@@ -215,8 +229,8 @@ class QueryServiceTest {
         
         List<KnowledgeEntry> mockEntries = Arrays.asList(testEntry);
         
-        when(ollamaClient.generateEmbedding(anyString())).thenReturn(mockVector);
-        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble())).thenReturn(mockSearchResults);
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(mockVector);
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(mockSearchResults);
         when(knowledgeEntryService.findByVectorIds(anyList())).thenReturn(mockEntries);
         when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
 
@@ -227,12 +241,219 @@ class QueryServiceTest {
         assertNotNull(response);
         assertNotNull(response.getRetrievedEntries());
         
-        verify(ollamaClient, times(1)).generateEmbedding(anyString());
-        verify(vectorStore, times(1)).searchWithThreshold(anyList(), anyInt(), anyDouble());
+        verify(ollamaClient, times(1)).generateQueryEmbedding(anyString());
+        verify(vectorStore, times(1)).searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class));
         verify(knowledgeEntryService, times(1)).findByVectorIds(anyList());
         verify(ollamaClient, never()).generateAnswer(anyString(), anyList());
     }
 
+    @Test
+    @DisplayName("语义搜索 - 载荷齐全时直接由向量载荷构建结果，不回表")
+    void testSemanticSearch_HydratedFromPayloads() throws IOException {
+        // Given
+        queryRequest.setTopK(1);
+        List<VectorStore.SearchResult> mockSearchResults = new ArrayList<>();
+        mockSearchResults.add(new VectorStore.SearchResult(2L, 0.95));
+        mockSearchResults.add(new VectorStore.SearchResult(1L, 0.90));
+        VectorPayload payload = new VectorPayload()
+                .setEntryId(20L)
+                .setTitle("大模型推理优化")
+                .setSummary("推理延迟降低")
+                .setTags(List.of("AI"));
+
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(createTestVector(768));
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(mockSearchResults);
+        when(vectorStore.getPayloads(Arrays.asList(2L, 1L)))
+                .thenReturn(Map.of(2L, payload, 1L, new VectorPayload().setEntryId(10L)));
+        when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
+
+        // When
+        QueryResponse response = queryService.semanticSearch(queryRequest, testUserId);
+
+        // Then
+        assertEquals(1, response.getRetrievedEntries().size());
+        QueryResponse.RetrievedEntry entry = response.getRetrievedEntries().get(0);
+        assertEquals(20L, entry.getId());
+        assertEquals("大模型推理优化", entry.getTitle());
+        assertEquals(0.95, entry.getSimilarityScore());
+        assertEquals(List.of("AI"), entry.getTags());
+        verify(knowledgeEntryService, never()).findByVectorIds(anyList());
+    }
+
+    @Test
+    @DisplayName("混合检索 - 全文召回与向量召回按倒数排名融合后取 TopK")
+    void testQuery_HybridFusesKeywordAndVector() throws IOException {
+        // Given
+        queryService.init();
+        queryRequest.setQueryType("hybrid");
+        queryRequest.setNeedAnswer(false);
+        queryRequest.setTopK(2);
+        List<VectorStore.SearchResult> vectorResults = new ArrayList<>();
+        vectorResults.add(new VectorStore.SearchResult(1L, 0.95));
+        vectorResults.add(new VectorStore.SearchResult(2L, 0.90));
+
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(createTestVector(768));
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(vectorResults);
+        when(knowledgeEntryService.matchFullText(eq("什么是人工智能？"), isNull(), eq(2))).thenReturn(List.of(3L, 2L));
+        KnowledgeEntry second = TestDataBuilder.createKnowledgeEntry().setId(2L).setVectorId(2L);
+        KnowledgeEntry first = TestDataBuilder.createKnowledgeEntry().setId(1L).setVectorId(1L);
+        when(knowledgeEntryService.findByVectorIds(List.of(2L, 1L))).thenReturn(List.of(second, first));
+        when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
+
+        // When
+        QueryResponse response = queryService.query(queryRequest, testUserId);
+        queryService.shutdown();
+
+        // Then - 2 号两路都命中排第一，1 号与 3 号同分时向量召回的在前
+        verify(knowledgeEntryService).findByVectorIds(List.of(2L, 1L));
+        // 相似度仍为向量余弦相似度，融合得分单独返回，历史中保存的也是余弦相似度
+        assertEquals("hybrid", response.getRetrievalMode());
+        assertEquals(0.90, response.getRetrievedEntries().get(0).getSimilarityScore(), 1e-9);
+        assertEquals(1.0 / 62 + 1.0 / 62, response.getRetrievedEntries().get(0).getFusedScore(), 1e-9);
+        assertEquals(0.95, response.getRetrievedEntries().get(1).getSimilarityScore(), 1e-9);
+        verify(userQueryHistoryMapper).insert(argThat((UserQueryHistory h) -> "[0.9,0.95]".equals(h.getSimilarityScores())));
+    }
+
+    @Test
+    @DisplayName("混合检索 - 只由全文召回命中的条目补算余弦相似度")
+    void testQuery_HybridScoresKeywordOnlyHits() throws IOException {
+        // Given
+        queryService.init();
+        queryRequest.setQueryType("hybrid");
+        queryRequest.setNeedAnswer(false);
+        queryRequest.setTopK(3);
+        List<VectorStore.SearchResult> vectorResults = new ArrayList<>();
+        vectorResults.add(new VectorStore.SearchResult(1L, 0.95));
+        vectorResults.add(new VectorStore.SearchResult(2L, 0.90));
+
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(createTestVector(768));
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(vectorResults);
+        when(knowledgeEntryService.matchFullText(eq("什么是人工智能？"), isNull(), eq(3))).thenReturn(List.of(3L, 2L));
+        when(vectorStore.scoreVectors(anyList(), eq(List.of(3L)))).thenReturn(Map.of(3L, 0.42));
+        KnowledgeEntry second = TestDataBuilder.createKnowledgeEntry().setId(2L).setVectorId(2L);
+        KnowledgeEntry first = TestDataBuilder.createKnowledgeEntry().setId(1L).setVectorId(1L);
+        KnowledgeEntry third = TestDataBuilder.createKnowledgeEntry().setId(3L).setVectorId(3L);
+        when(knowledgeEntryService.findByVectorIds(List.of(2L, 1L, 3L))).thenReturn(List.of(second, first, third));
+        when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
+
+        // When
+        QueryResponse response = queryService.query(queryRequest, testUserId);
+        queryService.shutdown();
+
+        // Then - 3 号只由全文召回命中，相似度为补算的余弦相似度，不为空
+        assertEquals(3, response.getRetrievedEntries().size());
+        QueryResponse.RetrievedEntry keywordOnly = response.getRetrievedEntries().get(2);
+        assertEquals(3L, keywordOnly.getId());
+        assertEquals(0.42, keywordOnly.getSimilarityScore(), 1e-9);
+        assertEquals(1.0 / 61, keywordOnly.getFusedScore(), 1e-9);
+        verify(userQueryHistoryMapper).insert(argThat((UserQueryHistory h) -> "[0.9,0.95,0.42]".equals(h.getSimilarityScores())));
+    }
+
+    @Test
+    @DisplayName("流式问答 - 先回调检索结果，再逐段回调回答，最后回调完整响应")
+    void testStreamQuery() throws IOException {
+        // Given
+        List<VectorStore.SearchResult> mockSearchResults = new ArrayList<>();
+        mockSearchResults.add(new VectorStore.SearchResult(1L, 0.95));
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(createTestVector(768));
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class))).thenReturn(mockSearchResults);
+        when(knowledgeEntryService.findByVectorIds(anyList())).thenReturn(Arrays.asList(testEntry));
+        when(ollamaClient.streamAnswer(eq(queryRequest.getQuery()), anyList(), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(2);
+            onToken.accept("人工");
+            onToken.accept("智能");
+            return "人工智能";
+        });
+        when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
+        List<String> events = new ArrayList<>();
+        // 请求在线程池中排队了 1 秒才开始执行
+        long receivedAt = System.currentTimeMillis() - 1000;
+
+        // When
+        QueryResponse response = queryService.streamQuery(queryRequest, testUserId, receivedAt, new QueryService.StreamListener() {
+            @Override
+            public void onRetrieved(QueryResponse retrieved) {
+                events.add("retrieved:" + retrieved.getRetrievedEntries().size());
+            }
+
+            @Override
+            public void onToken(String token) {
+                events.add("token:" + token);
+            }
+
+            @Override
+            public void onComplete(QueryResponse completed) {
+                events.add("done:" + completed.getAnswer());
+            }
+        });
+
+        // Then
+        assertEquals(List.of("retrieved:1", "token:人工", "token:智能", "done:人工智能"), events);
+        assertTrue(response.getTimeToFirstTokenMs() >= 1000, "首字耗时应从收到请求起算");
+        assertTrue(response.getResponseTimeMs() >= response.getTimeToFirstTokenMs());
+        verify(ollamaClient, never()).generateAnswer(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("语义搜索 - 向量索引加载中降级为关键词检索")
+    void testSemanticSearch_DegradedWhileIndexLoading() throws IOException {
+        // Given
+        when(vectorIndexBootstrapService.isReady()).thenReturn(false);
+        Page<KnowledgeEntry> page = new Page<>(1, 5);
+        page.setRecords(Arrays.asList(testEntry));
+        when(knowledgeEntryService.search(any(SearchRequest.class))).thenReturn(page);
+        when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
+
+        // When
+        QueryResponse response = queryService.semanticSearch(queryRequest, testUserId);
+
+        // Then
+        assertTrue(response.getDegraded());
+        assertEquals(1, response.getRetrievedEntries().size());
+        assertEquals(testEntry.getId(), response.getRetrievedEntries().get(0).getId());
+        verify(knowledgeEntryService).search(argThat(r -> "什么是人工智能？".equals(r.getKeyword()) && r.getSize() == 5));
+        verifyNoInteractions(ollamaClient, vectorStore);
+    }
+
+    @Test
+    @DisplayName("RAG查询 - 相同问题且检索结果一致时复用缓存回答，不再调用大模型")
+    void testQuery_AnswerCacheHit() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(queryService, "answerCache", new SemanticAnswerCache());
+        List<Double> mockVector = createTestVector(768);
+        when(ollamaClient.generateQueryEmbedding(anyString())).thenReturn(mockVector);
+        when(vectorStore.searchWithThreshold(anyList(), anyInt(), anyDouble(), any(SearchParams.class)))
+                .thenReturn(List.of(new VectorStore.SearchResult(1L, 0.95)));
+        when(knowledgeEntryService.findByVectorIds(anyList())).thenReturn(List.of(testEntry));
+        when(ollamaClient.generateAnswer(anyString(), anyList())).thenReturn("人工智能是计算机科学的一个分支。");
+        when(userQueryHistoryMapper.insert(any(UserQueryHistory.class))).thenReturn(1);
+
+        // When
+        QueryResponse first = queryService.query(queryRequest, testUserId);
+        QueryResponse second = queryService.query(queryRequest, testUserId);
+
+        // Then
+        assertFalse(first.getCached());
+        assertTrue(second.getCached());
+        assertEquals(first.getAnswer(), second.getAnswer());
+        verify(ollamaClient, times(1)).generateAnswer(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("启动预热 - 用查询历史中的高频问题生成查询向量")
+    void testWarmQueryEmbeddingCache() throws IOException {
+        // Given
+        when(userQueryHistoryMapper.selectMaps(any())).thenReturn(List.of(
+                Map.of("query_text", "什么是人工智能？", "query_count", 12L),
+                Map.of("query_text", "今日新闻", "query_count", 3L)));
+
+        // When
+        queryService.warmQueryEmbeddingCache();
+
+        // Then
+        verify(ollamaClient, timeout(2000)).warmQueryEmbeddings(List.of("什么是人工智能？", "今日新闻"));
+    }
+
     /**
      * 创建测试用的向量
      */
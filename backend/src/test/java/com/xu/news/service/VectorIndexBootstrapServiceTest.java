@@ -0,0 +1,307 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.KnowledgeEntry;
+import com.xu.news.mapper.KnowledgeEntryMapper;
+import com.xu.news.service.impl.VectorIndexBootstrapServiceImpl;
+import com.xu.news.util.VectorStore;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * VectorIndexBootstrapService 单元测试
+ * 
+ * @author XU
+ * @since 2026-10-18
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("向量索引启动重建测试")
+class VectorIndexBootstrapServiceTest {
+
+    private static final int DIMENSION = 8;
+
+    @Mock
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Mock
+    private SqlSession sqlSession;
+
+    @Mock
+    private KnowledgeEntryMapper knowledgeEntryMapper;
+
+    @Mock
+    private KnowledgeEntryService knowledgeEntryService;
+
+    @InjectMocks
+    private VectorIndexBootstrapServiceImpl bootstrapService;
+
+    @TempDir
+    Path tempDir;
+
+    private VectorStore vectorStore;
+
+    @BeforeEach
+    void setUp() {
+        vectorStore = new VectorStore();
+        ReflectionTestUtils.setField(vectorStore, "indexPath", tempDir.resolve("faiss").toString());
+        ReflectionTestUtils.setField(vectorStore, "dimension", DIMENSION);
+        vectorStore.init();
+        ReflectionTestUtils.setField(bootstrapService, "vectorStore", vectorStore);
+        ReflectionTestUtils.setField(bootstrapService, "batchSize", 2);
+        ReflectionTestUtils.setField(bootstrapService, "parseThreads", 2);
+    }
+
+    @Test
+    @DisplayName("索引与数据库不一致 - 流式读取并行解析后加载，跳过格式错误的向量")
+    void testBootstrapLoadsEmbeddings() {
+        // Given
+        List<KnowledgeEntry> rows = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            rows.add(entry(id * 10, vector(id)));
+        }
+        rows.add(entry(60L, "not-json"));
+        rows.add(entry(70L, "[0.1,0.2]"));
+        when(knowledgeEntryMapper.countVectorEmbeddings()).thenReturn((long) rows.size());
+        when(sqlSessionFactory.openSession()).thenReturn(sqlSession);
+        when(sqlSession.getMapper(KnowledgeEntryMapper.class)).thenReturn(knowledgeEntryMapper);
+        when(knowledgeEntryMapper.streamVectorEmbeddings()).thenReturn(new ListCursor<>(rows));
+
+        // When
+        long loaded = bootstrapService.bootstrap();
+
+        // Then
+        assertEquals(5, loaded);
+        assertEquals(5, vectorStore.getVectorCount());
+        List<Double> query = new ArrayList<>();
+        for (String value : vector(3).replaceAll("[\\[\\]]", "").split(",")) {
+            query.add(Double.parseDouble(value));
+        }
+        assertEquals(30L, vectorStore.search(query, 1).get(0).getVectorId());
+        // 新分配的向量ID从已加载的最大ID之后开始
+        assertTrue(vectorStore.addVector(query) > 50L);
+        assertTrue(Files.exists(tempDir.resolve("faiss")));
+        // 属性与向量通过同一个游标读取
+        verify(knowledgeEntryService, times(rows.size())).registerAttributes(any());
+        verify(knowledgeEntryMapper, never()).streamVectorAttributes();
+        verify(sqlSession).close();
+        assertTrue(bootstrapService.isReady());
+        Map<String, Object> progress = bootstrapService.getProgress();
+        assertEquals("READY", progress.get("state"));
+        assertEquals(7L, progress.get("loaded"));
+        assertEquals(7L, progress.get("total"));
+        assertEquals(100.0, progress.get("percent"));
+        assertEquals(0L, progress.get("etaSeconds"));
+    }
+
+    @Test
+    @DisplayName("索引与数据库一致 - 跳过重建")
+    void testBootstrapSkippedWhenInSync() {
+        // Given
+        when(knowledgeEntryMapper.countVectorEmbeddings()).thenReturn(0L);
+
+        // When
+        long loaded = bootstrapService.bootstrap();
+
+        // Then
+        assertEquals(0, loaded);
+        verifyNoInteractions(sqlSessionFactory);
+        assertTrue(bootstrapService.isReady());
+    }
+
+    @Test
+    @DisplayName("后台加载 - 加载完成前未就绪，完成后就绪")
+    void testRunLoadsInBackground() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(knowledgeEntryMapper.countVectorEmbeddings()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0L;
+        });
+
+        // When
+        bootstrapService.run(null);
+
+        // Then
+        assertFalse(bootstrapService.isReady());
+        assertEquals("LOADING", bootstrapService.getProgress().get("state"));
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!bootstrapService.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(bootstrapService.isReady());
+    }
+
+    @Test
+    @DisplayName("索引与数据库存在少量差异 - 只补齐缺失向量并删除多余向量，不整体重建")
+    void testBootstrapReconcilesDifferences() {
+        // Given
+        for (long id = 1; id <= 4; id++) {
+            vectorStore.loadVectors(new long[]{id * 10}, new float[][]{parseVector(vector(id))});
+        }
+        vectorStore.loadVectors(new long[]{90L}, new float[][]{parseVector(vector(6))});
+        when(knowledgeEntryMapper.countVectorEmbeddings()).thenReturn(6L);
+        when(sqlSessionFactory.openSession()).thenReturn(sqlSession);
+        when(sqlSession.getMapper(KnowledgeEntryMapper.class)).thenReturn(knowledgeEntryMapper);
+        when(knowledgeEntryMapper.streamVectorAttributes()).thenReturn(new ListCursor<>(
+                List.of(entry(10L, null), entry(20L, null), entry(30L, null), entry(40L, null), entry(50L, null),
+                        entry(60L, null))));
+        when(knowledgeEntryMapper.findEmbeddingsByVectorIds(List.of(50L, 60L)))
+                .thenReturn(List.of(entry(50L, vector(5)), entry(60L, "not-json")));
+
+        // When
+        long loaded = bootstrapService.bootstrap();
+
+        // Then
+        assertEquals(1, loaded);
+        assertArrayEquals(new long[]{10L, 20L, 30L, 40L, 50L}, vectorStore.getVectorIds());
+        verify(knowledgeEntryMapper, never()).streamVectorEmbeddings();
+        assertTrue(bootstrapService.isReady());
+        verify(knowledgeEntryService, times(6)).registerAttributes(any());
+        assertEquals(8L, bootstrapService.getProgress().get("loaded"));
+        assertEquals(8L, bootstrapService.getProgress().get("total"));
+    }
+
+    @Test
+    @DisplayName("向量ID集合一致 - 格式错误被跳过的行不会导致重建")
+    void testBootstrapSkippedWhenIdsMatch() {
+        // Given
+        vectorStore.loadVectors(new long[]{10L, 20L}, new float[][]{parseVector(vector(1)), parseVector(vector(2))});
+        when(knowledgeEntryMapper.countVectorEmbeddings()).thenReturn(2L);
+        when(sqlSessionFactory.openSession()).thenReturn(sqlSession);
+        when(sqlSession.getMapper(KnowledgeEntryMapper.class)).thenReturn(knowledgeEntryMapper);
+        when(knowledgeEntryMapper.streamVectorAttributes())
+                .thenReturn(new ListCursor<>(List.of(entry(20L, null), entry(10L, null))));
+
+        // When
+        long loaded = bootstrapService.bootstrap();
+
+        // Then
+        assertEquals(0, loaded);
+        verify(knowledgeEntryMapper, never()).streamVectorEmbeddings();
+        verify(knowledgeEntryMapper, never()).findEmbeddingsByVectorIds(any());
+        assertTrue(bootstrapService.isReady());
+    }
+
+    @Test
+    @DisplayName("未启用启动重建 - 只加载向量属性，加载完成后就绪")
+    void testBootstrapDisabledLoadsAttributes() {
+        // Given
+        ReflectionTestUtils.setField(bootstrapService, "enabled", false);
+        when(knowledgeEntryMapper.countVectorEmbeddings()).thenReturn(2L);
+        when(sqlSessionFactory.openSession()).thenReturn(sqlSession);
+        when(sqlSession.getMapper(KnowledgeEntryMapper.class)).thenReturn(knowledgeEntryMapper);
+        when(knowledgeEntryMapper.streamVectorAttributes())
+                .thenReturn(new ListCursor<>(List.of(entry(10L, null), entry(20L, null))));
+
+        // When
+        long loaded = bootstrapService.bootstrap();
+
+        // Then
+        assertEquals(0, loaded);
+        verify(knowledgeEntryService, times(2)).registerAttributes(any());
+        verify(knowledgeEntryMapper, never()).streamVectorEmbeddings();
+        assertTrue(bootstrapService.isReady());
+    }
+
+    @Test
+    @DisplayName("批次加载失败 - 重建失败，不写入索引快照")
+    void testBootstrapFailsWhenBatchFails() {
+        // Given
+        VectorStore failing = spy(vectorStore);
+        doThrow(new IllegalStateException("boom")).when(failing).loadVectors(any(), any());
+        ReflectionTestUtils.setField(bootstrapService, "vectorStore", failing);
+        List<KnowledgeEntry> rows = List.of(entry(10L, vector(1)), entry(20L, vector(2)), entry(30L, vector(3)));
+        when(knowledgeEntryMapper.countVectorEmbeddings()).thenReturn((long) rows.size());
+        when(sqlSessionFactory.openSession()).thenReturn(sqlSession);
+        when(sqlSession.getMapper(KnowledgeEntryMapper.class)).thenReturn(knowledgeEntryMapper);
+        when(knowledgeEntryMapper.streamVectorEmbeddings()).thenReturn(new ListCursor<>(rows));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> bootstrapService.bootstrap());
+        verify(failing, never()).finishRebuild();
+        verify(failing).abortRebuild();
+        assertFalse(Files.exists(tempDir.resolve("faiss")));
+        assertFalse(bootstrapService.isReady());
+    }
+
+    private KnowledgeEntry entry(Long vectorId, String embedding) {
+        KnowledgeEntry entry = new KnowledgeEntry();
+        entry.setVectorId(vectorId);
+        entry.setVectorEmbedding(embedding);
+        return entry;
+    }
+
+    private float[] parseVector(String json) {
+        String[] values = json.replaceAll("[\\[\\]]", "").split(",");
+        float[] vector = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            vector[i] = Float.parseFloat(values[i]);
+        }
+        return vector;
+    }
+
+    private String vector(long seed) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < DIMENSION; i++) {
+            builder.append(i > 0 ? "," : "").append(i == seed ? 1.0 : 0.01 * (i + seed));
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * 基于列表的游标
+     */
+    private static class ListCursor<T> implements Cursor<T> {
+        private final List<T> rows;
+
+        ListCursor(List<T> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public boolean isConsumed() {
+            return false;
+        }
+
+        @Override
+        public int getCurrentIndex() {
+            return 0;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return rows.iterator();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.xu.news.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddingCache 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("向量缓存测试")
+class EmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddingCache cache;
+
+    @AfterEach
+    void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    @DisplayName("按模型区分缓存，空白差异视为同一文本")
+    void testModelIsolationAndNormalization() {
+        // Given
+        cache = open(null, 10);
+        cache.put("model-a", "你好  世界\n", List.of(0.5, 1.0), 2_000_000);
+
+        // When & Then
+        assertEquals(List.of(0.5, 1.0), cache.get("model-a", " 你好 世界"));
+        assertNull(cache.get("model-b", "你好 世界"));
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("memoryHits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(0.5, (double) stats.get("hitRate"), 1e-9);
+        assertEquals(2L, stats.get("savedMs"));
+    }
+
+    @Test
+    @DisplayName("内存淘汰后从文件命中，重启后仍可命中")
+    void testFileTierAndPersistence() {
+        // Given
+        Path file = tempDir.resolve("embedding_cache");
+        cache = open(file, 1);
+        cache.put("m", "a", List.of(1.0, 2.0), 0);
+        cache.put("m", "b", List.of(3.0, 4.0), 0);
+
+        // When - a 已被内存淘汰
+        List<Double> evicted = cache.get("m", "a");
+        cache.close();
+        cache = open(file, 1);
+
+        // Then
+        assertEquals(List.of(1.0, 2.0), evicted);
+        assertEquals(List.of(3.0, 4.0), cache.get("m", "b"));
+        assertEquals(2, cache.getStats().get("fileEntries"));
+        assertEquals(1L, cache.getStats().get("fileHits"));
+    }
+
+    @Test
+    @DisplayName("文件尾部记录不完整时截断，保留之前的记录")
+    void testTruncateTornTail() throws IOException {
+        // Given
+        Path file = tempDir.resolve("embedding_cache");
+        cache = open(file, 1);
+        cache.put("m", "a", List.of(1.0), 0);
+        cache.close();
+        long validSize = Files.size(file);
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        // When
+        cache = open(file, 1);
+
+        // Then
+        assertEquals(List.of(1.0), cache.get("m", "a"));
+        assertEquals(validSize, Files.size(file));
+    }
+
+    private EmbeddingCache open(Path file, int memoryEntries) {
+        EmbeddingCache embeddingCache = new EmbeddingCache();
+        ReflectionTestUtils.setField(embeddingCache, "memoryEntries", memoryEntries);
+        ReflectionTestUtils.setField(embeddingCache, "path", file == null ? "" : file.toString());
+        embeddingCache.init();
+        return embeddingCache;
+    }
+}
@@ -0,0 +1,198 @@
+package com.xu.news.util;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OllamaClient 单元测试（本地 HTTP 服务模拟 /api/embed 与 /api/generate）
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("Ollama客户端测试")
+class OllamaClientTest {
+
+    private HttpServer server;
+    private OllamaClient ollamaClient;
+    // 每次请求的文本数
+    private final List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile int maxAcceptedSize = Integer.MAX_VALUE;
+    private volatile int rejectStatus;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/embed", this::handleEmbed);
+        server.createContext("/api/generate", this::handleGenerate);
+        server.start();
+
+        ollamaClient = new OllamaClient();
+        ReflectionTestUtils.setField(ollamaClient, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(ollamaClient, "embeddingModel", "test-embed");
+        ReflectionTestUtils.setField(ollamaClient, "llmModel", "test-llm");
+        ReflectionTestUtils.setField(ollamaClient, "embeddingBatchSize", 4);
+        ReflectionTestUtils.setField(ollamaClient, "embeddingMaxRetries", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("按批大小分批请求，结果顺序与输入一致")
+    void testGenerateEmbeddingsInBatches() throws IOException {
+        // Given
+        List<String> texts = texts(10);
+
+        // When
+        List<List<Double>> embeddings = ollamaClient.generateEmbeddings(texts);
+
+        // Then
+        assertEquals(List.of(4, 4, 2), requestSizes);
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(List.of((double) i), embeddings.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("服务端错误重试，请求被拒绝时拆分批次")
+    void testRetryAndSplit() throws IOException {
+        // Given
+        failuresLeft.set(1);
+        maxAcceptedSize = 1;
+
+        // When
+        List<List<Double>> embeddings = ollamaClient.generateEmbeddings(texts(4));
+
+        // Then - 首次 500 后重试，413 后拆成 2+2，再拆成单条
+        assertEquals(List.of(4, 4, 2, 1, 1, 2, 1, 1), requestSizes);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(List.of((double) i), embeddings.get(i));
+        }
+        assertEquals(List.of(0.0), ollamaClient.generateEmbedding("text-0"));
+    }
+
+    @Test
+    @DisplayName("模型不存在等与批大小无关的拒绝直接失败，不拆分重试")
+    void testFailFastOnNonSizeRejection() {
+        // Given
+        rejectStatus = 404;
+
+        // When & Then
+        IOException e = assertThrows(IOException.class, () -> ollamaClient.generateEmbeddings(texts(8)));
+        assertTrue(e.getMessage().contains("404"));
+        assertEquals(List.of(4), requestSizes);
+    }
+
+    @Test
+    @DisplayName("开启向量缓存时只为未命中的文本请求模型")
+    void testEmbeddingCache() throws IOException {
+        // Given
+        EmbeddingCache cache = new EmbeddingCache();
+        ReflectionTestUtils.setField(cache, "path", "");
+        cache.init();
+        ReflectionTestUtils.setField(ollamaClient, "embeddingCache", cache);
+        ollamaClient.generateEmbeddings(texts(3));
+        requestSizes.clear();
+
+        // When
+        List<List<Double>> embeddings = ollamaClient.generateEmbeddings(texts(5));
+
+        // Then
+        assertEquals(List.of(2), requestSizes);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(List.of((double) i), embeddings.get(i));
+        }
+        assertEquals(3L, cache.getStats().get("memoryHits"));
+    }
+
+    @Test
+    @DisplayName("流式生成 - 逐行解析 NDJSON 并按顺序回调文本片段")
+    void testStreamAnswer() throws IOException {
+        // Given
+        List<String> tokens = new ArrayList<>();
+
+        // When
+        String answer = ollamaClient.streamAnswer("你好", null, tokens::add);
+
+        // Then
+        assertEquals(List.of("你", "好", "！"), tokens);
+        assertEquals("你好！", answer);
+    }
+
+    private List<String> texts(int count) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            texts.add("text-" + i);
+        }
+        return texts;
+    }
+
+    /**
+     * 模拟 /api/embed：向量为文本编号
+     */
+    private void handleEmbed(HttpExchange exchange) throws IOException {
+        JSONObject body = JSON.parseObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        List<String> input = body.getList("input", String.class);
+        requestSizes.add(input.size());
+        if (rejectStatus > 0) {
+            respond(exchange, rejectStatus, "{\"error\":\"model \\\"test-embed\\\" not found\"}");
+            return;
+        }
+        if (failuresLeft.getAndDecrement() > 0) {
+            respond(exchange, 500, "{}");
+            return;
+        }
+        if (input.size() > maxAcceptedSize) {
+            respond(exchange, 413, "{}");
+            return;
+        }
+        List<List<Double>> embeddings = new ArrayList<>();
+        for (String text : input) {
+            embeddings.add(List.of(Double.parseDouble(text.substring("text-".length()))));
+        }
+        respond(exchange, 200, JSON.toJSONString(new JSONObject().fluentPut("embeddings", embeddings)));
+    }
+
+    /**
+     * 模拟 /api/generate 流式输出：每行一个 JSON 片段，最后一行 done=true
+     */
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        JSONObject body = JSON.parseObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        assertTrue(body.getBooleanValue("stream"));
+        StringBuilder lines = new StringBuilder();
+        for (String token : List.of("你", "好", "！")) {
+            lines.append(new JSONObject().fluentPut("response", token).fluentPut("done", false)).append('\n');
+        }
+        lines.append(new JSONObject().fluentPut("response", "").fluentPut("done", true)).append('\n');
+        respond(exchange, 200, lines.toString());
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.xu.news.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryEmbeddingCache 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("查询向量缓存测试")
+class QueryEmbeddingCacheTest {
+
+    @Test
+    @DisplayName("大小写、空白、全角标点与句末标点不同的问题命中同一条缓存")
+    void testNormalization() {
+        // Given
+        QueryEmbeddingCache cache = new QueryEmbeddingCache();
+        cache.put("m", "What is  RAG？", List.of(1.0));
+
+        // When & Then
+        assertEquals(List.of(1.0), cache.get("m", " what is rag"));
+        assertEquals(List.of(1.0), cache.get("m", "ＷＨＡＴ ｉｓ ＲＡＧ。"));
+        assertNull(cache.get("other-model", "what is rag"));
+        assertEquals("今天有什么新闻,科技类", QueryEmbeddingCache.normalize("今天有什么新闻，科技类？！"));
+    }
+
+    @Test
+    @DisplayName("超过条目上限时淘汰最久未使用的问题，过期条目不再命中")
+    void testEvictionAndTtl() {
+        // Given
+        QueryEmbeddingCache cache = new QueryEmbeddingCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        cache.put("m", "a", List.of(1.0));
+        cache.put("m", "b", List.of(2.0));
+        cache.get("m", "a");
+        cache.put("m", "c", List.of(3.0));
+
+        // When & Then
+        assertNull(cache.get("m", "b"));
+        assertEquals(List.of(1.0), cache.get("m", "a"));
+
+        ReflectionTestUtils.setField(cache, "ttlMinutes", -1L);
+        cache.put("m", "d", List.of(4.0));
+        assertNull(cache.get("m", "d"));
+        assertEquals(1L, cache.getStats().get("expired"));
+    }
+}
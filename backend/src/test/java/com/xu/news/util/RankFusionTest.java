@@ -0,0 +1,52 @@
+package com.xu.news.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RankFusion 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("倒数排名融合测试")
+class RankFusionTest {
+
+    @Test
+    @DisplayName("两路都命中的文档排在前面，按权重计分并截断")
+    void testFuse() {
+        // Given
+        List<Long> vector = List.of(1L, 2L, 3L);
+        List<Long> keyword = List.of(3L, 4L, 1L);
+
+        // When
+        List<VectorStore.SearchResult> fused = RankFusion.fuse(List.of(vector, keyword),
+                new double[]{1.0, 1.0}, 60, 3);
+
+        // Then
+        assertEquals(List.of(1L, 3L, 2L),
+                fused.stream().map(VectorStore.SearchResult::getVectorId).collect(Collectors.toList()));
+        assertEquals(1.0 / 61 + 1.0 / 63, fused.get(0).getScore(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("权重为 0 的一路不影响排序")
+    void testFuseWithZeroWeight() {
+        // Given
+        List<Long> vector = List.of(1L, 2L);
+        List<Long> keyword = List.of(2L, 1L);
+
+        // When
+        List<VectorStore.SearchResult> fused = RankFusion.fuse(List.of(vector, keyword),
+                new double[]{1.0, 0.0}, 60, 0);
+
+        // Then
+        assertEquals(1L, fused.get(0).getVectorId());
+        assertEquals(2, fused.size());
+    }
+}
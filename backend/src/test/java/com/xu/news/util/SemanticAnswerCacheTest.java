@@ -0,0 +1,53 @@
+package com.xu.news.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SemanticAnswerCache 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("语义回答缓存测试")
+class SemanticAnswerCacheTest {
+
+    @Test
+    @DisplayName("查询向量相近且检索结果一致时命中，距离过大或检索结果不同时未命中")
+    void testLookup() {
+        // Given
+        SemanticAnswerCache cache = new SemanticAnswerCache();
+        cache.put(List.of(1.0, 0.0), List.of(1L, 2L), "回答");
+
+        // When & Then
+        assertEquals("回答", cache.get(List.of(0.99, 0.05), List.of(2L, 1L)));
+        assertNull(cache.get(List.of(0.6, 0.8), List.of(1L, 2L)));
+        assertNull(cache.get(List.of(1.0, 0.0), List.of(1L, 3L)));
+
+        ReflectionTestUtils.setField(cache, "minOverlap", 0.3);
+        assertEquals("回答", cache.get(List.of(1.0, 0.0), List.of(1L, 3L)));
+    }
+
+    @Test
+    @DisplayName("来源知识条目更新或删除后移除引用它的回答")
+    void testInvalidateEntries() {
+        // Given
+        SemanticAnswerCache cache = new SemanticAnswerCache();
+        cache.put(List.of(1.0, 0.0), List.of(1L, 2L), "回答一");
+        cache.put(List.of(0.0, 1.0), List.of(3L), "回答二");
+
+        // When
+        cache.invalidateEntries(List.of(2L));
+
+        // Then
+        assertNull(cache.get(List.of(1.0, 0.0), List.of(1L, 2L)));
+        assertEquals("回答二", cache.get(List.of(0.0, 1.0), List.of(3L)));
+        assertEquals(1L, cache.getStats().get("invalidated"));
+        assertEquals(1, cache.getStats().get("entries"));
+    }
+}
@@ -1,11 +1,31 @@
 package com.xu.news.util;
 
+import com.xu.news.util.vector.SearchParams;
+import com.xu.news.util.vector.VectorAttributes;
+import com.xu.news.util.vector.VectorFilter;
+import com.xu.news.util.vector.VectorIndexFile;
+import com.xu.news.util.vector.VectorPayload;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -22,12 +42,16 @@ class VectorStoreTest {
 
     private VectorStore vectorStore;
 
+    @TempDir
+    Path indexDir;
+
     @BeforeEach
     void setUp() {
         vectorStore = new VectorStore();
-        // 通过反射设置字段
-        setField(vectorStore, "indexPath", "./test-data/faiss");
+        // 通过反射设置字段（索引文件写入临时目录，不落在模块目录下）
+        setField(vectorStore, "indexPath", indexDir.resolve("faiss").toString());
         setField(vectorStore, "dimension", 768);
+        vectorStore.init();
     }
 
     @Test
@@ -74,6 +98,543 @@ class VectorStoreTest {
         assertTrue(results.stream().noneMatch(r -> r.getVectorId().equals(id)));
     }
 
+    @Test
+    @DisplayName("展示载荷 - 按向量ID读取，删除向量时一并删除")
+    void testPayloads() {
+        // Given
+        Long first = vectorStore.addVector(createTestVector(768));
+        Long second = vectorStore.addVector(createTestVector(768));
+        vectorStore.putPayload(first, new VectorPayload().setEntryId(1L).setTitle("第一条"));
+        vectorStore.putPayload(second, new VectorPayload().setEntryId(2L).setTitle("第二条"));
+
+        // When
+        vectorStore.deleteVector(second);
+        Map<Long, VectorPayload> payloads = vectorStore.getPayloads(List.of(first, second));
+
+        // Then
+        assertEquals(1, payloads.size());
+        assertEquals("第一条", payloads.get(first).getTitle());
+        assertEquals(1, vectorStore.getPayloadCount());
+    }
+
+    @Test
+    @DisplayName("搜索结果与暴力余弦排序一致")
+    void testSearchMatchesBruteForce() {
+        // Given
+        List<List<Double>> vectors = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<Double> vector = createCenteredVector(768);
+            vectors.add(vector);
+            ids.add(vectorStore.addVector(vector));
+        }
+        List<Double> query = createCenteredVector(768);
+
+        // When
+        List<VectorStore.SearchResult> results = vectorStore.search(query, 10);
+
+        // Then
+        List<Long> expected = IntStream.range(0, vectors.size()).boxed()
+                .sorted((a, b) -> Double.compare(cosine(query, vectors.get(b)), cosine(query, vectors.get(a))))
+                .limit(10)
+                .map(ids::get)
+                .collect(Collectors.toList());
+        assertEquals(expected, results.stream().map(VectorStore.SearchResult::getVectorId).collect(Collectors.toList()));
+        assertEquals(cosine(query, vectors.get(ids.indexOf(expected.get(0)))), results.get(0).getScore(), 1e-4);
+    }
+
+    @Test
+    @DisplayName("删除中间向量后其余向量仍可检索")
+    void testDeleteKeepsOtherVectors() {
+        // Given
+        List<Double> first = createTestVector(768);
+        List<Double> middle = createTestVector(768);
+        List<Double> last = createTestVector(768);
+        Long firstId = vectorStore.addVector(first);
+        Long middleId = vectorStore.addVector(middle);
+        Long lastId = vectorStore.addVector(last);
+
+        // When
+        vectorStore.deleteVector(middleId);
+
+        // Then
+        assertEquals(2, vectorStore.getVectorCount());
+        assertEquals(lastId, vectorStore.search(last, 1).get(0).getVectorId());
+        assertEquals(firstId, vectorStore.search(first, 1).get(0).getVectorId());
+    }
+
+    @Test
+    @DisplayName("HNSW模式 - 保存后重新加载")
+    void testHnswSaveAndLoad(@TempDir Path tempDir) throws IOException {
+        // Given
+        setField(vectorStore, "indexPath", tempDir.resolve("faiss_index").toString());
+        setField(vectorStore, "indexType", "hnsw");
+        vectorStore.init();
+        List<Double> vector = createTestVector(768);
+        Long id = vectorStore.addVector(vector);
+        vectorStore.addVector(createTestVector(768));
+        vectorStore.saveIndex();
+
+        // When
+        VectorStore reloaded = new VectorStore();
+        setField(reloaded, "indexPath", tempDir.resolve("faiss_index").toString());
+        setField(reloaded, "dimension", 768);
+        setField(reloaded, "indexType", "hnsw");
+        reloaded.init();
+        reloaded.loadIndex();
+
+        // Then
+        assertEquals(2, reloaded.getVectorCount());
+        assertEquals(id, reloaded.search(vector, 1).get(0).getVectorId());
+        assertNotEquals(id, reloaded.addVector(vector));
+    }
+
+    @Test
+    @DisplayName("加载旧版JSON索引 - 保存后转换为二进制格式")
+    void testLegacyJsonMigration(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path indexFile = tempDir.resolve("faiss_index");
+        List<Double> vector = createCenteredVector(768);
+        Files.writeString(indexFile, "{\"nextVectorId\":8,\"dimension\":768,\"vectors\":{\"7\":"
+                + vector + "}}");
+        setField(vectorStore, "indexPath", indexFile.toString());
+
+        // When
+        vectorStore.loadIndex();
+        vectorStore.saveIndex();
+
+        // Then
+        assertTrue(VectorIndexFile.isBinaryFormat(indexFile));
+        VectorStore reloaded = new VectorStore();
+        setField(reloaded, "indexPath", indexFile.toString());
+        setField(reloaded, "dimension", 768);
+        reloaded.init();
+        reloaded.loadIndex();
+        assertEquals(1, reloaded.getVectorCount());
+        assertEquals(7L, reloaded.search(vector, 1).get(0).getVectorId());
+        assertEquals(8L, reloaded.addVector(vector));
+    }
+
+    @Test
+    @DisplayName("写前日志 - 未保存快照时重启可恢复")
+    void testWalRecovery(@TempDir Path tempDir) {
+        // Given
+        String path = tempDir.resolve("faiss_index").toString();
+        VectorStore store = walStore(path);
+        List<Double> kept = createCenteredVector(768);
+        Long keptId = store.addVector(kept);
+        Long deletedId = store.addVector(createCenteredVector(768));
+        store.deleteVector(deletedId);
+
+        // When
+        VectorStore recovered = walStore(path);
+
+        // Then
+        assertEquals(1, recovered.getVectorCount());
+        assertEquals(keptId, recovered.search(kept, 1).get(0).getVectorId());
+        assertEquals(deletedId + 1, recovered.addVector(kept));
+    }
+
+    @Test
+    @DisplayName("写前日志 - 检查点后日志清空，快照可恢复")
+    void testWalCheckpoint(@TempDir Path tempDir) throws IOException {
+        // Given
+        String path = tempDir.resolve("faiss_index").toString();
+        VectorStore store = walStore(path);
+        List<Double> vector = createCenteredVector(768);
+        Long id = store.addVectors(List.of(vector, createCenteredVector(768))).get(0);
+        long walSizeBefore = walBytes(tempDir);
+
+        // When
+        store.shutdown();
+        VectorStore recovered = walStore(path);
+
+        // Then
+        assertTrue(walBytes(tempDir) < walSizeBefore);
+        assertTrue(VectorIndexFile.isBinaryFormat(Path.of(path)));
+        assertEquals(2, recovered.getVectorCount());
+        assertEquals(id, recovered.search(vector, 1).get(0).getVectorId());
+    }
+
+    @Test
+    @DisplayName("写前日志 - 检查点之后的修改在重启后回放")
+    void testWalCheckpointKeepsLaterWrites(@TempDir Path tempDir) throws IOException {
+        // Given
+        String path = tempDir.resolve("faiss_index").toString();
+        VectorStore store = walStore(path);
+        List<Double> first = createCenteredVector(768);
+        Long firstId = store.addVector(first);
+        store.checkpoint();
+        List<Double> second = createCenteredVector(768);
+        Long secondId = store.addVector(second);
+        store.deleteVector(firstId);
+
+        // When
+        VectorStore recovered = walStore(path);
+
+        // Then
+        assertFalse(Files.exists(Path.of(path + ".wal")));
+        assertEquals(1, recovered.getVectorCount());
+        assertEquals(secondId, recovered.search(second, 1).get(0).getVectorId());
+        assertEquals(secondId + 1, recovered.addVector(first));
+    }
+
+    @Test
+    @DisplayName("加载快照 - flat 段映射索引文件，校验通过后可继续写入")
+    void testLoadMappedSnapshot(@TempDir Path tempDir) throws IOException {
+        // Given
+        String path = tempDir.resolve("faiss_index").toString();
+        VectorStore store = new VectorStore();
+        setField(store, "indexPath", path);
+        setField(store, "dimension", 768);
+        setField(store, "segmentSize", 100);
+        store.init();
+        List<Double> probe = createCenteredVector(768);
+        Long probeId = store.addVector(probe);
+        for (int i = 0; i < 250; i++) {
+            store.addVector(createCenteredVector(768));
+        }
+        store.saveIndex();
+
+        // When
+        VectorStore reloaded = new VectorStore();
+        setField(reloaded, "indexPath", path);
+        setField(reloaded, "dimension", 768);
+        reloaded.init();
+        reloaded.loadIndex();
+
+        // Then
+        assertEquals(251, reloaded.getVectorCount());
+        assertEquals(probeId, reloaded.search(probe, 1).get(0).getVectorId());
+        assertTrue(reloaded.verifySnapshot());
+        reloaded.deleteVector(probeId);
+        Long added = reloaded.addVector(probe);
+        assertTrue(added > 251);
+        assertEquals(added, reloaded.search(probe, 1).get(0).getVectorId());
+    }
+
+    @Test
+    @DisplayName("加载快照 - 内容损坏时仍可打开，后台校验失败")
+    void testCorruptSnapshotFailsVerification(@TempDir Path tempDir) throws IOException {
+        // Given
+        String path = tempDir.resolve("faiss_index").toString();
+        VectorStore store = new VectorStore();
+        setField(store, "indexPath", path);
+        setField(store, "dimension", 768);
+        store.init();
+        store.addVector(createCenteredVector(768));
+        store.saveIndex();
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), 70);
+        }
+
+        // When
+        VectorStore reloaded = new VectorStore();
+        setField(reloaded, "indexPath", path);
+        setField(reloaded, "dimension", 768);
+        reloaded.init();
+        reloaded.loadIndex();
+
+        // Then
+        assertEquals(1, reloaded.getVectorCount());
+        assertFalse(reloaded.verifySnapshot());
+        // 每个快照只校验一次
+        assertTrue(reloaded.verifySnapshot());
+    }
+
+    @Test
+    @DisplayName("并发写入与检索 - ID不重复且全部可检索")
+    void testConcurrentAddAndSearch() throws Exception {
+        // Given
+        List<Double> probe = createCenteredVector(768);
+        Long probeId = vectorStore.addVector(probe);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    ids.add(vectorStore.addVector(createCenteredVector(768)));
+                    assertEquals(probeId, vectorStore.search(probe, 1).get(0).getVectorId());
+                }
+                return ids;
+            }));
+        }
+        Set<Long> allIds = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            allIds.addAll(future.get());
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(800, allIds.size());
+        assertFalse(allIds.contains(probeId));
+        assertEquals(801, vectorStore.getVectorCount());
+    }
+
+    @Test
+    @DisplayName("IVF模式 - 后台训练后按请求的nprobe检索")
+    void testIvfRetrain() {
+        // Given
+        setField(vectorStore, "indexType", "ivf");
+        setField(vectorStore, "ivfMinTrainSize", 100);
+        vectorStore.init();
+        List<Double> vector = createCenteredVector(768);
+        Long id = vectorStore.addVector(vector);
+        for (int i = 0; i < 199; i++) {
+            vectorStore.addVector(createCenteredVector(768));
+        }
+
+        // When
+        vectorStore.retrainIfNeeded();
+        List<VectorStore.SearchResult> results = vectorStore.search(vector, 1,
+                SearchParams.defaults().setNprobe(1));
+
+        // Then
+        assertEquals(200, vectorStore.getVectorCount());
+        assertEquals(id, results.get(0).getVectorId());
+    }
+
+    @Test
+    @DisplayName("PQ模式 - 训练后使用原始向量重排")
+    void testPqRescoreWithFullVectors() {
+        // Given
+        setField(vectorStore, "indexType", "pq");
+        setField(vectorStore, "pqMinTrainSize", 300);
+        vectorStore.init();
+        Map<Long, float[]> originals = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            List<Double> vector = createCenteredVector(768);
+            Long id = vectorStore.addVector(vector);
+            float[] values = new float[768];
+            for (int d = 0; d < 768; d++) {
+                values[d] = vector.get(d).floatValue();
+            }
+            originals.put(id, values);
+        }
+        vectorStore.setFullVectorLoader(ids -> {
+            Map<Long, float[]> loaded = new HashMap<>();
+            ids.forEach(id -> loaded.put(id, originals.get(id).clone()));
+            return loaded;
+        });
+        List<Double> query = new ArrayList<>();
+        for (float v : originals.get(42L)) {
+            query.add((double) v);
+        }
+
+        // When
+        vectorStore.retrainIfNeeded();
+        List<VectorStore.SearchResult> results = vectorStore.search(query, 1);
+
+        // Then
+        assertEquals(42L, results.get(0).getVectorId());
+        assertEquals(1.0, results.get(0).getScore(), 1e-4);
+    }
+
+    @Test
+    @DisplayName("PQ模式 - 保存码本与编码，多次保存加载后检索结果不变")
+    void testPqSaveAndLoadKeepsCodes(@TempDir Path tempDir) throws IOException {
+        // Given
+        String path = tempDir.resolve("faiss_index").toString();
+        setField(vectorStore, "indexPath", path);
+        setField(vectorStore, "indexType", "pq");
+        setField(vectorStore, "pqMinTrainSize", 300);
+        vectorStore.init();
+        for (int i = 0; i < 300; i++) {
+            vectorStore.addVector(createCenteredVector(768));
+        }
+        vectorStore.retrainIfNeeded();
+        List<Double> query = createCenteredVector(768);
+        List<VectorStore.SearchResult> expected = vectorStore.search(query, 10);
+
+        // When：保存、加载、再保存、再加载
+        VectorStore current = vectorStore;
+        for (int round = 0; round < 2; round++) {
+            current.saveIndex();
+            current = new VectorStore();
+            setField(current, "indexPath", path);
+            setField(current, "dimension", 768);
+            setField(current, "indexType", "pq");
+            current.init();
+            current.loadIndex();
+        }
+        List<VectorStore.SearchResult> actual = current.search(query, 10);
+
+        // Then
+        assertEquals(300, current.getVectorCount());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getVectorId(), actual.get(i).getVectorId());
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-6);
+        }
+    }
+
+    @Test
+    @DisplayName("binary模式 - 索引只保存符号草图，使用原始向量重排得到精确得分")
+    void testBinaryRescoreWithFullVectors() {
+        // Given
+        setField(vectorStore, "indexType", "binary");
+        setField(vectorStore, "segmentEnabled", false);
+        vectorStore.init();
+        Map<Long, float[]> originals = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            List<Double> vector = createCenteredVector(768);
+            Long id = vectorStore.addVector(vector);
+            float[] values = new float[768];
+            for (int d = 0; d < 768; d++) {
+                values[d] = vector.get(d).floatValue();
+            }
+            originals.put(id, values);
+        }
+        List<Long> loadedIds = new ArrayList<>();
+        vectorStore.setFullVectorLoader(ids -> {
+            loadedIds.addAll(ids);
+            Map<Long, float[]> loaded = new HashMap<>();
+            ids.forEach(id -> loaded.put(id, originals.get(id).clone()));
+            return loaded;
+        });
+        List<Double> query = new ArrayList<>();
+        for (float v : originals.get(42L)) {
+            query.add((double) v);
+        }
+
+        // When
+        List<VectorStore.SearchResult> results = vectorStore.search(query, 3);
+        int rescored = loadedIds.size();
+        List<VectorStore.SearchResult> range = vectorStore.rangeSearch(query, 0.99, 0);
+
+        // Then
+        assertEquals(42L, results.get(0).getVectorId());
+        assertEquals(1.0, results.get(0).getScore(), 1e-4);
+        // 候选数 = topK * faiss.binary.shortlist-multiplier
+        assertEquals(30, rescored);
+        assertEquals(1, range.size());
+        assertEquals(42L, range.get(0).getVectorId());
+    }
+
+    @Test
+    @DisplayName("压缩索引 - topK 很大时候选数不溢出，最多返回全部向量")
+    void testApproximateSearchWithHugeTopK() {
+        // Given
+        setField(vectorStore, "indexType", "binary");
+        setField(vectorStore, "segmentEnabled", false);
+        vectorStore.init();
+        for (int i = 0; i < 50; i++) {
+            vectorStore.addVector(createCenteredVector(768));
+        }
+        vectorStore.setFullVectorLoader(ids -> new HashMap<>());
+        List<Double> query = createCenteredVector(768);
+
+        // When
+        List<VectorStore.SearchResult> results = vectorStore.search(query, Integer.MAX_VALUE);
+        List<VectorStore.SearchResult> range = vectorStore.rangeSearch(query, -1.0, Integer.MAX_VALUE);
+
+        // Then
+        assertEquals(50, results.size());
+        assertEquals(50, range.size());
+    }
+
+    @Test
+    @DisplayName("元数据过滤 - 过滤条件下推到扫描，返回满足条件的 Top-K")
+    void testFilteredSearch() {
+        // Given
+        List<Double> query = createCenteredVector(768);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Long id = vectorStore.addVector(createCenteredVector(768));
+            ids.add(id);
+            vectorStore.putAttributes(id, new VectorAttributes.Row()
+                    .setSourceId(i % 2 == 0 ? 1L : 2L)
+                    .setTags(List.of(i < 5 ? "AI" : "财经")));
+        }
+        Long unregistered = vectorStore.addVector(query);
+
+        // When
+        SearchParams params = SearchParams.defaults().setFilter(new VectorFilter()
+                .setSourceIds(List.of(2L))
+                .setTags(List.of("AI")));
+        List<VectorStore.SearchResult> results = vectorStore.search(query, 10, params);
+
+        // Then
+        assertEquals(Set.of(ids.get(1), ids.get(3)),
+                results.stream().map(VectorStore.SearchResult::getVectorId).collect(Collectors.toSet()));
+        assertEquals(unregistered, vectorStore.search(query, 1).get(0).getVectorId());
+        assertTrue(vectorStore.search(query, 10, SearchParams.defaults()
+                .setFilter(new VectorFilter().setTags(List.of("不存在")))).isEmpty());
+    }
+
+    @Test
+    @DisplayName("范围检索 - 返回阈值以上的全部向量，不受 topK 限制")
+    void testRangeSearch() {
+        // Given
+        List<Double> base = createCenteredVector(768);
+        Set<Long> duplicates = new HashSet<>();
+        for (int i = 0; i < 15; i++) {
+            List<Double> nearDuplicate = base.stream()
+                    .map(v -> v + (Math.random() - 0.5) * 0.1)
+                    .collect(Collectors.toList());
+            duplicates.add(vectorStore.addVector(nearDuplicate));
+        }
+        for (int i = 0; i < 50; i++) {
+            vectorStore.addVector(createCenteredVector(768));
+        }
+
+        // When
+        List<VectorStore.SearchResult> all = vectorStore.rangeSearch(base, 0.9, 0);
+        List<VectorStore.SearchResult> limited = vectorStore.rangeSearch(base, 0.9, 5);
+
+        // Then
+        assertEquals(duplicates, all.stream().map(VectorStore.SearchResult::getVectorId).collect(Collectors.toSet()));
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getScore() >= all.get(i).getScore());
+        }
+        // 得分相同的向量先后顺序不固定，按得分比较前 5 名
+        assertEquals(all.subList(0, 5).stream().map(VectorStore.SearchResult::getScore).collect(Collectors.toList()),
+                limited.stream().map(VectorStore.SearchResult::getScore).collect(Collectors.toList()));
+        assertTrue(duplicates.containsAll(limited.stream().map(VectorStore.SearchResult::getVectorId)
+                .collect(Collectors.toList())));
+        assertEquals(3, vectorStore.searchWithThreshold(base, 3, 0.9).size());
+    }
+
+    @Test
+    @DisplayName("按ID计算余弦相似度 - 与检索得分一致，不在索引中的ID不返回")
+    void testScoreVectors() {
+        // Given
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(vectorStore.addVector(createTestVector(768)));
+        }
+        List<Double> query = createTestVector(768);
+        Map<Long, Double> expected = vectorStore.search(query, 20).stream()
+                .collect(Collectors.toMap(VectorStore.SearchResult::getVectorId, VectorStore.SearchResult::getScore));
+
+        // When
+        Map<Long, Double> scores = vectorStore.scoreVectors(query, List.of(ids.get(3), ids.get(17), 9999L));
+
+        // Then
+        assertEquals(Set.of(ids.get(3), ids.get(17)), scores.keySet());
+        assertEquals(expected.get(ids.get(3)), scores.get(ids.get(3)), 1e-6);
+        assertEquals(expected.get(ids.get(17)), scores.get(ids.get(17)), 1e-6);
+    }
+
+    @Test
+    @DisplayName("开始重建 - 替换为空索引，不回退已分配的向量ID")
+    void testBeginRebuildKeepsVectorIds() {
+        // Given
+        Long before = vectorStore.addVector(createTestVector(768));
+
+        // When
+        vectorStore.beginRebuild();
+        Long after = vectorStore.addVector(createTestVector(768));
+        vectorStore.abortRebuild();
+
+        // Then
+        assertTrue(after > before);
+        assertArrayEquals(new long[]{after}, vectorStore.getVectorIds());
+    }
+
     @Test
     @DisplayName("维度不匹配")
     void testDimensionMismatch() {
@@ -86,6 +647,16 @@ class VectorStoreTest {
         });
     }
 
+    private double cosine(List<Double> a, List<Double> b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.size(); i++) {
+            dot += a.get(i) * b.get(i);
+            normA += a.get(i) * a.get(i);
+            normB += b.get(i) * b.get(i);
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
     private List<Double> createTestVector(int dimension) {
         return IntStream.range(0, dimension)
                 .mapToDouble(i -> Math.random())
@@ -93,6 +664,32 @@ class VectorStoreTest {
                 .collect(Collectors.toList());
     }
 
+    private List<Double> createCenteredVector(int dimension) {
+        return IntStream.range(0, dimension)
+                .mapToDouble(i -> Math.random() - 0.5)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    private long walBytes(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            long bytes = 0;
+            for (Path file : files.filter(f -> f.getFileName().toString().startsWith("faiss_index.wal")).toList()) {
+                bytes += Files.size(file);
+            }
+            return bytes;
+        }
+    }
+
+    private VectorStore walStore(String path) {
+        VectorStore store = new VectorStore();
+        setField(store, "indexPath", path);
+        setField(store, "dimension", 768);
+        setField(store, "walEnabled", true);
+        store.init();
+        return store;
+    }
+
     private void setField(Object target, String fieldName, Object value) {
         try {
             var field = target.getClass().getDeclaredField(fieldName);
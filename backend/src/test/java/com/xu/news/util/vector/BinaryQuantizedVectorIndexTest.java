@@ -0,0 +1,161 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BinaryQuantizedVectorIndex 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("符号位预筛选索引测试")
+class BinaryQuantizedVectorIndexTest {
+
+    private static final int DIMENSION = 768;
+    private static final int COUNT = 5000;
+
+    private final Random random = new Random(13);
+    private final float[][] stored = new float[COUNT][];
+    private BinaryQuantizedVectorIndex binary;
+    private FlatVectorIndex flat;
+
+    @BeforeEach
+    void setUp() {
+        binary = new BinaryQuantizedVectorIndex(DIMENSION);
+        flat = new FlatVectorIndex(DIMENSION);
+        // 模拟新闻向量的主题聚簇结构
+        float[][] topics = new float[50][];
+        for (int t = 0; t < topics.length; t++) {
+            topics[t] = randomVector();
+        }
+        for (int i = 0; i < COUNT; i++) {
+            stored[i] = perturb(topics[random.nextInt(topics.length)], 0.8f);
+            binary.add(i + 1, stored[i]);
+            flat.add(i + 1, stored[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("汉明距离召回 + 原始向量重排的召回率")
+    void testRecallWithRescore() {
+        // Given
+        int hits = 0;
+
+        // When
+        for (int q = 0; q < 30; q++) {
+            float[] query = perturb(stored[random.nextInt(COUNT)], 0.5f);
+            hits += overlap(flat.search(query, 10), rescore(query, binary.search(query, 100), 10));
+        }
+
+        // Then
+        double recall = hits / 300.0;
+        assertTrue(recall >= 0.9, "召回率过低: " + recall);
+    }
+
+    @Test
+    @DisplayName("得分为汉明距离估计的近似余弦相似度")
+    void testScoresAreApproximate() {
+        // Given
+        float[] query = perturb(stored[7], 0.5f);
+
+        // When
+        TopKHeap self = binary.search(stored[7], 1);
+        TopKHeap results = binary.search(query, 10);
+
+        // Then
+        assertTrue(binary.approximateScores());
+        assertEquals(8L, self.idAt(0));
+        assertEquals(1.0f, self.scoreAt(0), 1e-6);
+        for (int i = 0; i < results.size(); i++) {
+            float exact = VectorMath.dot(query, stored[(int) results.idAt(i) - 1], 0);
+            assertEquals(exact, results.scoreAt(i), 0.15, "估计得分偏差过大");
+        }
+    }
+
+    @Test
+    @DisplayName("范围检索按汉明距离剪枝，不漏掉精确得分达到阈值的向量")
+    void testRangeSearchPrunes() {
+        // Given
+        float threshold = 0.6f;
+        float[] query = perturb(stored[random.nextInt(COUNT)], 0.5f);
+        RangeResult exact = flat.rangeSearch(query, threshold, 0, SearchParams.defaults());
+
+        // When
+        RangeResult candidates = binary.rangeSearch(query, threshold - 0.05f, 0, SearchParams.defaults());
+
+        // Then
+        Set<Long> candidateIds = new HashSet<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            candidateIds.add(candidates.idAt(i));
+        }
+        assertTrue(exact.size() > 0);
+        for (int i = 0; i < exact.size(); i++) {
+            assertTrue(candidateIds.contains(exact.idAt(i)), "漏掉了得分达到阈值的向量: " + exact.idAt(i));
+        }
+        assertTrue(candidates.size() < COUNT / 2, "剪枝无效，候选数: " + candidates.size());
+    }
+
+    @Test
+    @DisplayName("删除后同一向量不再命中")
+    void testRemove() {
+        // Given
+        float[] vector = randomVector();
+        binary.add(COUNT + 1, vector);
+        assertEquals(COUNT + 1, binary.search(vector, 1).idAt(0));
+
+        // When
+        boolean removed = binary.remove(COUNT + 1);
+
+        // Then
+        assertTrue(removed);
+        assertEquals(COUNT, binary.size());
+        assertNotEquals(COUNT + 1, binary.search(vector, 1).idAt(0));
+    }
+
+    private TopKHeap rescore(float[] query, TopKHeap candidates, int topK) {
+        TopKHeap heap = new TopKHeap(topK);
+        for (int i = 0; i < candidates.size(); i++) {
+            long id = candidates.idAt(i);
+            heap.offer(id, VectorMath.dot(query, stored[(int) id - 1], 0));
+        }
+        return heap;
+    }
+
+    private int overlap(TopKHeap expected, TopKHeap actual) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            ids.add(expected.idAt(i));
+        }
+        int hits = 0;
+        for (int i = 0; i < actual.size(); i++) {
+            if (ids.contains(actual.idAt(i))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private float[] perturb(float[] base, float noise) {
+        float[] vector = randomVector();
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = base[i] + noise * vector[i];
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
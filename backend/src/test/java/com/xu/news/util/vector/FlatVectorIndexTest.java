@@ -0,0 +1,179 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FlatVectorIndex 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("Flat索引测试")
+class FlatVectorIndexTest {
+
+    private static final int DIMENSION = 16;
+
+    private final Random random = new Random(19);
+
+    @Test
+    @DisplayName("大量删除触发整理后 - 剩余向量仍可精确检索")
+    void testCompaction() {
+        // Given
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION);
+        float[][] vectors = new float[500][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector();
+            index.add(i + 1, vectors[i]);
+        }
+
+        // When
+        for (int i = 0; i < 400; i++) {
+            assertTrue(index.remove(i + 1));
+        }
+        assertFalse(index.remove(1L));
+
+        // Then
+        assertEquals(100, index.size());
+        Set<Long> ids = new HashSet<>();
+        index.forEach((id, vector) -> ids.add(id));
+        assertEquals(100, ids.size());
+        for (int i = 400; i < vectors.length; i++) {
+            TopKHeap heap = index.search(vectors[i], 1);
+            assertEquals(i + 1, heap.idAt(0));
+        }
+    }
+
+    @Test
+    @DisplayName("检索与写入并发 - 不返回未写完或已整理掉的行")
+    void testConcurrentReadDuringWrites() throws InterruptedException {
+        // Given
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION);
+        float[] probe = randomVector();
+        index.add(0L, probe);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    TopKHeap heap = index.search(probe, 5);
+                    heap.sortDescending();
+                    if (heap.size() == 0 || heap.idAt(0) != 0L) {
+                        throw new AssertionError("检索结果缺失固定向量");
+                    }
+                    for (int i = 0; i < heap.size(); i++) {
+                        if (heap.idAt(i) == FlatVectorIndex.TOMBSTONE) {
+                            throw new AssertionError("检索返回了墓碑行");
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+
+        // When
+        for (long id = 1; id <= 20000; id++) {
+            index.add(id, randomVector());
+            if (id % 3 == 0) {
+                index.remove(id - 1);
+            }
+        }
+        running.set(false);
+        reader.join();
+
+        // Then
+        assertNull(failure.get());
+        assertEquals(20001 - 6666, index.size());
+    }
+
+    @Test
+    @DisplayName("堆外存储 - 检索结果与堆内一致，整理与关闭后归还堆外内存")
+    void testDirectStorage() {
+        // Given
+        VectorStorage storage = VectorStorage.direct();
+        FlatVectorIndex offHeap = new FlatVectorIndex(DIMENSION, null, storage);
+        FlatVectorIndex onHeap = new FlatVectorIndex(DIMENSION);
+        int rows = FlatVectorIndex.CHUNK_ROWS * 3 + 7;
+        for (long id = 1; id <= rows; id++) {
+            float[] vector = randomVector();
+            offHeap.add(id, vector);
+            onHeap.add(id, vector);
+        }
+        long chunkBytes = (long) FlatVectorIndex.CHUNK_ROWS * DIMENSION * Float.BYTES;
+        assertEquals(4 * chunkBytes, storage.offHeapBytes());
+
+        // When
+        for (long id = 1; id <= FlatVectorIndex.CHUNK_ROWS * 2; id++) {
+            offHeap.remove(id);
+            onHeap.remove(id);
+        }
+        float[] query = randomVector();
+        TopKHeap expected = onHeap.search(query, 10);
+        TopKHeap actual = offHeap.search(query, 10);
+        expected.sortDescending();
+        actual.sortDescending();
+
+        // Then
+        assertEquals(2 * chunkBytes, storage.offHeapBytes());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.idAt(i), actual.idAt(i));
+            assertEquals(expected.scoreAt(i), actual.scoreAt(i), 1e-6f);
+        }
+        offHeap.close();
+        assertEquals(0, storage.offHeapBytes());
+        assertEquals(0, offHeap.size());
+    }
+
+    @Test
+    @DisplayName("批量检索 - 每个查询按各自的阈值、上限与过滤条件返回，与单独检索一致")
+    void testRangeSearchBatch() {
+        // Given
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION);
+        for (long id = 1; id <= 3000; id++) {
+            index.add(id, randomVector());
+        }
+        BitSet even = new BitSet();
+        for (int id = 2; id <= 3000; id += 2) {
+            even.set(id);
+        }
+        float[][] queries = {randomVector(), randomVector(), randomVector()};
+        float[] thresholds = {Float.NEGATIVE_INFINITY, 0.6f, 0.5f};
+        int[] limits = {10, 0, 5};
+        SearchParams[] params = {SearchParams.defaults(), SearchParams.defaults(),
+                SearchParams.defaults().setIdFilter(new IdFilter(even))};
+
+        // When
+        RangeResult[] batch = index.rangeSearchBatch(queries, thresholds, limits, params);
+
+        // Then
+        for (int q = 0; q < queries.length; q++) {
+            TopKHeap expected = index.rangeSearch(queries[q], thresholds[q], limits[q], params[q]).toSortedHeap();
+            TopKHeap actual = batch[q].toSortedHeap();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.idAt(i), actual.idAt(i));
+                assertEquals(expected.scoreAt(i), actual.scoreAt(i), 1e-6f);
+            }
+        }
+        assertEquals(10, batch[0].size());
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
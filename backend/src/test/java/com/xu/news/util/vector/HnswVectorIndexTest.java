@@ -0,0 +1,227 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HnswVectorIndex 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("HNSW索引测试")
+class HnswVectorIndexTest {
+
+    private static final int DIMENSION = 64;
+    private static final int COUNT = 2000;
+
+    private final Random random = new Random(7);
+    private HnswVectorIndex hnsw;
+    private FlatVectorIndex flat;
+
+    @BeforeEach
+    void setUp() {
+        hnsw = new HnswVectorIndex(DIMENSION, 16, 200, 64);
+        flat = new FlatVectorIndex(DIMENSION);
+        for (long id = 1; id <= COUNT; id++) {
+            float[] vector = randomVector();
+            hnsw.add(id, vector);
+            flat.add(id, vector);
+        }
+    }
+
+    @Test
+    @DisplayName("召回率与精确检索对比")
+    void testRecallAgainstFlat() {
+        // Given
+        int queries = 50;
+        int topK = 10;
+        int hits = 0;
+
+        // When
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            hits += overlap(flat.search(query, topK), hnsw.search(query, topK));
+        }
+
+        // Then
+        double recall = (double) hits / (queries * topK);
+        assertTrue(recall >= 0.9, "HNSW召回率过低: " + recall);
+    }
+
+    @Test
+    @DisplayName("删除后不再返回墓碑节点")
+    void testRemoveUsesTombstone() {
+        // Given
+        float[] query = randomVector();
+        TopKHeap before = hnsw.search(query, 1);
+        long nearest = before.idAt(0);
+
+        // When
+        assertTrue(hnsw.remove(nearest));
+        TopKHeap after = hnsw.search(query, 10);
+
+        // Then
+        assertEquals(COUNT - 1, hnsw.size());
+        assertEquals(1, hnsw.deletedCount());
+        for (int i = 0; i < after.size(); i++) {
+            assertNotEquals(nearest, after.idAt(i));
+        }
+    }
+
+    @Test
+    @DisplayName("删除约一半节点后仍返回 topK 个结果，墓碑过多时重新建图")
+    void testSearchAfterRemovingHalf() {
+        // Given
+        for (long id = 1; id <= COUNT; id += 2) {
+            assertTrue(hnsw.remove(id));
+            flat.remove(id);
+        }
+        int queries = 20;
+        int topK = 10;
+        int hits = 0;
+
+        // When
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            TopKHeap actual = hnsw.search(query, topK);
+
+            // Then
+            assertEquals(topK, actual.size());
+            for (int i = 0; i < actual.size(); i++) {
+                assertEquals(0, actual.idAt(i) % 2);
+            }
+            hits += overlap(flat.search(query, topK), actual);
+        }
+        assertEquals(COUNT / 2, hnsw.size());
+        assertTrue(hnsw.deletedCount() < COUNT / 2, "墓碑过多时应重新建图");
+        assertTrue(hits >= queries * topK * 0.9, "删除后召回率过低: " + (double) hits / (queries * topK));
+    }
+
+    @Test
+    @DisplayName("图结构持久化后检索结果一致")
+    void testWriteAndRead() throws IOException {
+        // Given
+        hnsw.remove(5L);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        hnsw.writeTo(new DataOutputStream(buffer));
+
+        // When
+        HnswVectorIndex restored = HnswVectorIndex.readFrom(
+                new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), DIMENSION, 200, 64);
+
+        // Then
+        assertEquals(hnsw.size(), restored.size());
+        float[] query = randomVector();
+        TopKHeap expected = hnsw.search(query, 10);
+        TopKHeap actual = restored.search(query, 10);
+        assertEquals(10, overlap(expected, actual));
+    }
+
+    @Test
+    @DisplayName("带过滤检索 - 少量命中时精确打分，大比例命中时放大候选集")
+    void testFilteredSearch() {
+        // Given
+        BitSet small = new BitSet();
+        BitSet half = new BitSet();
+        for (int id = 1; id <= COUNT; id++) {
+            if (id % 100 == 0) {
+                small.set(id);
+            }
+            if (id % 2 == 0) {
+                half.set(id);
+            }
+        }
+
+        for (BitSet bits : List.of(small, half)) {
+            SearchParams params = SearchParams.defaults().setIdFilter(new IdFilter(bits));
+            int hits = 0;
+            for (int q = 0; q < 20; q++) {
+                // When
+                float[] query = randomVector();
+                TopKHeap expected = flat.search(query, 10, params);
+                TopKHeap actual = hnsw.search(query, 10, params);
+
+                // Then
+                assertEquals(10, actual.size());
+                for (int i = 0; i < actual.size(); i++) {
+                    assertTrue(bits.get((int) actual.idAt(i)));
+                }
+                hits += overlap(expected, actual);
+            }
+            assertTrue(hits >= 180, "带过滤检索召回率过低: " + hits / 200.0);
+        }
+    }
+
+    @Test
+    @DisplayName("范围检索 - 返回阈值以上的向量，召回率与精确范围检索对比")
+    void testRangeSearch() {
+        // Given
+        float threshold = 0.3f;
+        int expectedTotal = 0;
+        int hits = 0;
+
+        for (int q = 0; q < 20; q++) {
+            // When
+            float[] query = randomVector();
+            Set<Long> expected = ids(flat.rangeSearch(query, threshold, 0, SearchParams.defaults()));
+            RangeResult actual = hnsw.rangeSearch(query, threshold, 0, SearchParams.defaults());
+
+            // Then
+            for (int i = 0; i < actual.size(); i++) {
+                assertTrue(actual.scoreAt(i) >= threshold);
+                if (expected.contains(actual.idAt(i))) {
+                    hits++;
+                }
+            }
+            expectedTotal += expected.size();
+            assertTrue(hnsw.rangeSearch(query, threshold, 3, SearchParams.defaults()).size() <= 3);
+        }
+        assertTrue(expectedTotal > 0);
+        assertTrue(hits >= expectedTotal * 0.9, "范围检索召回率过低: " + (double) hits / expectedTotal);
+    }
+
+    private Set<Long> ids(RangeResult result) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < result.size(); i++) {
+            ids.add(result.idAt(i));
+        }
+        return ids;
+    }
+
+    private int overlap(TopKHeap expected, TopKHeap actual) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            ids.add(expected.idAt(i));
+        }
+        int hits = 0;
+        for (int i = 0; i < actual.size(); i++) {
+            if (ids.contains(actual.idAt(i))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
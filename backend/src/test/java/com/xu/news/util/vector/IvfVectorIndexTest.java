@@ -0,0 +1,135 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IvfVectorIndex 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("IVF索引测试")
+class IvfVectorIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int COUNT = 4000;
+    private static final int NLIST = 32;
+
+    private final Random random = new Random(11);
+    private IvfVectorIndex ivf;
+    private FlatVectorIndex flat;
+
+    @BeforeEach
+    void setUp() {
+        ivf = new IvfVectorIndex(DIMENSION, 4);
+        flat = new FlatVectorIndex(DIMENSION);
+        for (long id = 1; id <= COUNT; id++) {
+            float[] vector = randomVector();
+            ivf.add(id, vector);
+            flat.add(id, vector);
+        }
+    }
+
+    @Test
+    @DisplayName("未训练时等同精确检索")
+    void testUntrainedIsExact() {
+        // Given
+        float[] query = randomVector();
+
+        // When
+        TopKHeap expected = flat.search(query, 10);
+        TopKHeap actual = ivf.search(query, 10);
+
+        // Then
+        assertFalse(ivf.isTrained());
+        assertEquals(10, overlap(expected, actual));
+    }
+
+    @Test
+    @DisplayName("训练后 nprobe 越大召回越高，探测全部列表时与精确检索一致")
+    void testNprobeTradesRecall() {
+        // Given
+        train();
+
+        // When
+        double lowRecall = recall(SearchParams.defaults().setNprobe(1));
+        double defaultRecall = recall(SearchParams.defaults());
+        double fullRecall = recall(SearchParams.defaults().setNprobe(NLIST));
+
+        // Then
+        assertTrue(ivf.isTrained());
+        assertEquals(COUNT, ivf.size());
+        assertTrue(lowRecall <= defaultRecall);
+        assertTrue(defaultRecall <= fullRecall);
+        assertEquals(1.0, fullRecall, 1e-9);
+    }
+
+    @Test
+    @DisplayName("训练后新增和删除的向量被正确处理")
+    void testAddAndRemoveAfterTraining() {
+        // Given
+        train();
+        float[] vector = randomVector();
+
+        // When
+        ivf.add(COUNT + 1, vector);
+        TopKHeap found = ivf.search(vector, 1, SearchParams.defaults().setNprobe(1));
+        boolean removed = ivf.remove(COUNT + 1);
+        TopKHeap afterRemove = ivf.search(vector, 1, SearchParams.defaults().setNprobe(NLIST));
+
+        // Then
+        assertEquals(COUNT + 1, found.idAt(0));
+        assertTrue(removed);
+        assertNotEquals(COUNT + 1, afterRemove.idAt(0));
+    }
+
+    private void train() {
+        float[] samples = ivf.sample(COUNT);
+        float[] centroids = KMeans.train(samples, samples.length / DIMENSION, DIMENSION, NLIST, 10, true, 1L);
+        ivf.applyCentroids(centroids);
+    }
+
+    private double recall(SearchParams params) {
+        Random queries = new Random(3);
+        int hits = 0;
+        for (int q = 0; q < 30; q++) {
+            float[] query = randomVector(queries);
+            hits += overlap(flat.search(query, 10), ivf.search(query, 10, params));
+        }
+        return hits / 300.0;
+    }
+
+    private int overlap(TopKHeap expected, TopKHeap actual) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            ids.add(expected.idAt(i));
+        }
+        int hits = 0;
+        for (int i = 0; i < actual.size(); i++) {
+            if (ids.contains(actual.idAt(i))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private float[] randomVector() {
+        return randomVector(random);
+    }
+
+    private float[] randomVector(Random source) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) source.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
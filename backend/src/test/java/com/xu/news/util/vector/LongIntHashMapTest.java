@@ -0,0 +1,48 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LongIntHashMap 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("long-int哈希表测试")
+class LongIntHashMapTest {
+
+    @Test
+    @DisplayName("随机增删与HashMap结果一致")
+    void testMatchesHashMap() {
+        // Given
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        // When
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? -1 : old, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        // Then
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 5000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? -1 : value, map.get(key));
+        }
+    }
+}
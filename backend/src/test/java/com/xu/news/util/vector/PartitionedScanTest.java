@@ -0,0 +1,89 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PartitionedScan 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("分区并行扫描测试")
+class PartitionedScanTest {
+
+    private static final int DIMENSION = 32;
+
+    private final Random random = new Random(23);
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("并行扫描结果与顺序扫描一致（含墓碑行）")
+    void testMatchesSequentialScan() {
+        // Given
+        FlatVectorIndex sequential = new FlatVectorIndex(DIMENSION);
+        FlatVectorIndex parallel = new FlatVectorIndex(DIMENSION, new PartitionedScan(pool, 100, 37));
+        for (long id = 1; id <= 3000; id++) {
+            float[] vector = randomVector();
+            sequential.add(id, vector);
+            parallel.add(id, vector);
+        }
+        for (long id = 1; id <= 3000; id += 50) {
+            sequential.remove(id);
+            parallel.remove(id);
+        }
+
+        for (int q = 0; q < 20; q++) {
+            // When
+            float[] query = randomVector();
+            TopKHeap expected = sequential.search(query, 10);
+            TopKHeap actual = parallel.search(query, 10);
+            expected.sortDescending();
+            actual.sortDescending();
+
+            // Then
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.idAt(i), actual.idAt(i));
+                assertEquals(expected.scoreAt(i), actual.scoreAt(i), 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("行数低于阈值时不启用并行")
+    void testThreshold() {
+        // Given
+        PartitionedScan scan = new PartitionedScan(pool, 1000, 64);
+
+        // When & Then
+        assertFalse(scan.applies(999));
+        assertTrue(scan.applies(1000));
+        assertEquals(682, PartitionedScan.partitionRows(2097152, 768));
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
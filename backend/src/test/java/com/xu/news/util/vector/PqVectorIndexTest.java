@@ -0,0 +1,150 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PqVectorIndex 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("PQ压缩索引测试")
+class PqVectorIndexTest {
+
+    private static final int DIMENSION = 64;
+    private static final int M = 16;
+    private static final int COUNT = 3000;
+
+    private final Random random = new Random(5);
+    private final Map<Long, float[]> originals = new HashMap<>();
+    private PqVectorIndex pq;
+    private FlatVectorIndex flat;
+
+    @BeforeEach
+    void setUp() {
+        pq = new PqVectorIndex(DIMENSION, M);
+        flat = new FlatVectorIndex(DIMENSION);
+        for (long id = 1; id <= COUNT; id++) {
+            float[] vector = randomVector();
+            originals.put(id, vector);
+            pq.add(id, vector);
+            flat.add(id, vector);
+        }
+    }
+
+    @Test
+    @DisplayName("训练前为全精度检索")
+    void testUntrainedIsExact() {
+        // Given
+        float[] query = randomVector();
+
+        // When & Then
+        assertFalse(pq.approximateScores());
+        assertEquals(10, overlap(flat.search(query, 10), pq.search(query, 10)));
+    }
+
+    @Test
+    @DisplayName("训练后编码检索 + 原始向量重排的召回率")
+    void testRecallWithRescore() {
+        // Given
+        train();
+        int hits = 0;
+        int rescoredHits = 0;
+
+        // When
+        for (int q = 0; q < 30; q++) {
+            float[] query = randomVector();
+            TopKHeap exact = flat.search(query, 10);
+            hits += overlap(exact, pq.search(query, 10));
+            rescoredHits += overlap(exact, rescore(query, pq.search(query, 40), 10));
+        }
+
+        // Then
+        assertTrue(pq.approximateScores());
+        assertEquals(COUNT, pq.size());
+        assertTrue(hits / 300.0 >= 0.4, "PQ召回率过低: " + hits / 300.0);
+        assertTrue(rescoredHits >= hits);
+        assertTrue(rescoredHits / 300.0 >= 0.8, "重排后召回率过低: " + rescoredHits / 300.0);
+    }
+
+    @Test
+    @DisplayName("码本重建向量重新编码后结果不变")
+    void testReconstructRoundTrip() {
+        // Given
+        train();
+        PqVectorIndex restored = new PqVectorIndex(DIMENSION, M);
+        restored.applyCodebooks(pq.codebooks());
+
+        // When
+        pq.forEach(restored::add);
+        float[] query = randomVector();
+
+        // Then
+        assertEquals(pq.size(), restored.size());
+        assertEquals(10, overlap(pq.search(query, 10), restored.search(query, 10)));
+    }
+
+    @Test
+    @DisplayName("训练后删除向量")
+    void testRemoveAfterTraining() {
+        // Given
+        train();
+        float[] vector = originals.get(1L);
+
+        // When
+        boolean removed = pq.remove(1L);
+        TopKHeap results = pq.search(vector, 50);
+
+        // Then
+        assertTrue(removed);
+        assertEquals(COUNT - 1, pq.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertNotEquals(1L, results.idAt(i));
+        }
+    }
+
+    private void train() {
+        float[] samples = pq.sample(COUNT);
+        pq.applyCodebooks(PqVectorIndex.trainCodebooks(samples, samples.length / DIMENSION, DIMENSION, M, 10));
+    }
+
+    private TopKHeap rescore(float[] query, TopKHeap candidates, int topK) {
+        TopKHeap heap = new TopKHeap(topK);
+        for (int i = 0; i < candidates.size(); i++) {
+            heap.offer(candidates.idAt(i), VectorMath.dot(query, originals.get(candidates.idAt(i)), 0));
+        }
+        return heap;
+    }
+
+    private int overlap(TopKHeap expected, TopKHeap actual) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            ids.add(expected.idAt(i));
+        }
+        int hits = 0;
+        for (int i = 0; i < actual.size(); i++) {
+            if (ids.contains(actual.idAt(i))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
@@ -0,0 +1,58 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RangeResult 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("范围检索结果测试")
+class RangeResultTest {
+
+    private static final float[] SCORES = {0.1f, 0.9f, 0.5f, 0.3f, 0.95f, 0.2f, 0.7f};
+
+    @Test
+    @DisplayName("不限数量 - 保留全部达到阈值的候选并降序输出")
+    void testUnlimited() {
+        // Given
+        RangeResult result = new RangeResult(0.3f, 0);
+
+        // When
+        for (int i = 0; i < SCORES.length; i++) {
+            result.offer(i, SCORES[i]);
+        }
+        TopKHeap sorted = result.toSortedHeap();
+
+        // Then
+        assertEquals(5, sorted.size());
+        assertEquals(4L, sorted.idAt(0));
+        assertEquals(1L, sorted.idAt(1));
+        assertEquals(6L, sorted.idAt(2));
+        assertEquals(2L, sorted.idAt(3));
+        assertEquals(3L, sorted.idAt(4));
+        assertEquals(0.3f, result.minScore());
+    }
+
+    @Test
+    @DisplayName("限定数量 - 结果已满后下限提高到第 limit 名")
+    void testLimited() {
+        // Given
+        RangeResult result = new RangeResult(0.3f, 2);
+
+        // When
+        for (int i = 0; i < SCORES.length; i++) {
+            result.offer(i, SCORES[i]);
+        }
+        TopKHeap sorted = result.toSortedHeap();
+
+        // Then
+        assertEquals(2, sorted.size());
+        assertEquals(4L, sorted.idAt(0));
+        assertEquals(1L, sorted.idAt(1));
+    }
+}
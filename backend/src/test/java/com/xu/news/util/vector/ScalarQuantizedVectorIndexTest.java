@@ -0,0 +1,158 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ScalarQuantizedVectorIndex 单元测试（含与精确检索的召回率/耗时对比）
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("int8标量量化索引测试")
+class ScalarQuantizedVectorIndexTest {
+
+    private static final int DIMENSION = 768;
+    private static final int COUNT = 10000;
+    private static final int QUERIES = 50;
+    private static final int TOP_K = 10;
+    private static final int RESCORE_MULTIPLIER = 4;
+
+    private final Random random = new Random(9);
+    private float[][] originals;
+    private ScalarQuantizedVectorIndex sq8;
+    private FlatVectorIndex flat;
+
+    @BeforeEach
+    void setUp() {
+        originals = new float[COUNT + 1][];
+        sq8 = new ScalarQuantizedVectorIndex(DIMENSION);
+        flat = new FlatVectorIndex(DIMENSION);
+        for (int id = 1; id <= COUNT; id++) {
+            float[] vector = randomVector();
+            originals[id] = vector;
+            sq8.add(id, vector);
+            flat.add(id, vector);
+        }
+    }
+
+    @Test
+    @DisplayName("召回率与耗时对比：精确检索 vs int8扫描 vs int8扫描+全精度重排")
+    void testRecallAndLatencyAgainstExact() {
+        // Given
+        float[][] queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = randomVector();
+        }
+        // 预热
+        for (int q = 0; q < 10; q++) {
+            flat.search(queries[q], TOP_K);
+            rescore(queries[q], sq8.search(queries[q], TOP_K * RESCORE_MULTIPLIER));
+        }
+
+        // When
+        TopKHeap[] exact = new TopKHeap[QUERIES];
+        long start = System.nanoTime();
+        for (int q = 0; q < QUERIES; q++) {
+            exact[q] = flat.search(queries[q], TOP_K);
+        }
+        long exactNanos = System.nanoTime() - start;
+
+        int scanHits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            scanHits += overlap(exact[q], sq8.search(queries[q], TOP_K));
+        }
+
+        int rescoredHits = 0;
+        start = System.nanoTime();
+        for (int q = 0; q < QUERIES; q++) {
+            TopKHeap rescored = rescore(queries[q], sq8.search(queries[q], TOP_K * RESCORE_MULTIPLIER));
+            rescoredHits += overlap(exact[q], rescored);
+        }
+        long rescoredNanos = System.nanoTime() - start;
+
+        // Then
+        double scanRecall = (double) scanHits / (QUERIES * TOP_K);
+        double rescoredRecall = (double) rescoredHits / (QUERIES * TOP_K);
+        System.out.printf("[sq8] %d x %d维: 精确检索 %.3fms/查询, int8+重排 %.3fms/查询, "
+                        + "int8召回率 %.3f, 重排后召回率 %.3f%n",
+                COUNT, DIMENSION, exactNanos / 1e6 / QUERIES, rescoredNanos / 1e6 / QUERIES,
+                scanRecall, rescoredRecall);
+        assertTrue(scanRecall >= 0.8, "int8扫描召回率过低: " + scanRecall);
+        assertTrue(rescoredRecall >= 0.99, "重排后召回率过低: " + rescoredRecall);
+    }
+
+    @Test
+    @DisplayName("反量化向量再次量化得到相同结果")
+    void testForEachRoundTrip() {
+        // Given
+        ScalarQuantizedVectorIndex restored = new ScalarQuantizedVectorIndex(DIMENSION);
+
+        // When
+        sq8.forEach(restored::add);
+        float[] query = randomVector();
+        TopKHeap expected = sq8.search(query, TOP_K);
+        TopKHeap actual = restored.search(query, TOP_K);
+
+        // Then
+        assertEquals(COUNT, restored.size());
+        expected.sortDescending();
+        actual.sortDescending();
+        for (int i = 0; i < TOP_K; i++) {
+            assertEquals(expected.idAt(i), actual.idAt(i));
+            assertEquals(expected.scoreAt(i), actual.scoreAt(i), 1e-5);
+        }
+    }
+
+    @Test
+    @DisplayName("删除向量")
+    void testRemove() {
+        // When
+        boolean removed = sq8.remove(1L);
+        TopKHeap results = sq8.search(originals[1], 1);
+
+        // Then
+        assertTrue(removed);
+        assertFalse(sq8.remove(1L));
+        assertEquals(COUNT - 1, sq8.size());
+        assertNotEquals(1L, results.idAt(0));
+    }
+
+    private TopKHeap rescore(float[] query, TopKHeap candidates) {
+        TopKHeap heap = new TopKHeap(TOP_K);
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = (int) candidates.idAt(i);
+            heap.offer(id, VectorMath.dot(query, originals[id], 0));
+        }
+        return heap;
+    }
+
+    private int overlap(TopKHeap expected, TopKHeap actual) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            ids.add(expected.idAt(i));
+        }
+        int hits = 0;
+        for (int i = 0; i < actual.size(); i++) {
+            if (ids.contains(actual.idAt(i))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
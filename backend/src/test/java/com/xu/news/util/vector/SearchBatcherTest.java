@@ -0,0 +1,126 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SearchBatcher 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("并发检索微批合并测试")
+class SearchBatcherTest {
+
+    private static final int DIMENSION = 32;
+
+    private final Random random = new Random(23);
+
+    @Test
+    @DisplayName("无并发检索 - 直接检索，不等待窗口")
+    void testDirectWhenIdle() {
+        // Given
+        FlatVectorIndex index = index(100);
+        SearchBatcher batcher = new SearchBatcher(1_000_000_000L, 32);
+        float[] query = randomVector();
+
+        // When
+        long start = System.nanoTime();
+        RangeResult result = batcher.search(index, query, Float.NEGATIVE_INFINITY, 5, SearchParams.defaults(),
+                () -> index.rangeSearch(query, Float.NEGATIVE_INFINITY, 5, SearchParams.defaults()));
+
+        // Then
+        assertEquals(5, result.size());
+        assertTrue(System.nanoTime() - start < 500_000_000L);
+        assertEquals(0, batcher.batchCount());
+    }
+
+    @Test
+    @DisplayName("并发检索 - 合并为批次扫描，每个请求得到自己的结果")
+    void testConcurrentSearchesAreBatched() throws Exception {
+        // Given
+        FlatVectorIndex index = index(2000);
+        SearchBatcher batcher = new SearchBatcher(20_000_000L, 32);
+        int threads = 16;
+        float[][] queries = new float[threads][];
+        for (int i = 0; i < threads; i++) {
+            queries[i] = randomVector();
+        }
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+
+        try {
+            // 一个慢检索占住执行中的名额，之后到达的检索进入队列
+            Future<?> slow = executor.submit(() -> batcher.search(index, queries[0], 0f, 0,
+                    SearchParams.defaults(), () -> {
+                        slowStarted.countDown();
+                        sleep(200);
+                        return index.rangeSearch(queries[0], 0f, 0, SearchParams.defaults());
+                    }));
+            slowStarted.await();
+
+            // When
+            List<Future<RangeResult>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                float[] query = queries[i];
+                float threshold = i % 2 == 0 ? Float.NEGATIVE_INFINITY : 0.3f;
+                int limit = i % 2 == 0 ? 10 : 0;
+                futures.add(executor.submit(() -> batcher.search(index, query, threshold, limit,
+                        SearchParams.defaults(),
+                        () -> index.rangeSearch(query, threshold, limit, SearchParams.defaults()))));
+            }
+
+            // Then
+            for (int i = 0; i < threads; i++) {
+                float threshold = i % 2 == 0 ? Float.NEGATIVE_INFINITY : 0.3f;
+                int limit = i % 2 == 0 ? 10 : 0;
+                TopKHeap expected = index.rangeSearch(queries[i], threshold, limit, SearchParams.defaults())
+                        .toSortedHeap();
+                TopKHeap actual = futures.get(i).get().toSortedHeap();
+                assertEquals(expected.size(), actual.size());
+                for (int j = 0; j < expected.size(); j++) {
+                    assertEquals(expected.idAt(j), actual.idAt(j));
+                }
+            }
+            slow.get();
+            assertTrue(batcher.batchCount() > 0);
+            assertTrue(batcher.batchedQueryCount() >= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FlatVectorIndex index(int count) {
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION);
+        for (long id = 1; id <= count; id++) {
+            index.add(id, randomVector());
+        }
+        return index;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
@@ -0,0 +1,174 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SegmentedVectorIndex 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("分段索引测试")
+class SegmentedVectorIndexTest {
+
+    private static final int DIMENSION = 16;
+    private static final int SEGMENT_SIZE = 100;
+
+    private final Random random = new Random(31);
+
+    @Test
+    @DisplayName("活跃段冻结与墓碑删除 - 检索结果与单个Flat索引一致")
+    void testMatchesFlatIndex() {
+        // Given
+        SegmentedVectorIndex segmented = flatSegments();
+        FlatVectorIndex flat = new FlatVectorIndex(DIMENSION);
+        for (long id = 1; id <= 550; id++) {
+            float[] vector = randomVector();
+            segmented.add(id, vector);
+            flat.add(id, vector);
+        }
+
+        // When
+        for (long id = 1; id <= 550; id += 7) {
+            assertTrue(segmented.remove(id));
+            flat.remove(id);
+        }
+        assertFalse(segmented.remove(1L));
+
+        // Then
+        assertEquals(6, segmented.segmentCount());
+        assertEquals(flat.size(), segmented.size());
+        assertSameResults(flat, segmented);
+    }
+
+    @Test
+    @DisplayName("压缩 - 冻结段重建为配置类型，合并小段并清除已删除的向量")
+    void testCompaction() {
+        // Given
+        SegmentedVectorIndex segmented = new SegmentedVectorIndex(
+                () -> new HnswVectorIndex(DIMENSION, 16, 200, 400),
+                () -> new FlatVectorIndex(DIMENSION), SEGMENT_SIZE, 1000, 0.2);
+        FlatVectorIndex flat = new FlatVectorIndex(DIMENSION);
+        for (long id = 1; id <= 450; id++) {
+            float[] vector = randomVector();
+            segmented.add(id, vector);
+            flat.add(id, vector);
+        }
+        for (long id = 1; id <= 100; id++) {
+            segmented.remove(id);
+            flat.remove(id);
+        }
+
+        // When
+        int rewritten = segmented.compact();
+
+        // Then
+        assertEquals(4, rewritten);
+        assertEquals(2, segmented.segmentCount());
+        assertEquals("hnsw", segmented.type());
+        assertEquals(350, segmented.size());
+        assertEquals(0, segmented.compact());
+        Set<Long> ids = new HashSet<>();
+        segmented.forEach((id, vector) -> ids.add(id));
+        assertEquals(350, ids.size());
+        assertFalse(ids.contains(1L));
+        assertSameResults(flat, segmented);
+    }
+
+    @Test
+    @DisplayName("检索与写入、压缩并发 - 结果不包含已删除的向量")
+    void testConcurrentSearchDuringCompaction() throws InterruptedException {
+        // Given
+        SegmentedVectorIndex segmented = flatSegments();
+        float[] probe = randomVector();
+        segmented.add(0L, probe);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    TopKHeap heap = segmented.search(probe, 5);
+                    heap.sortDescending();
+                    if (heap.size() == 0 || heap.idAt(0) != 0L) {
+                        throw new AssertionError("检索结果缺失固定向量");
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        Thread compactor = new Thread(() -> {
+            while (running.get()) {
+                segmented.compact();
+            }
+        });
+        reader.start();
+        compactor.start();
+
+        // When
+        for (long id = 1; id <= 5000; id++) {
+            segmented.add(id, randomVector());
+            if (id % 2 == 0) {
+                segmented.remove(id - 1);
+            }
+        }
+        running.set(false);
+        reader.join();
+        compactor.join();
+        segmented.compact();
+
+        // Then
+        assertNull(failure.get());
+        assertEquals(2501, segmented.size());
+        Set<Long> ids = new HashSet<>();
+        segmented.forEach((id, vector) -> ids.add(id));
+        assertEquals(2501, ids.size());
+        assertFalse(ids.contains(4999L));
+    }
+
+    private SegmentedVectorIndex flatSegments() {
+        return new SegmentedVectorIndex(() -> new FlatVectorIndex(DIMENSION),
+                () -> new FlatVectorIndex(DIMENSION), SEGMENT_SIZE, 1000, 0.2);
+    }
+
+    private void assertSameResults(FlatVectorIndex expectedIndex, SegmentedVectorIndex actualIndex) {
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomVector();
+            TopKHeap expected = expectedIndex.search(query, 10);
+            TopKHeap actual = actualIndex.search(query, 10);
+            expected.sortDescending();
+            actual.sortDescending();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.idAt(i), actual.idAt(i));
+                assertEquals(expected.scoreAt(i), actual.scoreAt(i), 1e-5f);
+            }
+
+            TopKHeap expectedRange = expectedIndex.rangeSearch(query, 0.5f, 0, SearchParams.defaults())
+                    .toSortedHeap();
+            TopKHeap actualRange = actualIndex.rangeSearch(query, 0.5f, 0, SearchParams.defaults())
+                    .toSortedHeap();
+            assertEquals(expectedRange.size(), actualRange.size());
+            for (int i = 0; i < expectedRange.size(); i++) {
+                assertEquals(expectedRange.idAt(i), actualRange.idAt(i));
+            }
+        }
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
@@ -0,0 +1,50 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TopKHeap 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("Top-K 有界堆测试")
+class TopKHeapTest {
+
+    @Test
+    @DisplayName("只保留得分最高的K个并降序输出")
+    void testKeepsTopK() {
+        // Given
+        TopKHeap heap = new TopKHeap(3);
+        float[] scores = {0.1f, 0.9f, 0.5f, 0.3f, 0.95f, 0.2f};
+
+        // When
+        for (int i = 0; i < scores.length; i++) {
+            heap.offer(i, scores[i]);
+        }
+        heap.sortDescending();
+
+        // Then
+        assertEquals(3, heap.size());
+        assertEquals(4L, heap.idAt(0));
+        assertEquals(1L, heap.idAt(1));
+        assertEquals(2L, heap.idAt(2));
+    }
+
+    @Test
+    @DisplayName("容量为0时不保留任何元素")
+    void testZeroCapacity() {
+        // Given
+        TopKHeap heap = new TopKHeap(0);
+
+        // When
+        heap.offer(1L, 1.0f);
+
+        // Then
+        assertEquals(0, heap.size());
+        assertTrue(heap.isFull());
+    }
+}
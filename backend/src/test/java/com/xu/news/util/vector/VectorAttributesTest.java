@@ -0,0 +1,88 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VectorAttributes 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("向量属性过滤测试")
+class VectorAttributesTest {
+
+    private VectorAttributes attributes;
+
+    @BeforeEach
+    void setUp() {
+        attributes = new VectorAttributes();
+        attributes.put(1L, row(1L, "news", 1, LocalDateTime.of(2025, 10, 1, 8, 0), "AI", "科技"));
+        attributes.put(2L, row(2L, "article", 1, LocalDateTime.of(2025, 10, 5, 8, 0), "财经"));
+        attributes.put(3L, row(1L, "document", 0, null, "AI"));
+        attributes.put(5L, row(3L, "news", 2, LocalDateTime.of(2025, 9, 1, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("单个条件 - 标签取并集，来源/类型/状态按值匹配")
+    void testSingleConditions() {
+        // When & Then
+        assertEquals(List.of(1L, 3L), ids(new VectorFilter().setTags(List.of("AI"))));
+        assertEquals(List.of(1L, 2L), ids(new VectorFilter().setTags(List.of("科技", "财经"))));
+        assertEquals(List.of(1L, 3L), ids(new VectorFilter().setSourceIds(List.of(1L))));
+        assertEquals(List.of(1L, 5L), ids(new VectorFilter().setContentTypes(List.of("news"))));
+        assertEquals(List.of(), ids(new VectorFilter().setContentTypes(List.of("video"))));
+        assertEquals(List.of(3L, 5L), ids(new VectorFilter().setStatuses(List.of(0, 2))));
+    }
+
+    @Test
+    @DisplayName("时间范围与组合条件 - 没有发布时间的向量不满足时间条件")
+    void testCombinedConditions() {
+        // Given
+        VectorFilter range = new VectorFilter()
+                .setPublishedFrom(LocalDateTime.of(2025, 9, 15, 0, 0))
+                .setPublishedTo(LocalDateTime.of(2025, 10, 31, 23, 59));
+
+        // When & Then
+        assertEquals(List.of(1L, 2L), ids(range));
+        assertEquals(List.of(1L), ids(range.setSourceIds(List.of(1L, 3L)).setStatuses(List.of(1))));
+        assertTrue(new VectorFilter().setTags(List.of()).hasNoConditions());
+    }
+
+    @Test
+    @DisplayName("覆盖与删除 - 旧标签不再命中")
+    void testOverwriteAndRemove() {
+        // When
+        attributes.put(1L, row(1L, "news", 1, null, "财经"));
+        attributes.remove(2L);
+
+        // Then
+        assertEquals(List.of(3L), ids(new VectorFilter().setTags(List.of("AI"))));
+        assertEquals(List.of(1L), ids(new VectorFilter().setTags(List.of("财经"))));
+        assertEquals(3, attributes.size());
+        assertFalse(attributes.evaluate(new VectorFilter().setSourceIds(List.of(2L))).accepts(2L));
+    }
+
+    private List<Long> ids(VectorFilter filter) {
+        List<Long> ids = new ArrayList<>();
+        attributes.evaluate(filter).forEach(ids::add);
+        return ids;
+    }
+
+    private VectorAttributes.Row row(Long sourceId, String contentType, Integer status, LocalDateTime publishedAt,
+                                     String... tags) {
+        return new VectorAttributes.Row()
+                .setSourceId(sourceId)
+                .setContentType(contentType)
+                .setStatus(status)
+                .setPublishedAt(publishedAt)
+                .setTags(List.of(tags));
+    }
+}
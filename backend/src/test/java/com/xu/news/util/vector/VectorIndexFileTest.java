@@ -0,0 +1,233 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VectorIndexFile 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("向量索引文件测试")
+class VectorIndexFileTest {
+
+    private static final int DIMENSION = 16;
+
+    private final Random random = new Random(17);
+
+    @Test
+    @DisplayName("写出后读取 - 向量与ID一致")
+    void testRoundTrip(@TempDir Path tempDir) throws IOException {
+        // Given
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION);
+        Map<Long, float[]> expected = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            float[] vector = randomVector();
+            index.add(id, vector);
+            expected.put(id, vector);
+        }
+        index.remove(42L);
+        expected.remove(42L);
+        Path path = tempDir.resolve("index.bin");
+
+        // When
+        VectorIndexFile.write(path, DIMENSION, 301L, index);
+        Map<Long, float[]> actual = new HashMap<>();
+        try (VectorIndexFile file = VectorIndexFile.open(path)) {
+            assertEquals(DIMENSION, file.dimension());
+            assertEquals(299, file.count());
+            assertEquals(301L, file.nextVectorId());
+            assertEquals(FlatVectorIndex.TYPE, file.indexType());
+            file.forEach(actual::put);
+        }
+
+        // Then
+        assertTrue(VectorIndexFile.isBinaryFormat(path));
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<Long, float[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    @DisplayName("HNSW图结构与IVF质心写入附加区段")
+    void testSections(@TempDir Path tempDir) throws IOException {
+        // Given
+        HnswVectorIndex hnsw = new HnswVectorIndex(DIMENSION, 8, 50, 50);
+        IvfVectorIndex ivf = new IvfVectorIndex(DIMENSION, 2);
+        for (long id = 1; id <= 200; id++) {
+            float[] vector = randomVector();
+            hnsw.add(id, vector);
+            ivf.add(id, vector);
+        }
+        float[] centroids = new float[4 * DIMENSION];
+        for (int i = 0; i < centroids.length; i++) {
+            centroids[i] = random.nextFloat();
+        }
+        ivf.applyCentroids(centroids);
+        Path hnswPath = tempDir.resolve("hnsw.bin");
+        Path ivfPath = tempDir.resolve("ivf.bin");
+
+        // When
+        VectorIndexFile.write(hnswPath, DIMENSION, 201L, hnsw);
+        VectorIndexFile.write(ivfPath, DIMENSION, 201L, ivf);
+
+        // Then
+        try (VectorIndexFile file = VectorIndexFile.open(hnswPath);
+             DataInputStream in = new DataInputStream(file.sectionStream(VectorIndexFile.SECTION_HNSW_GRAPH))) {
+            HnswVectorIndex loaded = HnswVectorIndex.readFrom(in, DIMENSION, 50, 50);
+            assertEquals(200, loaded.size());
+            assertNull(file.floatSection(VectorIndexFile.SECTION_IVF_CENTROIDS));
+        }
+        try (VectorIndexFile file = VectorIndexFile.open(ivfPath)) {
+            assertArrayEquals(centroids, file.floatSection(VectorIndexFile.SECTION_IVF_CENTROIDS));
+            assertFalse(file.hasSection(VectorIndexFile.SECTION_HNSW_GRAPH));
+        }
+    }
+
+    @Test
+    @DisplayName("训练后的PQ保存码本与编码 - 多次加载保存编码不变")
+    void testPqCodesRoundTrip(@TempDir Path tempDir) throws IOException {
+        // Given
+        PqVectorIndex pq = new PqVectorIndex(DIMENSION, 4);
+        for (long id = 1; id <= 300; id++) {
+            pq.add(id, randomVector());
+        }
+        float[] samples = pq.sample(300);
+        pq.applyCodebooks(PqVectorIndex.trainCodebooks(samples, 300, DIMENSION, 4, 5));
+        Map<Long, byte[]> expected = codes(pq);
+        Path path = tempDir.resolve("index.bin");
+
+        // When：保存、加载、再保存、再加载
+        PqVectorIndex restored = pq;
+        for (int round = 0; round < 2; round++) {
+            VectorIndexFile.write(path, DIMENSION, 301L, restored);
+            restored = new PqVectorIndex(DIMENSION, 4);
+            try (VectorIndexFile file = VectorIndexFile.open(path)) {
+                assertEquals(0, file.count());
+                float[] flat = file.floatSection(VectorIndexFile.SECTION_PQ_CODEBOOKS);
+                float[][] codebooks = new float[4][];
+                int length = flat.length / 4;
+                for (int j = 0; j < 4; j++) {
+                    codebooks[j] = Arrays.copyOfRange(flat, j * length, (j + 1) * length);
+                }
+                restored.applyCodebooks(codebooks);
+                assertTrue(file.forEachPqCode(4, restored::addEncoded));
+                assertFalse(file.forEachPqCode(8, (id, codes, offset) -> fail("子空间数量不一致时不应回调")));
+            }
+        }
+
+        // Then
+        Map<Long, byte[]> actual = codes(restored);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<Long, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    @DisplayName("文件内容损坏 - 打开时不扫描内容，校验失败")
+    void testChecksumMismatch(@TempDir Path tempDir) throws IOException {
+        // Given
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION);
+        index.add(1L, randomVector());
+        Path path = tempDir.resolve("index.bin");
+        VectorIndexFile.write(path, DIMENSION, 2L, index);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), 70);
+        }
+
+        // When & Then
+        try (VectorIndexFile file = VectorIndexFile.open(path)) {
+            assertEquals(1, file.count());
+            assertFalse(file.verify());
+        }
+    }
+
+    @Test
+    @DisplayName("映射向量块 - flat 索引直接使用只读映射，新增写入新数据块，只读块不归还存储")
+    void testMappedChunks(@TempDir Path tempDir) throws IOException {
+        // Given
+        FlatVectorIndex original = new FlatVectorIndex(DIMENSION);
+        int rows = FlatVectorIndex.CHUNK_ROWS * 2 + 5;
+        for (long id = 1; id <= rows; id++) {
+            original.add(id, randomVector());
+        }
+        Path path = tempDir.resolve("index.bin");
+        VectorIndexFile.write(path, DIMENSION, rows + 1L, original);
+        VectorStorage storage = VectorStorage.direct();
+
+        // When
+        FlatVectorIndex mapped;
+        try (VectorIndexFile file = VectorIndexFile.open(path)) {
+            assertTrue(file.verify());
+            ByteBuffer[] chunks = file.mapVectorChunks(FlatVectorIndex.CHUNK_ROWS);
+            assertEquals(3, chunks.length);
+            assertTrue(chunks[0].isReadOnly());
+            mapped = FlatVectorIndex.ofChunks(DIMENSION, null, storage, chunks, file.ids());
+        }
+        float[] query = randomVector();
+        TopKHeap expected = original.search(query, 10);
+        TopKHeap actual = mapped.search(query, 10);
+        expected.sortDescending();
+        actual.sortDescending();
+
+        // Then
+        assertEquals(rows, mapped.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.idAt(i), actual.idAt(i));
+            assertEquals(expected.scoreAt(i), actual.scoreAt(i), 1e-6f);
+        }
+        // 只有不满的最后一块被复制
+        long chunkBytes = (long) FlatVectorIndex.CHUNK_ROWS * DIMENSION * Float.BYTES;
+        assertEquals(chunkBytes, storage.offHeapBytes());
+        float[] added = randomVector();
+        mapped.add(rows + 1L, added);
+        assertTrue(mapped.remove(1L));
+        TopKHeap top = mapped.search(added, 1);
+        assertEquals(rows + 1L, top.idAt(0));
+        mapped.close();
+        assertEquals(0, storage.offHeapBytes());
+    }
+
+    @Test
+    @DisplayName("JSON文件 - 不识别为二进制格式")
+    void testLegacyFormatDetection(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("index.json");
+        Files.writeString(path, "{\"vectors\":{}}");
+
+        // When & Then
+        assertFalse(VectorIndexFile.isBinaryFormat(path));
+    }
+
+    private Map<Long, byte[]> codes(PqVectorIndex pq) {
+        Map<Long, byte[]> codes = new HashMap<>();
+        pq.forEachCode((id, row, offset) -> codes.put(id, Arrays.copyOfRange(row, offset, offset + 4)));
+        return codes;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalizeInPlace(vector);
+    }
+}
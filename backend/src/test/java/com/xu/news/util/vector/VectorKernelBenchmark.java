@@ -0,0 +1,129 @@
+package com.xu.news.util.vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 打分内核基准测试：单次查询扫描全部向量的耗时（标量 vs SIMD，堆数组 vs 堆外数据块）
+ *
+ * 运行：mvn -Pbenchmark test-compile exec:exec
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorKernelBenchmark {
+
+    @Param({"768"})
+    private int dimension;
+
+    @Param({"10000"})
+    private int rows;
+
+    private final ScalarKernels scalar = new ScalarKernels();
+    private final ScalarKernels simd = new SimdKernels();
+
+    private float[] query;
+    private float[] slab;
+    private ByteBuffer directSlab;
+    private byte[] queryCodes;
+    private byte[] codes;
+    private long[] querySketch;
+    private long[] sketches;
+    private int words;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        words = (dimension + Long.SIZE - 1) / Long.SIZE;
+        query = new float[dimension];
+        slab = new float[rows * dimension];
+        queryCodes = new byte[dimension];
+        codes = new byte[rows * dimension];
+        querySketch = new long[words];
+        sketches = new long[rows * words];
+        for (int i = 0; i < dimension; i++) {
+            query[i] = (float) random.nextGaussian();
+        }
+        for (int i = 0; i < slab.length; i++) {
+            slab[i] = (float) random.nextGaussian();
+        }
+        directSlab = ByteBuffer.allocateDirect(slab.length * Float.BYTES).order(ByteOrder.nativeOrder());
+        directSlab.asFloatBuffer().put(slab);
+        random.nextBytes(queryCodes);
+        random.nextBytes(codes);
+        for (int i = 0; i < words; i++) {
+            querySketch[i] = random.nextLong();
+        }
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public void float32Scalar(Blackhole blackhole) {
+        scanFloat(scalar, blackhole);
+    }
+
+    @Benchmark
+    public void float32Simd(Blackhole blackhole) {
+        scanFloat(simd, blackhole);
+    }
+
+    @Benchmark
+    public void float32SimdDirect(Blackhole blackhole) {
+        int rowBytes = dimension * Float.BYTES;
+        for (int row = 0, offset = 0; row < rows; row++, offset += rowBytes) {
+            blackhole.consume(simd.dot(query, directSlab, offset, dimension));
+        }
+    }
+
+    @Benchmark
+    public void int8Scalar(Blackhole blackhole) {
+        scanInt8(scalar, blackhole);
+    }
+
+    @Benchmark
+    public void int8Simd(Blackhole blackhole) {
+        scanInt8(simd, blackhole);
+    }
+
+    @Benchmark
+    public void binaryHamming(Blackhole blackhole) {
+        for (int row = 0, offset = 0; row < rows; row++, offset += words) {
+            blackhole.consume(simd.hamming(querySketch, 0, sketches, offset, words));
+        }
+    }
+
+    private void scanFloat(ScalarKernels kernels, Blackhole blackhole) {
+        for (int row = 0, offset = 0; row < rows; row++, offset += dimension) {
+            blackhole.consume(kernels.dot(query, 0, slab, offset, dimension));
+        }
+    }
+
+    private void scanInt8(ScalarKernels kernels, Blackhole blackhole) {
+        for (int row = 0, offset = 0; row < rows; row++, offset += dimension) {
+            blackhole.consume(kernels.dotInt8(queryCodes, 0, codes, offset, dimension));
+        }
+    }
+}
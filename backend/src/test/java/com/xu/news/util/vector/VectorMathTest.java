@@ -0,0 +1,84 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 打分内核单元测试（SIMD 与标量实现结果一致）
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("向量打分内核测试")
+class VectorMathTest {
+
+    private final Random random = new Random(29);
+    private final ScalarKernels scalar = new ScalarKernels();
+    private final ScalarKernels simd = new SimdKernels();
+
+    @Test
+    @DisplayName("测试环境启用SIMD内核")
+    void testSimdKernelSelected() {
+        assertTrue(VectorMath.kernelName().startsWith("simd"), VectorMath.kernelName());
+    }
+
+    @Test
+    @DisplayName("float32点积 - 含非整倍数长度与偏移")
+    void testFloatDot() {
+        for (int length : new int[]{1, 7, 16, 33, 768, 1001}) {
+            // Given
+            float[] a = randomFloats(length + 5);
+            float[] b = randomFloats(length + 9);
+
+            // When
+            float expected = scalar.dot(a, 5, b, 9, length);
+            float actual = simd.dot(a, 5, b, 9, length);
+
+            // Then
+            assertEquals(expected, actual, 1e-3f * Math.max(1f, Math.abs(expected)), "length=" + length);
+        }
+    }
+
+    @Test
+    @DisplayName("int8点积 - 与标量结果完全一致")
+    void testInt8Dot() {
+        for (int length : new int[]{3, 8, 31, 64, 768, 1001}) {
+            // Given
+            byte[] a = randomBytes(length + 2);
+            byte[] b = randomBytes(length + 7);
+
+            // When & Then
+            assertEquals(scalar.dotInt8(a, 2, b, 7, length), simd.dotInt8(a, 2, b, 7, length), "length=" + length);
+        }
+    }
+
+    @Test
+    @DisplayName("汉明距离")
+    void testHamming() {
+        // Given
+        long[] a = {0L, -1L, 0x0F0FL};
+        long[] b = {7L, 0L, 0x0F0FL, -1L};
+
+        // When & Then
+        assertEquals(3 + 64, simd.hamming(a, 0, b, 0, 3));
+        assertEquals(3 + 64, VectorMath.hamming(a, b, 0, 3));
+    }
+
+    private float[] randomFloats(int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] values = new byte[length];
+        random.nextBytes(values);
+        return values;
+    }
+}
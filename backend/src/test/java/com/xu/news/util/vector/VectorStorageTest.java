@@ -0,0 +1,67 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VectorStorage 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("向量数据块分配测试")
+class VectorStorageTest {
+
+    @Test
+    @DisplayName("堆内分配 - 不计入堆外内存")
+    void testHeapStorage() {
+        // Given
+        VectorStorage storage = VectorStorage.heap();
+
+        // When
+        ByteBuffer chunk = storage.allocate(4096);
+
+        // Then
+        assertFalse(chunk.isDirect());
+        assertEquals(0, storage.offHeapBytes());
+    }
+
+    @Test
+    @DisplayName("文件映射分配 - 启动时清理残留文件，释放后删除数据文件")
+    void testMappedStorage(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path directory = tempDir.resolve("faiss_index.vectors");
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("chunk-00000001.bin"), "stale");
+        VectorStorage storage = VectorStorage.mapped(directory);
+
+        // When
+        ByteBuffer chunk = storage.allocate(4096);
+        chunk.putFloat(128, 0.5f);
+
+        // Then
+        assertTrue(chunk.isDirect());
+        assertEquals(0.5f, chunk.getFloat(128));
+        assertEquals(4096, storage.offHeapBytes());
+        assertEquals(1, countFiles(directory));
+
+        storage.release(chunk);
+        assertEquals(0, storage.offHeapBytes());
+        assertEquals(0, countFiles(directory));
+    }
+
+    private long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.xu.news.util.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VectorWal 单元测试
+ *
+ * @author XU
+ * @since 2026-10-18
+ */
+@DisplayName("向量写前日志测试")
+class VectorWalTest {
+
+    private static final int DIMENSION = 8;
+
+    @Test
+    @DisplayName("追加后回放 - 按写入顺序还原新增与删除")
+    void testAppendAndReplay(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("index.wal");
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            wal.appendInsert(1L, vector(1f));
+            wal.appendInsert(2L, vector(2f));
+            long seq = wal.appendDelete(1L);
+            wal.sync(seq);
+        }
+
+        // When
+        Map<Long, float[]> state = new LinkedHashMap<>();
+        long records;
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            records = wal.replay(handler(state));
+        }
+
+        // Then
+        assertEquals(3, records);
+        assertEquals(1, state.size());
+        assertArrayEquals(vector(2f), state.get(2L));
+    }
+
+    @Test
+    @DisplayName("尾部记录不完整 - 丢弃后继续追加")
+    void testTornTail(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("index.wal");
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            wal.appendInsert(1L, vector(1f));
+            wal.sync(wal.appendInsert(2L, vector(2f)));
+        }
+        long fullSize = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - 5);
+        }
+
+        // When
+        Map<Long, float[]> state = new LinkedHashMap<>();
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            assertEquals(1, wal.replay(handler(state)));
+            wal.sync(wal.appendInsert(3L, vector(3f)));
+        }
+        Map<Long, float[]> reopened = new LinkedHashMap<>();
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            wal.replay(handler(reopened));
+        }
+
+        // Then
+        assertEquals(List.of(1L), new ArrayList<>(state.keySet()));
+        assertEquals(List.of(1L, 3L), new ArrayList<>(reopened.keySet()));
+    }
+
+    @Test
+    @DisplayName("检查点后清空日志")
+    void testReset(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("index.wal");
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            wal.sync(wal.appendInsert(1L, vector(1f)));
+            assertEquals(1, wal.pendingRecords());
+
+            // When
+            wal.reset();
+
+            // Then
+            assertEquals(0, wal.pendingRecords());
+        }
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            assertEquals(0, wal.replay(handler(new LinkedHashMap<>())));
+        }
+    }
+
+    @Test
+    @DisplayName("切换日志段 - 旧段删除前重启回放全部段，删除后只回放新段")
+    void testRotateAndDiscard(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("index.wal");
+        List<Path> sealed;
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            wal.sync(wal.appendInsert(1L, vector(1f)));
+
+            // When
+            sealed = wal.rotate();
+            wal.sync(wal.appendInsert(2L, vector(2f)));
+            wal.sync(wal.appendDelete(1L));
+
+            // Then
+            assertEquals(List.of(path), sealed);
+            assertEquals(3, wal.pendingRecords());
+        }
+        Map<Long, float[]> state = new LinkedHashMap<>();
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            assertEquals(3, wal.replay(handler(state)));
+            assertEquals(List.of(2L), new ArrayList<>(state.keySet()));
+            wal.discard(sealed);
+            assertEquals(2, wal.pendingRecords());
+        }
+        assertFalse(Files.exists(path));
+        assertTrue(Files.exists(tempDir.resolve("index.wal.1")));
+        state.clear();
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            assertEquals(2, wal.replay(handler(state)));
+        }
+        assertEquals(List.of(2L), new ArrayList<>(state.keySet()));
+    }
+
+    @Test
+    @DisplayName("并发写入 - 组提交后全部记录可回放")
+    void testConcurrentGroupCommit(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path path = tempDir.resolve("index.wal");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long base = t * 1000L;
+                futures.add(executor.submit(() -> {
+                    for (long i = 1; i <= 200; i++) {
+                        wal.sync(wal.appendInsert(base + i, vector(i)));
+                    }
+                    return null;
+                }));
+            }
+
+            // When
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        Map<Long, float[]> state = new LinkedHashMap<>();
+        try (VectorWal wal = VectorWal.open(path, DIMENSION)) {
+            assertEquals(1600, wal.replay(handler(state)));
+        }
+        assertEquals(1600, state.size());
+    }
+
+    @Test
+    @DisplayName("维度不一致 - 拒绝打开")
+    void testDimensionMismatch(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("index.wal");
+        VectorWal.open(path, DIMENSION).close();
+
+        // When & Then
+        assertThrows(IOException.class, () -> VectorWal.open(path, DIMENSION * 2));
+    }
+
+    private VectorWal.RecordHandler handler(Map<Long, float[]> state) {
+        return new VectorWal.RecordHandler() {
+            @Override
+            public void onInsert(long id, float[] vector) {
+                state.put(id, vector);
+            }
+
+            @Override
+            public void onDelete(long id) {
+                state.remove(id);
+            }
+        };
+    }
+
+    private float[] vector(float value) {
+        float[] vector = new float[DIMENSION];
+        vector[0] = value;
+        vector[DIMENSION - 1] = -value;
+        return vector;
+    }
+}